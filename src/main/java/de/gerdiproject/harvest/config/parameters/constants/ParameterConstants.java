@@ -52,6 +52,8 @@ public class ParameterConstants
 
     public static final String NON_EMPTY_STRING_PARAM_INVALID = "It must be a non-empty string!";
     public static final String URL_PARAM_INVALID = "It must be a valid URL!";
+    public static final String URL_LIST_PARAM_INVALID = "It must be a comma-separated list of valid URLs!";
+    public static final String LIST_SEPARATOR = ",";
     public static final String ETL_PARAM_INVALID_STATE = "The '%s' must be idle, but it is currently %s!";
     public static final String ETL_REGISTRY_PARAM_INVALID_STATE = "All ETLs must be idle, but they are currently %s!";
 
@@ -191,6 +191,45 @@ public class ParameterMappingFunctions // NOPMD the class name is fiiine
     }
 
 
+    /**
+     * This function checks if a string represents a comma-separated list of valid {@linkplain URL}s
+     * and returns the list without surrounding whitespace if it does.
+     *
+     * @param value a string representation of a parameter value
+     *
+     * @throws IllegalArgumentException this exception is thrown when at least one list entry is not a valid {@linkplain URL}
+     *
+     * @return a comma-separated list of valid URL strings
+     */
+    public static String mapToUrlListString(final String value) throws IllegalArgumentException
+    {
+        if (value == null || value.trim().isEmpty())
+            return null;
+
+        final StringBuilder sb = new StringBuilder();
+
+        for (final String rawUrl : value.split(ParameterConstants.LIST_SEPARATOR)) {
+            final String url = rawUrl.trim();
+
+            if (url.isEmpty())
+                continue;
+
+            try {
+                new URL(url);
+            } catch (final MalformedURLException e) {
+                throw new IllegalArgumentException(ParameterConstants.URL_LIST_PARAM_INVALID); // NOPMD we don't care about the stack trace here
+            }
+
+            if (sb.length() > 0)
+                sb.append(ParameterConstants.LIST_SEPARATOR);
+
+            sb.append(url);
+        }
+
+        return sb.length() == 0 ? null : sb.toString();
+    }
+
+
     /**
      * Creates a mapping function that executes another mapping function while throwing an exception if a specified ETL
      * is currently busy.
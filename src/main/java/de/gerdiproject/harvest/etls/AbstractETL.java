@@ -82,6 +82,7 @@ public abstract class AbstractETL <T, S> implements IEventListener
     protected final Logger logger; // NOPMD - we want to retrieve the type of the inheriting class
     protected String name;
     protected volatile String hash;
+    protected volatile Integer loaderBatchSize; // only describes the current harvest, so it is not persisted
 
     protected final TimestampedList<ETLHealth> healthHistory;
     protected final TimestampedList<ETLState> stateHistory;
@@ -231,6 +232,30 @@ public abstract class AbstractETL <T, S> implements IEventListener
     }
 
 
+    /**
+     * Returns the number of bytes that are currently loaded
+     * per batch by the {@linkplain ILoader}.
+     *
+     * @return the current batch size in bytes, or null if the loader does not use batches
+     */
+    public Integer getLoaderBatchSize()
+    {
+        return loaderBatchSize;
+    }
+
+
+    /**
+     * Changes the number of bytes that are currently loaded
+     * per batch by the {@linkplain ILoader}.
+     *
+     * @param batchSize the current batch size in bytes, or null if the loader does not use batches
+     */
+    public void setLoaderBatchSize(final Integer batchSize)
+    {
+        this.loaderBatchSize = batchSize;
+    }
+
+
     /**
      * Aborts the harvesting process, allowing a new harvest to be started.
      *
@@ -376,6 +401,7 @@ public abstract class AbstractETL <T, S> implements IEventListener
 
             // initialize loader
             errorMessage = ETLConstants.LOADER_CREATE_ERROR;
+            loaderBatchSize = null;
             loader.init(this);
 
         } catch (final ETLPreconditionException e) {
@@ -439,9 +465,7 @@ public abstract class AbstractETL <T, S> implements IEventListener
             logger.info(String.format(ETLConstants.ETL_STARTED, getName()));
             setStatus(ETLState.HARVESTING);
 
-            final T exOut = extractor.extract();
-            final S transOut = transformer.transform(exOut);
-            loader.load(transOut);
+            extractTransformLoad();
 
             // clear up temporary variables and readers
             loader.clear();
@@ -460,6 +484,23 @@ public abstract class AbstractETL <T, S> implements IEventListener
     }
 
 
+    /**
+     * Extracts the source data, transforms it to documents, and loads them.
+     * Subclasses may override this method in order to change how the three
+     * stages of the ETL are executed.
+     *
+     * @throws ExtractorException thrown when the source data cannot be extracted
+     * @throws TransformerException thrown when the source data cannot be transformed
+     * @throws LoaderException thrown when the documents cannot be loaded
+     */
+    protected void extractTransformLoad() throws ExtractorException, TransformerException, LoaderException
+    {
+        final T exOut = extractor.extract();
+        final S transOut = transformer.transform(exOut);
+        loader.load(transOut);
+    }
+
+
     /**
     * This method is called after an ongoing harvest failed due to an
     * exception.
@@ -629,6 +670,11 @@ public abstract class AbstractETL <T, S> implements IEventListener
                                   currCount,
                                   maxCount));
                 }
+
+                final Integer batchSize = loaderBatchSize;
+
+                if (batchSize != null)
+                    sb.append(String.format(ETLConstants.LOADER_BATCH_SIZE, batchSize));
             }
 
             etlStatus = sb.toString();
@@ -16,25 +16,46 @@
 package de.gerdiproject.harvest.etls;
 
 
+import java.io.File;
 import java.util.Iterator;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
+import de.gerdiproject.harvest.application.events.GetCacheFolderEvent;
 import de.gerdiproject.harvest.config.Configuration;
 import de.gerdiproject.harvest.config.events.ParameterChangedEvent;
+import de.gerdiproject.harvest.config.parameters.BooleanParameter;
 import de.gerdiproject.harvest.config.parameters.IntegerParameter;
 import de.gerdiproject.harvest.config.parameters.constants.ParameterMappingFunctions;
 import de.gerdiproject.harvest.etls.constants.ETLConstants;
 import de.gerdiproject.harvest.etls.enums.ETLHealth;
 import de.gerdiproject.harvest.etls.enums.ETLState;
 import de.gerdiproject.harvest.etls.extractors.AbstractIteratorExtractor;
+import de.gerdiproject.harvest.etls.extractors.AbstractPrefetchingExtractor;
+import de.gerdiproject.harvest.etls.extractors.ExtractorException;
+import de.gerdiproject.harvest.etls.json.ETLCheckpointJson;
 import de.gerdiproject.harvest.etls.json.ETLJson;
 import de.gerdiproject.harvest.etls.loaders.AbstractIteratorLoader;
+import de.gerdiproject.harvest.etls.loaders.LoaderException;
 import de.gerdiproject.harvest.etls.transformers.AbstractIteratorTransformer;
+import de.gerdiproject.harvest.etls.transformers.TransformerException;
+import de.gerdiproject.harvest.etls.utils.CheckpointFile;
+import de.gerdiproject.harvest.etls.utils.PipelineQueue;
+import de.gerdiproject.harvest.event.EventSystem;
+import de.gerdiproject.harvest.utils.file.constants.FileConstants;
 
 
 /**
  * This ETL harvests data via {@linkplain Iterator}s and creates a
  * document for each iterated element.
+ * If the pipelined mode is enabled via parameter, the extraction,
+ * transformation, and loading are executed concurrently on separate threads
+ * that are connected via bounded {@linkplain PipelineQueue}s.
+ * <br><br>
+ * If the resume mode is enabled via parameter, the index of the next element
+ * that is to be extracted is saved as a checkpoint whenever the loader has loaded
+ * a batch of documents. An interrupted harvest then continues from the
+ * checkpoint, as long as neither the source data nor the harvesting range changed.
  *
  * @param <T> the type of the extracted source data
  * @param <S> the type of the transformed documents
@@ -45,8 +66,19 @@ public abstract class AbstractIteratorETL<T, S> extends AbstractETL<Iterator<T>,
 {
     protected volatile IntegerParameter startIndexParameter;
     protected volatile IntegerParameter endIndexParameter;
+    protected volatile BooleanParameter pipelinedParameter;
+    protected volatile IntegerParameter pipelineQueueSizeParameter;
+    protected volatile IntegerParameter transformerThreadsParameter;
+    protected volatile BooleanParameter transformerOrderedParameter;
+    protected volatile BooleanParameter resumeParameter;
+    protected volatile IntegerParameter prefetchWindowParameter;
     protected final AtomicInteger harvestedCount = new AtomicInteger(0);
 
+    private volatile File cacheFolder;
+    private volatile CheckpointFile checkpointFile;
+    private volatile boolean isCheckpointEnabled;
+    private volatile int resumeIndex = -1;
+
 
     /**
      * Forwarding super class constructor.
@@ -68,6 +100,20 @@ public abstract class AbstractIteratorETL<T, S> extends AbstractETL<Iterator<T>,
     }
 
 
+    @Override
+    public void init(final String moduleName) throws IllegalStateException
+    {
+        super.init(moduleName);
+
+        final File cacheRootFolder = EventSystem.sendSynchronousEvent(new GetCacheFolderEvent());
+
+        if (cacheRootFolder != null) {
+            this.cacheFolder = new File(cacheRootFolder, String.format(FileConstants.CACHE_FOLDER_PATH, moduleName));
+            this.checkpointFile = new CheckpointFile(new File(cacheFolder, String.format(ETLConstants.CHECKPOINT_CACHE_PATH, getName())));
+        }
+    }
+
+
     @Override
     protected void registerParameters()
     {
@@ -86,6 +132,48 @@ public abstract class AbstractIteratorETL<T, S> extends AbstractETL<Iterator<T>,
                                                 getName(),
                                                 ETLConstants.END_INDEX_PARAM_DEFAULT_VALUE,
                                                 ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToUnsignedInteger, this)));
+
+        this.pipelinedParameter =
+            Configuration.registerParameter(new BooleanParameter(
+                                                ETLConstants.PIPELINED_PARAM_KEY,
+                                                getName(),
+                                                ETLConstants.PIPELINED_PARAM_DEFAULT_VALUE,
+                                                ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToBoolean, this)));
+
+        this.pipelineQueueSizeParameter =
+            Configuration.registerParameter(new IntegerParameter(
+                                                ETLConstants.PIPELINE_QUEUE_SIZE_PARAM_KEY,
+                                                getName(),
+                                                ETLConstants.PIPELINE_QUEUE_SIZE_PARAM_DEFAULT_VALUE,
+                                                ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToUnsignedInteger, this)));
+
+        this.transformerThreadsParameter =
+            Configuration.registerParameter(new IntegerParameter(
+                                                ETLConstants.TRANSFORMER_THREADS_PARAM_KEY,
+                                                getName(),
+                                                ETLConstants.TRANSFORMER_THREADS_PARAM_DEFAULT_VALUE,
+                                                ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToUnsignedInteger, this)));
+
+        this.transformerOrderedParameter =
+            Configuration.registerParameter(new BooleanParameter(
+                                                ETLConstants.TRANSFORMER_ORDERED_PARAM_KEY,
+                                                getName(),
+                                                ETLConstants.TRANSFORMER_ORDERED_PARAM_DEFAULT_VALUE,
+                                                ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToBoolean, this)));
+
+        this.resumeParameter =
+            Configuration.registerParameter(new BooleanParameter(
+                                                ETLConstants.RESUME_PARAM_KEY,
+                                                getName(),
+                                                ETLConstants.RESUME_PARAM_DEFAULT_VALUE,
+                                                ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToBoolean, this)));
+
+        this.prefetchWindowParameter =
+            Configuration.registerParameter(new IntegerParameter(
+                                                ETLConstants.PREFETCH_WINDOW_PARAM_KEY,
+                                                getName(),
+                                                ETLConstants.PREFETCH_WINDOW_PARAM_DEFAULT_VALUE,
+                                                ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToUnsignedInteger, this)));
     }
 
 
@@ -100,6 +188,7 @@ public abstract class AbstractIteratorETL<T, S> extends AbstractETL<Iterator<T>,
     @Override
     public void prepareHarvest() throws ETLPreconditionException
     {
+        resumeIndex = -1;
         super.prepareHarvest();
 
         if (getStartIndex() == getEndIndex()) {
@@ -123,7 +212,173 @@ public abstract class AbstractIteratorETL<T, S> extends AbstractETL<Iterator<T>,
             throw e;
         }
 
-        harvestedCount.set(0);
+        ((AbstractIteratorTransformer<T, S>) transformer).setParallelism(
+            transformerThreadsParameter.getValue(),
+            transformerOrderedParameter.getValue());
+
+        if (extractor instanceof AbstractPrefetchingExtractor)
+            ((AbstractPrefetchingExtractor<?>) extractor).setPrefetchWindow(prefetchWindowParameter.getValue());
+
+        // checkpoints are only written if they can be resumed from
+        final boolean isResumable = checkpointFile != null && resumeParameter.getValue();
+
+        // checkpoints require the documents to be loaded in the order in which they were extracted
+        isCheckpointEnabled = isResumable
+                              && (transformerThreadsParameter.getValue() <= 1 || transformerOrderedParameter.getValue());
+
+        if (isResumable && !isCheckpointEnabled)
+            logger.warn(String.format(ETLConstants.CHECKPOINT_UNORDERED, getName()));
+
+        // skip elements that were loaded before the harvest was interrupted
+        if (isCheckpointEnabled)
+            resumeFromCheckpoint();
+
+        harvestedCount.set(getResumeIndex() - getStartIndex());
+    }
+
+
+    /**
+     * Saves the index of the next element that is to be extracted.
+     * This method is called by the {@linkplain AbstractIteratorLoader}
+     * after it loaded all documents up to this index.
+     *
+     * @param loadedCount the number of extracted elements that have been loaded since the harvest started
+     */
+    public synchronized void saveCheckpoint(final int loadedCount)
+    {
+        if (!isCheckpointEnabled)
+            return;
+
+        checkpointFile.save(new ETLCheckpointJson(
+                                getHash(),
+                                getStartIndex(),
+                                getEndIndex(),
+                                getResumeIndex() + loadedCount));
+    }
+
+
+    /**
+     * Returns the folder in which files are stored that must persist
+     * between harvests, such as checkpoints.
+     *
+     * @return the cache folder of the harvester service, or null if there is none
+     */
+    public File getCacheFolder()
+    {
+        return cacheFolder;
+    }
+
+
+    /**
+     * Returns true if the current harvest covers all elements of the source,
+     * meaning that it was neither restricted to a range, nor resumed from a checkpoint.
+     *
+     * @return true if all elements of the source are harvested
+     */
+    public boolean isHarvestingEverything()
+    {
+        return getResumeIndex() == 0 && getEndIndex() == Integer.MAX_VALUE;
+    }
+
+
+    /**
+     * Returns the index of the first element that is extracted in the current
+     * harvest. Unless the harvest was resumed from a checkpoint, this is the start index.
+     *
+     * @return the index of the first element that is extracted in the current harvest
+     */
+    public int getResumeIndex()
+    {
+        return Math.max(getStartIndex(), resumeIndex);
+    }
+
+
+    /**
+     * Reads the checkpoint of a previously interrupted harvest and
+     * changes the resume index accordingly, if the source data and
+     * the harvesting range did not change since.
+     */
+    private void resumeFromCheckpoint()
+    {
+        final ETLCheckpointJson checkpoint = checkpointFile.load();
+
+        if (checkpoint == null)
+            return;
+
+        if (checkpoint.getStartIndex() != getStartIndex()
+            || checkpoint.getEndIndex() != getEndIndex()
+            || getHash() == null
+            || !getHash().equals(checkpoint.getVersionHash())) {
+            logger.warn(String.format(ETLConstants.CHECKPOINT_OUTDATED, getName()));
+            return;
+        }
+
+        resumeIndex = checkpoint.getNextIndex();
+        logger.info(String.format(ETLConstants.CHECKPOINT_RESUMED, getName(), getResumeIndex()));
+    }
+
+
+    /**
+     * Extracts, transforms, and loads documents. If the pipelined mode is enabled,
+     * the extraction and transformation are each executed on a dedicated thread,
+     * while the loading is executed on the calling thread.
+     * The checkpoint is deleted when all documents were harvested.
+     */
+    @Override
+    protected void extractTransformLoad() throws ExtractorException, TransformerException, LoaderException
+    {
+        if (pipelinedParameter.getValue())
+            extractTransformLoadPipelined();
+        else {
+            final Iterator<S> documents = transformer.transform(extractor.extract());
+
+            try {
+                loader.load(documents);
+            } finally {
+                closeStageOutput(documents);
+            }
+        }
+
+        // the checkpoint is obsolete if the harvest was completed
+        if (isCheckpointEnabled && getState() == ETLState.HARVESTING)
+            checkpointFile.delete();
+    }
+
+
+    /**
+     * Extracts, transforms, and loads documents, each stage being
+     * executed concurrently.
+     *
+     * @throws ExtractorException thrown if the extraction failed
+     * @throws TransformerException thrown if the transformation failed
+     * @throws LoaderException thrown if the loading failed
+     */
+    private void extractTransformLoadPipelined() throws ExtractorException, TransformerException, LoaderException
+    {
+        logger.info(String.format(ETLConstants.PIPELINE_STARTED, getName()));
+
+        final int queueSize = pipelineQueueSizeParameter.getValue();
+        final PipelineQueue<T> extractedElements = new PipelineQueue<>(queueSize);
+        final PipelineQueue<S> transformedDocuments = new PipelineQueue<>(queueSize);
+
+        final Thread extractThread = startStageThread(
+                                         ETLConstants.PIPELINE_EXTRACT_THREAD_NAME,
+                                         () -> feedQueue(extractor::extract, extractedElements));
+
+        final Thread transformThread = startStageThread(
+                                           ETLConstants.PIPELINE_TRANSFORM_THREAD_NAME,
+                                           () -> feedQueue(() -> transformer.transform(extractedElements), transformedDocuments));
+
+        try {
+            loader.load(transformedDocuments);
+        } finally {
+            // release stages that are blocked, because the loader stopped early
+            transformedDocuments.cancel();
+            extractedElements.cancel();
+
+            joinStageThread(transformThread);
+            joinStageThread(extractThread);
+        }
     }
 
 
@@ -196,6 +451,95 @@ public abstract class AbstractIteratorETL<T, S> extends AbstractETL<Iterator<T>,
     }
 
 
+    /**
+     * Iterates a stage of the ETL and adds all of its elements to a queue,
+     * until the stage is exhausted, the queue is cancelled, or the harvest
+     * is no longer running. Exceptions and errors are forwarded to the consumer
+     * of the queue.
+     *
+     * @param stage a function that returns the output of an ETL stage
+     * @param queue the queue to which the output of the stage is added
+     *
+     * @param <E> the type of the stage output
+     */
+    private <E> void feedQueue(final Supplier<Iterator<E>> stage, final PipelineQueue<E> queue)
+    {
+        Iterator<E> elements = null;
+
+        try {
+            elements = stage.get();
+
+            while (getState() == ETLState.HARVESTING && elements.hasNext()) {
+                if (!queue.put(elements.next()))
+                    return;
+            }
+
+            queue.close();
+
+        } catch (final Throwable e) { // NOPMD errors must be forwarded as well, or the consuming stage never terminates
+            queue.closeExceptionally(e);
+        } finally {
+            closeStageOutput(elements);
+        }
+    }
+
+
+    /**
+     * Closes the output of an ETL stage if it holds resources, such as the
+     * threads of a parallel {@linkplain AbstractIteratorTransformer}.
+     * This is required if the output was not iterated until its end.
+     *
+     * @param stageOutput the output of an ETL stage, or null
+     */
+    private void closeStageOutput(final Iterator<?> stageOutput)
+    {
+        if (stageOutput instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) stageOutput).close();
+            } catch (final Exception e) { // NOPMD close() may throw any exception
+                logger.warn(String.format(ETLConstants.STAGE_CLOSE_FAILED, getName()), e);
+            }
+        }
+    }
+
+
+    /**
+     * Creates and starts a daemon thread that executes a stage of the ETL.
+     *
+     * @param nameFormat a format for the thread name, into which the ETL name is inserted
+     * @param stage the stage that is to be executed
+     *
+     * @return the started thread
+     */
+    private Thread startStageThread(final String nameFormat, final Runnable stage)
+    {
+        final Thread stageThread = new Thread(stage, String.format(nameFormat, getName()));
+        stageThread.setDaemon(true);
+        stageThread.start();
+        return stageThread;
+    }
+
+
+    /**
+     * Waits for a thread that executes a stage of the ETL to finish.
+     * If the thread does not finish in time, it is interrupted.
+     *
+     * @param stageThread the thread that is to be joined
+     */
+    private void joinStageThread(final Thread stageThread)
+    {
+        try {
+            stageThread.join(ETLConstants.PIPELINE_SHUTDOWN_TIMEOUT);
+
+            if (stageThread.isAlive())
+                stageThread.interrupt();
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
     //////////////////////////////
     // Event Callback Functions //
     //////////////////////////////
@@ -66,6 +66,24 @@ public class ETLConstants
     public static final String END_INDEX_PARAM_KEY = "rangeTo";
     public static final int END_INDEX_PARAM_DEFAULT_VALUE = Integer.MAX_VALUE;
 
+    public static final String PIPELINED_PARAM_KEY = "pipelined";
+    public static final boolean PIPELINED_PARAM_DEFAULT_VALUE = false;
+
+    public static final String PIPELINE_QUEUE_SIZE_PARAM_KEY = "pipelineQueueSize";
+    public static final int PIPELINE_QUEUE_SIZE_PARAM_DEFAULT_VALUE = 128;
+
+    public static final String TRANSFORMER_THREADS_PARAM_KEY = "transformerThreads";
+    public static final int TRANSFORMER_THREADS_PARAM_DEFAULT_VALUE = 1;
+
+    public static final String TRANSFORMER_ORDERED_PARAM_KEY = "transformerOrdered";
+    public static final boolean TRANSFORMER_ORDERED_PARAM_DEFAULT_VALUE = true;
+
+    public static final String RESUME_PARAM_KEY = "resume";
+    public static final boolean RESUME_PARAM_DEFAULT_VALUE = false;
+
+    public static final String PREFETCH_WINDOW_PARAM_KEY = "prefetchWindow";
+    public static final int PREFETCH_WINDOW_PARAM_DEFAULT_VALUE = 4;
+
 
     // HASH GENERATION
     public static final String OCTET_FORMAT = "%02x";
@@ -86,6 +104,42 @@ public class ETLConstants
         "Cannot harvest %s - The source entries are empty or could not be retrieved!";
     public static final String ETL_SKIPPED_OUT_OF_RANGE = "Skipping %s - Document indices out of range.";
 
+    // Pipelined IteratorETL
+    public static final long PIPELINE_POLL_INTERVAL = 200;
+    public static final long PIPELINE_SHUTDOWN_TIMEOUT = 10000;
+    public static final String PIPELINE_EXTRACT_THREAD_NAME = "%s-extract";
+    public static final String PIPELINE_TRANSFORM_THREAD_NAME = "%s-transform";
+    public static final String PIPELINE_STARTED = "Running extraction, transformation, and loading of %s concurrently.";
+    public static final String STAGE_CLOSE_FAILED = "Could not release the resources of an ETL stage of %s!";
+
+    // Checkpoints of IteratorETLs
+    public static final String CHECKPOINT_CACHE_PATH = "checkpoints/%s.json";
+    public static final String CHECKPOINT_TEMP_FILE_SUFFIX = ".tmp";
+    public static final String CHECKPOINT_RESUMED = "Resuming %s from index %d.";
+    public static final String CHECKPOINT_OUTDATED = "Cannot resume %s, because the source data or the harvesting range changed since the last checkpoint!";
+    public static final String CHECKPOINT_UNORDERED = "Checkpoints of %s are disabled, because documents are transformed out of order!";
+    public static final String CHECKPOINT_SAVE_FAILED = "Could not save checkpoint to %s!";
+    public static final String CHECKPOINT_DELETE_FAILED = "Could not delete checkpoint %s!";
+
+    // Prefetching Extractor
+    public static final String PREFETCH_THREAD_NAME = "%s-prefetch-%d";
+    public static final long PREFETCH_THREAD_KEEP_ALIVE = 10000;
+    public static final long PREFETCH_POLL_INTERVAL = 200;
+    public static final String PREFETCH_ABORTED = "Stopped prefetching %s, because the harvest was aborted!";
+
+    // Streaming JSON Array Extractor
+    public static final String STREAMED_RESPONSES_FOLDER = "streamedResponses";
+    public static final String STREAMED_RESPONSE_FILE = "%s.json";
+    public static final String STREAMED_RESPONSE_TEMP_FILE_SUFFIX = ".tmp";
+    public static final String STREAMED_RESPONSE_ERROR = "Could not download JSON array from '%s'!";
+    public static final String STREAMED_RESPONSE_HTTP_ERROR = "Could not download JSON array from '%s', because the server responded with HTTP Status-Code %d!";
+    public static final String JSON_QUERY_NOT_FOUND = "Could not find a JSON array at '%s' in the response from '%s'!";
+
+    // Parallel IteratorTransformer
+    public static final String TRANSFORMER_THREAD_NAME = "%s-%d";
+    public static final long TRANSFORMER_THREAD_KEEP_ALIVE = 10000;
+    public static final int TRANSFORMER_BUFFER_FACTOR = 2;
+
     // REST
     public static final String ALLOWED_REQUESTS =
         "GET\n"
@@ -126,6 +180,7 @@ public class ETLConstants
     public static final String ETL_PRETTY = "%s : %s [Health: %s]%n";
     public static final String PROGRESS = " % 3d%% (%d / %d)";
     public static final String PROGRESS_NO_BOUNDS = " (%d / ???)";
+    public static final String LOADER_BATCH_SIZE = " [Batch Size: %d bytes]";
     public static final String NAME_TOTAL = "---\nOVERALL";
 
     public static final String MAX_RANGE_NUMBER = "%d (" + ParameterConstants.INTEGER_VALUE_MAX + ")";
@@ -24,6 +24,8 @@ import de.gerdiproject.harvest.etls.AbstractIteratorETL;
 /**
  * This {@linkplain IExtractor} can extract an {@linkplain Iterator} in order
  * to be able to iterate lists or similar constructs.
+ * Subclasses that implement {@linkplain ISeekableExtractor} can start the
+ * extraction directly at the first index of the harvesting range.
  *
  * @param <T> the type of objects that are extracted
  *
@@ -33,6 +35,8 @@ public abstract class AbstractIteratorExtractor <T> implements IExtractor<Iterat
 {
     protected int startIndex;
     protected int endIndex;
+    protected int resumeIndex;
+    private AbstractIteratorETL<?, ?> iterETL;
 
 
     @Override
@@ -43,6 +47,7 @@ public abstract class AbstractIteratorExtractor <T> implements IExtractor<Iterat
 
             this.startIndex = iterHarvester.getStartIndex();
             this.endIndex = iterHarvester.getEndIndex();
+            this.iterETL = iterHarvester;
         }
     }
 
@@ -60,10 +65,32 @@ public abstract class AbstractIteratorExtractor <T> implements IExtractor<Iterat
     @Override
     public Iterator<T> extract() throws ExtractorException
     {
-        if (endIndex == Integer.MAX_VALUE && startIndex == 0)
+        updateResumeIndex();
+
+        if (endIndex == Integer.MAX_VALUE && startIndex == 0 && resumeIndex == 0)
             return extractAll();
-        else
-            return new RangeRestrictedIterator(extractAll());
+
+        // skip the first x entries, or all entries that were harvested before the checkpoint
+        final int firstIndex = Math.max(startIndex, resumeIndex);
+
+        if (this instanceof ISeekableExtractor) {
+            @SuppressWarnings("unchecked") // NOPMD the extracted type is the same
+            final ISeekableExtractor<T> seekableExtractor = (ISeekableExtractor<T>) this;
+            return new RangeRestrictedIterator(seekableExtractor.extractFrom(firstIndex), firstIndex, firstIndex);
+        } else
+            return new RangeRestrictedIterator(extractAll(), 0, firstIndex);
+    }
+
+
+    /**
+     * Retrieves the index of the first element that is to be extracted
+     * from the ETL. The resume index is only known after the ETL has read
+     * its checkpoint, which is why this method must be called by
+     * {@linkplain #extract()}.
+     */
+    protected void updateResumeIndex()
+    {
+        this.resumeIndex = iterETL == null ? startIndex : iterETL.getResumeIndex();
     }
 
 
@@ -92,15 +119,16 @@ public abstract class AbstractIteratorExtractor <T> implements IExtractor<Iterat
 
         /**
          * Constructor.
-         * @param completeIterator an {@linkplain Iterator} that iterates over the entire set of harvestable data
+         * @param completeIterator an {@linkplain Iterator} that iterates over the harvestable data
+         * @param initialIndex the index of the first element of the completeIterator
+         * @param firstIndex the index of the first element that is to be harvested
          */
-        public RangeRestrictedIterator(final Iterator<T> completeIterator)
+        public RangeRestrictedIterator(final Iterator<T> completeIterator, final int initialIndex, final int firstIndex)
         {
             this.completeIterator = completeIterator;
-            index = 0;
+            index = initialIndex;
 
-            // skip the first x entries
-            while (index < startIndex && completeIterator.hasNext())
+            while (index < firstIndex && completeIterator.hasNext())
                 next();
         }
 
@@ -0,0 +1,369 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.gerdiproject.harvest.etls.AbstractETL;
+import de.gerdiproject.harvest.etls.constants.ETLConstants;
+import de.gerdiproject.harvest.etls.enums.ETLState;
+import de.gerdiproject.harvest.utils.data.HttpRequester;
+
+/**
+ * This {@linkplain AbstractIteratorExtractor} extracts one element per URL,
+ * for instance one page of a paginated web API. Multiple URLs are fetched
+ * concurrently by a dedicated thread pool, while the extracted elements are
+ * still returned in the order of their URLs. The number of URLs that are
+ * fetched ahead of the iterating thread is limited by the prefetch window.
+ * <br><br>
+ * Subclasses must override either {@linkplain #getUrl(int)}, if the URLs can be
+ * calculated from their index, or {@linkplain #getUrls()}, if the URLs are
+ * only known while iterating.
+ * The index of an element is the index of its URL, which means that URLs
+ * outside of the harvesting range are skipped without being fetched.
+ *
+ * @param <T> the type of objects that are extracted
+ *
+ * @author Robin Weiss
+ */
+public abstract class AbstractPrefetchingExtractor<T> extends AbstractIteratorExtractor<T> implements ISeekableExtractor<T>
+{
+    protected final HttpRequester httpRequester;
+    private AbstractETL<?, ?> etl;
+    private int prefetchWindow;
+    private PrefetchingIterator currentIterator;
+
+
+    /**
+     * Constructor that sets up an {@linkplain HttpRequester} for fetching URLs.
+     */
+    public AbstractPrefetchingExtractor()
+    {
+        super();
+        this.httpRequester = new HttpRequester();
+        this.prefetchWindow = ETLConstants.PREFETCH_WINDOW_PARAM_DEFAULT_VALUE;
+    }
+
+
+    /**
+     * Fetches a single URL and extracts an element from its response.
+     * This method is called concurrently by multiple threads.
+     *
+     * @param url the URL that is to be fetched
+     *
+     * @throws ExtractorException thrown when the element cannot be extracted
+     *
+     * @return the extracted element
+     */
+    protected abstract T fetchElement(String url) throws ExtractorException;
+
+
+    /**
+     * Returns the URL of the element with a specified index.
+     *
+     * @param index the index of the element
+     *
+     * @return the URL of the element, or null if there are no more elements
+     */
+    protected String getUrl(final int index)
+    {
+        return null;
+    }
+
+
+    /**
+     * Returns an {@linkplain Iterator} over the URLs of all elements.
+     * By default, the URLs are retrieved via {@linkplain #getUrl(int)}
+     * until it returns null.
+     *
+     * @return an {@linkplain Iterator} over the URLs of all elements
+     */
+    protected Iterator<String> getUrls()
+    {
+        return new IndexedUrlIterator();
+    }
+
+
+    /**
+     * Changes the maximum number of URLs that are fetched ahead of the
+     * iterating thread.
+     *
+     * @param prefetchWindow the maximum number of concurrently fetched URLs
+     */
+    public void setPrefetchWindow(final int prefetchWindow)
+    {
+        this.prefetchWindow = Math.max(prefetchWindow, 1);
+    }
+
+
+    @Override
+    public void init(final AbstractETL<?, ?> etl)
+    {
+        super.init(etl);
+        this.etl = etl;
+        httpRequester.setCharset(etl.getCharset());
+    }
+
+
+    @Override
+    public Iterator<T> extractFrom(final int index) throws ExtractorException
+    {
+        return startIterating(index, endIndex);
+    }
+
+
+    @Override
+    protected Iterator<T> extractAll() throws ExtractorException
+    {
+        return startIterating(0, Integer.MAX_VALUE);
+    }
+
+
+    @Override
+    public void clear()
+    {
+        if (currentIterator != null) {
+            currentIterator.abort();
+            currentIterator = null;
+        }
+    }
+
+
+    /**
+     * Stops a previous iteration and starts a new one over a range of URLs.
+     *
+     * @param firstIndex the index of the first URL that is to be fetched
+     * @param endIndex the index of the first URL that is not to be fetched
+     *
+     * @return an {@linkplain Iterator} over the extracted elements
+     */
+    private Iterator<T> startIterating(final int firstIndex, final int endIndex)
+    {
+        clear();
+        currentIterator = new PrefetchingIterator(firstIndex, endIndex);
+        return currentIterator;
+    }
+
+
+    /**
+     * Returns true if the ETL is being aborted.
+     *
+     * @return true if the ETL is being aborted
+     */
+    private boolean isAborting()
+    {
+        return etl != null && etl.getState() == ETLState.ABORTING;
+    }
+
+
+    /**
+     * This class is an {@linkplain Iterator} over URLs that are retrieved
+     * via {@linkplain AbstractPrefetchingExtractor#getUrl(int)}.
+     *
+     * @author Robin Weiss
+     */
+    private class IndexedUrlIterator implements Iterator<String>
+    {
+        private int index;
+        private String nextUrl = getUrl(0);
+
+
+        @Override
+        public boolean hasNext()
+        {
+            return nextUrl != null;
+        }
+
+
+        @Override
+        public String next()
+        {
+            if (nextUrl == null)
+                throw new NoSuchElementException();
+
+            final String url = nextUrl;
+            nextUrl = getUrl(++index);
+            return url;
+        }
+    }
+
+
+    /**
+     * This class is an {@linkplain Iterator} that fetches the URLs of a
+     * range concurrently and returns the extracted elements in order.
+     *
+     * @author Robin Weiss
+     */
+    private class PrefetchingIterator implements Iterator<T>
+    {
+        private final Iterator<String> urls;
+        private final int endIndex;
+        private final ThreadPoolExecutor executor;
+        private final Queue<Future<T>> pendingElements;
+        private int index;
+
+
+        /**
+         * Constructor that skips all URLs before the first index.
+         *
+         * @param firstIndex the index of the first URL that is to be fetched
+         * @param endIndex the index of the first URL that is not to be fetched
+         */
+        public PrefetchingIterator(final int firstIndex, final int endIndex)
+        {
+            this.urls = getUrls();
+            this.endIndex = endIndex;
+            this.pendingElements = new ArrayDeque<>(prefetchWindow);
+
+            final String threadNamePrefix = AbstractPrefetchingExtractor.this.getClass().getSimpleName();
+            final AtomicInteger threadIndex = new AtomicInteger(0);
+
+            this.executor = new ThreadPoolExecutor(
+                prefetchWindow,
+                prefetchWindow,
+                ETLConstants.PREFETCH_THREAD_KEEP_ALIVE,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                (final Runnable task) -> {
+                    final Thread thread = new Thread(task, String.format(ETLConstants.PREFETCH_THREAD_NAME, threadNamePrefix, threadIndex.incrementAndGet()));
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+            // let idle threads die if the iterator is abandoned
+            this.executor.allowCoreThreadTimeOut(true);
+
+            // skip URLs outside of the harvesting range without fetching them
+            while (index < firstIndex && urls.hasNext()) {
+                urls.next();
+                index++;
+            }
+        }
+
+
+        @Override
+        public boolean hasNext()
+        {
+            if (isAborting()) {
+                abort();
+                return false;
+            }
+
+            submitPendingFetches();
+
+            if (pendingElements.isEmpty()) {
+                executor.shutdown();
+                return false;
+            }
+
+            return true;
+        }
+
+
+        @Override
+        public T next()
+        {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            final Future<T> pendingElement = pendingElements.poll();
+
+            try {
+                // wait for the element, but stop waiting as soon as the harvest is aborted
+                while (true) {
+                    try {
+                        return pendingElement.get(ETLConstants.PREFETCH_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                    } catch (final TimeoutException e) {
+                        if (isAborting())
+                            throw new ExtractorException(String.format(ETLConstants.PREFETCH_ABORTED, etl.getName()));
+                    }
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw abort(new ExtractorException(e));
+
+            } catch (final ExecutionException e) {
+                final Throwable cause = e.getCause();
+
+                if (cause instanceof ExtractorException)
+                    throw abort((ExtractorException) cause);
+                else
+                    throw abort(new ExtractorException(cause));
+
+            } catch (final ExtractorException e) { // NOPMD stop pending fetches before forwarding the exception
+                throw abort(e);
+            }
+        }
+
+
+        /**
+         * Submits URLs to be fetched until the prefetch window is full,
+         * or until there are no more URLs in the harvesting range.
+         */
+        private void submitPendingFetches()
+        {
+            try {
+                while (pendingElements.size() < prefetchWindow
+                       && (index < endIndex || endIndex == Integer.MAX_VALUE)
+                       && urls.hasNext()) {
+                    final String url = urls.next();
+                    pendingElements.add(executor.submit(() -> fetchElement(url)));
+                    index++;
+                }
+            } catch (final RuntimeException e) { // NOPMD stop pending fetches before forwarding the exception
+                throw abort(e);
+            }
+        }
+
+
+        /**
+         * Cancels all pending fetches and shuts down the thread pool.
+         */
+        public void abort()
+        {
+            for (final Future<T> pendingElement : pendingElements)
+                pendingElement.cancel(true);
+
+            pendingElements.clear();
+            executor.shutdownNow();
+        }
+
+
+        /**
+         * Cancels all pending fetches and shuts down the thread pool.
+         *
+         * @param reason the exception that caused the abort
+         *
+         * @return the exception that caused the abort
+         */
+        private RuntimeException abort(final RuntimeException reason)
+        {
+            abort();
+            return reason;
+        }
+    }
+}
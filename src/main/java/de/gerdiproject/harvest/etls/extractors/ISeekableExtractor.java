@@ -0,0 +1,47 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import java.util.Iterator;
+
+/**
+ * This interface can be implemented by {@linkplain AbstractIteratorExtractor}s
+ * that are able to start the extraction at an arbitrary index, for instance
+ * by requesting a page or offset from the source repository. If a harvest
+ * starts or resumes at an index greater than zero, the preceding elements
+ * do not need to be extracted and skipped one by one.
+ *
+ * @param <T> the type of objects that are extracted
+ *
+ * @author Robin Weiss
+ */
+public interface ISeekableExtractor <T>
+{
+    /**
+     * Extracts all elements, beginning with the element at a specified index.
+     * If the source can only be accessed page by page, the elements that
+     * precede the index on the same page must be skipped by the extractor.
+     *
+     * @param index the index of the first element that is to be extracted
+     *
+     * @throws ExtractorException thrown when the extraction fails
+     *
+     * @return an {@linkplain Iterator} of which the first element is the
+     *          element at the specified index
+     */
+    Iterator<T> extractFrom(int index) throws ExtractorException;
+}
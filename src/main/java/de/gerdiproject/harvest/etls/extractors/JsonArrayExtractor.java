@@ -42,7 +42,7 @@ import lombok.Setter;
  *
  * @author Robin Weiss
  */
-public class JsonArrayExtractor<T> extends AbstractIteratorExtractor<T>
+public class JsonArrayExtractor<T> extends AbstractIteratorExtractor<T> implements ISeekableExtractor<T>
 {
     private final Type listType;
     private final Gson gson;
@@ -113,6 +113,13 @@ public class JsonArrayExtractor<T> extends AbstractIteratorExtractor<T>
     }
 
 
+    @Override
+    public Iterator<T> extractFrom(final int index)
+    {
+        return extractedList.listIterator(Math.min(index, extractedList.size()));
+    }
+
+
     @Override
     public int size()
     {
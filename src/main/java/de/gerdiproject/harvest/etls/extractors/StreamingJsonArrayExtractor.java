@@ -0,0 +1,412 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.ws.rs.core.MediaType;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import de.gerdiproject.harvest.application.events.GetCacheFolderEvent;
+import de.gerdiproject.harvest.etls.AbstractETL;
+import de.gerdiproject.harvest.etls.constants.ETLConstants;
+import de.gerdiproject.harvest.event.EventSystem;
+import de.gerdiproject.harvest.utils.HashGenerator;
+import de.gerdiproject.harvest.utils.HashingInputStream;
+import de.gerdiproject.harvest.utils.data.WebDataRetriever;
+import de.gerdiproject.harvest.utils.data.WebResponse;
+import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
+import de.gerdiproject.harvest.utils.data.enums.RestRequestType;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * This class represents the Extractor of an ETL process that
+ * parses a JSON array from a HTTP response, without holding the whole
+ * response in memory.
+ * <br><br>
+ * During initialization, the response is downloaded to a file in the cache
+ * folder, while its hash and the number of array elements are calculated
+ * on the fly. The elements are then parsed one by one from that file while
+ * they are being iterated. Unlike the {@linkplain JsonArrayExtractor},
+ * the version hash is calculated from the raw bytes of the response.
+ *
+ * @param <T> the type of elements of the JSON array
+ *
+ * @author Robin Weiss
+ */
+public class StreamingJsonArrayExtractor<T> extends AbstractIteratorExtractor<T> implements ISeekableExtractor<T>
+{
+    private final Type elementType;
+    private final Gson gson;
+    private final String jsonQuery;
+    private final WebDataRetriever webDataRetriever;
+    private final Set<JsonReader> openReaders;
+
+    private String hash;
+    private int elementCount;
+    private File responseFile;
+
+
+    /**
+     * -- GETTER --
+     * Retrieves the URL that is used to retrieve the JSON response.
+     * @return the URL that is used to retrieve the JSON response
+     *
+     * -- SETTER --
+     * Changes the URL that is used to retrieve the JSON response.
+     * @param url the new URL
+     */
+    @Getter @Setter
+    private String url;
+
+
+    /**
+     * Constructor that expects a JSON array to be contained in the
+     * HTTP response, navigating through the response via a specified query.
+     *
+     * @param gson used to parse the elements of the JSON array
+     * @param elementType the type of the elements of the JSON array
+     * @param jsonQuery a dot separated object structure at which the JSON array is expected
+     */
+    public StreamingJsonArrayExtractor(final Gson gson, final Type elementType, final String jsonQuery)
+    {
+        super();
+
+        this.gson = gson;
+        this.elementType = elementType;
+        this.jsonQuery = jsonQuery;
+        this.webDataRetriever = new WebDataRetriever(gson, StandardCharsets.UTF_8);
+        this.openReaders = ConcurrentHashMap.newKeySet();
+    }
+
+
+    /**
+     * Constructor that expects a JSON array to be returned directly
+     * as response from a specified URL.
+     *
+     * @param gson used to parse the elements of the JSON array
+     * @param elementType the type of the elements of the JSON array
+     */
+    public StreamingJsonArrayExtractor(final Gson gson, final Type elementType)
+    {
+        this(gson, elementType, null);
+    }
+
+
+    @Override
+    public void init(final AbstractETL<?, ?> etl)
+    {
+        super.init(etl);
+        closeReaders();
+
+        this.responseFile = getResponseFile();
+        this.hash = downloadResponse(responseFile);
+
+        try
+            (JsonReader reader = createArrayReader()) {
+            int count = 0;
+
+            while (reader.hasNext()) {
+                reader.skipValue();
+                count++;
+            }
+
+            this.elementCount = count;
+
+        } catch (final IOException | IllegalStateException e) {
+            throw new ExtractorException(String.format(ETLConstants.JSON_QUERY_NOT_FOUND, jsonQuery, url), e);
+        }
+    }
+
+
+    @Override
+    public Iterator<T> extractAll()
+    {
+        return extractFrom(0);
+    }
+
+
+    @Override
+    public Iterator<T> extractFrom(final int index)
+    {
+        final JsonReader reader;
+
+        try {
+            reader = createArrayReader();
+
+            // skip the preceding elements without parsing them
+            for (int i = 0; i < index && reader.hasNext(); i++)
+                reader.skipValue();
+
+        } catch (final IOException | IllegalStateException e) {
+            throw new ExtractorException(String.format(ETLConstants.JSON_QUERY_NOT_FOUND, jsonQuery, url), e);
+        }
+
+        openReaders.add(reader);
+        return new JsonArrayIterator(reader);
+    }
+
+
+    @Override
+    public int size()
+    {
+        return elementCount;
+    }
+
+
+    @Override
+    public String getUniqueVersionString()
+    {
+        return hash;
+    }
+
+
+    @Override
+    public void clear()
+    {
+        closeReaders();
+    }
+
+
+    /**
+     * Downloads the response from the URL to a file, calculating the
+     * hash of the response while it is being downloaded. The file is
+     * replaced atomically, so that readers of a previous download are
+     * not affected.
+     *
+     * @param targetFile the file to which the response is written
+     *
+     * @throws ExtractorException thrown when the response could not be downloaded
+     *
+     * @return a hash of the raw response
+     */
+    private String downloadResponse(final File targetFile) throws ExtractorException
+    {
+        Path tempPath = null;
+
+        try
+            (WebResponse response = webDataRetriever.sendRequest(
+                                        RestRequestType.GET, url, null, null, MediaType.APPLICATION_JSON, webDataRetriever.getRetries())) {
+
+            if (response.getStatusCode() >= 400)
+                throw new ExtractorException(String.format(ETLConstants.STREAMED_RESPONSE_HTTP_ERROR, url, response.getStatusCode()));
+
+            Files.createDirectories(targetFile.getParentFile().toPath());
+            tempPath = File.createTempFile(targetFile.getName(), ETLConstants.STREAMED_RESPONSE_TEMP_FILE_SUFFIX, targetFile.getParentFile()).toPath();
+
+            final HashingInputStream hashedBody = new HashingInputStream(response.getBody(), new HashGenerator(StandardCharsets.UTF_8));
+
+            try
+                (OutputStream fileStream = Files.newOutputStream(tempPath)) {
+                final byte[] buffer = new byte[DataOperationConstants.READ_BUFFER_SIZE];
+                int readBytes;
+
+                while ((readBytes = hashedBody.read(buffer)) != -1)
+                    fileStream.write(buffer, 0, readBytes);
+            }
+
+            try {
+                Files.move(tempPath, targetFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            return hashedBody.getHash();
+
+        } catch (final IOException e) {
+            throw new ExtractorException(String.format(ETLConstants.STREAMED_RESPONSE_ERROR, url), e);
+
+        } finally {
+            if (tempPath != null)
+                tempPath.toFile().delete(); // NOPMD the file only exists if the download failed
+        }
+    }
+
+
+    /**
+     * Returns the file to which the response is downloaded. Since the file
+     * name is derived from the URL, a repeated download replaces the previous one.
+     *
+     * @return the file to which the response is downloaded
+     */
+    private File getResponseFile()
+    {
+        File cacheFolder = EventSystem.sendSynchronousEvent(new GetCacheFolderEvent());
+
+        if (cacheFolder == null)
+            cacheFolder = new File(System.getProperty("java.io.tmpdir"));
+
+        final String fileName = new HashGenerator(StandardCharsets.UTF_8).getShaHash(url);
+
+        return new File(
+                   new File(cacheFolder, ETLConstants.STREAMED_RESPONSES_FOLDER),
+                   String.format(ETLConstants.STREAMED_RESPONSE_FILE, fileName));
+    }
+
+
+    /**
+     * Opens a {@linkplain JsonReader} of the downloaded response, and navigates
+     * to the first element of the JSON array via the query.
+     *
+     * @throws IOException thrown when the file cannot be read or the query
+     *          does not lead to a JSON array
+     *
+     * @return a {@linkplain JsonReader} that is positioned inside the JSON array
+     */
+    private JsonReader createArrayReader() throws IOException
+    {
+        final JsonReader reader = new JsonReader(new InputStreamReader(new FileInputStream(responseFile), StandardCharsets.UTF_8));
+
+        try {
+            // navigate to the JsonArray via the provided query
+            if (jsonQuery != null) {
+                for (final String q : jsonQuery.split("\\.")) {
+                    reader.beginObject();
+
+                    while (reader.hasNext() && !q.equals(reader.nextName()))
+                        reader.skipValue();
+
+                    if (reader.peek() == JsonToken.END_OBJECT)
+                        throw new IOException(String.format(ETLConstants.JSON_QUERY_NOT_FOUND, jsonQuery, url));
+                }
+            }
+
+            reader.beginArray();
+            return reader;
+
+        } catch (final IOException | IllegalStateException e) { // NOPMD the reader must be closed for any error
+            reader.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Closes all readers of the downloaded response.
+     */
+    private void closeReaders()
+    {
+        for (final JsonReader reader : openReaders)
+            closeReader(reader);
+    }
+
+
+    /**
+     * Closes a reader of the downloaded response, ignoring errors.
+     *
+     * @param reader the reader that is to be closed
+     */
+    private void closeReader(final JsonReader reader)
+    {
+        openReaders.remove(reader);
+
+        try {
+            reader.close();
+        } catch (final IOException e) { // NOPMD the reader is no longer needed anyway
+        }
+    }
+
+
+    /**
+     * This class is an {@linkplain Iterator} that parses the elements of a
+     * JSON array one by one. The reader is closed when the end of the array
+     * is reached.
+     *
+     * @author Robin Weiss
+     */
+    private class JsonArrayIterator implements Iterator<T>
+    {
+        private final JsonReader reader;
+        private boolean isClosed;
+
+
+        /**
+         * Constructor that requires a reader that is positioned inside a JSON array.
+         *
+         * @param reader a reader that is positioned inside a JSON array
+         */
+        public JsonArrayIterator(final JsonReader reader)
+        {
+            this.reader = reader;
+        }
+
+
+        @Override
+        public boolean hasNext()
+        {
+            if (isClosed)
+                return false;
+
+            try {
+                if (reader.hasNext())
+                    return true;
+
+            } catch (final IOException | IllegalStateException e) {
+                close();
+                throw new ExtractorException(e);
+            }
+
+            close();
+            return false;
+        }
+
+
+        @Override
+        public T next()
+        {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            try {
+                return gson.fromJson(reader, elementType);
+            } catch (final JsonParseException e) {
+                close();
+                throw new ExtractorException(e);
+            }
+        }
+
+
+        /**
+         * Closes the reader.
+         */
+        private void close()
+        {
+            isClosed = true;
+            closeReader(reader);
+        }
+    }
+}
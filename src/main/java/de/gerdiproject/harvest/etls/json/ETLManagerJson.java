@@ -39,4 +39,5 @@ public class ETLManagerJson
     private final String lastHarvestDate;
     private final String nextHarvestDate;
     private final boolean isEnabled;
+    private final HttpStatisticsJson httpStatistics;
 }
@@ -0,0 +1,41 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.json;
+
+import de.gerdiproject.harvest.utils.data.HttpStatistics;
+import lombok.Value;
+
+/**
+ * This class represents a JSON object containing the
+ * counters of the {@linkplain HttpStatistics}.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class HttpStatisticsJson
+{
+    private final long memoryCacheHits;
+    private final long memoryCacheMisses;
+    private final long memoryCacheEvictions;
+    private final long conditionalRequests;
+    private final long notModifiedResponses;
+    private final double notModifiedRatio;
+    private final long savedBytes;
+    private final long retries;
+    private final long redirects;
+    private final long exceededDeadlines;
+}
@@ -36,6 +36,7 @@ public abstract class AbstractIteratorLoader <S> implements ILoader<Iterator<S>>
 {
     protected AbstractIteratorETL<?, ?> dedicatedEtl;
     protected boolean hasLoadedDocuments;
+    protected int processedCount;
 
 
     @Override
@@ -46,6 +47,7 @@ public abstract class AbstractIteratorLoader <S> implements ILoader<Iterator<S>>
 
         this.dedicatedEtl = (AbstractIteratorETL<?, ?>) etl;
         this.hasLoadedDocuments = false;
+        this.processedCount = 0;
     }
 
 
@@ -73,6 +75,7 @@ public abstract class AbstractIteratorLoader <S> implements ILoader<Iterator<S>>
     {
         // even if nothing was harvested, one source was processed, so we increment the counter
         if (document == null) {
+            processedCount++;
             dedicatedEtl.incrementHarvestedDocuments();
             return;
         }
@@ -86,11 +89,27 @@ public abstract class AbstractIteratorLoader <S> implements ILoader<Iterator<S>>
             throw new LoaderException(e);
         } finally {
             // even if the loading failed, we processed something, so we increment the counter
+            processedCount++;
             dedicatedEtl.incrementHarvestedDocuments();
         }
     }
 
 
+    /**
+     * Marks the first documents that were processed by this loader as
+     * persisted, allowing an interrupted harvest to be resumed after them.
+     * Loaders that persist documents in batches should call this method
+     * whenever a batch was loaded.
+     *
+     * @param loadedCount the number of documents that have been processed and
+     *          persisted since the loader was initialized
+     */
+    protected void saveCheckpoint(final int loadedCount)
+    {
+        dedicatedEtl.saveCheckpoint(loadedCount);
+    }
+
+
     /**
      * Loads a single element of the {@linkplain Iterator}.
      *
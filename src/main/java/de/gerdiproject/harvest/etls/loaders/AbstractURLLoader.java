@@ -15,27 +15,87 @@
  */
 package de.gerdiproject.harvest.etls.loaders;
 
+import java.io.File;
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.gerdiproject.harvest.IDocument;
 import de.gerdiproject.harvest.config.Configuration;
+import de.gerdiproject.harvest.config.parameters.BooleanParameter;
 import de.gerdiproject.harvest.config.parameters.IntegerParameter;
 import de.gerdiproject.harvest.config.parameters.StringParameter;
+import de.gerdiproject.harvest.config.parameters.constants.ParameterConstants;
 import de.gerdiproject.harvest.etls.AbstractETL;
+import de.gerdiproject.harvest.etls.enums.ETLState;
 import de.gerdiproject.harvest.etls.loaders.constants.LoaderConstants;
+import de.gerdiproject.harvest.etls.loaders.utils.AdaptiveBatchSize;
+import de.gerdiproject.harvest.etls.loaders.utils.DocumentHashIndex;
+import de.gerdiproject.harvest.etls.loaders.utils.EndpointBalancer;
 import de.gerdiproject.harvest.utils.HashGenerator;
+import de.gerdiproject.harvest.utils.data.GzipRequestBody;
+import de.gerdiproject.harvest.utils.data.IRequestBody;
 
 /**
  * This abstract class offers a basis for sending documents to a search index
  * via a REST request.
+ * If the number of concurrent batches is set to a value greater than zero,
+ * full batches are submitted by a dedicated thread pool, while the next
+ * batch is being assembled. In that case, {@linkplain #loadBatch(Map)}
+ * must be thread-safe.
+ * <br><br>
+ * Subclasses that encode documents in order to measure their size can
+ * override {@linkplain #encodeDocument(String, IDocument)}. Each document is
+ * then encoded once for measuring its size, and the encoded payloads are kept
+ * until the batch is loaded and can be retrieved via {@linkplain #getEncodedPayload(String)},
+ * as long as they fit into the configured payload cache size. Otherwise,
+ * documents must be encoded again when the batch is loaded.
+ * <br><br>
+ * If additional URLs are configured, subclasses can distribute their requests
+ * among all URLs via the {@linkplain EndpointBalancer} that is created
+ * when the loader is initialized.
+ * <br><br>
+ * If the adaptive batch size is enabled, the size of the batches is adjusted
+ * between the minimum and maximum batch size via an {@linkplain AdaptiveBatchSize},
+ * depending on how long it takes to load a batch. Subclasses should call
+ * {@linkplain #reportBatchRejection()} if the target rejected a batch
+ * partially or entirely due to overload.
+ * <br><br>
+ * If compression is enabled, subclasses that stream their requests should
+ * pass the request bodies through {@linkplain #compressIfEnabled(IRequestBody)}.
+ * The batch size always refers to the uncompressed size.
+ * <br><br>
+ * Whenever a batch and all batches that were submitted before it are loaded,
+ * a checkpoint is saved, allowing the harvest to be resumed after the batch.
+ * <br><br>
+ * If delta loading is enabled, the content hash of every loaded document is
+ * stored in a {@linkplain DocumentHashIndex}. Documents that did not change since
+ * they were last loaded are skipped, and documents that were not harvested again
+ * are deleted, provided that the harvest covered all elements of the source.
+ * Content hashes are calculated from the payloads of
+ * {@linkplain #encodeDocument(String, IDocument)}, so loaders that do not encode
+ * documents in advance always load all documents.
  *
  * @param <S> The type of the sent documents
  *
@@ -46,14 +106,44 @@ public abstract class AbstractURLLoader <S extends IDocument> extends AbstractIt
     protected final Logger logger; // NOPMD - we want to retrieve the type of the inheriting class
     protected final Map<String, S> batchMap;
     protected final IntegerParameter maxBatchSizeParam;
+    protected final IntegerParameter minBatchSizeParam;
+    protected final IntegerParameter targetBatchLatencyParam;
+    protected final BooleanParameter adaptiveBatchSizeParam;
+    protected final BooleanParameter compressSubmissionParam;
+    protected final IntegerParameter concurrentBatchesParam;
+    protected final IntegerParameter payloadCacheSizeParam;
+    protected final BooleanParameter deltaLoadingParam;
     protected final StringParameter urlParam;
+    protected final StringParameter additionalUrlsParam;
+    protected final StringParameter endpointSelectionParam;
+    protected final IntegerParameter endpointCooldownParam;
     protected final HashGenerator hashGenerator;
 
     protected volatile Charset charset;
+    protected volatile EndpointBalancer endpointBalancer;
     private final StringParameter userNameParam;
     private final StringParameter passwordParam;
 
     private int currentBatchSize;
+    private volatile AdaptiveBatchSize adaptiveBatchSize;
+    private final ThreadLocal<Long> batchStartTime;
+
+    private final AtomicReference<LoaderException> batchFailure;
+    private volatile ThreadPoolExecutor batchExecutor;
+    private volatile Semaphore batchPermits;
+    private int maxConcurrentBatches;
+
+    private final Map<String, byte[]> payloadCache;
+    private final AtomicLong payloadCacheSize;
+
+    private volatile DocumentHashIndex documentHashIndex;
+    private final Map<String, String> pendingContentHashes;
+    private int skippedDocumentCount;
+    private int deletedDocumentCount;
+
+    private final SortedMap<Long, Integer> completedBatches;
+    private long submittedBatchCount;
+    private long checkpointBatchCount;
 
 
     /**
@@ -66,9 +156,25 @@ public abstract class AbstractURLLoader <S extends IDocument> extends AbstractIt
         this.batchMap = new HashMap<>();
 
         this.urlParam = Configuration.registerParameter(LoaderConstants.URL_PARAM);
+        this.additionalUrlsParam = Configuration.registerParameter(LoaderConstants.ADDITIONAL_URLS_PARAM);
+        this.endpointSelectionParam = Configuration.registerParameter(LoaderConstants.ENDPOINT_SELECTION_PARAM);
+        this.endpointCooldownParam = Configuration.registerParameter(LoaderConstants.ENDPOINT_COOLDOWN_PARAM);
         this.userNameParam = Configuration.registerParameter(LoaderConstants.USER_NAME_PARAM);
         this.passwordParam = Configuration.registerParameter(LoaderConstants.PASSWORD_PARAM);
         this.maxBatchSizeParam = Configuration.registerParameter(LoaderConstants.MAX_BATCH_SIZE_PARAM);
+        this.minBatchSizeParam = Configuration.registerParameter(LoaderConstants.MIN_BATCH_SIZE_PARAM);
+        this.targetBatchLatencyParam = Configuration.registerParameter(LoaderConstants.TARGET_BATCH_LATENCY_PARAM);
+        this.adaptiveBatchSizeParam = Configuration.registerParameter(LoaderConstants.ADAPTIVE_BATCH_SIZE_PARAM);
+        this.compressSubmissionParam = Configuration.registerParameter(LoaderConstants.COMPRESS_SUBMISSION_PARAM);
+        this.concurrentBatchesParam = Configuration.registerParameter(LoaderConstants.CONCURRENT_BATCHES_PARAM);
+        this.payloadCacheSizeParam = Configuration.registerParameter(LoaderConstants.PAYLOAD_CACHE_SIZE_PARAM);
+        this.deltaLoadingParam = Configuration.registerParameter(LoaderConstants.DELTA_LOADING_PARAM);
+        this.batchFailure = new AtomicReference<>();
+        this.batchStartTime = new ThreadLocal<>();
+        this.payloadCache = new ConcurrentHashMap<>();
+        this.payloadCacheSize = new AtomicLong(0);
+        this.completedBatches = new TreeMap<>();
+        this.pendingContentHashes = new ConcurrentHashMap<>();
         this.hashGenerator = new HashGenerator(StandardCharsets.UTF_8);
     }
 
@@ -77,9 +183,19 @@ public abstract class AbstractURLLoader <S extends IDocument> extends AbstractIt
     public void unregisterParameters()
     {
         Configuration.unregisterParameter(urlParam);
+        Configuration.unregisterParameter(additionalUrlsParam);
+        Configuration.unregisterParameter(endpointSelectionParam);
+        Configuration.unregisterParameter(endpointCooldownParam);
         Configuration.unregisterParameter(userNameParam);
         Configuration.unregisterParameter(passwordParam);
         Configuration.unregisterParameter(maxBatchSizeParam);
+        Configuration.unregisterParameter(minBatchSizeParam);
+        Configuration.unregisterParameter(targetBatchLatencyParam);
+        Configuration.unregisterParameter(adaptiveBatchSizeParam);
+        Configuration.unregisterParameter(compressSubmissionParam);
+        Configuration.unregisterParameter(concurrentBatchesParam);
+        Configuration.unregisterParameter(payloadCacheSizeParam);
+        Configuration.unregisterParameter(deltaLoadingParam);
     }
 
 
@@ -91,24 +207,66 @@ public abstract class AbstractURLLoader <S extends IDocument> extends AbstractIt
         batchMap.clear();
         currentBatchSize = 0;
         charset = etl.getCharset();
+        clearPayloadCache();
+
+        synchronized (completedBatches) {
+            completedBatches.clear();
+            submittedBatchCount = 0;
+            checkpointBatchCount = 0;
+        }
+
+        closeDocumentHashIndex();
+        pendingContentHashes.clear();
+        skippedDocumentCount = 0;
+        deletedDocumentCount = 0;
+
+        endpointBalancer = new EndpointBalancer(
+            getUrls(),
+            LoaderConstants.LEAST_OUTSTANDING_SELECTION.equals(endpointSelectionParam.getValue()),
+            endpointCooldownParam.getValue());
+
+        adaptiveBatchSize = adaptiveBatchSizeParam.getValue()
+                            ? new AdaptiveBatchSize(minBatchSizeParam.getValue(), maxBatchSizeParam.getValue(), targetBatchLatencyParam.getValue())
+                            : null;
+        etl.setLoaderBatchSize(getBatchSize());
 
         // check if we can load
         final String errorMessage = checkPreconditionErrors();
 
-        if (errorMessage != null)
+        if (errorMessage != null) {
+            shutdownBatchExecutor();
             throw new IllegalStateException(errorMessage);
+        }
+
+        initBatchExecutor(concurrentBatchesParam.getValue());
+
+        documentHashIndex = deltaLoadingParam.getValue()
+                            ? openDocumentHashIndex()
+                            : null;
     }
 
 
     @Override
     public void load(final Iterator<S> documents) throws LoaderException
     {
-        super.load(documents);
+        try {
+            super.load(documents);
 
-        // execute the final submission
-        if (!batchMap.isEmpty()) {
-            tryLoadingBatch();
-            batchMap.clear();
+            // documents that were not harvested again no longer exist in the source
+            if (documentHashIndex != null
+                && dedicatedEtl.getState() == ETLState.HARVESTING
+                && dedicatedEtl.isHarvestingEverything())
+                deleteUnseenDocuments();
+
+            // execute the final submission
+            if (!batchMap.isEmpty()) {
+                tryLoadingBatch();
+                batchMap.clear();
+            }
+
+            waitForPendingBatches();
+        } finally {
+            saveDocumentHashIndex();
         }
     }
 
@@ -120,7 +278,43 @@ public abstract class AbstractURLLoader <S extends IDocument> extends AbstractIt
             return;
 
         final String documentId = getDocumentId(document);
-        final int documentSize = getSizeOfDocument(documentId, document);
+
+        // encode the document only once, for measuring its size, hashing and loading it
+        final byte[] payload = encodeDocument(documentId, document);
+
+        // skip documents that were loaded before with the same content
+        final String contentHash = documentHashIndex == null || payload == null
+                                   ? null
+                                   : hashGenerator.getShaHash(payload);
+
+        if (contentHash != null && documentHashIndex.isUnchanged(documentId, contentHash)) {
+            skippedDocumentCount++;
+            return;
+        }
+
+        addToBatch(documentId, document, payload);
+
+        if (contentHash != null)
+            pendingContentHashes.put(documentId, contentHash);
+    }
+
+
+    /**
+     * Adds a document to the current batch. If the batch would exceed the
+     * batch size, it is loaded before the document is added.
+     *
+     * @param documentId the unique identifier of the document
+     * @param document the document that is to be loaded,
+     *         or null if the document is to be deleted
+     * @param payload the encoded document, or null if documents are not encoded in advance
+     *
+     * @throws LoaderException when the document is too large, or when the batch could not be loaded
+     */
+    private void addToBatch(final String documentId, final S document, final byte[] payload) throws LoaderException
+    {
+        final int documentSize = payload == null
+                                 ? getSizeOfDocument(documentId, document)
+                                 : payload.length;
 
         // check if the document alone is bigger than the maximum load request size
         if (currentBatchSize == 0 && documentSize > maxBatchSizeParam.getValue()) {
@@ -133,7 +327,7 @@ public abstract class AbstractURLLoader <S extends IDocument> extends AbstractIt
         }
 
         // check if the batch size is reached and load
-        if (currentBatchSize + documentSize > maxBatchSizeParam.getValue()) {
+        if (currentBatchSize > 0 && currentBatchSize + documentSize > getBatchSize()) {
             tryLoadingBatch();
             batchMap.clear();
             currentBatchSize = 0;
@@ -141,6 +335,108 @@ public abstract class AbstractURLLoader <S extends IDocument> extends AbstractIt
 
         batchMap.put(documentId, document);
         currentBatchSize += documentSize;
+
+        if (payload != null)
+            cachePayload(documentId, payload);
+    }
+
+
+    /**
+     * Returns the number of bytes after which a batch is loaded.
+     *
+     * @return the maximum batch size, or the current adaptive batch size
+     */
+    protected int getBatchSize()
+    {
+        final AdaptiveBatchSize adaptiveSize = adaptiveBatchSize;
+
+        return adaptiveSize == null
+               ? maxBatchSizeParam.getValue()
+               : adaptiveSize.getSize();
+    }
+
+
+    /**
+     * Reports that the batch that is currently being loaded by this thread
+     * was rejected partially or entirely, because the target is overloaded.
+     * If the adaptive batch size is enabled, the batch size is shrunk.
+     */
+    protected void reportBatchRejection()
+    {
+        final AdaptiveBatchSize adaptiveSize = adaptiveBatchSize;
+        final Long startTime = batchStartTime.get();
+
+        if (adaptiveSize != null && startTime != null && adaptiveSize.onBatchRejected(startTime))
+            onBatchSizeChanged(adaptiveSize.getSize());
+    }
+
+
+    /**
+     * Wraps the body of a request in a {@linkplain GzipRequestBody}
+     * if compressed submission is enabled.
+     *
+     * @param body the uncompressed body of a request
+     *
+     * @return a compressed body, or the body itself if compression is disabled
+     */
+    protected IRequestBody compressIfEnabled(final IRequestBody body)
+    {
+        return compressSubmissionParam.getValue()
+               ? new GzipRequestBody(body)
+               : body;
+    }
+
+
+    /**
+     * Logs the compression ratio of a request body that was
+     * submitted, if it was compressed.
+     *
+     * @param body the body of a request that was submitted
+     */
+    protected void logCompressionRatio(final IRequestBody body)
+    {
+        if (body instanceof GzipRequestBody && logger.isInfoEnabled()) {
+            final GzipRequestBody compressedBody = (GzipRequestBody) body;
+            final long compressedSize = compressedBody.getCompressedSize();
+
+            logger.info(String.format(
+                            LoaderConstants.BATCH_COMPRESSED,
+                            compressedBody.getUncompressedSize(),
+                            compressedSize,
+                            compressedSize == 0 ? 0f : (float) compressedBody.getUncompressedSize() / compressedSize));
+        }
+    }
+
+
+    /**
+     * Encodes a document to the payload that is to be loaded.
+     * If this method returns a value, the payload is used for calculating the size
+     * of the document and may be retrieved via {@linkplain #getEncodedPayload(String)}
+     * when the batch is loaded, instead of encoding the document again.
+     *
+     * @param documentId the unique identifier of the document
+     * @param document the document that is to be encoded,
+     *         or null if the document is to be deleted
+     *
+     * @return the encoded document, or null if documents are not encoded in advance
+     */
+    protected byte[] encodeDocument(final String documentId, final S document)
+    {
+        return null;
+    }
+
+
+    /**
+     * Retrieves the payload of a document of the current batch that was
+     * encoded via {@linkplain #encodeDocument(String, IDocument)}.
+     *
+     * @param documentId the unique identifier of the document
+     *
+     * @return the encoded document, or null if it is not cached
+     */
+    protected byte[] getEncodedPayload(final String documentId)
+    {
+        return payloadCache.get(documentId);
     }
 
 
@@ -170,6 +466,15 @@ public abstract class AbstractURLLoader <S extends IDocument> extends AbstractIt
             batchMap.clear();
         }
 
+        try {
+            waitForPendingBatches();
+        } catch (final LoaderException e) {
+            logger.warn(LoaderConstants.CLEAN_LOAD_ERROR, e);
+        }
+
+        shutdownBatchExecutor();
+        closeDocumentHashIndex();
+        clearPayloadCache();
         currentBatchSize = 0;
     }
 
@@ -214,17 +519,78 @@ public abstract class AbstractURLLoader <S extends IDocument> extends AbstractIt
 
 
     /**
-     * Sends documents to an external place.
+     * Sends documents to an external place. If concurrent batches are enabled,
+     * a copy of the current batch is submitted asynchronously, blocking only if
+     * the maximum number of concurrent batches is reached.
      *
-     * @throws LoaderException when the batch could not be loaded
+     * @throws LoaderException when the batch could not be loaded, or when
+     *          a previously submitted batch failed
      */
     protected void tryLoadingBatch() throws LoaderException
     {
-        final int numberOfDocs = batchMap.size();
+        final Map<String, byte[]> payloads = getCachedPayloads(batchMap);
+        final long batchIndex = submittedBatchCount++;
+        final int loadedCount = processedCount;
+
+        if (batchExecutor == null)
+            loadAndLogBatch(batchMap, payloads, batchIndex, loadedCount);
+        else
+            submitBatch(new HashMap<>(batchMap), payloads, batchIndex, loadedCount);
+    }
+
+
+    /**
+     * Blocks until all asynchronously submitted batches are loaded.
+     *
+     * @throws LoaderException when at least one of the batches could not be loaded
+     */
+    protected void waitForPendingBatches() throws LoaderException
+    {
+        if (batchExecutor == null)
+            return;
+
+        try {
+            batchPermits.acquire(maxConcurrentBatches);
+            batchPermits.release(maxConcurrentBatches);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoaderException(e);
+        }
+
+        rethrowBatchFailure();
+    }
+
+
+    /**
+     * Loads a batch of documents and logs the result.
+     * Afterwards, the cached payloads of the batch are released.
+     *
+     * @param documents a map of documentIDs to documents that are to be loaded
+     * @param payloads the cached payloads of the documents
+     * @param batchIndex the position of the batch in the order of submission
+     * @param loadedCount the number of processed documents, including the batch
+     *
+     * @throws LoaderException when the batch could not be loaded
+     */
+    private void loadAndLogBatch(final Map<String, S> documents, final Map<String, byte[]> payloads, final long batchIndex, final int loadedCount) throws LoaderException
+    {
+        final int numberOfDocs = documents.size();
+        final AdaptiveBatchSize adaptiveSize = adaptiveBatchSize;
+        final long startTime = System.nanoTime();
+        batchStartTime.set(startTime);
 
         try {
             // attempt to load the batch
-            loadBatch(batchMap);
+            loadBatch(documents);
+
+            // adjust the batch size to the load duration
+            final long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+            if (adaptiveSize != null && adaptiveSize.onBatchLoaded(startTime, duration))
+                onBatchSizeChanged(adaptiveSize.getSize());
+
+            updateDocumentHashIndex(documents);
+            onBatchCompleted(batchIndex, loadedCount);
 
             // log success and send an event
             if (logger.isInfoEnabled()) {
@@ -234,6 +600,334 @@ public abstract class AbstractURLLoader <S extends IDocument> extends AbstractIt
             }
         } catch (final RuntimeException e) { // NOPMD exception depends on the implementation of loadBatch
             throw new LoaderException(e);
+        } finally {
+            batchStartTime.remove();
+            releasePayloads(payloads);
+        }
+    }
+
+
+    /**
+     * Adds deletions of all documents that were loaded by a previous harvest,
+     * but were not harvested again, to the batch.
+     *
+     * @throws LoaderException when a batch could not be loaded
+     */
+    private void deleteUnseenDocuments() throws LoaderException
+    {
+        final Set<String> unseenDocumentIds = documentHashIndex.getUnseenDocumentIds();
+
+        for (final String documentId : unseenDocumentIds) {
+            addToBatch(documentId, null, encodeDocument(documentId, null));
+            deletedDocumentCount++;
+        }
+    }
+
+
+    /**
+     * Stores the content hashes of documents of a loaded batch
+     * and removes deleted documents from the {@linkplain DocumentHashIndex}.
+     *
+     * @param documents a map of documentIDs to documents that were loaded
+     */
+    private void updateDocumentHashIndex(final Map<String, S> documents)
+    {
+        final DocumentHashIndex hashIndex = documentHashIndex;
+
+        if (hashIndex == null)
+            return;
+
+        for (final Map.Entry<String, S> entry : documents.entrySet()) {
+            final String documentId = entry.getKey();
+
+            if (entry.getValue() == null)
+                hashIndex.remove(documentId);
+            else {
+                final String contentHash = pendingContentHashes.remove(documentId);
+
+                if (contentHash != null)
+                    hashIndex.put(documentId, contentHash);
+            }
+        }
+    }
+
+
+    /**
+     * Opens the {@linkplain DocumentHashIndex} of the dedicated ETL.
+     *
+     * @return the document hash index, or null if it cannot be opened
+     */
+    private DocumentHashIndex openDocumentHashIndex()
+    {
+        final File cacheFolder = dedicatedEtl.getCacheFolder();
+
+        if (cacheFolder == null)
+            return null;
+
+        final File indexFile = new File(cacheFolder, String.format(LoaderConstants.DOCUMENT_HASH_INDEX_PATH, dedicatedEtl.getName()));
+
+        try {
+            return new DocumentHashIndex(indexFile);
+        } catch (final IOException e) {
+            logger.warn(String.format(LoaderConstants.DOCUMENT_HASH_INDEX_FAILED, indexFile), e);
+            return null;
+        }
+    }
+
+
+    /**
+     * Writes the {@linkplain DocumentHashIndex} to disk, if delta loading is enabled.
+     */
+    private void saveDocumentHashIndex()
+    {
+        if (documentHashIndex != null) {
+            documentHashIndex.save();
+            pendingContentHashes.clear();
+
+            if (logger.isInfoEnabled())
+                logger.info(String.format(LoaderConstants.DELTA_LOADING_RESULT, skippedDocumentCount, deletedDocumentCount));
+        }
+    }
+
+
+    /**
+     * Closes the {@linkplain DocumentHashIndex}, if it is open. This must not
+     * happen before all pending batches were loaded, since they update the index.
+     */
+    private void closeDocumentHashIndex()
+    {
+        if (documentHashIndex != null) {
+            documentHashIndex.close();
+            documentHashIndex = null;
+        }
+    }
+
+
+    /**
+     * Saves a checkpoint after the latest batch that was loaded,
+     * provided that all batches that were submitted before it were loaded as well.
+     * Batches that are loaded asynchronously may complete out of order.
+     *
+     * @param batchIndex the position of the loaded batch in the order of submission
+     * @param loadedCount the number of processed documents, including the batch
+     */
+    private void onBatchCompleted(final long batchIndex, final int loadedCount)
+    {
+        synchronized (completedBatches) {
+            completedBatches.put(batchIndex, loadedCount);
+
+            int checkpointCount = -1;
+
+            while (!completedBatches.isEmpty() && completedBatches.firstKey() == checkpointBatchCount) {
+                checkpointCount = completedBatches.remove(checkpointBatchCount);
+                checkpointBatchCount++;
+            }
+
+            if (checkpointCount != -1 && dedicatedEtl != null)
+                saveCheckpoint(checkpointCount);
+        }
+    }
+
+
+    /**
+     * Logs a changed adaptive batch size and exposes it in the status of the ETL.
+     *
+     * @param batchSize the new batch size in bytes
+     */
+    private void onBatchSizeChanged(final int batchSize)
+    {
+        if (logger.isDebugEnabled())
+            logger.debug(String.format(LoaderConstants.BATCH_SIZE_CHANGED, batchSize));
+
+        if (dedicatedEtl != null)
+            dedicatedEtl.setLoaderBatchSize(batchSize);
+    }
+
+
+    /**
+     * Loads a batch of documents asynchronously. If the maximum number of
+     * concurrent batches is reached, this method blocks until a batch is done.
+     *
+     * @param documents a map of documentIDs to documents that are to be loaded
+     * @param payloads the cached payloads of the documents
+     * @param batchIndex the position of the batch in the order of submission
+     * @param loadedCount the number of processed documents, including the batch
+     *
+     * @throws LoaderException when a previously submitted batch failed
+     */
+    private void submitBatch(final Map<String, S> documents, final Map<String, byte[]> payloads, final long batchIndex, final int loadedCount) throws LoaderException
+    {
+        try {
+            rethrowBatchFailure();
+        } catch (final LoaderException e) {
+            releasePayloads(payloads);
+            throw e;
+        }
+
+        try {
+            batchPermits.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            releasePayloads(payloads);
+            throw new LoaderException(e);
+        }
+
+        try {
+            batchExecutor.execute(() -> {
+                try {
+                    loadAndLogBatch(documents, payloads, batchIndex, loadedCount);
+                } catch (final LoaderException e) {
+                    batchFailure.compareAndSet(null, e);
+                } finally {
+                    batchPermits.release();
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            batchPermits.release();
+            releasePayloads(payloads);
+            throw new LoaderException(e);
+        }
+    }
+
+
+    /**
+     * Keeps the payload of a document until its batch is loaded, unless it
+     * would exceed the maximum payload cache size. Payloads that are not
+     * cached are encoded again when the batch is loaded.
+     *
+     * @param documentId the unique identifier of the document
+     * @param payload the encoded document
+     */
+    private void cachePayload(final String documentId, final byte[] payload)
+    {
+        if (payloadCacheSize.get() + payload.length > payloadCacheSizeParam.getValue()) {
+            // a stale payload of the same document must not be submitted instead
+            final byte[] stalePayload = payloadCache.remove(documentId);
+
+            if (stalePayload != null)
+                payloadCacheSize.addAndGet(-stalePayload.length);
+
+            return;
+        }
+
+        final byte[] replacedPayload = payloadCache.put(documentId, payload);
+        payloadCacheSize.addAndGet(replacedPayload == null
+                                   ? payload.length
+                                   : payload.length - replacedPayload.length);
+    }
+
+
+    /**
+     * Retrieves the cached payloads of a batch of documents.
+     *
+     * @param documents a map of documentIDs to documents that are to be loaded
+     *
+     * @return a map of documentIDs to cached payloads
+     */
+    private Map<String, byte[]> getCachedPayloads(final Map<String, S> documents)
+    {
+        final Map<String, byte[]> payloads = new HashMap<>(); // NOPMD map is not used concurrently
+
+        if (payloadCache.isEmpty())
+            return payloads;
+
+        for (final String documentId : documents.keySet()) {
+            final byte[] payload = payloadCache.get(documentId);
+
+            if (payload != null)
+                payloads.put(documentId, payload);
+        }
+
+        return payloads;
+    }
+
+
+    /**
+     * Removes the payloads of a loaded batch from the cache, unless they
+     * were replaced by the payloads of a more recent batch.
+     *
+     * @param payloads a map of documentIDs to cached payloads
+     */
+    private void releasePayloads(final Map<String, byte[]> payloads)
+    {
+        for (final Map.Entry<String, byte[]> entry : payloads.entrySet()) {
+            if (payloadCache.remove(entry.getKey(), entry.getValue()))
+                payloadCacheSize.addAndGet(-entry.getValue().length);
+        }
+    }
+
+
+    /**
+     * Removes all payloads from the cache.
+     */
+    private void clearPayloadCache()
+    {
+        payloadCache.clear();
+        payloadCacheSize.set(0);
+    }
+
+
+    /**
+     * Throws the first exception that occurred while loading a batch
+     * asynchronously, if there is any.
+     *
+     * @throws LoaderException the first exception that occurred while loading a batch
+     */
+    private void rethrowBatchFailure() throws LoaderException
+    {
+        final LoaderException failure = batchFailure.getAndSet(null);
+
+        if (failure != null)
+            throw failure;
+    }
+
+
+    /**
+     * Creates a thread pool for submitting batches asynchronously,
+     * if the number of concurrent batches is greater than zero.
+     *
+     * @param concurrentBatches the maximum number of batches that can be
+     *         submitted concurrently
+     */
+    private void initBatchExecutor(final int concurrentBatches)
+    {
+        shutdownBatchExecutor();
+        batchFailure.set(null);
+
+        if (concurrentBatches <= 0)
+            return;
+
+        final String threadNamePrefix = getClass().getSimpleName();
+        final AtomicInteger threadIndex = new AtomicInteger(0);
+
+        this.maxConcurrentBatches = concurrentBatches;
+        this.batchPermits = new Semaphore(concurrentBatches);
+        this.batchExecutor = new ThreadPoolExecutor(
+            concurrentBatches,
+            concurrentBatches,
+            LoaderConstants.BATCH_THREAD_KEEP_ALIVE,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            (final Runnable task) -> {
+                final Thread thread = new Thread(task, String.format(LoaderConstants.BATCH_THREAD_NAME, threadNamePrefix, threadIndex.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        // let idle threads die if the loader is abandoned
+        this.batchExecutor.allowCoreThreadTimeOut(true);
+    }
+
+
+    /**
+     * Shuts down the thread pool for submitting batches asynchronously.
+     * Batches that are still being submitted will not be interrupted.
+     */
+    private void shutdownBatchExecutor()
+    {
+        if (batchExecutor != null) {
+            batchExecutor.shutdown();
+            batchExecutor = null;
         }
     }
 
@@ -263,4 +957,49 @@ public abstract class AbstractURLLoader <S extends IDocument> extends AbstractIt
     {
         return urlParam.getStringValue();
     }
+
+
+    /**
+     * Converts a configured URL to the URL to which requests are sent.
+     * Subclasses can override this method if they need to append paths
+     * or query parameters.
+     *
+     * @param rawUrl a URL as it was configured by the user
+     *
+     * @return the loader target URL, or null if it cannot be converted
+     */
+    protected String toTargetUrl(final String rawUrl)
+    {
+        return rawUrl;
+    }
+
+
+    /**
+     * Returns all loader target URLs, starting with the URL that is
+     * returned by {@linkplain #getUrl()}, followed by the converted
+     * additional URLs.
+     *
+     * @return a list of loader target URLs
+     */
+    protected List<String> getUrls()
+    {
+        final List<String> urls = new ArrayList<>();
+        final String primaryUrl = getUrl();
+
+        if (primaryUrl != null && !primaryUrl.isEmpty())
+            urls.add(primaryUrl);
+
+        final String additionalUrls = additionalUrlsParam.getValue();
+
+        if (additionalUrls != null) {
+            for (final String rawUrl : additionalUrls.split(ParameterConstants.LIST_SEPARATOR)) {
+                final String url = toTargetUrl(rawUrl);
+
+                if (url != null && !url.isEmpty() && !urls.contains(url))
+                    urls.add(url);
+            }
+        }
+
+        return urls;
+    }
 }
@@ -16,28 +16,45 @@
 package de.gerdiproject.harvest.etls.loaders;
 
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 
 import javax.ws.rs.core.MediaType;
 import javax.xml.ws.http.HTTPException;
 
+import org.jsoup.HttpStatusException;
+
 import com.google.gson.Gson;
 
 import de.gerdiproject.harvest.IDocument;
+import de.gerdiproject.harvest.config.Configuration;
+import de.gerdiproject.harvest.config.parameters.IntegerParameter;
 import de.gerdiproject.harvest.etls.loaders.constants.ElasticSearchConstants;
+import de.gerdiproject.harvest.etls.loaders.constants.LoaderConstants;
 import de.gerdiproject.harvest.etls.loaders.json.ElasticSearchError;
 import de.gerdiproject.harvest.etls.loaders.json.ElasticSearchIndex;
 import de.gerdiproject.harvest.etls.loaders.json.ElasticSearchIndexWrapper;
 import de.gerdiproject.harvest.etls.loaders.json.ElasticSearchResponse;
+import de.gerdiproject.harvest.etls.loaders.utils.ElasticSearchDateRewriter;
+import de.gerdiproject.harvest.etls.loaders.utils.EndpointBalancer;
+import de.gerdiproject.harvest.etls.loaders.utils.EndpointBalancer.Endpoint;
+import de.gerdiproject.harvest.utils.data.IRequestBody;
 import de.gerdiproject.harvest.utils.data.WebDataRetriever;
 import de.gerdiproject.harvest.utils.data.enums.RestRequestType;
 import de.gerdiproject.json.GsonUtils;
@@ -47,6 +64,15 @@ import de.gerdiproject.json.datacite.DataCiteJson;
 /**
  * This class serves as a communicator for an Elastic Search node. An URL and
  * optionally a username and password must be set up prior to the loader execution.
+ * Bulk submissions are encoded document by document into reusable buffers and
+ * streamed directly to the Elasticsearch node. Each instruction is encoded once
+ * for measuring the document size and submitted as it is, unless it did not fit
+ * into the payload cache or the document had to be fixed and resubmitted.
+ * If additional URLs are configured, bulk requests are distributed among all
+ * Elasticsearch nodes and requests that failed because of a node are resubmitted
+ * to another node. Nodes that respond considerably slower than the others are skipped
+ * for a while.
+ * Documents that were rejected due to overload are resubmitted individually.
  *
  * @author Robin Weiss
  */
@@ -54,6 +80,11 @@ public class ElasticSearchLoader extends AbstractURLLoader<DataCiteJson>
 {
     private final Gson gson;
     private final WebDataRetriever webRequester;
+    private final ThreadLocal<BulkInstructionEncoder> bulkEncoders;
+    private final Map<Class<?>, Map<String, Field>> declaredFieldCache;
+    private final IntegerParameter itemRetriesParam;
+    private final IntegerParameter itemRetryDelayParam;
+    private final IntegerParameter itemRetryMaxDelayParam;
 
 
     /**
@@ -65,167 +96,300 @@ public class ElasticSearchLoader extends AbstractURLLoader<DataCiteJson>
 
         this.gson = GsonUtils.createGerdiDocumentGsonBuilder(ElasticSearchConstants.GEO_SHAPE_PRECISION).create();
         this.webRequester = new WebDataRetriever(gson, StandardCharsets.UTF_8);
+        this.bulkEncoders = ThreadLocal.withInitial(BulkInstructionEncoder::new);
+        this.declaredFieldCache = new ConcurrentHashMap<>();
+        this.itemRetriesParam = Configuration.registerParameter(LoaderConstants.ITEM_RETRIES_PARAM);
+        this.itemRetryDelayParam = Configuration.registerParameter(LoaderConstants.ITEM_RETRY_DELAY_PARAM);
+        this.itemRetryMaxDelayParam = Configuration.registerParameter(LoaderConstants.ITEM_RETRY_MAX_DELAY_PARAM);
+    }
+
+
+    @Override
+    public void unregisterParameters()
+    {
+        super.unregisterParameters();
+        Configuration.unregisterParameter(itemRetriesParam);
+        Configuration.unregisterParameter(itemRetryDelayParam);
+        Configuration.unregisterParameter(itemRetryMaxDelayParam);
     }
 
 
     @Override
     protected void loadBatch(final Map<String, DataCiteJson> documents)
     {
-        // clear previous batch
-        final StringBuilder batchRequestBuilder = new StringBuilder();
-
-        // build a string for bulk-posting to Elastic search
-        for (final Entry<String, DataCiteJson> entry : documents.entrySet()) {
-            final String documentAddInstruction =
-                createBulkInstruction(entry.getKey(), entry.getValue());
-            batchRequestBuilder.append(documentAddInstruction);
-        }
+        submitBulk(documents, true);
+    }
 
-        // send POST request to Elastic search
-        String response;
 
-        try {
-            response = webRequester.getRestResponse(
-                           RestRequestType.POST,
-                           getUrl(),
-                           batchRequestBuilder.toString(),
-                           getCredentials(),
-                           MediaType.APPLICATION_JSON);
-        } catch (HTTPException | IOException e) {
-            throw new LoaderException(e);
-        }
+    /**
+     * Submits a map of documents via bulk requests. If some documents cannot
+     * be parsed by Elasticsearch, invalid fields are removed and the documents are
+     * resubmitted. Documents that were rejected for transient reasons are resubmitted
+     * after an exponentially growing delay, until the retry budget is exhausted.
+     *
+     * @param documents a map of documentIDs to documents that are to be
+     *            submitted, or null if they are to be deleted
+     * @param useEncodedPayloads if true, instructions that were encoded in
+     *            advance are submitted instead of encoding the documents again
+     */
+    private void submitBulk(final Map<String, DataCiteJson> documents, final boolean useEncodedPayloads)
+    {
+        Map<String, DataCiteJson> pendingDocuments = documents;
+        boolean canUseEncodedPayloads = useEncodedPayloads;
+        int retryCount = 0;
+
+        while (!pendingDocuments.isEmpty()) {
+            // send POST request to Elastic search
+            final IRequestBody body = compressIfEnabled(new BulkRequestBody(pendingDocuments, canUseEncodedPayloads));
+            final String response = postBulkRequest(body);
+            logCompressionRatio(body);
 
-        // parse JSON response
-        final ElasticSearchResponse responseJson = gson.fromJson(response, ElasticSearchResponse.class);
+            // parse JSON response
+            final ElasticSearchResponse responseJson = gson.fromJson(response, ElasticSearchResponse.class);
 
-        // check if ElasticSearch responded with errors
-        if (responseJson.hasErrors()) {
-            // log the error
-            logger.error(getSubmissionErrorText(responseJson));
+            // check if ElasticSearch responded with errors
+            if (!responseJson.hasErrors())
+                break;
 
-            // try to fix documents that could not be parsed entirely
-            final Map<String, DataCiteJson> fixedDocuments = fixInvalidDocuments(responseJson, documents);
+            // shrink the batch size if the node is overloaded
+            if (responseJson.hasRejections())
+                reportBatchRejection();
+
+            final Map<String, DataCiteJson> retriedDocuments = new HashMap<>(); // NOPMD map is not used concurrently
+            final Map<String, DataCiteJson> fixedDocuments = new HashMap<>(); // NOPMD map is not used concurrently
+            final StringBuilder errorTextBuilder = new StringBuilder();
+
+            for (final ElasticSearchIndexWrapper documentFeedback : responseJson.getItems()) {
+                final ElasticSearchIndex operation = documentFeedback.getOperation();
+
+                if (operation == null || operation.getError() == null)
+                    continue;
+
+                final String documentId = operation.getId();
+
+                if (!pendingDocuments.containsKey(documentId))
+                    continue;
+
+                final DataCiteJson doc = pendingDocuments.get(documentId);
+
+                if (isTransientError(operation))
+                    retriedDocuments.put(documentId, doc);
+                else {
+                    if (errorTextBuilder.length() > 0)
+                        errorTextBuilder.append('\n');
+
+                    errorTextBuilder.append(operation.getErrorText());
+
+                    // try to fix documents that could not be parsed entirely
+                    if (doc != null && tryFixInvalidDocument(documentId, doc, operation.getError()))
+                        fixedDocuments.put(documentId, doc);
+                }
+            }
+
+            // log the errors
+            if (errorTextBuilder.length() > 0)
+                logger.error(errorTextBuilder.toString());
 
             // if documents can be fixed, attepmt to resubmit them
             if (!fixedDocuments.isEmpty()) {
                 logger.warn(ElasticSearchConstants.DOCUMENTS_RESUBMIT);
-                loadBatch(fixedDocuments);
+
+                // the fixed documents changed, so they must be encoded again
+                canUseEncodedPayloads = false;
             }
+
+            // resubmit transiently rejected documents after a delay
+            if (!retriedDocuments.isEmpty()) {
+                if (retryCount < itemRetriesParam.getValue()) {
+                    waitBeforeRetry(retriedDocuments.size(), retryCount);
+                    retryCount++;
+                } else {
+                    logger.error(String.format(ElasticSearchConstants.ITEM_RETRIES_EXHAUSTED, retriedDocuments.size(), retryCount));
+                    retriedDocuments.clear();
+                }
+            }
+
+            retriedDocuments.putAll(fixedDocuments);
+            pendingDocuments = retriedDocuments;
         }
     }
 
 
     /**
-     * Retrieves errors from a JSON response and creates an error string out of
-     * them.
+     * Checks if a document could not be submitted for transient reasons,
+     * such as an overloaded node, and should be submitted again later.
      *
-     * @param responseJson the JSON response to an ElasticSearch bulk submission
+     * @param operation the feedback of Elasticsearch regarding a single document
      *
-     * @return an error string of failed submissions
+     * @return true if the document should be submitted again
      */
-    private String getSubmissionErrorText(final ElasticSearchResponse responseJson)
+    private static boolean isTransientError(final ElasticSearchIndex operation)
     {
-        final List<ElasticSearchIndexWrapper> loadedItems = responseJson.getItems();
-        final StringBuilder sb = new StringBuilder();
-        final int len = loadedItems.size();
+        return ElasticSearchConstants.TRANSIENT_ERROR_STATUSES.contains(operation.getStatus())
+               || ElasticSearchConstants.TRANSIENT_ERROR_TYPES.contains(operation.getError().getType());
+    }
 
-        for (int i = 0; i < len; i++) {
-            final ElasticSearchIndex indexElement = loadedItems.get(i).getIndex();
 
-            if (indexElement.getError() != null) {
-                if (sb.length() > 0)
-                    sb.append('\n');
+    /**
+     * Blocks the current thread before transiently rejected documents are resubmitted.
+     * The delay doubles with each retry, up to a maximum.
+     *
+     * @param documentCount the number of documents that are to be resubmitted
+     * @param retryCount the number of previous retries
+     *
+     * @throws LoaderException thrown if the thread is interrupted while waiting
+     */
+    private void waitBeforeRetry(final int documentCount, final int retryCount)
+    {
+        final long maxDelay = itemRetryMaxDelayParam.getValue();
+        final long baseDelay = Math.min(itemRetryDelayParam.getValue(), maxDelay);
+        final long delay = Math.min(baseDelay << Math.min(retryCount, ElasticSearchConstants.ITEM_RETRY_MAX_SHIFT), maxDelay);
+        logger.warn(String.format(ElasticSearchConstants.ITEM_RETRY, documentCount, delay));
 
-                // append error text
-                sb.append(indexElement.getErrorText());
-            }
+        try {
+            Thread.sleep(delay);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoaderException(e);
         }
-
-        return sb.toString();
     }
 
 
     /**
-     * Creates a single instruction for an ElasticSearch bulk-submission.
+     * Sends a bulk request to one of the Elasticsearch nodes. If the node
+     * cannot be reached, responds with a server error, or is overloaded,
+     * the request is sent to the next node until there are no more nodes left.
+     * Other client errors are caused by the request itself, and are thrown
+     * without sending the request to another node.
+     *
+     * @param body the body of the bulk request
      *
-     * @param doc the document for which the instruction is created
+     * @throws LoaderException thrown if the request was invalid, or failed on all nodes
      *
-     * @return a bulk-submission instruction for a single document
+     * @return the HTTP response as plain text
      */
-    private String createBulkInstruction(final String documentId, final IDocument doc)
+    private String postBulkRequest(final IRequestBody body)
     {
-        final String bulkInstruction;
-
-        if (doc == null)
-            bulkInstruction = String.format(ElasticSearchConstants.BATCH_DELETE_INSTRUCTION, documentId);
-        else {
-            // convert document to UTF-8 JSON string and make DateRanges compatible with ElasticSearch
-            final String jsonString;
-
-            if (charset == StandardCharsets.UTF_8)
-                jsonString = toElasticSearchJson(doc);
-            else
-                jsonString = new String(toElasticSearchJson(doc).getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
-
-            bulkInstruction = String.format(
-                                  ElasticSearchConstants.BATCH_INDEX_INSTRUCTION,
-                                  documentId,
-                                  jsonString);
+        final EndpointBalancer balancer = endpointBalancer;
+
+        // with multiple nodes, do not retry on the same node, but fail over to the next one
+        final int retries = balancer.getEndpoints().size() > 1
+                            ? 0
+                            : webRequester.getRetries();
+
+        final Set<Endpoint> failedEndpoints = new HashSet<>();
+        Exception lastError = null;
+
+        while (true) {
+            final Endpoint endpoint = balancer.acquire(failedEndpoints);
+
+            if (endpoint == null)
+                break;
+
+            final long startTime = System.nanoTime();
+            boolean isAvailable = false;
+            long latency = -1;
+
+            try {
+                final String response = webRequester.getStreamedRestResponse(
+                                            RestRequestType.POST,
+                                            endpoint.getUrl(),
+                                            body,
+                                            getCredentials(),
+                                            MediaType.APPLICATION_JSON,
+                                            retries);
+                isAvailable = true;
+                latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                return response;
+
+            } catch (HTTPException | IOException e) {
+                final int statusCode = getStatusCode(e);
+
+                // invalid requests would fail on every node, and do not affect the health of the node
+                if (!isNodeFailure(statusCode)) {
+                    isAvailable = true;
+                    throw new LoaderException(e);
+                }
+
+                // shrink the batch size if the node is overloaded
+                if (statusCode == ElasticSearchConstants.TOO_MANY_REQUESTS_STATUS)
+                    reportBatchRejection();
+
+                logger.warn(String.format(LoaderConstants.ENDPOINT_FAILED, endpoint.getUrl()), e);
+                failedEndpoints.add(endpoint);
+                lastError = e;
+
+            } finally {
+                balancer.release(endpoint, isAvailable, latency);
+            }
         }
 
-        return bulkInstruction;
+        throw new LoaderException(lastError);
     }
 
 
     /**
-     * Converts a document to an ElasticSearch JSON string by mapping regular
-     * dates to date ranges.
+     * Retrieves the HTTP status code of a failed request.
      *
-     * @param document the document of which the ElasticSearch JSON string is
-     *            generated
+     * @param error the exception that was thrown by the failed request
      *
-     * @return an ElasticSearch compatible JSON string
+     * @return the HTTP status code, or -1 if no response was received
      */
-    private String toElasticSearchJson(final IDocument document)
+    private static int getStatusCode(final Exception error)
     {
-        final String jsonString = document.toJson();
+        if (error instanceof HttpStatusException)
+            return ((HttpStatusException) error).getStatusCode();
 
-        return jsonString.replaceAll(
-                   ElasticSearchConstants.DATE_RANGE_REGEX,
-                   ElasticSearchConstants.DATE_RANGE_REPLACEMENT).replaceAll(
-                   ElasticSearchConstants.DATE_REGEX,
-                   ElasticSearchConstants.DATE_REPLACEMENT);
+        if (error instanceof HTTPException)
+            return ((HTTPException) error).getStatusCode();
+
+        return -1;
     }
 
 
     /**
-     * Parses an {@linkplain ElasticSearchResponse}, retrieving potential error messages.
-     * If at least one error message was caused by Elasticsearch trying to parse an invalid
-     * field, the corresponding field is removed. All documents that can be hotfixed in that
-     * manner are returned in a map of document IDs to documents.
+     * Checks if a request failed because of the node it was sent to,
+     * meaning that the node could not be reached, responded with a server
+     * error, or is overloaded.
      *
-     * @param response an Elasticsearch response JSON object
-     * @param documents the map of originally submitted documents
+     * @param statusCode the HTTP status code of the failed request,
+     *         or -1 if no response was received
      *
-     * @return a map of documents with removed invalid fields
+     * @return true if the request should be sent to another node
      */
-    private Map<String, DataCiteJson> fixInvalidDocuments(final ElasticSearchResponse response, final Map<String, DataCiteJson> documents)
+    private static boolean isNodeFailure(final int statusCode)
     {
-        final Map<String, DataCiteJson> fixedDocMap = new HashMap<>(); // NOPMD map is not used concurrently
-
-        for (final ElasticSearchIndexWrapper documentFeedback : response.getItems()) {
-            final ElasticSearchError docError = documentFeedback.getIndex().getError();
+        return statusCode < 0
+               || statusCode >= ElasticSearchConstants.SERVER_ERROR_STATUS
+               || statusCode == ElasticSearchConstants.TOO_MANY_REQUESTS_STATUS;
+    }
 
-            if (docError != null) {
-                final String documentId = documentFeedback.getIndex().getId();
-                final DataCiteJson doc = documents.get(documentId);
 
-                if (doc != null && tryFixInvalidDocument(doc, docError))
-                    fixedDocMap.put(documentId, doc);
-            }
+    /**
+     * Writes a single instruction for an ElasticSearch bulk-submission.
+     *
+     * @param documentId the unique identifier of the document
+     * @param doc the document for which the instruction is created,
+     *         or null if the document is to be deleted
+     * @param writer the writer to which the instruction is written
+     *
+     * @throws IOException thrown when the instruction could not be written
+     */
+    private void writeBulkInstruction(final String documentId, final IDocument doc, final Writer writer) throws IOException
+    {
+        if (doc == null) {
+            writer.write(ElasticSearchConstants.BATCH_DELETE_INSTRUCTION_PREFIX);
+            writer.write(documentId);
+            writer.write(ElasticSearchConstants.BATCH_INSTRUCTION_SUFFIX);
+        } else {
+            writer.write(ElasticSearchConstants.BATCH_INDEX_INSTRUCTION_PREFIX);
+            writer.write(documentId);
+            writer.write(ElasticSearchConstants.BATCH_INSTRUCTION_SUFFIX);
+
+            // make DateRanges compatible with ElasticSearch
+            ElasticSearchDateRewriter.write(doc.toJson(), writer);
+            writer.write(ElasticSearchConstants.BATCH_LINE_SEPARATOR);
         }
-
-        return fixedDocMap;
     }
 
 
@@ -233,40 +397,42 @@ public class ElasticSearchLoader extends AbstractURLLoader<DataCiteJson>
      * Attempts to fix a document that could not be submitted to Elasticsearch,
      * by removing fields that caused parsing errors.
      *
+     * @param documentId the unique identifier of the document
      * @param errorDocument the document that could not be submitted
      * @param docError a JSON error object containing error details
      *
      * @return true if an error was found and fixed, otherwise false
      */
-    private boolean tryFixInvalidDocument(final DataCiteJson errorDocument, final ElasticSearchError docError)
+    private boolean tryFixInvalidDocument(final String documentId, final DataCiteJson errorDocument, final ElasticSearchError docError)
     {
+        if (docError.getReason() == null)
+            return false;
+
         // check if a specific field could not be parsed
         final Matcher errorReasonMatcher =
             ElasticSearchConstants.PARSE_ERROR_REASON_PATTERN.matcher(docError.getReason());
 
         if (errorReasonMatcher.find()) {
             final String invalidFieldName = errorReasonMatcher.group(1);
+            final Field invalidField = getDeclaredFields(errorDocument.getClass()).get(invalidFieldName);
 
             // try to remove the invalid field
             try {
-                final Field invalidField = errorDocument.getClass().getDeclaredField(invalidFieldName);
+                if (invalidField == null)
+                    throw new NoSuchFieldException(invalidFieldName);
 
-                // replace with "invalidField.canAccess()" in Java9 or higher
-                final boolean accessibility = invalidField.isAccessible();
-                invalidField.setAccessible(true);
                 invalidField.set(errorDocument, null);
-                invalidField.setAccessible(accessibility);
 
                 logger.debug(String.format(
                                  ElasticSearchConstants.FIXED_INVALID_DOCUMENT,
                                  invalidFieldName,
-                                 getDocumentId(errorDocument)));
+                                 documentId));
                 return true;
-            } catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException e) {
+            } catch (NoSuchFieldException | IllegalArgumentException | IllegalAccessException e) {
                 logger.warn(String.format(
                                 ElasticSearchConstants.CANNOT_FIX_INVALID_DOCUMENT_ERROR,
                                 invalidFieldName,
-                                getDocumentId(errorDocument)));
+                                documentId));
             }
         }
 
@@ -274,24 +440,56 @@ public class ElasticSearchLoader extends AbstractURLLoader<DataCiteJson>
     }
 
 
+    /**
+     * Retrieves the accessible, declared fields of a class, looking them up
+     * only once per class.
+     *
+     * @param documentClass the class of which the fields are retrieved
+     *
+     * @return a map of field names to accessible fields
+     */
+    private Map<String, Field> getDeclaredFields(final Class<?> documentClass)
+    {
+        return declaredFieldCache.computeIfAbsent(documentClass, (final Class<?> clazz) -> {
+            final Map<String, Field> fieldMap = new HashMap<>(); // NOPMD map is not modified after creation
+
+            for (final Field field : clazz.getDeclaredFields()) {
+                try {
+                    field.setAccessible(true);
+                    fieldMap.put(field.getName(), field);
+                } catch (final SecurityException e) { // NOPMD inaccessible fields cannot be fixed
+                    // skip the field
+                }
+            }
+
+            return fieldMap;
+        });
+    }
+
+
     @Override
     protected String getUrl()
     {
+        return toTargetUrl(urlParam.getValue());
+    }
 
-        if (urlParam.getValue() == null)
+
+    @Override
+    protected String toTargetUrl(final String rawUrl)
+    {
+        if (rawUrl == null)
             return null;
 
         final String rawPath;
 
         try {
-            rawPath = new URL(urlParam.getValue()).getPath() + '/';
+            rawPath = new URL(rawUrl).getPath() + '/';
         } catch (final MalformedURLException e) {
-            logger.error(String.format(ElasticSearchConstants.INVALID_URL_ERROR, urlParam.getValue()));
+            logger.error(String.format(ElasticSearchConstants.INVALID_URL_ERROR, rawUrl));
             return null;
         }
 
         final String[] path = rawPath.substring(1).split("/");
-        final String rawUrl = urlParam.getStringValue();
 
         // check if the URL requires the bulk submission suffix
         if (path.length == 0 || !path[path.length - 1].equals(ElasticSearchConstants.BULK_SUBMISSION_URL_SUFFIX)) {
@@ -340,8 +538,173 @@ public class ElasticSearchLoader extends AbstractURLLoader<DataCiteJson>
     @Override
     protected int getSizeOfDocument(final String documentId, final IDocument document)
     {
-        return createBulkInstruction(documentId, document).getBytes(StandardCharsets.UTF_8).length;
+        return bulkEncoders.get().encode(documentId, document);
+    }
+
+
+    @Override
+    protected byte[] encodeDocument(final String documentId, final DataCiteJson document)
+    {
+        final BulkInstructionEncoder encoder = bulkEncoders.get();
+        encoder.encode(documentId, document);
+        return encoder.toByteArray();
     }
 
 
+    /**
+     * This class encodes bulk-submission instructions to UTF-8 bytes,
+     * re-using the same buffer for every instruction.
+     * It must only be used by a single thread.
+     *
+     * @author Robin Weiss
+     */
+    private class BulkInstructionEncoder
+    {
+        private final ByteArrayOutputStream buffer;
+        private final Writer writer;
+
+
+        /**
+         * Constructor that creates the buffer.
+         */
+        public BulkInstructionEncoder()
+        {
+            this.buffer = new ByteArrayOutputStream(ElasticSearchConstants.BATCH_ENCODER_INITIAL_SIZE);
+            this.writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8);
+        }
+
+
+        /**
+         * Encodes a bulk-submission instruction, replacing the previously
+         * encoded instruction.
+         *
+         * @param documentId the unique identifier of the document
+         * @param document the document for which the instruction is created,
+         *         or null if the document is to be deleted
+         *
+         * @return the number of encoded bytes
+         */
+        public int encode(final String documentId, final IDocument document)
+        {
+            buffer.reset();
+
+            try {
+                writeBulkInstruction(documentId, document, writer);
+                writer.flush();
+            } catch (final IOException e) {
+                // cannot happen, because the writer writes to memory
+                throw new UncheckedIOException(e);
+            }
+
+            return buffer.size();
+        }
+
+
+        /**
+         * Writes the most recently encoded instruction to an {@linkplain OutputStream}.
+         *
+         * @param outputStream the stream to which the instruction is written
+         *
+         * @throws IOException thrown when the instruction could not be written
+         */
+        public void writeTo(final OutputStream outputStream) throws IOException
+        {
+            buffer.writeTo(outputStream);
+        }
+
+
+        /**
+         * Returns a copy of the most recently encoded instruction.
+         *
+         * @return a copy of the most recently encoded instruction
+         */
+        public byte[] toByteArray()
+        {
+            return buffer.toByteArray();
+        }
+    }
+
+
+    /**
+     * This class is an {@linkplain IRequestBody} that streams the instructions
+     * of a bulk-submission to Elasticsearch. Instructions that were encoded in
+     * advance are written as they are, all others are encoded one by one.
+     *
+     * @author Robin Weiss
+     */
+    private class BulkRequestBody implements IRequestBody
+    {
+        private final Map<String, DataCiteJson> documents;
+        private final Map<String, byte[]> payloads;
+        private final long contentLength;
+
+
+        /**
+         * Constructor that retrieves the encoded instructions of the documents.
+         *
+         * @param documents a map of documentIDs to documents that are to be
+         *            submitted, or null if they are to be deleted
+         * @param useEncodedPayloads if true, instructions that were encoded in
+         *            advance are submitted instead of encoding the documents again
+         */
+        public BulkRequestBody(final Map<String, DataCiteJson> documents, final boolean useEncodedPayloads)
+        {
+            this.documents = documents;
+            this.payloads = new HashMap<>(); // NOPMD map is not used concurrently
+
+            long payloadLength = 0;
+
+            if (useEncodedPayloads) {
+                for (final String documentId : documents.keySet()) {
+                    final byte[] payload = getEncodedPayload(documentId);
+
+                    if (payload != null) {
+                        payloads.put(documentId, payload);
+                        payloadLength += payload.length;
+                    }
+                }
+            }
+
+            // the length is only known if all instructions were encoded in advance
+            this.contentLength = payloads.size() == documents.size() ? payloadLength : -1;
+        }
+
+
+        @Override
+        public long getContentLength()
+        {
+            return contentLength;
+        }
+
+
+        @Override
+        public String getContentEncoding()
+        {
+            return null;
+        }
+
+
+        @Override
+        public void writeTo(final OutputStream outputStream) throws IOException
+        {
+            final BulkInstructionEncoder encoder = bulkEncoders.get();
+
+            for (final Entry<String, DataCiteJson> entry : documents.entrySet()) {
+                final byte[] payload = payloads.get(entry.getKey());
+
+                if (payload == null) {
+                    encoder.encode(entry.getKey(), entry.getValue());
+                    encoder.writeTo(outputStream);
+                } else
+                    outputStream.write(payload);
+            }
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return String.format(ElasticSearchConstants.BATCH_DESCRIPTION, documents.size());
+        }
+    }
 }
@@ -15,6 +15,10 @@
  */
 package de.gerdiproject.harvest.etls.loaders.constants;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import de.gerdiproject.harvest.etls.loaders.ElasticSearchLoader;
@@ -29,11 +33,27 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class ElasticSearchConstants
 {
-    public static final String BATCH_INDEX_INSTRUCTION = "{\"index\":{\"_id\":\"%s\"}}%n%s%n";
-    public static final String BATCH_DELETE_INSTRUCTION = "{\"delete\":{\"_id\":\"%s\"}}%n";
+    public static final String BATCH_INDEX_INSTRUCTION_PREFIX = "{\"index\":{\"_id\":\"";
+    public static final String BATCH_DELETE_INSTRUCTION_PREFIX = "{\"delete\":{\"_id\":\"";
+    public static final String BATCH_INSTRUCTION_SUFFIX = "\"}}\n";
+    public static final char BATCH_LINE_SEPARATOR = '\n';
+    public static final int BATCH_ENCODER_INITIAL_SIZE = 8192;
+    public static final String BATCH_DESCRIPTION = "<bulk submission of %d documents>";
     public static final String BULK_SUBMISSION_URL_SUFFIX = "_bulk";
 
     public static final String INVALID_URL_ERROR = "Invalid Elasticsearch API URL: %s";
+    public static final int TOO_MANY_REQUESTS_STATUS = 429;
+    public static final int SERVER_ERROR_STATUS = 500;
+
+    // TRANSIENT ERROR HANDLING
+    public static final String REJECTED_EXECUTION_ERROR_TYPE = "es_rejected_execution_exception";
+    public static final Set<String> TRANSIENT_ERROR_STATUSES =
+        Collections.unmodifiableSet(new HashSet<>(Arrays.asList(String.valueOf(TOO_MANY_REQUESTS_STATUS), "503")));
+    public static final Set<String> TRANSIENT_ERROR_TYPES =
+        Collections.unmodifiableSet(new HashSet<>(Arrays.asList(REJECTED_EXECUTION_ERROR_TYPE, "unavailable_shards_exception")));
+    public static final int ITEM_RETRY_MAX_SHIFT = 16;
+    public static final String ITEM_RETRY = "Resubmitting %d rejected documents in %d ms.";
+    public static final String ITEM_RETRIES_EXHAUSTED = "Loader Error: Could not load %d rejected documents after %d retries!";
 
     // INVALID FIELD HANDLING
     public static final String DOCUMENTS_RESUBMIT = "Resubmitting documents after removing invalid fields.";
@@ -42,12 +62,20 @@ public class ElasticSearchConstants
     public static final String FIXED_INVALID_DOCUMENT = "Removed invalid field '%s' from Document %s!";
 
     // DATE RANGE FIX
-    public static final String DATE_REGEX = "\"value\":(\"\\d\\d\\d\\d-\\d\\d-\\d\\dT\\d\\d:\\d\\d[^\"/]*Z\")";
-    public static final String DATE_REPLACEMENT = "\"value\":\\{\"gte\":$1,\"lte\":$1\\}";
+    private static final String DATE_TIME_REGEX = "\\d\\d\\d\\d-\\d\\d-\\d\\dT\\d\\d:\\d\\d";
+
+    /**
+     * Matches date values of DataCite documents. Group 1 and 2 are the optional
+     * start and end of a date range, group 3 is a single date.
+     */
+    public static final Pattern DATE_VALUE_PATTERN = Pattern.compile(
+                                                         "\"value\":\"(?:"
+                                                         + "(" + DATE_TIME_REGEX + "[^\"]*?Z)?/(" + DATE_TIME_REGEX + "[^\"]*?Z)?"
+                                                         + "|(" + DATE_TIME_REGEX + "[^\"/]*Z))\"");
+    public static final String DATE_VALUE_PREFIX = "\"value\":{\"gte\":\"";
+    public static final String DATE_VALUE_SEPARATOR = "\",\"lte\":\"";
+    public static final String DATE_VALUE_SUFFIX = "\"}";
 
-    public static final String DATE_RANGE_REGEX =
-        "\"value\":\"(\\d\\d\\d\\d-\\d\\d-\\d\\dT\\d\\d:\\d\\d[^\"]*?Z)?/(\\d\\d\\d\\d-\\d\\d-\\d\\dT\\d\\d:\\d\\d[^\"]*?Z)?\"";
-    public static final String DATE_RANGE_REPLACEMENT = "\"value\":\\{\"gte\":\"$1\",\"lte\":\"$2\"\\}";
     public static final String EMPTY_DATE_RANGE_REGEX = "(\"gte\":\"\",)|(,\"lte\":\"\")";
     public static final String EMPTY_DATE_RANGE_REPLACEMENT = "";
     public static final int GEO_SHAPE_PRECISION = 7;
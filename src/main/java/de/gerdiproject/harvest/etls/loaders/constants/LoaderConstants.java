@@ -15,6 +15,11 @@
  */
 package de.gerdiproject.harvest.etls.loaders.constants;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.gerdiproject.harvest.config.parameters.BooleanParameter;
 import de.gerdiproject.harvest.config.parameters.IntegerParameter;
 import de.gerdiproject.harvest.config.parameters.PasswordParameter;
 import de.gerdiproject.harvest.config.parameters.StringParameter;
@@ -42,6 +47,32 @@ public class LoaderConstants
         ParameterMappingFunctions.createMapperForETLs(ParameterMappingFunctions::mapToUrlString));
 
 
+    public static final String ROUND_ROBIN_SELECTION = "roundRobin";
+    public static final String LEAST_OUTSTANDING_SELECTION = "leastOutstanding";
+    public static final List<String> ENDPOINT_SELECTION_VALUES =
+        Collections.unmodifiableList(Arrays.asList(ROUND_ROBIN_SELECTION, LEAST_OUTSTANDING_SELECTION));
+
+    public static final StringParameter ADDITIONAL_URLS_PARAM =
+        new StringParameter(
+        "additionalUrls",
+        PARAMETER_CATEGORY,
+        null,
+        ParameterMappingFunctions.createMapperForETLs(ParameterMappingFunctions::mapToUrlListString));
+
+    public static final StringParameter ENDPOINT_SELECTION_PARAM =
+        new StringParameter(
+        "endpointSelection",
+        PARAMETER_CATEGORY,
+        ROUND_ROBIN_SELECTION,
+        ParameterMappingFunctions.createMapperForETLs(ParameterMappingFunctions.createStringListMapper(ENDPOINT_SELECTION_VALUES)));
+
+    public static final IntegerParameter ENDPOINT_COOLDOWN_PARAM =
+        new IntegerParameter(
+        "endpointCooldown",
+        PARAMETER_CATEGORY,
+        30000,
+        ParameterMappingFunctions.createMapperForETLs(ParameterMappingFunctions::mapToUnsignedInteger));
+
     public static final StringParameter USER_NAME_PARAM =
         new StringParameter(
         "userName",
@@ -63,13 +94,109 @@ public class LoaderConstants
         1048576,
         ParameterMappingFunctions.createMapperForETLs(ParameterMappingFunctions::mapToUnsignedInteger));
 
+    public static final BooleanParameter ADAPTIVE_BATCH_SIZE_PARAM =
+        new BooleanParameter(
+        "adaptiveSize",
+        PARAMETER_CATEGORY,
+        false,
+        ParameterMappingFunctions.createMapperForETLs(ParameterMappingFunctions::mapToBoolean));
+
+    public static final IntegerParameter MIN_BATCH_SIZE_PARAM =
+        new IntegerParameter(
+        "minSize",
+        PARAMETER_CATEGORY,
+        65536,
+        ParameterMappingFunctions.createMapperForETLs(ParameterMappingFunctions::mapToUnsignedInteger));
+
+    public static final IntegerParameter TARGET_BATCH_LATENCY_PARAM =
+        new IntegerParameter(
+        "targetLatency",
+        PARAMETER_CATEGORY,
+        5000,
+        ParameterMappingFunctions.createMapperForETLs(ParameterMappingFunctions::mapToUnsignedInteger));
+
+    public static final BooleanParameter COMPRESS_SUBMISSION_PARAM =
+        new BooleanParameter(
+        "compress",
+        PARAMETER_CATEGORY,
+        false,
+        ParameterMappingFunctions.createMapperForETLs(ParameterMappingFunctions::mapToBoolean));
+
+    public static final IntegerParameter CONCURRENT_BATCHES_PARAM =
+        new IntegerParameter(
+        "concurrentBatches",
+        PARAMETER_CATEGORY,
+        0,
+        ParameterMappingFunctions.createMapperForETLs(ParameterMappingFunctions::mapToUnsignedInteger));
+
+    public static final IntegerParameter PAYLOAD_CACHE_SIZE_PARAM =
+        new IntegerParameter(
+        "payloadCacheSize",
+        PARAMETER_CATEGORY,
+        16777216,
+        ParameterMappingFunctions.createMapperForETLs(ParameterMappingFunctions::mapToUnsignedInteger));
+
+    public static final BooleanParameter DELTA_LOADING_PARAM =
+        new BooleanParameter(
+        "deltaLoading",
+        PARAMETER_CATEGORY,
+        false,
+        ParameterMappingFunctions.createMapperForETLs(ParameterMappingFunctions::mapToBoolean));
+
+    public static final IntegerParameter ITEM_RETRIES_PARAM =
+        new IntegerParameter(
+        "itemRetries",
+        PARAMETER_CATEGORY,
+        5,
+        ParameterMappingFunctions.createMapperForETLs(ParameterMappingFunctions::mapToUnsignedInteger));
+
+    public static final IntegerParameter ITEM_RETRY_DELAY_PARAM =
+        new IntegerParameter(
+        "itemRetryDelay",
+        PARAMETER_CATEGORY,
+        500,
+        ParameterMappingFunctions.createMapperForETLs(ParameterMappingFunctions::mapToUnsignedInteger));
+
+    public static final IntegerParameter ITEM_RETRY_MAX_DELAY_PARAM =
+        new IntegerParameter(
+        "itemRetryMaxDelay",
+        PARAMETER_CATEGORY,
+        60000,
+        ParameterMappingFunctions.createMapperForETLs(ParameterMappingFunctions::mapToUnsignedInteger));
+
     public static final String LOADER_TYPE_PARAM_KEY = "loader";
 
+    public static final String BATCH_THREAD_NAME = "%s-batch-%d";
+    public static final long BATCH_THREAD_KEEP_ALIVE = 10000;
+    public static final double ENDPOINT_LATENCY_WEIGHT = 0.2;
+    public static final double DEGRADED_ENDPOINT_LATENCY_FACTOR = 4;
+
     public static final String LOADED_PARTIAL_OK = "Loaded %d documents.";
     public static final String UNKNOWN_DOCUMENT_COUNT = "???";
 
     public static final String NO_URL_ERROR = "Loader Error: You need to set up a valid loader URL!";
     public static final String NO_DOCS_ERROR = "Loader Error: No documents were harvested!";
+    public static final String BATCH_SIZE_CHANGED = "Changed batch size to %d bytes.";
+    public static final String BATCH_COMPRESSED = "Compressed batch from %d to %d bytes (ratio %.2f).";
+    public static final String DOCUMENT_HASH_INDEX_PATH = "documentHashes/%s.bin";
+    public static final String DOCUMENT_HASH_INDEX_FAILED = "Loader Error: Could not open the document hash index %s! All documents are loaded.";
+    public static final String DELTA_LOADING_RESULT = "Skipped %d unchanged documents and deleted %d documents that no longer exist.";
+
+    // Memory-mapped hash table of the document hash index
+    public static final int HASH_TABLE_MAGIC = 0x47444849;
+    public static final int HASH_TABLE_VERSION = 1;
+    public static final int HASH_TABLE_KEY_LENGTH = 20;
+    public static final int HASH_TABLE_VALUE_LENGTH = 20;
+    public static final double HASH_TABLE_MAX_LOAD_FACTOR = 0.7;
+    public static final int HASH_TABLE_MIN_SLOTS = 1024;
+    public static final int HASH_TABLE_MAX_SLOTS = 1 << 30;
+    public static final int HASH_TABLE_SLOTS_PER_SEGMENT = 1 << 24;
+    public static final int HASH_TABLE_INITIAL_CAPACITY = 65536;
+    public static final String HASH_TABLE_TEMP_FILE_SUFFIX = ".tmp";
+    public static final String HASH_TABLE_INVALID_LENGTH = "Keys and values of the hash table must be %d bytes long!";
+    public static final String HASH_TABLE_FULL = "The hash table cannot hold any more entries!";
+
+    public static final String ENDPOINT_FAILED = "Loader Error: Could not load batch to %s! Trying another URL.";
     public static final String CLEAN_LOAD_ERROR = "Loader Error: Unable to submit partially harvested documents while cancelling the harvest!";
     public static final String DOCUMENT_TOO_LARGE =
         "Loader Error: Size of document %s is %d bytes,"
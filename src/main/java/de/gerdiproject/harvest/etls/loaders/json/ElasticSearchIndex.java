@@ -66,4 +66,17 @@ public class ElasticSearchIndex
                        id,
                        error.toString());
     }
+
+
+    /**
+     * Checks if the document was rejected, because Elasticsearch is overloaded.
+     *
+     * @return true if the document was rejected with status 429 or
+     *         an {@value ElasticSearchConstants#REJECTED_EXECUTION_ERROR_TYPE}
+     */
+    public boolean isRejection()
+    {
+        return String.valueOf(ElasticSearchConstants.TOO_MANY_REQUESTS_STATUS).equals(status)
+               || error != null && ElasticSearchConstants.REJECTED_EXECUTION_ERROR_TYPE.equals(error.getType());
+    }
 }
@@ -26,4 +26,17 @@ import lombok.Value;
 public class ElasticSearchIndexWrapper
 {
     private final ElasticSearchIndex index;
+    private final ElasticSearchIndex delete;
+
+
+    /**
+     * Returns the feedback of the operation that was executed on the document,
+     * regardless of whether the document was indexed or deleted.
+     *
+     * @return the feedback of the operation, or null if the operation is unknown
+     */
+    public ElasticSearchIndex getOperation()
+    {
+        return index == null ? delete : index;
+    }
 }
@@ -47,4 +47,26 @@ public class ElasticSearchResponse
     {
         return errors;
     }
+
+
+    /**
+     * Returns true if Elasticsearch rejected any of the submitted documents,
+     * because it is overloaded.
+     *
+     * @return true if there were errors and at least one of them is a rejection
+     */
+    public boolean hasRejections()
+    {
+        if (!errors || items == null)
+            return false;
+
+        for (final ElasticSearchIndexWrapper item : items) {
+            final ElasticSearchIndex operation = item.getOperation();
+
+            if (operation != null && operation.isRejection())
+                return true;
+        }
+
+        return false;
+    }
 }
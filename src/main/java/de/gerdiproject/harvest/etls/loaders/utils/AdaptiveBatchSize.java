@@ -0,0 +1,124 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.loaders.utils;
+
+import de.gerdiproject.harvest.etls.loaders.AbstractURLLoader;
+
+/**
+ * This class adjusts the size of the batches of an {@linkplain AbstractURLLoader}
+ * between a lower and an upper bound. The size grows additively by the lower bound
+ * for every batch that was loaded within a target latency, and it is halved if a
+ * batch was loaded too slowly or was rejected. Batches that were assembled before the
+ * most recent decrease do not affect the size any more, so that a single
+ * overload is not penalized multiple times by concurrently loaded batches.
+ * This class is thread-safe.
+ *
+ * @author Robin Weiss
+ */
+public class AdaptiveBatchSize
+{
+    private final int minSize;
+    private final int maxSize;
+    private final long targetLatency;
+
+    private int size;
+    private long lastDecreaseTime;
+
+
+    /**
+     * Constructor that starts with the lower bound as batch size.
+     *
+     * @param minSize the lower bound of the batch size in bytes
+     * @param maxSize the upper bound of the batch size in bytes
+     * @param targetLatency the maximum number of milliseconds that loading a batch
+     *         may take without shrinking the batch size
+     */
+    public AdaptiveBatchSize(final int minSize, final int maxSize, final long targetLatency)
+    {
+        this.maxSize = Math.max(maxSize, 1);
+        this.minSize = Math.min(Math.max(minSize, 1), this.maxSize);
+        this.targetLatency = targetLatency;
+        this.size = this.minSize;
+        this.lastDecreaseTime = System.nanoTime();
+    }
+
+
+    /**
+     * Returns the current batch size.
+     *
+     * @return the current batch size in bytes
+     */
+    public synchronized int getSize()
+    {
+        return size;
+    }
+
+
+    /**
+     * Adjusts the batch size after a batch was loaded.
+     *
+     * @param startTime the {@linkplain System#nanoTime()} at which the batch started loading
+     * @param duration the number of milliseconds it took to load the batch
+     *
+     * @return true if the batch size changed
+     */
+    public synchronized boolean onBatchLoaded(final long startTime, final long duration)
+    {
+        // ignore batches that were sent before the last decrease
+        if (startTime - lastDecreaseTime < 0)
+            return false;
+
+        if (duration > targetLatency)
+            return decrease();
+
+        final int oldSize = size;
+        size = (int) Math.min((long) size + minSize, maxSize);
+        return size != oldSize;
+    }
+
+
+    /**
+     * Shrinks the batch size after a batch was rejected.
+     *
+     * @param startTime the {@linkplain System#nanoTime()} at which the batch started loading
+     *
+     * @return true if the batch size changed
+     */
+    public synchronized boolean onBatchRejected(final long startTime)
+    {
+        // ignore batches that were sent before the last decrease
+        if (startTime - lastDecreaseTime < 0)
+            return false;
+
+        return decrease();
+    }
+
+
+    /**
+     * Halves the batch size, but not below the lower bound.
+     *
+     * @return true if the batch size changed
+     */
+    private boolean decrease()
+    {
+        lastDecreaseTime = System.nanoTime();
+
+        final int oldSize = size;
+        size = Math.max(size / 2, minSize);
+        return size != oldSize;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.loaders.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import de.gerdiproject.harvest.etls.loaders.AbstractURLLoader;
+import de.gerdiproject.harvest.etls.loaders.constants.LoaderConstants;
+import de.gerdiproject.harvest.utils.HashGenerator;
+
+/**
+ * This class maps the identifiers of loaded documents to hashes of their content,
+ * allowing an {@linkplain AbstractURLLoader} to skip documents that did not change
+ * since they were last loaded, and to detect documents that no longer exist.
+ * Every document that is looked up during a harvest is marked as seen.
+ * <br><br>
+ * Both the identifiers and the content hashes must be hexadecimal SHA-1 hashes,
+ * which are stored as 20 byte digests in a {@linkplain MappedHashTable}.
+ * Documents with other identifiers are never considered to be unchanged.
+ * The index must be closed at the end of a harvest. This class is thread-safe.
+ *
+ * @author Robin Weiss
+ */
+public class DocumentHashIndex implements Closeable
+{
+    private final MappedHashTable table;
+
+
+    /**
+     * Constructor that opens the index, or creates it if it does not exist.
+     *
+     * @param file the file in which the index is stored
+     *
+     * @throws IOException thrown if the index could not be opened or created
+     */
+    public DocumentHashIndex(final File file) throws IOException
+    {
+        this.table = new MappedHashTable(file, LoaderConstants.HASH_TABLE_INITIAL_CAPACITY);
+    }
+
+
+    /**
+     * Marks a document as seen and checks if its content changed
+     * since it was last loaded.
+     *
+     * @param documentId the unique identifier of the document
+     * @param contentHash a hash of the current document content
+     *
+     * @return true if the document was loaded before with the same content
+     */
+    public boolean isUnchanged(final String documentId, final String contentHash)
+    {
+        final byte[] key = toDigest(documentId);
+
+        if (key == null)
+            return false;
+
+        final byte[] storedContentHash = table.get(key);
+        return storedContentHash != null && contentHash.equals(HashGenerator.toHexString(storedContentHash));
+    }
+
+
+    /**
+     * Sets the content hash of a document that was loaded.
+     *
+     * @param documentId the unique identifier of the document
+     * @param contentHash a hash of the loaded document content
+     */
+    public void put(final String documentId, final String contentHash)
+    {
+        final byte[] key = toDigest(documentId);
+        final byte[] value = toDigest(contentHash);
+
+        if (key != null && value != null)
+            table.put(key, value);
+    }
+
+
+    /**
+     * Removes a document that was deleted from the index.
+     *
+     * @param documentId the unique identifier of the document
+     */
+    public void remove(final String documentId)
+    {
+        final byte[] key = toDigest(documentId);
+
+        if (key != null)
+            table.remove(key);
+    }
+
+
+    /**
+     * Returns the identifiers of all indexed documents that were not seen
+     * since the index was opened.
+     *
+     * @return the identifiers of documents that were not seen during the harvest
+     */
+    public Set<String> getUnseenDocumentIds()
+    {
+        final Set<String> unseenIds = new HashSet<>();
+
+        for (final byte[] key : table.getUnseenKeys())
+            unseenIds.add(HashGenerator.toHexString(key));
+
+        return unseenIds;
+    }
+
+
+    /**
+     * Returns the number of indexed documents.
+     *
+     * @return the number of indexed documents
+     */
+    public int size()
+    {
+        return table.size();
+    }
+
+
+    /**
+     * Writes all changes of the index to disk.
+     */
+    public void save()
+    {
+        table.flush();
+    }
+
+
+    /**
+     * Writes all changes of the index to disk and releases the index file.
+     */
+    @Override
+    public void close()
+    {
+        table.close();
+    }
+
+
+    /**
+     * Converts a hexadecimal SHA-1 hash to its digest.
+     *
+     * @param hexHash a hexadecimal SHA-1 hash
+     *
+     * @return the digest of the hash, or null if the string is not a hexadecimal SHA-1 hash
+     */
+    private static byte[] toDigest(final String hexHash)
+    {
+        if (hexHash == null || hexHash.length() != LoaderConstants.HASH_TABLE_KEY_LENGTH * 2)
+            return null;
+
+        final byte[] digest = new byte[LoaderConstants.HASH_TABLE_KEY_LENGTH];
+
+        for (int i = 0; i < digest.length; i++) {
+            final int high = Character.digit(hexHash.charAt(i * 2), 16);
+            final int low = Character.digit(hexHash.charAt(i * 2 + 1), 16);
+
+            if (high == -1 || low == -1)
+                return null;
+
+            digest[i] = (byte)((high << 4) | low);
+        }
+
+        return digest;
+    }
+}
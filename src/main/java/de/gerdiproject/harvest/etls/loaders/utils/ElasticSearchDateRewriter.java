@@ -0,0 +1,116 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.loaders.utils;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+
+import de.gerdiproject.harvest.etls.loaders.ElasticSearchLoader;
+import de.gerdiproject.harvest.etls.loaders.constants.ElasticSearchConstants;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This class offers helper functions for the {@linkplain ElasticSearchLoader}
+ * that convert the dates and date ranges of DataCite JSON strings to
+ * Elasticsearch date ranges. Both are converted within a single pass,
+ * writing the result directly to a target, in order to avoid intermediate
+ * copies of the JSON string.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class ElasticSearchDateRewriter
+{
+    /**
+     * Writes a DataCite JSON string to a target, converting all dates and
+     * date ranges to Elasticsearch date ranges.
+     *
+     * @param json a DataCite JSON string
+     * @param target the target to which the converted JSON is written
+     *
+     * @throws IOException thrown when the target cannot be written
+     */
+    public static void write(final CharSequence json, final Appendable target) throws IOException
+    {
+        final Matcher matcher = ElasticSearchConstants.DATE_VALUE_PATTERN.matcher(json);
+        int copiedUntil = 0;
+
+        while (matcher.find()) {
+            target.append(json, copiedUntil, matcher.start());
+            target.append(ElasticSearchConstants.DATE_VALUE_PREFIX);
+
+            // group 3 is a single date, groups 1 and 2 are the bounds of a range
+            if (matcher.start(3) == -1) {
+                appendGroup(json, matcher, 1, target);
+                target.append(ElasticSearchConstants.DATE_VALUE_SEPARATOR);
+                appendGroup(json, matcher, 2, target);
+            } else {
+                appendGroup(json, matcher, 3, target);
+                target.append(ElasticSearchConstants.DATE_VALUE_SEPARATOR);
+                appendGroup(json, matcher, 3, target);
+            }
+
+            target.append(ElasticSearchConstants.DATE_VALUE_SUFFIX);
+            copiedUntil = matcher.end();
+        }
+
+        target.append(json, copiedUntil, json.length());
+    }
+
+
+    /**
+     * Converts all dates and date ranges of a DataCite JSON string to
+     * Elasticsearch date ranges.
+     *
+     * @param json a DataCite JSON string
+     *
+     * @return the converted JSON string
+     */
+    public static String rewrite(final String json)
+    {
+        final StringBuilder sb = new StringBuilder(json.length());
+
+        try {
+            write(json, sb);
+        } catch (final IOException e) { // NOPMD StringBuilders do not throw IOExceptions
+            throw new IllegalStateException(e);
+        }
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Appends a matched group without copying it to a new string.
+     * Unmatched groups are skipped.
+     *
+     * @param json the JSON string that is matched
+     * @param matcher the matcher that found the group
+     * @param group the index of the group
+     * @param target the target to which the group is appended
+     *
+     * @throws IOException thrown when the target cannot be written
+     */
+    private static void appendGroup(final CharSequence json, final Matcher matcher, final int group, final Appendable target) throws IOException
+    {
+        final int start = matcher.start(group);
+
+        if (start != -1)
+            target.append(json, start, matcher.end(group));
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.loaders.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.gerdiproject.harvest.etls.loaders.AbstractURLLoader;
+import de.gerdiproject.harvest.etls.loaders.constants.LoaderConstants;
+
+/**
+ * This class distributes requests of an {@linkplain AbstractURLLoader}
+ * among multiple URLs. Endpoints are either selected in turn, or by the
+ * lowest number of outstanding requests. Endpoints that failed to process a request
+ * are skipped for a cooldown period, unless all endpoints are cooling down.
+ * Endpoints that respond considerably slower than the fastest endpoint are
+ * considered degraded and are skipped for the cooldown period as well.
+ * This class is thread-safe.
+ *
+ * @author Robin Weiss
+ */
+public class EndpointBalancer
+{
+    private final List<Endpoint> endpoints;
+    private final boolean isLeastOutstanding;
+    private final long cooldown;
+    private final AtomicInteger nextIndex;
+
+
+    /**
+     * Constructor that sets up the endpoints.
+     *
+     * @param urls the URLs among which requests are distributed
+     * @param isLeastOutstanding if true, the endpoint with the lowest number of
+     *         outstanding requests is selected, otherwise endpoints are selected in turn
+     * @param cooldown the number of milliseconds for which a failed endpoint is skipped
+     */
+    public EndpointBalancer(final Collection<String> urls, final boolean isLeastOutstanding, final long cooldown)
+    {
+        final List<Endpoint> endpointList = new ArrayList<>(urls.size());
+
+        for (final String url : urls)
+            endpointList.add(new Endpoint(url));
+
+        this.endpoints = Collections.unmodifiableList(endpointList);
+        this.isLeastOutstanding = isLeastOutstanding;
+        this.cooldown = cooldown;
+        this.nextIndex = new AtomicInteger(0);
+    }
+
+
+    /**
+     * Selects an endpoint for the next request and increments its number of
+     * outstanding requests. Each acquired endpoint must be released via
+     * {@linkplain #release(Endpoint, boolean)} when the request is done.
+     *
+     * @param excludedEndpoints endpoints that must not be selected
+     *
+     * @return an endpoint, or null if all endpoints are excluded
+     */
+    public Endpoint acquire(final Collection<Endpoint> excludedEndpoints)
+    {
+        final int size = endpoints.size();
+
+        if (size == 0)
+            return null;
+
+        final long now = System.currentTimeMillis();
+        final int offset = Math.floorMod(nextIndex.getAndIncrement(), size);
+
+        Endpoint selected = null;
+        Endpoint earliestRecovery = null;
+
+        for (int i = 0; i < size; i++) {
+            final Endpoint candidate = endpoints.get((offset + i) % size);
+
+            if (excludedEndpoints.contains(candidate))
+                continue;
+
+            if (candidate.isCoolingDown(now)) {
+                if (earliestRecovery == null || candidate.availableFrom < earliestRecovery.availableFrom)
+                    earliestRecovery = candidate;
+
+            } else if (!isLeastOutstanding) {
+                selected = candidate;
+                break;
+
+            } else if (selected == null || candidate.getOutstandingRequests() < selected.getOutstandingRequests())
+                selected = candidate;
+        }
+
+        // if all endpoints are cooling down, use the one that recovers first
+        if (selected == null)
+            selected = earliestRecovery;
+
+        if (selected != null)
+            selected.outstandingRequests.incrementAndGet();
+
+        return selected;
+    }
+
+
+    /**
+     * Decrements the number of outstanding requests of an endpoint
+     * and updates its health.
+     *
+     * @param endpoint an endpoint that was acquired via {@linkplain #acquire(Collection)}
+     * @param isSuccessful if false, the endpoint is skipped for the cooldown period
+     */
+    public void release(final Endpoint endpoint, final boolean isSuccessful)
+    {
+        release(endpoint, isSuccessful, -1);
+    }
+
+
+    /**
+     * Decrements the number of outstanding requests of an endpoint
+     * and updates its health and average latency. If the average latency
+     * exceeds the average latency of the fastest other endpoint by the
+     * {@linkplain LoaderConstants#DEGRADED_ENDPOINT_LATENCY_FACTOR},
+     * the endpoint is skipped for the cooldown period.
+     *
+     * @param endpoint an endpoint that was acquired via {@linkplain #acquire(Collection)}
+     * @param isSuccessful if false, the endpoint is skipped for the cooldown period
+     * @param latency the number of milliseconds it took to process the request,
+     *         or a negative value if it is unknown
+     */
+    public void release(final Endpoint endpoint, final boolean isSuccessful, final long latency)
+    {
+        endpoint.outstandingRequests.decrementAndGet();
+
+        if (!isSuccessful)
+            endpoint.availableFrom = System.currentTimeMillis() + cooldown;
+
+        else if (latency >= 0 && isDegraded(endpoint, endpoint.updateAverageLatency(latency))) {
+            // forget the latency, so the endpoint is judged by fresh requests after the cooldown
+            endpoint.averageLatency = -1;
+            endpoint.availableFrom = System.currentTimeMillis() + cooldown;
+
+        } else
+            endpoint.availableFrom = 0;
+    }
+
+
+    /**
+     * Checks if an endpoint responds considerably slower than the
+     * fastest of all other endpoints that are not cooling down.
+     *
+     * @param endpoint the endpoint that is checked
+     * @param averageLatency the average latency of the endpoint in milliseconds
+     *
+     * @return true if the endpoint is degraded
+     */
+    private boolean isDegraded(final Endpoint endpoint, final double averageLatency)
+    {
+        final long now = System.currentTimeMillis();
+        double lowestLatency = -1;
+
+        for (final Endpoint other : endpoints) {
+            final double otherLatency = other.averageLatency;
+
+            if (other != endpoint && otherLatency >= 0 && !other.isCoolingDown(now)
+                && (lowestLatency < 0 || otherLatency < lowestLatency))
+                lowestLatency = otherLatency;
+        }
+
+        return lowestLatency >= 0
+               && averageLatency > LoaderConstants.DEGRADED_ENDPOINT_LATENCY_FACTOR * Math.max(lowestLatency, 1);
+    }
+
+
+    /**
+     * Returns all endpoints.
+     *
+     * @return an unmodifiable list of all endpoints
+     */
+    public List<Endpoint> getEndpoints()
+    {
+        return endpoints;
+    }
+
+
+    /**
+     * This class represents a single URL to which requests can be sent.
+     *
+     * @author Robin Weiss
+     */
+    public static class Endpoint
+    {
+        private final String url;
+        private final AtomicInteger outstandingRequests;
+        private volatile long availableFrom;
+        private volatile double averageLatency;
+
+
+        /**
+         * Constructor.
+         *
+         * @param url the URL of the endpoint
+         */
+        private Endpoint(final String url)
+        {
+            this.url = url;
+            this.outstandingRequests = new AtomicInteger(0);
+            this.availableFrom = 0;
+            this.averageLatency = -1;
+        }
+
+
+        /**
+         * Returns the URL of the endpoint.
+         *
+         * @return the URL of the endpoint
+         */
+        public String getUrl()
+        {
+            return url;
+        }
+
+
+        /**
+         * Returns the number of requests that are currently sent to the endpoint.
+         *
+         * @return the number of outstanding requests
+         */
+        public int getOutstandingRequests()
+        {
+            return outstandingRequests.get();
+        }
+
+
+        /**
+         * Returns the exponentially weighted average of the latencies of
+         * the requests that were processed by the endpoint.
+         *
+         * @return the average latency in milliseconds, or a negative value if it is unknown
+         */
+        public double getAverageLatency()
+        {
+            return averageLatency;
+        }
+
+
+        /**
+         * Adds the latency of a processed request to the average latency.
+         *
+         * @param latency the number of milliseconds it took to process the request
+         *
+         * @return the updated average latency in milliseconds
+         */
+        private synchronized double updateAverageLatency(final long latency)
+        {
+            final double previousLatency = averageLatency;
+
+            averageLatency = previousLatency < 0
+                             ? latency
+                             : previousLatency + LoaderConstants.ENDPOINT_LATENCY_WEIGHT * (latency - previousLatency);
+
+            return averageLatency;
+        }
+
+
+        /**
+         * Checks if the endpoint is skipped, because it recently failed or was degraded.
+         *
+         * @param now the current time in milliseconds
+         *
+         * @return true if the endpoint is cooling down
+         */
+        public boolean isCoolingDown(final long now)
+        {
+            return availableFrom > now;
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return url;
+        }
+    }
+}
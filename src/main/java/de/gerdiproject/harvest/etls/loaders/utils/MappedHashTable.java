@@ -0,0 +1,679 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.loaders.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.gerdiproject.harvest.etls.loaders.constants.LoaderConstants;
+
+/**
+ * This class is a persistent hash table that maps fixed-width 20 byte keys,
+ * such as SHA-1 digests, to 20 byte values. The entries are stored in a
+ * memory-mapped file using open addressing with linear probing, so that
+ * opening an existing table does not require deserializing its content.
+ * <br><br>
+ * Every time the table is opened, a new run begins. Entries that are looked up
+ * or inserted during a run are marked as seen, allowing all entries that were not
+ * seen to be retrieved at the end of the run.
+ * <br><br>
+ * The table does not write changes transactionally. If the process crashes,
+ * entries that were changed shortly before may be lost. The table must be
+ * closed when it is no longer used, in order to write all changes to disk.
+ * This class is thread-safe.
+ *
+ * @author Robin Weiss
+ */
+public class MappedHashTable implements Closeable
+{
+    private static final byte EMPTY = 0;
+    private static final byte OCCUPIED = 1;
+    private static final byte DELETED = 2;
+
+    private static final int STATE_OFFSET = 0;
+    private static final int KEY_OFFSET = 1;
+    private static final int VALUE_OFFSET = KEY_OFFSET + LoaderConstants.HASH_TABLE_KEY_LENGTH;
+    private static final int RUN_OFFSET = VALUE_OFFSET + LoaderConstants.HASH_TABLE_VALUE_LENGTH;
+    private static final int SLOT_SIZE = RUN_OFFSET + Integer.BYTES;
+
+    private static final int HEADER_MAGIC_OFFSET = 0;
+    private static final int HEADER_VERSION_OFFSET = 4;
+    private static final int HEADER_CAPACITY_OFFSET = 8;
+    private static final int HEADER_SIZE_OFFSET = 12;
+    private static final int HEADER_TOMBSTONES_OFFSET = 16;
+    private static final int HEADER_RUN_OFFSET = 20;
+    private static final int HEADER_SIZE = 32;
+
+    private final File file;
+
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] segments;
+    private int capacity;
+    private int size;
+    private int tombstones;
+    private int run;
+
+
+    /**
+     * Constructor that opens the table that is stored in a file,
+     * or creates an empty table if the file does not exist or is invalid.
+     * Opening the table begins a new run.
+     *
+     * @param file the file in which the table is stored
+     * @param initialCapacity the number of entries that can be stored before the
+     *          table needs to grow, if the table is created
+     *
+     * @throws IOException thrown if the file could not be read or created
+     */
+    public MappedHashTable(final File file, final int initialCapacity) throws IOException
+    {
+        this.file = file;
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+
+        if (file.exists() && open())
+            this.run++;
+        else
+            create(file, getSlotCount(initialCapacity), 1);
+
+        header.putInt(HEADER_RUN_OFFSET, run);
+    }
+
+
+    /**
+     * Retrieves the value of a key and marks the entry as seen in the current run.
+     *
+     * @param key the key of the entry
+     *
+     * @return the value of the entry, or null if the key is not part of the table
+     */
+    public synchronized byte[] get(final byte[] key)
+    {
+        checkKey(key);
+        final int slot = findSlot(key);
+
+        if (slot == -1)
+            return null;
+
+        final MappedByteBuffer segment = getSegment(segments, slot);
+        final int offset = getOffset(slot);
+        segment.putInt(offset + RUN_OFFSET, run);
+
+        final byte[] value = new byte[LoaderConstants.HASH_TABLE_VALUE_LENGTH];
+
+        for (int i = 0; i < value.length; i++)
+            value[i] = segment.get(offset + VALUE_OFFSET + i);
+
+        return value;
+    }
+
+
+    /**
+     * Inserts or replaces an entry and marks it as seen in the current run.
+     *
+     * @param key the key of the entry
+     * @param value the value of the entry
+     *
+     * @throws UncheckedIOException thrown if the table had to grow, but the file could not be written
+     */
+    public synchronized void put(final byte[] key, final byte[] value)
+    {
+        checkKey(key);
+
+        if (value.length != LoaderConstants.HASH_TABLE_VALUE_LENGTH)
+            throw new IllegalArgumentException(String.format(LoaderConstants.HASH_TABLE_INVALID_LENGTH, LoaderConstants.HASH_TABLE_VALUE_LENGTH));
+
+        int slot = findSlot(key);
+
+        if (slot == -1) {
+            // grow the table or get rid of tombstones, if it is too full
+            if (size + tombstones + 1 > capacity * LoaderConstants.HASH_TABLE_MAX_LOAD_FACTOR) {
+                final boolean mustGrow = size + 1 > capacity * LoaderConstants.HASH_TABLE_MAX_LOAD_FACTOR / 2;
+
+                if (mustGrow && capacity >= LoaderConstants.HASH_TABLE_MAX_SLOTS && size + 1 >= capacity)
+                    throw new IllegalStateException(LoaderConstants.HASH_TABLE_FULL);
+
+                try {
+                    resize(mustGrow ? Math.min(capacity * 2, LoaderConstants.HASH_TABLE_MAX_SLOTS) : capacity);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            slot = findFreeSlot(segments, capacity, key);
+
+            if (getSegment(segments, slot).get(getOffset(slot) + STATE_OFFSET) == DELETED)
+                header.putInt(HEADER_TOMBSTONES_OFFSET, --tombstones);
+
+            header.putInt(HEADER_SIZE_OFFSET, ++size);
+        }
+
+        writeSlot(segments, slot, key, value, run);
+    }
+
+
+    /**
+     * Removes an entry.
+     *
+     * @param key the key of the entry
+     *
+     * @return true if the entry was removed, false if the key is not part of the table
+     */
+    public synchronized boolean remove(final byte[] key)
+    {
+        checkKey(key);
+        final int slot = findSlot(key);
+
+        if (slot == -1)
+            return false;
+
+        removeSlot(slot);
+        return true;
+    }
+
+
+    /**
+     * Returns the keys of all entries that were not seen in the current run.
+     *
+     * @return the keys of all entries that were not seen in the current run
+     */
+    public synchronized List<byte[]> getUnseenKeys()
+    {
+        final List<byte[]> unseenKeys = new ArrayList<>();
+
+        for (int slot = 0; slot < capacity; slot++) {
+            if (isUnseen(slot))
+                unseenKeys.add(readKey(segments, slot));
+        }
+
+        return unseenKeys;
+    }
+
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+
+    /**
+     * Writes all changes to the storage device.
+     */
+    public synchronized void flush()
+    {
+        header.force();
+
+        for (final MappedByteBuffer segment : segments)
+            segment.force();
+    }
+
+
+    /**
+     * Writes all changes to the storage device and releases the mapped file.
+     * The table cannot be used after it was closed.
+     */
+    @Override
+    public synchronized void close()
+    {
+        if (segments == null)
+            return;
+
+        flush();
+
+        // the mapped buffers are unmapped as soon as they are garbage collected
+        this.header = null;
+        this.segments = null;
+    }
+
+
+    /**
+     * Maps an existing file and reads its header.
+     *
+     * @return true if the file contains a valid table
+     *
+     * @throws IOException thrown if the file could not be read
+     */
+    private boolean open() throws IOException
+    {
+        try
+            (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER_SIZE)
+                return false;
+
+            final MappedByteBuffer fileHeader = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE);
+            final int fileCapacity = fileHeader.getInt(HEADER_CAPACITY_OFFSET);
+
+            if (fileHeader.getInt(HEADER_MAGIC_OFFSET) != LoaderConstants.HASH_TABLE_MAGIC
+                || fileHeader.getInt(HEADER_VERSION_OFFSET) != LoaderConstants.HASH_TABLE_VERSION
+                || Integer.bitCount(fileCapacity) != 1
+                || channel.size() != getFileSize(fileCapacity))
+                return false;
+
+            this.header = fileHeader;
+            this.segments = mapSegments(channel, fileCapacity);
+            this.capacity = fileCapacity;
+            this.size = fileHeader.getInt(HEADER_SIZE_OFFSET);
+            this.tombstones = fileHeader.getInt(HEADER_TOMBSTONES_OFFSET);
+            this.run = fileHeader.getInt(HEADER_RUN_OFFSET);
+            return true;
+        }
+    }
+
+
+    /**
+     * Creates an empty table in a file, replacing the content of the file.
+     *
+     * @param targetFile the file in which the table is stored
+     * @param slotCount the number of slots of the table
+     * @param tableRun the current run of the table
+     *
+     * @throws IOException thrown if the file could not be written
+     */
+    private void create(final File targetFile, final int slotCount, final int tableRun) throws IOException
+    {
+        try
+            (FileChannel channel = createFile(targetFile)) {
+            // mapping a region beyond the end of the file grows the file with zeros, meaning empty slots
+            this.header = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE);
+            this.segments = mapSegments(channel, slotCount);
+        }
+
+        this.capacity = slotCount;
+        this.size = 0;
+        this.tombstones = 0;
+        this.run = tableRun;
+
+        writeHeader(header, capacity, size, tombstones, run);
+    }
+
+
+    /**
+     * Copies all entries to a new table with the specified number of slots,
+     * which then replaces the file of the current table. The current table
+     * remains in use if the new table could not be written.
+     *
+     * @param slotCount the number of slots of the new table
+     *
+     * @throws IOException thrown if the new table could not be written
+     */
+    private void resize(final int slotCount) throws IOException
+    {
+        final File tempFile = new File(file.getPath() + LoaderConstants.HASH_TABLE_TEMP_FILE_SUFFIX);
+        final MappedByteBuffer newHeader;
+        final MappedByteBuffer[] newSegments;
+
+        try
+            (FileChannel channel = createFile(tempFile)) {
+            newHeader = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE);
+            newSegments = mapSegments(channel, slotCount);
+        }
+
+        for (int oldSlot = 0; oldSlot < capacity; oldSlot++) {
+            final MappedByteBuffer oldSegment = getSegment(segments, oldSlot);
+            final int oldOffset = getOffset(oldSlot);
+
+            if (oldSegment.get(oldOffset + STATE_OFFSET) == OCCUPIED) {
+                final byte[] key = readKey(segments, oldSlot);
+                final byte[] value = new byte[LoaderConstants.HASH_TABLE_VALUE_LENGTH];
+
+                for (int i = 0; i < value.length; i++)
+                    value[i] = oldSegment.get(oldOffset + VALUE_OFFSET + i);
+
+                final int slot = findFreeSlot(newSegments, slotCount, key);
+                writeSlot(newSegments, slot, key, value, oldSegment.getInt(oldOffset + RUN_OFFSET));
+            }
+        }
+
+        writeHeader(newHeader, slotCount, size, 0, run);
+        newHeader.force();
+
+        for (final MappedByteBuffer segment : newSegments)
+            segment.force();
+
+        // the mapped buffers remain valid after the file is moved
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException e) {
+            try {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (final IOException moveException) {
+                Files.deleteIfExists(tempFile.toPath());
+                throw moveException;
+            }
+        }
+
+        // only replace the current table after its file was replaced
+        this.header = newHeader;
+        this.segments = newSegments;
+        this.capacity = slotCount;
+        this.tombstones = 0;
+    }
+
+
+    /**
+     * Searches for the slot of an entry.
+     *
+     * @param key the key of the entry
+     *
+     * @return the slot of the entry, or -1 if the key is not part of the table
+     */
+    private int findSlot(final byte[] key)
+    {
+        final int mask = capacity - 1;
+        int slot = getHashCode(key) & mask;
+
+        for (int i = 0; i < capacity; i++) {
+            final MappedByteBuffer segment = getSegment(segments, slot);
+            final int offset = getOffset(slot);
+            final byte state = segment.get(offset + STATE_OFFSET);
+
+            if (state == EMPTY)
+                return -1;
+
+            if (state == OCCUPIED && isKeyEqual(segment, offset, key))
+                return slot;
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Marks a slot as deleted.
+     *
+     * @param slot the slot of the entry that is to be removed
+     */
+    private void removeSlot(final int slot)
+    {
+        getSegment(segments, slot).put(getOffset(slot) + STATE_OFFSET, DELETED);
+        header.putInt(HEADER_SIZE_OFFSET, --size);
+        header.putInt(HEADER_TOMBSTONES_OFFSET, ++tombstones);
+    }
+
+
+    /**
+     * Checks if a slot contains an entry that was not seen in the current run.
+     *
+     * @param slot the slot that is checked
+     *
+     * @return true if the slot contains an entry that was not seen in the current run
+     */
+    private boolean isUnseen(final int slot)
+    {
+        final MappedByteBuffer segment = getSegment(segments, slot);
+        final int offset = getOffset(slot);
+
+        return segment.get(offset + STATE_OFFSET) == OCCUPIED
+               && segment.getInt(offset + RUN_OFFSET) != run;
+    }
+
+
+    /**
+     * Checks if the key of a slot equals a specified key.
+     *
+     * @param segment the segment that contains the slot
+     * @param offset the offset of the slot within the segment
+     * @param key the key that is compared
+     *
+     * @return true if the keys are equal
+     */
+    private static boolean isKeyEqual(final MappedByteBuffer segment, final int offset, final byte[] key)
+    {
+        for (int i = 0; i < key.length; i++) {
+            if (segment.get(offset + KEY_OFFSET + i) != key[i])
+                return false;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Searches for the first empty or deleted slot, starting at the slot of a key.
+     *
+     * @param tableSegments the segments of the table
+     * @param slotCount the number of slots of the table
+     * @param key the key for which a slot is searched
+     *
+     * @return the first slot that does not contain an entry
+     */
+    private static int findFreeSlot(final MappedByteBuffer[] tableSegments, final int slotCount, final byte[] key)
+    {
+        final int mask = slotCount - 1;
+        int slot = getHashCode(key) & mask;
+
+        while (getSegment(tableSegments, slot).get(getOffset(slot) + STATE_OFFSET) == OCCUPIED)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+
+    /**
+     * Writes an entry to a slot.
+     *
+     * @param tableSegments the segments of the table
+     * @param slot the slot to which the entry is written
+     * @param key the key of the entry
+     * @param value the value of the entry
+     * @param entryRun the run in which the entry was last seen
+     */
+    private static void writeSlot(final MappedByteBuffer[] tableSegments, final int slot, final byte[] key, final byte[] value, final int entryRun)
+    {
+        final MappedByteBuffer segment = getSegment(tableSegments, slot);
+        final int offset = getOffset(slot);
+
+        for (int i = 0; i < key.length; i++)
+            segment.put(offset + KEY_OFFSET + i, key[i]);
+
+        for (int i = 0; i < value.length; i++)
+            segment.put(offset + VALUE_OFFSET + i, value[i]);
+
+        segment.putInt(offset + RUN_OFFSET, entryRun);
+        segment.put(offset + STATE_OFFSET, OCCUPIED);
+    }
+
+
+    /**
+     * Opens a file for writing a new table, replacing the content of the file.
+     *
+     * @param targetFile the file in which the table is stored
+     *
+     * @return a channel of the emptied file
+     *
+     * @throws IOException thrown if the file could not be opened
+     */
+    private static FileChannel createFile(final File targetFile) throws IOException
+    {
+        return FileChannel.open(
+                   targetFile.toPath(),
+                   StandardOpenOption.CREATE,
+                   StandardOpenOption.TRUNCATE_EXISTING,
+                   StandardOpenOption.READ,
+                   StandardOpenOption.WRITE);
+    }
+
+
+    /**
+     * Writes the header of a table.
+     *
+     * @param tableHeader the mapped header of the table
+     * @param slotCount the number of slots of the table
+     * @param entryCount the number of entries of the table
+     * @param tombstoneCount the number of deleted slots of the table
+     * @param tableRun the current run of the table
+     */
+    private static void writeHeader(final MappedByteBuffer tableHeader, final int slotCount, final int entryCount, final int tombstoneCount, final int tableRun)
+    {
+        tableHeader.putInt(HEADER_MAGIC_OFFSET, LoaderConstants.HASH_TABLE_MAGIC);
+        tableHeader.putInt(HEADER_VERSION_OFFSET, LoaderConstants.HASH_TABLE_VERSION);
+        tableHeader.putInt(HEADER_CAPACITY_OFFSET, slotCount);
+        tableHeader.putInt(HEADER_SIZE_OFFSET, entryCount);
+        tableHeader.putInt(HEADER_TOMBSTONES_OFFSET, tombstoneCount);
+        tableHeader.putInt(HEADER_RUN_OFFSET, tableRun);
+    }
+
+
+    /**
+     * Reads the key of a slot.
+     *
+     * @param tableSegments the segments of the table
+     * @param slot the slot of which the key is read
+     *
+     * @return the key of the slot
+     */
+    private static byte[] readKey(final MappedByteBuffer[] tableSegments, final int slot)
+    {
+        final MappedByteBuffer segment = getSegment(tableSegments, slot);
+        final int offset = getOffset(slot);
+        final byte[] key = new byte[LoaderConstants.HASH_TABLE_KEY_LENGTH];
+
+        for (int i = 0; i < key.length; i++)
+            key[i] = segment.get(offset + KEY_OFFSET + i);
+
+        return key;
+    }
+
+
+    /**
+     * Maps the slots of a table file. Since a single mapped buffer cannot
+     * exceed 2GB, the slots are split among multiple segments.
+     *
+     * @param channel the channel of the table file
+     * @param slotCount the number of slots of the table
+     *
+     * @return the mapped segments
+     *
+     * @throws IOException thrown if the file could not be mapped
+     */
+    private static MappedByteBuffer[] mapSegments(final FileChannel channel, final int slotCount) throws IOException
+    {
+        final int segmentCount = (slotCount + LoaderConstants.HASH_TABLE_SLOTS_PER_SEGMENT - 1) / LoaderConstants.HASH_TABLE_SLOTS_PER_SEGMENT;
+        final MappedByteBuffer[] mappedSegments = new MappedByteBuffer[segmentCount];
+
+        for (int i = 0; i < segmentCount; i++) {
+            final long position = HEADER_SIZE + (long) i * LoaderConstants.HASH_TABLE_SLOTS_PER_SEGMENT * SLOT_SIZE;
+            final int segmentSlots = Math.min(LoaderConstants.HASH_TABLE_SLOTS_PER_SEGMENT, slotCount - i * LoaderConstants.HASH_TABLE_SLOTS_PER_SEGMENT);
+            mappedSegments[i] = channel.map(MapMode.READ_WRITE, position, (long) segmentSlots * SLOT_SIZE);
+        }
+
+        return mappedSegments;
+    }
+
+
+    /**
+     * Returns the segment that contains a slot.
+     *
+     * @param tableSegments the segments of the table
+     * @param slot the slot of which the segment is retrieved
+     *
+     * @return the segment that contains the slot
+     */
+    private static MappedByteBuffer getSegment(final MappedByteBuffer[] tableSegments, final int slot)
+    {
+        return tableSegments[slot / LoaderConstants.HASH_TABLE_SLOTS_PER_SEGMENT];
+    }
+
+
+    /**
+     * Returns the byte offset of a slot within its segment.
+     *
+     * @param slot the slot of which the offset is calculated
+     *
+     * @return the byte offset of the slot within its segment
+     */
+    private static int getOffset(final int slot)
+    {
+        return (slot % LoaderConstants.HASH_TABLE_SLOTS_PER_SEGMENT) * SLOT_SIZE;
+    }
+
+
+    /**
+     * Calculates the size of a table file.
+     *
+     * @param slotCount the number of slots of the table
+     *
+     * @return the size of the table file in bytes
+     */
+    private static long getFileSize(final int slotCount)
+    {
+        return HEADER_SIZE + (long) slotCount * SLOT_SIZE;
+    }
+
+
+    /**
+     * Calculates the number of slots that are needed to store
+     * a number of entries without exceeding the maximum load factor.
+     *
+     * @param entryCount the number of entries that are to be stored
+     *
+     * @return a power of two
+     */
+    private static int getSlotCount(final int entryCount)
+    {
+        final long minSlots = Math.max((long) Math.ceil(entryCount / LoaderConstants.HASH_TABLE_MAX_LOAD_FACTOR), LoaderConstants.HASH_TABLE_MIN_SLOTS);
+        final long slotCount = Long.highestOneBit(minSlots - 1) << 1;
+        return (int) Math.min(slotCount, LoaderConstants.HASH_TABLE_MAX_SLOTS);
+    }
+
+
+    /**
+     * Calculates the hash code of a key. Since keys are expected to be
+     * cryptographic digests, their first bytes are distributed uniformly.
+     *
+     * @param key the key of which the hash code is calculated
+     *
+     * @return the hash code of the key
+     */
+    private static int getHashCode(final byte[] key)
+    {
+        return (key[0] & 0xff) << 24
+               | (key[1] & 0xff) << 16
+               | (key[2] & 0xff) << 8
+               | key[3] & 0xff;
+    }
+
+
+    /**
+     * Verifies that a key has the correct length.
+     *
+     * @param key the key that is verified
+     *
+     * @throws IllegalArgumentException thrown if the key does not have the expected length
+     */
+    private static void checkKey(final byte[] key)
+    {
+        if (key.length != LoaderConstants.HASH_TABLE_KEY_LENGTH)
+            throw new IllegalArgumentException(String.format(LoaderConstants.HASH_TABLE_INVALID_LENGTH, LoaderConstants.HASH_TABLE_KEY_LENGTH));
+    }
+}
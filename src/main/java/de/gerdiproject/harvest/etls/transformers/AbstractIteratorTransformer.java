@@ -16,13 +16,32 @@
  */
 package de.gerdiproject.harvest.etls.transformers;
 
+import java.util.ArrayDeque;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import de.gerdiproject.harvest.etls.constants.ETLConstants;
 import de.gerdiproject.harvest.etls.extractors.AbstractIteratorExtractor;
 import de.gerdiproject.harvest.etls.extractors.ExtractorException;
 
 /**
  * This transformer can transform multiple documents.
+ * By default, elements are transformed one by one on the thread that
+ * iterates the transformed documents. If more than one thread is set
+ * via {@linkplain #setParallelism(int, boolean)}, elements are transformed
+ * concurrently, in which case {@linkplain #transformElement(Object)}
+ * must be thread-safe. The returned {@linkplain Iterator} then also implements
+ * {@linkplain AutoCloseable}, and must be closed by consumers that stop iterating
+ * before it is exhausted, in order to stop the transformation threads.
  *
  * @param <T> the type of objects that are to be transformed
  * @param <S> the resulting type of the transformed objects
@@ -31,6 +50,26 @@ import de.gerdiproject.harvest.etls.extractors.ExtractorException;
  */
 public abstract class AbstractIteratorTransformer <T, S> implements ITransformer<Iterator<T>, Iterator<S>>
 {
+    private volatile int threadCount = 1;
+    private volatile boolean isOrdered = true;
+
+
+    /**
+     * Changes the number of threads that transform elements concurrently.
+     *
+     * @param threadCount the number of transformation threads,
+     * values lower than 2 disable parallel transformation
+     * @param isOrdered if true, the transformed documents are returned in the
+     * same order as the source elements, otherwise they are returned as soon
+     * as they are transformed
+     */
+    public void setParallelism(final int threadCount, final boolean isOrdered)
+    {
+        this.threadCount = threadCount;
+        this.isOrdered = isOrdered;
+    }
+
+
     /**
      * Transforms a single element.
      *
@@ -46,7 +85,55 @@ public abstract class AbstractIteratorTransformer <T, S> implements ITransformer
     @Override
     public Iterator<S> transform(final Iterator<T> elements) throws TransformerException
     {
-        return new PassThroughIterator(elements);
+        if (threadCount < 2)
+            return new PassThroughIterator(elements);
+
+        return new ParallelIterator(elements, threadCount, isOrdered);
+    }
+
+
+    /**
+     * Retrieves the next element of an {@linkplain Iterator} returned by an
+     * {@linkplain AbstractIteratorExtractor}, wrapping any exception in an
+     * {@linkplain ExtractorException}.
+     *
+     * @param input the {@linkplain Iterator} returned by an {@linkplain AbstractIteratorExtractor}
+     *
+     * @throws ExtractorException thrown when the element could not be retrieved
+     *
+     * @return the next element of the {@linkplain Iterator}
+     */
+    private T extractNext(final Iterator<T> input) throws ExtractorException
+    {
+        try {
+            return input.next();
+        } catch (final ExtractorException e) { // NOPMD handle extractor exceptions differently
+            throw e;
+        } catch (final RuntimeException e) { // NOPMD wrap any other exception in an extractor exception
+            throw new ExtractorException(e);
+        }
+    }
+
+
+    /**
+     * Transforms a single element, wrapping any exception in a
+     * {@linkplain TransformerException}.
+     *
+     * @param in the element that is to be transformed, or null
+     *
+     * @throws TransformerException thrown when the element could not be transformed
+     *
+     * @return the transformed element, or null if the element was null
+     */
+    private S transformNext(final T in) throws TransformerException
+    {
+        try {
+            return in == null ? null : transformElement(in);
+        } catch (final TransformerException e) { // NOPMD handle transformer exceptions differently
+            throw e;
+        } catch (final RuntimeException e) { // NOPMD wrap any other exception in a transformer exception
+            throw new TransformerException(e);
+        }
     }
 
 
@@ -79,23 +166,197 @@ public abstract class AbstractIteratorTransformer <T, S> implements ITransformer
         @Override
         public S next()
         {
-            final T in;
+            return transformNext(extractNext(input));
+        }
+    }
+
+
+    /**
+     * This class is an {@linkplain Iterator} that wraps around the {@linkplain Iterator} provided by
+     * an {@linkplain AbstractIteratorExtractor} and transforms multiple elements concurrently.
+     * Source elements are retrieved on the iterating thread, while the transformations are
+     * executed by a dedicated thread pool. The number of pending transformations is
+     * limited in order to keep the memory consumption low.
+     * The thread pool is shut down when the iterator is exhausted, fails, or is closed.
+     *
+     * @author Robin Weiss
+     */
+    private class ParallelIterator implements Iterator<S>, AutoCloseable
+    {
+        private final Iterator<T> input;
+        private final boolean isOrdered;
+        private final int maxPendingCount;
+        private final ThreadPoolExecutor executor;
+
+        // ordered mode: futures in the order of their source elements
+        private final Queue<Future<S>> orderedFutures;
+
+        // unordered mode: futures in the order of their completion
+        private final CompletionService<S> completionService;
+        private int pendingCount;
+        private volatile boolean isClosed;
+
+
+        /**
+         * Constructor.
+         *
+         * @param input the {@linkplain Iterator} returned by an {@linkplain AbstractIteratorExtractor}
+         * @param threadCount the number of threads that transform elements
+         * @param isOrdered if true, documents are returned in the order of their source elements
+         */
+        public ParallelIterator(final Iterator<T> input, final int threadCount, final boolean isOrdered)
+        {
+            this.input = input;
+            this.isOrdered = isOrdered;
+            this.maxPendingCount = threadCount * ETLConstants.TRANSFORMER_BUFFER_FACTOR;
+
+            final String threadNamePrefix = AbstractIteratorTransformer.this.getClass().getSimpleName();
+            final AtomicInteger threadIndex = new AtomicInteger(0);
+
+            this.executor = new ThreadPoolExecutor(
+                threadCount,
+                threadCount,
+                ETLConstants.TRANSFORMER_THREAD_KEEP_ALIVE,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                (final Runnable task) -> {
+                    final Thread thread = new Thread(task, String.format(ETLConstants.TRANSFORMER_THREAD_NAME, threadNamePrefix, threadIndex.incrementAndGet()));
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+            // let idle threads die if the iterator is abandoned
+            this.executor.allowCoreThreadTimeOut(true);
+
+            this.orderedFutures = isOrdered ? new ArrayDeque<>(maxPendingCount) : null;
+            this.completionService = isOrdered ? null : new ExecutorCompletionService<>(executor);
+        }
+
+
+        @Override
+        public boolean hasNext()
+        {
+            if (isClosed)
+                return false;
+
+            submitPendingTransformations();
+
+            if (pendingCount == 0) {
+                executor.shutdown();
+                return false;
+            }
+
+            return true;
+        }
+
+
+        @Override
+        public S next()
+        {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            final Future<S> transformation;
 
             try {
-                in = input.next();
-            } catch (final ExtractorException e) { // NOPMD handle extractor exceptions differently
-                throw e;
-            } catch (final RuntimeException e) { // NOPMD wrap any other exception in an extractor exception
-                throw new ExtractorException(e);
+                transformation = isOrdered
+                                 ? orderedFutures.poll()
+                                 : completionService.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw abort(new TransformerException(e));
             }
 
+            pendingCount--;
+            return getTransformationResult(transformation);
+        }
+
+
+        /**
+         * Cancels all pending transformations and shuts down the thread pool.
+         * Subsequent calls of {@linkplain #hasNext()} return false.
+         */
+        @Override
+        public void close()
+        {
+            isClosed = true;
+            abort(null);
+        }
+
+
+        /**
+         * Retrieves source elements and submits their transformations until the
+         * maximum number of pending transformations is reached, or until there
+         * are no more source elements.
+         */
+        private void submitPendingTransformations()
+        {
             try {
-                return in == null ? null : transformElement(in);
-            } catch (final TransformerException e) { // NOPMD handle transformer exceptions differently
-                throw e;
-            } catch (final RuntimeException e) { // NOPMD wrap any other exception in a transformer exception
-                throw new TransformerException(e);
+                while (pendingCount < maxPendingCount && input.hasNext()) {
+                    final T in = extractNext(input);
+
+                    if (isOrdered)
+                        orderedFutures.add(executor.submit(() -> transformNext(in)));
+                    else
+                        completionService.submit(() -> transformNext(in));
+
+                    pendingCount++;
+                }
+            } catch (final RuntimeException e) { // NOPMD stop pending transformations before forwarding the exception
+                throw abort(e);
+            }
+        }
+
+
+        /**
+         * Waits for a transformation to finish and returns its result.
+         *
+         * @param transformation the pending transformation
+         *
+         * @throws TransformerException thrown when the transformation failed
+         *
+         * @return the transformed document
+         */
+        private S getTransformationResult(final Future<S> transformation) throws TransformerException
+        {
+            try {
+                return transformation.get();
+
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw abort(new TransformerException(e));
+
+            } catch (final ExecutionException e) {
+                final Throwable cause = e.getCause();
+
+                if (cause instanceof TransformerException)
+                    throw abort((TransformerException) cause);
+                else
+                    throw abort(new TransformerException(cause));
+            }
+        }
+
+
+        /**
+         * Cancels all pending transformations and shuts down the thread pool.
+         *
+         * @param reason the exception that caused the abort, or null if the iterator was closed
+         *
+         * @return the exception that caused the abort
+         */
+        private RuntimeException abort(final RuntimeException reason)
+        {
+            executor.shutdownNow();
+
+            if (isOrdered) {
+                for (final Future<S> pending : orderedFutures)
+                    pending.cancel(true);
+
+                orderedFutures.clear();
             }
+
+            pendingCount = 0;
+            return reason;
         }
     }
 }
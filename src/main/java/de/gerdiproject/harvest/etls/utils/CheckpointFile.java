@@ -0,0 +1,123 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+
+import de.gerdiproject.harvest.etls.constants.ETLConstants;
+import de.gerdiproject.harvest.etls.json.ETLCheckpointJson;
+import de.gerdiproject.harvest.utils.data.DiskIO;
+
+/**
+ * This class reads and writes the checkpoint of an ETL.
+ * Checkpoints are first written to a temporary file, which then
+ * replaces the checkpoint file atomically, so that a crash
+ * never leaves a partially written checkpoint behind.
+ *
+ * @author Robin Weiss
+ */
+public class CheckpointFile
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CheckpointFile.class);
+
+    private final File file;
+    private final File tempFile;
+    private final Gson gson;
+    private final DiskIO diskIo;
+
+
+    /**
+     * Constructor.
+     *
+     * @param file the file in which the checkpoint is stored
+     */
+    public CheckpointFile(final File file)
+    {
+        this.file = file;
+        this.tempFile = new File(file.getPath() + ETLConstants.CHECKPOINT_TEMP_FILE_SUFFIX);
+        this.gson = new Gson();
+        this.diskIo = new DiskIO(gson, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Reads the checkpoint from disk.
+     *
+     * @return the stored checkpoint, or null if there is none
+     */
+    public ETLCheckpointJson load()
+    {
+        if (!file.exists())
+            return null;
+
+        return diskIo.getObject(file, ETLCheckpointJson.class);
+    }
+
+
+    /**
+     * Atomically replaces the stored checkpoint.
+     *
+     * @param checkpoint the checkpoint that is to be stored
+     *
+     * @return true if the checkpoint was stored
+     */
+    public boolean save(final ETLCheckpointJson checkpoint)
+    {
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+
+            final Path tempPath = tempFile.toPath();
+            Files.write(tempPath, gson.toJson(checkpoint).getBytes(StandardCharsets.UTF_8));
+
+            try {
+                Files.move(tempPath, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            return true;
+
+        } catch (IOException | SecurityException e) {
+            LOGGER.warn(String.format(ETLConstants.CHECKPOINT_SAVE_FAILED, file), e);
+            return false;
+        }
+    }
+
+
+    /**
+     * Removes the stored checkpoint.
+     */
+    public void delete()
+    {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException | SecurityException e) {
+            LOGGER.warn(String.format(ETLConstants.CHECKPOINT_DELETE_FAILED, file), e);
+        }
+    }
+}
@@ -50,10 +50,13 @@ import de.gerdiproject.harvest.etls.events.HarvestStartedEvent;
 import de.gerdiproject.harvest.etls.json.ETLInfosJson;
 import de.gerdiproject.harvest.etls.json.ETLJson;
 import de.gerdiproject.harvest.etls.json.ETLManagerJson;
+import de.gerdiproject.harvest.etls.json.HttpStatisticsJson;
 import de.gerdiproject.harvest.event.EventSystem;
 import de.gerdiproject.harvest.rest.AbstractRestObject;
 import de.gerdiproject.harvest.scheduler.events.GetSchedulerEvent;
 import de.gerdiproject.harvest.utils.data.DiskIO;
+import de.gerdiproject.harvest.utils.data.HttpStatistics;
+import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
 import de.gerdiproject.harvest.utils.file.ICachedObject;
 
 
@@ -215,7 +218,8 @@ public class ETLManager extends AbstractRestObject<ETLManager, ETLManagerJson> i
                    remainingHarvestTime == -1 ? null : remainingHarvestTime,
                    lastHarvestTimestamp == -1 ? null : new Date(lastHarvestTimestamp).toString(),
                    nextHarvestDate == null ? null : nextHarvestDate.toString(),
-                   hasEnabledETLs
+                   hasEnabledETLs,
+                   HttpStatistics.getAsJson()
                );
     }
 
@@ -397,6 +401,8 @@ public class ETLManager extends AbstractRestObject<ETLManager, ETLManagerJson> i
             else if (status == ETLState.HARVESTING)
                 LOGGER.info(ETLConstants.HARVEST_FINISHED);
 
+            logHttpStatistics();
+
             EventSystem.sendEvent(new HarvestFinishedEvent(true, lastHarvestHash));
             setStatus(ETLState.IDLE);
         })
@@ -573,6 +579,31 @@ public class ETLManager extends AbstractRestObject<ETLManager, ETLManagerJson> i
     }
 
 
+    /**
+     * Logs how many bytes were saved by conditional HTTP requests,
+     * and how often HTTP requests were retried during the harvest.
+     */
+    private void logHttpStatistics()
+    {
+        final HttpStatisticsJson httpStatistics = HttpStatistics.getAsJson();
+
+        if (httpStatistics.getConditionalRequests() > 0)
+            LOGGER.info(String.format(
+                            DataOperationConstants.CONDITIONAL_REQUESTS_SUMMARY,
+                            httpStatistics.getNotModifiedResponses(),
+                            httpStatistics.getConditionalRequests(),
+                            httpStatistics.getNotModifiedRatio() * 100,
+                            httpStatistics.getSavedBytes()));
+
+        if (httpStatistics.getRetries() > 0 || httpStatistics.getRedirects() > 0)
+            LOGGER.info(String.format(
+                            DataOperationConstants.RETRIES_SUMMARY,
+                            httpStatistics.getRetries(),
+                            httpStatistics.getRedirects(),
+                            httpStatistics.getExceededDeadlines()));
+    }
+
+
     /**
      * Harvests prepared and queued ETLs either sequentially or
      * concurrently, depending on the value of the "concurrentHarvest" parameter.
@@ -581,6 +612,7 @@ public class ETLManager extends AbstractRestObject<ETLManager, ETLManagerJson> i
     {
         LOGGER.info(ETLConstants.START_ETLS);
         setStatus(ETLState.HARVESTING);
+        HttpStatistics.reset();
 
         EventSystem.sendEvent(new HarvestStartedEvent(EtlUtils.getCombinedHashes(etls), getMaxNumberOfDocuments()));
 
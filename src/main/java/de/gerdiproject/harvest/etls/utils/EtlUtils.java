@@ -50,8 +50,9 @@ public class EtlUtils
      */
     public static String getCombinedHashes(final Collection<AbstractETL<?, ?>> etls)
     {
-        // concatenate all hashes
-        final StringBuffer hashBuilder = new StringBuffer();
+        // hash the concatenation of all hashes
+        final HashGenerator generator = new HashGenerator(StandardCharsets.UTF_8);
+        boolean isEmpty = true;
 
         for (final AbstractETL<?, ?> etl : etls) {
             // skip disabled ETLs
@@ -64,15 +65,15 @@ public class EtlUtils
             if (subHash == null)
                 return null;
 
-            hashBuilder.append(subHash);
+            generator.update(subHash);
+            isEmpty &= subHash.isEmpty();
         }
 
         // rare case when no enabled ETLs exist
-        if (hashBuilder.length() == 0)
+        if (isEmpty)
             return null;
 
-        final HashGenerator generator = new HashGenerator(StandardCharsets.UTF_8);
-        return generator.getShaHash(hashBuilder.toString());
+        return generator.finish();
     }
 
 
@@ -0,0 +1,217 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import de.gerdiproject.harvest.etls.constants.ETLConstants;
+
+/**
+ * This class is a bounded queue that hands off elements from a producing
+ * ETL stage to a consuming ETL stage that runs on another thread.
+ * Producers block if the queue is full, thus slowing down stages that
+ * are faster than their consumers. The consumer retrieves elements via
+ * the {@linkplain Iterator} interface, which allows the queue to be
+ * passed to the next stage as if it was the output of the previous one.
+ * <br><br>
+ * If the producer fails, the exception is re-thrown on the consumer thread
+ * once all elements that were queued before the failure were retrieved.
+ * {@linkplain Error}s are forwarded as well, so that the consumer never waits
+ * for a producer that died.
+ *
+ * @param <E> the type of the handed off elements
+ *
+ * @author Robin Weiss
+ */
+public class PipelineQueue <E> implements Iterator<E>
+{
+    private static final Object END_OF_QUEUE = new Object();
+    private static final Object NULL_ELEMENT = new Object();
+
+    private final BlockingQueue<Object> queue;
+    private volatile boolean isCancelled;
+    private volatile Throwable failure;
+
+    // the next element is only accessed by the consuming thread
+    private Object nextElement;
+
+
+    /**
+     * Constructor that sets the maximum number of queued elements.
+     *
+     * @param capacity the maximum number of elements that can be queued
+     * before producers are blocked
+     */
+    public PipelineQueue(final int capacity)
+    {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+
+    /**
+     * Adds an element to the queue, blocking until there is enough space.
+     * Null elements are allowed.
+     *
+     * @param element the element that is to be added
+     *
+     * @return false if the queue was cancelled before the element could be added
+     */
+    public boolean put(final E element)
+    {
+        return putInternal(element == null ? NULL_ELEMENT : element);
+    }
+
+
+    /**
+     * Signals that no more elements will be added to the queue.
+     */
+    public void close()
+    {
+        putInternal(END_OF_QUEUE);
+    }
+
+
+    /**
+     * Signals that no more elements will be added to the queue, because
+     * the producer failed. The exception will be thrown by the consumer
+     * after all remaining elements were consumed.
+     *
+     * @param reason the exception or error that caused the producer to fail
+     */
+    public void closeExceptionally(final Throwable reason)
+    {
+        this.failure = reason;
+        close();
+    }
+
+
+    /**
+     * Stops the queue from accepting elements and releases blocked producers.
+     * This method should be called by the consumer if it stops consuming
+     * elements prematurely.
+     */
+    public void cancel()
+    {
+        this.isCancelled = true;
+        queue.clear();
+    }
+
+
+    /**
+     * Returns true if the queue was cancelled.
+     *
+     * @return true if the queue was cancelled
+     */
+    public boolean isCancelled()
+    {
+        return isCancelled;
+    }
+
+
+    @Override
+    public boolean hasNext()
+    {
+        if (nextElement == null)
+            nextElement = take();
+
+        if (nextElement == END_OF_QUEUE) {
+            final Throwable reason = failure;
+
+            if (reason != null) {
+                failure = null;
+
+                if (reason instanceof Error)
+                    throw (Error) reason;
+
+                if (reason instanceof RuntimeException)
+                    throw (RuntimeException) reason;
+
+                throw new IllegalStateException(reason);
+            }
+
+            return false;
+        }
+
+        return true;
+    }
+
+
+    @SuppressWarnings("unchecked") // the queue only contains elements of type E and the markers
+    @Override
+    public E next()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        final Object element = nextElement;
+        nextElement = null;
+
+        return element == NULL_ELEMENT ? null : (E) element;
+    }
+
+
+    /**
+     * Attempts to add an object to the queue until it succeeds,
+     * or until the queue is cancelled.
+     *
+     * @param object the object that is to be added
+     *
+     * @return true if the object was added
+     */
+    private boolean putInternal(final Object object)
+    {
+        try {
+            while (!isCancelled) {
+                if (queue.offer(object, ETLConstants.PIPELINE_POLL_INTERVAL, TimeUnit.MILLISECONDS))
+                    return true;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            isCancelled = true;
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Retrieves the next object of the queue, blocking until one is available.
+     * If the queue is cancelled, the end of the queue is returned.
+     *
+     * @return the next object of the queue
+     */
+    private Object take()
+    {
+        try {
+            while (!isCancelled) {
+                final Object object = queue.poll(ETLConstants.PIPELINE_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+
+                if (object != null)
+                    return object;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            isCancelled = true;
+        }
+
+        return END_OF_QUEUE;
+    }
+}
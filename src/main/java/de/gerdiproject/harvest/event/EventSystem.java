@@ -15,12 +15,11 @@
  */
 package de.gerdiproject.harvest.event;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
@@ -29,13 +28,19 @@ import java.util.function.Supplier;
 
 /**
  * This singleton class provides a means to dispatch and listen to
- * {@linkplain IEvent}s.
+ * {@linkplain IEvent}s.<br><br>
+ * Listeners are stored in copy-on-write arrays, so dispatching events
+ * requires no locks. Listeners that are added while an event is dispatched
+ * are not called until the next dispatch. Listeners that are removed while
+ * an event is dispatched are not called anymore, if they were not called yet.
  *
  * @author Robin Weiss
  */
 public final class EventSystem
 {
-    private final Map<Class<? extends IEvent>, List<Consumer<? extends IEvent>>> callbackMap;
+    private final static Listener[] NO_LISTENERS = new Listener[0];
+
+    private final Map<Class<? extends IEvent>, Listener[]> callbackMap;
     private final Map<Class<? extends ISynchronousEvent<?>>, Function<? extends ISynchronousEvent<?>, ?>> synchronousCallbackMap;
     private final Queue<IEvent> asyncEventQueue;
     private final AtomicBoolean isProcessingEvents;
@@ -48,8 +53,8 @@ public final class EventSystem
      */
     private EventSystem()
     {
-        callbackMap = new HashMap<>();
-        synchronousCallbackMap = new HashMap<>();
+        callbackMap = new ConcurrentHashMap<>();
+        synchronousCallbackMap = new ConcurrentHashMap<>();
         asyncEventQueue = new ConcurrentLinkedQueue<>();
         isProcessingEvents = new AtomicBoolean(false);
     }
@@ -66,18 +71,14 @@ public final class EventSystem
      */
     public static <T extends IEvent> void addListener(final Class<T> eventClass, final Consumer<T> callback)
     {
-        synchronized (INSTANCE.callbackMap) {
-            List<Consumer<? extends IEvent>> eventList = INSTANCE.callbackMap.get(eventClass);
-
-            // create list, if it does not exist yet
-            if (eventList == null) {
-                eventList = new LinkedList<Consumer<? extends IEvent>>();
-                INSTANCE.callbackMap.put(eventClass, eventList);
-            }
-
-            // add callback to list
-            eventList.add(callback);
-        }
+        INSTANCE.callbackMap.compute(eventClass, (final Class<? extends IEvent> key, final Listener[] oldListeners) -> {
+            final Listener[] listeners = oldListeners == null ? NO_LISTENERS : oldListeners;
+
+            // copy the array, so that ongoing dispatches are not affected
+            final Listener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+            newListeners[listeners.length] = new Listener(callback);
+            return newListeners;
+        });
     }
 
 
@@ -91,17 +92,25 @@ public final class EventSystem
      */
     public static <T extends IEvent> void removeListener(final Class<T> eventClass, final Consumer<T> callback)
     {
-        synchronized (INSTANCE.callbackMap) {
-            final List<Consumer<? extends IEvent>> eventList = INSTANCE.callbackMap.get(eventClass);
-
-            // remove event from list, if the list exists
-            if (eventList != null) {
-                eventList.remove(callback);
-
-                if (eventList.isEmpty())
-                    INSTANCE.callbackMap.remove(eventClass);
+        INSTANCE.callbackMap.computeIfPresent(eventClass, (final Class<? extends IEvent> key, final Listener[] listeners) -> {
+            for (int i = 0; i < listeners.length; i++)
+            {
+                if (Objects.equals(listeners[i].callback, callback)) {
+                    listeners[i].isRemoved = true;
+
+                    // returning null removes the event class from the map
+                    if (listeners.length == 1)
+                        return null;
+
+                    final Listener[] newListeners = new Listener[listeners.length - 1];
+                    System.arraycopy(listeners, 0, newListeners, 0, i);
+                    System.arraycopy(listeners, i + 1, newListeners, i, newListeners.length - i);
+                    return newListeners;
+                }
             }
-        }
+
+            return listeners;
+        });
     }
 
 
@@ -113,16 +122,7 @@ public final class EventSystem
      */
     public static <T extends IEvent> void removeAllListeners(final Class<T> eventClass)
     {
-        synchronized (INSTANCE.callbackMap) {
-            final List<Consumer<? extends IEvent>> eventList = INSTANCE.callbackMap.remove(eventClass);
-
-            // clear old list
-            if (eventList != null) {
-                synchronized (eventList) {
-                    eventList.clear();
-                }
-            }
-        }
+        markAsRemoved(INSTANCE.callbackMap.remove(eventClass));
     }
 
 
@@ -135,13 +135,22 @@ public final class EventSystem
         INSTANCE.synchronousCallbackMap.clear();
 
         // remove all async events
-        synchronized (INSTANCE.callbackMap) {
-            final Collection<List<Consumer<? extends IEvent>>> listenerLists = INSTANCE.callbackMap.values();
+        for (final Class<? extends IEvent> eventClass : INSTANCE.callbackMap.keySet())
+            markAsRemoved(INSTANCE.callbackMap.remove(eventClass));
+    }
 
-            for (final List<Consumer<? extends IEvent>> listeners : listenerLists)
-                listeners.clear();
 
-            INSTANCE.callbackMap.clear();
+    /**
+     * Marks listeners as removed, preventing them from being called
+     * by ongoing dispatches.
+     *
+     * @param listeners the listeners that were removed, or null
+     */
+    private static void markAsRemoved(final Listener[] listeners)
+    {
+        if (listeners != null) {
+            for (final Listener listener : listeners)
+                listener.isRemoved = true;
         }
     }
 
@@ -167,13 +176,16 @@ public final class EventSystem
      */
     private void processAsynchronousEventQueue()
     {
-        if (!isProcessingEvents.get()) {
-            isProcessingEvents.set(true);
-
-            while (!asyncEventQueue.isEmpty())
-                executeAsynchronousCallbacks(asyncEventQueue.poll());
-
-            isProcessingEvents.set(false);
+        // re-check the queue, in case an event was added while the processing stopped
+        while (!asyncEventQueue.isEmpty() && isProcessingEvents.compareAndSet(false, true)) {
+            try {
+                IEvent event;
+
+                while ((event = asyncEventQueue.poll()) != null)
+                    executeAsynchronousCallbacks(event);
+            } finally {
+                isProcessingEvents.set(false);
+            }
         }
     }
 
@@ -190,20 +202,16 @@ public final class EventSystem
     }) // this warning is suppressed, because the public functions guarantee that the consumer consumes events of the same class as the corresponding key
     private <T extends IEvent> void executeAsynchronousCallbacks(final T event)
     {
-        final List<Consumer<? extends IEvent>> eventList;
-
-        // get callback list for event
-        synchronized (callbackMap) {
-            eventList = callbackMap.get(event.getClass());
-        }
+        final Listener[] listeners = callbackMap.get(event.getClass());
 
-        if (eventList != null) {
-            synchronized (eventList) {
-                int i = eventList.size();
+        if (listeners != null) {
+            // traverse array from back to front, to call the latest listener first
+            for (int i = listeners.length - 1; i >= 0; i--) {
+                final Listener listener = listeners[i];
 
-                // traverse list from back to front, in case a listener gets removed by a callback function
-                while (i != 0)
-                    ((Consumer<T>) eventList.get(--i)).accept(event);
+                // skip listeners that were removed by previous callback functions
+                if (!listener.isRemoved)
+                    ((Consumer<T>) listener.callback).accept(event);
             }
         }
     }
@@ -222,9 +230,7 @@ public final class EventSystem
      */
     public static <R, T extends ISynchronousEvent<R>> void addSynchronousListener(final Class<T> eventClass, final Function<T, R> callback)
     {
-        synchronized (INSTANCE.synchronousCallbackMap) {
-            INSTANCE.synchronousCallbackMap.put(eventClass, callback);
-        }
+        INSTANCE.synchronousCallbackMap.put(eventClass, callback);
     }
 
     /**
@@ -240,9 +246,7 @@ public final class EventSystem
      */
     public static <R, T extends ISynchronousEvent<R>> void addSynchronousListener(final Class<T> eventClass, final Supplier<R> callback)
     {
-        synchronized (INSTANCE.synchronousCallbackMap) {
-            INSTANCE.synchronousCallbackMap.put(eventClass, (final T event) -> callback.get());
-        }
+        INSTANCE.synchronousCallbackMap.put(eventClass, (final T event) -> callback.get());
     }
 
 
@@ -254,15 +258,14 @@ public final class EventSystem
      */
     public static <T extends ISynchronousEvent<?>> void removeSynchronousListener(final Class<T> eventClass)
     {
-        synchronized (INSTANCE.synchronousCallbackMap) {
-            INSTANCE.synchronousCallbackMap.remove(eventClass);
-        }
+        INSTANCE.synchronousCallbackMap.remove(eventClass);
     }
 
 
     /**
      * Dispatches a synchronous event that executes a unique callback function
-     * and returns its calculated value.
+     * and returns its calculated value. The callback function is executed
+     * without holding locks, so synchronous events can be sent concurrently.
      *
      * @param event a synchronous event
      * @param <T> the type of the synchronous event
@@ -273,15 +276,13 @@ public final class EventSystem
     @SuppressWarnings("unchecked")
     public static <R, T extends ISynchronousEvent<R>> R sendSynchronousEvent(final T event)
     {
-        synchronized (INSTANCE.synchronousCallbackMap) {
-            final Function<? extends ISynchronousEvent<?>, ?> callback =
-                INSTANCE.synchronousCallbackMap.get(event.getClass());
-
-            if (callback == null)
-                return null;
-            else
-                return ((Function<T, R>) callback).apply(event);
-        }
+        final Function<? extends ISynchronousEvent<?>, ?> callback =
+            INSTANCE.synchronousCallbackMap.get(event.getClass());
+
+        if (callback == null)
+            return null;
+        else
+            return ((Function<T, R>) callback).apply(event);
     }
 
 
@@ -305,4 +306,28 @@ public final class EventSystem
     {
         return !INSTANCE.synchronousCallbackMap.isEmpty();
     }
+
+
+    /**
+     * This class wraps a registered callback function, marking
+     * if it was removed while an event is being dispatched.
+     *
+     * @author Robin Weiss
+     */
+    private static final class Listener
+    {
+        private final Consumer<? extends IEvent> callback;
+        private volatile boolean isRemoved;
+
+
+        /**
+         * Constructor that wraps a callback function.
+         *
+         * @param callback the callback function that is executed when the event is dispatched
+         */
+        Listener(final Consumer<? extends IEvent> callback)
+        {
+            this.callback = callback;
+        }
+    }
 }
@@ -16,12 +16,27 @@
  */
 package de.gerdiproject.harvest.utils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
 /**
  * This class generates hash values of strings.<br><br>
+ * Large inputs can be hashed incrementally, by feeding them in parts to the
+ * update() methods and calling {@linkplain #finish()} to retrieve the hash.
+ * The result is the same as if the concatenated input was hashed at once.<br><br>
+ * Instances can be shared by multiple threads. Each thread hashes with its own
+ * {@linkplain MessageDigest} and reuses its own buffers, so incremental hashes
+ * must be finished by the same thread that updated them.<br><br>
  *
  * https://stackoverflow.com/questions/9655181/how-to-convert-a-byte-array-to-a-hex-string-in-java
  *
@@ -30,9 +45,10 @@ import java.security.NoSuchAlgorithmException;
 public class HashGenerator
 {
     private final static char[] HEX_ARRAY = "0123456789abcdef".toCharArray();
+    private final static int BUFFER_SIZE = 1024;
 
-    private MessageDigest messageDigest;
-    private Charset charset;
+    private final Charset charset;
+    private final ThreadLocal<HashState> hashStates;
 
 
     /**
@@ -42,32 +58,23 @@ public class HashGenerator
      */
     public HashGenerator(final Charset charset)
     {
-        MessageDigest temp;
-
-        try {
-            temp = MessageDigest.getInstance("SHA");
-        } catch (final NoSuchAlgorithmException e) {
-            temp = null;
-        }
-
         this.charset = charset;
-        this.messageDigest = temp;
+        this.hashStates = ThreadLocal.withInitial(() -> new HashState(charset));
     }
 
 
     /**
-     * Resets the fields of the singleton instance to default values.
+     * Discards the hashing state and buffers of the calling thread.
      */
     public void reset()
     {
-        charset = null;
-        messageDigest = null;
+        hashStates.remove();
     }
 
 
     /**
      * Generates a hexadecimal string representing the hash value of a specified
-     * input string.
+     * input string. A hash that is generated incrementally is not affected.
      *
      * @param input the input of which the hash is generated
      *
@@ -75,15 +82,347 @@ public class HashGenerator
      */
     public String getShaHash(final String input)
     {
-        final byte[] digest = messageDigest.digest(input.getBytes(charset));
-        final char[] hexChars = new char[digest.length * 2];
+        return getShaHash(input.getBytes(charset));
+    }
+
+
+    /**
+     * Generates a hexadecimal string representing the hash value of specified
+     * input bytes. A hash that is generated incrementally is not affected.
+     *
+     * @param input the bytes of which the hash is generated
+     *
+     * @return a hexadecimal hash string
+     */
+    public String getShaHash(final byte[] input)
+    {
+        final HashState state = hashStates.get();
+        state.oneShotDigest.update(input);
+        return state.finish(state.oneShotDigest);
+    }
+
+
+    /**
+     * Adds a single byte to the incrementally generated hash.
+     *
+     * @param input the byte that is to be hashed
+     */
+    public void update(final byte input)
+    {
+        hashStates.get().digest.update(input);
+    }
+
+
+    /**
+     * Adds bytes to the incrementally generated hash.
+     *
+     * @param input the bytes that are to be hashed
+     */
+    public void update(final byte[] input)
+    {
+        hashStates.get().digest.update(input);
+    }
+
+
+    /**
+     * Adds a part of a byte array to the incrementally generated hash.
+     *
+     * @param input the array that contains the bytes that are to be hashed
+     * @param offset the index of the first byte that is to be hashed
+     * @param length the number of bytes that are to be hashed
+     */
+    public void update(final byte[] input, final int offset, final int length)
+    {
+        hashStates.get().digest.update(input, offset, length);
+    }
+
+
+    /**
+     * Adds the remaining bytes of a {@linkplain ByteBuffer} to the
+     * incrementally generated hash. The position of the buffer is
+     * moved to its limit.
+     *
+     * @param input the buffer of which the remaining bytes are to be hashed
+     */
+    public void update(final ByteBuffer input)
+    {
+        hashStates.get().digest.update(input);
+    }
+
+
+    /**
+     * Adds a string to the incrementally generated hash. The string is
+     * encoded using the charset of the generator.
+     *
+     * @param input the string that is to be hashed
+     */
+    public void update(final String input)
+    {
+        hashStates.get().digest.update(input.getBytes(charset));
+    }
+
+
+    /**
+     * Reads an {@linkplain InputStream} until its end and adds its bytes
+     * to the incrementally generated hash. The stream is not closed.
+     *
+     * @param input the stream that is to be hashed
+     *
+     * @throws IOException thrown if the stream cannot be read
+     */
+    public void update(final InputStream input) throws IOException
+    {
+        final HashState state = hashStates.get();
+        final byte[] buffer = state.getEncodedBytes().array();
+        int readBytes;
+
+        while ((readBytes = input.read(buffer)) != -1)
+            state.digest.update(buffer, 0, readBytes);
+    }
+
+
+    /**
+     * Reads a {@linkplain Reader} until its end and adds its characters
+     * to the incrementally generated hash. The characters are encoded
+     * using the charset of the generator, without building a string
+     * of the whole input. The reader is not closed.
+     *
+     * @param input the reader that is to be hashed
+     *
+     * @throws IOException thrown if the reader cannot be read
+     */
+    public void update(final Reader input) throws IOException
+    {
+        final HashState state = hashStates.get();
+        final CharBuffer chars = state.getChars();
+        boolean isEndOfInput = false;
+
+        chars.clear();
+        state.getEncoder().reset();
+
+        while (!isEndOfInput) {
+            isEndOfInput = input.read(chars) == -1;
+            chars.flip();
+
+            // characters may remain in the buffer, if a surrogate pair was split
+            state.encodeChunk(chars, isEndOfInput);
+            chars.compact();
+        }
+
+        state.flushEncoder();
+    }
+
+
+    /**
+     * Finishes the incrementally generated hash and returns it. Afterwards,
+     * the generator can be used to generate a new hash.
+     *
+     * @return a hexadecimal hash string of all data that was passed to the update() methods
+     */
+    public String finish()
+    {
+        final HashState state = hashStates.get();
+        return state.finish(state.digest);
+    }
+
+
+    /**
+     * Converts bytes, such as the digest of a hash, to a
+     * hexadecimal string like the ones returned by this class.
+     *
+     * @param bytes the bytes that are to be converted
+     *
+     * @return a lower-case hexadecimal string
+     */
+    public static String toHexString(final byte[] bytes)
+    {
+        final char[] hexChars = new char[bytes.length * 2];
+        writeHex(bytes, hexChars);
+        return new String(hexChars);
+    }
 
-        for (int i = 0; i < digest.length; i++) {
-            final int b = 0xff & digest[i];
+
+    /**
+     * Writes the hexadecimal representation of bytes to a char array.
+     *
+     * @param bytes the bytes that are to be converted
+     * @param hexChars an array that is twice as long as the byte array
+     */
+    private static void writeHex(final byte[] bytes, final char[] hexChars)
+    {
+        for (int i = 0; i < bytes.length; i++) {
+            final int b = 0xff & bytes[i];
             hexChars[i * 2] = HEX_ARRAY[b >>> 4];
             hexChars[i * 2 + 1] = HEX_ARRAY[b & 0x0F];
         }
+    }
 
-        return new String(hexChars);
+
+    /**
+     * Creates the {@linkplain MessageDigest} that calculates the hashes.
+     *
+     * @return a new {@linkplain MessageDigest}, or null if the SHA algorithm is not supported
+     */
+    private static MessageDigest createMessageDigest()
+    {
+        try {
+            return MessageDigest.getInstance("SHA");
+        } catch (final NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * This class holds the {@linkplain MessageDigest}s and the reusable
+     * buffers of a single thread. One-shot hashes have a digest of their
+     * own, so that they can be generated while an incremental hash is
+     * in progress.
+     *
+     * @author Robin Weiss
+     */
+    private static class HashState
+    {
+        private final Charset charset;
+        private final MessageDigest digest;
+        private final MessageDigest oneShotDigest;
+        private final byte[] digestBytes;
+        private final char[] hexChars;
+        private CharsetEncoder encoder;
+        private ByteBuffer encodedBytes;
+        private CharBuffer chars;
+
+
+        /**
+         * Constructor that creates the {@linkplain MessageDigest}s.
+         *
+         * @param charset the charset used to encode characters
+         */
+        HashState(final Charset charset)
+        {
+            this.charset = charset;
+            this.digest = createMessageDigest();
+            this.oneShotDigest = createMessageDigest();
+            this.digestBytes = digest == null ? new byte[0] : new byte[digest.getDigestLength()];
+            this.hexChars = new char[digestBytes.length * 2];
+        }
+
+
+        /**
+         * Returns the encoder that converts characters of
+         * {@linkplain Reader}s, creating it on first use.
+         *
+         * @return a charset encoder
+         */
+        CharsetEncoder getEncoder()
+        {
+            // replace invalid characters like String.getBytes() does
+            if (encoder == null)
+                encoder = charset.newEncoder()
+                          .onMalformedInput(CodingErrorAction.REPLACE)
+                          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+            return encoder;
+        }
+
+
+        /**
+         * Returns the buffer that receives encoded characters or
+         * bytes of streams, creating it on first use.
+         *
+         * @return a byte buffer that is ready to be written to
+         */
+        ByteBuffer getEncodedBytes()
+        {
+            if (encodedBytes == null)
+                encodedBytes = ByteBuffer.allocate((int) Math.ceil(BUFFER_SIZE * getEncoder().maxBytesPerChar()));
+
+            return encodedBytes;
+        }
+
+
+        /**
+         * Returns the buffer that receives characters from
+         * {@linkplain Reader}s, creating it on first use.
+         *
+         * @return a char buffer
+         */
+        CharBuffer getChars()
+        {
+            if (chars == null)
+                chars = CharBuffer.allocate(BUFFER_SIZE);
+
+            return chars;
+        }
+
+
+        /**
+         * Encodes characters of a buffer and adds them to the digest. If the
+         * end of the input is not reached, incomplete surrogate pairs remain
+         * in the buffer.
+         *
+         * @param input the characters that are to be hashed
+         * @param isEndOfInput if true, no more characters will follow
+         */
+        void encodeChunk(final CharBuffer input, final boolean isEndOfInput)
+        {
+            final ByteBuffer output = getEncodedBytes();
+            CoderResult result;
+
+            do {
+                result = getEncoder().encode(input, output, isEndOfInput);
+                updateAndClear(output);
+            } while (result.isOverflow());
+        }
+
+
+        /**
+         * Writes the remaining bytes of the encoder to the digest.
+         */
+        void flushEncoder()
+        {
+            final ByteBuffer output = getEncodedBytes();
+            CoderResult result;
+
+            do {
+                result = getEncoder().flush(output);
+                updateAndClear(output);
+            } while (result.isOverflow());
+        }
+
+
+        /**
+         * Completes a digest and converts it to a hexadecimal string.
+         * Afterwards, the digest is reset.
+         *
+         * @param completedDigest the digest that is to be completed
+         *
+         * @return a hexadecimal hash string
+         */
+        String finish(final MessageDigest completedDigest)
+        {
+            try {
+                completedDigest.digest(digestBytes, 0, digestBytes.length);
+            } catch (final DigestException e) {
+                // cannot happen, because the array has the length of the digest
+                throw new IllegalStateException(e);
+            }
+
+            writeHex(digestBytes, hexChars);
+            return new String(hexChars);
+        }
+
+
+        /**
+         * Adds the content of a byte buffer to the digest and clears the buffer.
+         *
+         * @param output a buffer that was written to
+         */
+        private void updateAndClear(final ByteBuffer output)
+        {
+            output.flip();
+            digest.update(output);
+            output.clear();
+        }
     }
 }
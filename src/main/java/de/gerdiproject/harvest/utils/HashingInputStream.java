@@ -0,0 +1,134 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
+
+/**
+ * This {@linkplain InputStream} passes through the bytes of another stream,
+ * while generating a hash of all bytes that are read or skipped.
+ * It allows for hashing data, that is written somewhere else, without
+ * reading it twice. Since incremental hashes are bound to the thread that
+ * generates them, the stream must be read and hashed by the same thread.
+ *
+ * @author Robin Weiss
+ */
+public class HashingInputStream extends FilterInputStream
+{
+    private final static int SKIP_BUFFER_SIZE = 8192;
+
+    private final HashGenerator hashGenerator;
+
+
+    /**
+     * Constructor that wraps an {@linkplain InputStream}.
+     *
+     * @param input the stream that is to be read and hashed
+     * @param hashGenerator the generator that is fed with all read bytes
+     */
+    public HashingInputStream(final InputStream input, final HashGenerator hashGenerator)
+    {
+        super(input);
+        this.hashGenerator = hashGenerator;
+    }
+
+
+    @Override
+    public int read() throws IOException
+    {
+        final int b = in.read();
+
+        if (b != -1)
+            hashGenerator.update((byte) b);
+
+        return b;
+    }
+
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException
+    {
+        final int readBytes = in.read(b, off, len);
+
+        if (readBytes > 0)
+            hashGenerator.update(b, off, readBytes);
+
+        return readBytes;
+    }
+
+
+    /**
+     * Reads and discards bytes, so that they are included in the hash.
+     */
+    @Override
+    public long skip(final long n) throws IOException
+    {
+        final byte[] buffer = new byte[(int) Math.min(n, SKIP_BUFFER_SIZE)];
+        long skippedBytes = 0;
+
+        while (skippedBytes < n) {
+            final int readBytes = read(buffer, 0, (int) Math.min(n - skippedBytes, buffer.length));
+
+            if (readBytes == -1)
+                break;
+
+            skippedBytes += readBytes;
+        }
+
+        return skippedBytes;
+    }
+
+
+    /**
+     * Marking is not supported, because bytes that were
+     * hashed cannot be removed from the hash.
+     */
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+
+    @Override
+    public synchronized void mark(final int readlimit)
+    {
+        // not supported
+    }
+
+
+    @Override
+    public synchronized void reset() throws IOException
+    {
+        throw new IOException(DataOperationConstants.MARK_NOT_SUPPORTED);
+    }
+
+
+    /**
+     * Finishes the hash of all bytes that were read so far.
+     *
+     * @return a hexadecimal hash string
+     */
+    public String getHash()
+    {
+        return hashGenerator.finish();
+    }
+}
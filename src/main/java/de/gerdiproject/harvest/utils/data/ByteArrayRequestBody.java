@@ -0,0 +1,74 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils.data;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * This class is an {@linkplain IRequestBody} of a fixed size
+ * that is already encoded in memory.
+ *
+ * @author Robin Weiss
+ */
+public class ByteArrayRequestBody implements IRequestBody
+{
+    private final byte[] body;
+    private final Charset charset;
+
+
+    /**
+     * Constructor that encodes a string.
+     *
+     * @param body the string that is to be sent
+     * @param charset the charset with which the string is encoded
+     */
+    public ByteArrayRequestBody(final String body, final Charset charset)
+    {
+        this.body = body.getBytes(charset);
+        this.charset = charset;
+    }
+
+
+    @Override
+    public long getContentLength()
+    {
+        return body.length;
+    }
+
+
+    @Override
+    public String getContentEncoding()
+    {
+        return null;
+    }
+
+
+    @Override
+    public void writeTo(final OutputStream outputStream) throws IOException
+    {
+        outputStream.write(body);
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return new String(body, charset);
+    }
+}
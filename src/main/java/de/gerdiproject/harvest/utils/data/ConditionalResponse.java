@@ -0,0 +1,35 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils.data;
+
+import lombok.Value;
+
+/**
+ * This class represents the response to a conditional GET request,
+ * which either contains the full content, or signifies that the content
+ * has not been modified since it was last retrieved.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class ConditionalResponse
+{
+    private final boolean notModified;
+    private final byte[] content;
+    private final String entityTag;
+    private final String lastModified;
+}
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.Reader;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.util.stream.Collectors;
 
@@ -142,6 +143,52 @@ public class DiskIO implements IDataRetriever
     }
 
 
+    /**
+     * Writes bytes to a file on disk, without altering them.
+     * @param file the file to which the bytes are written
+     * @param fileContent
+     *      the bytes that are to be written to the file
+     *
+     * @return a String that describes the status of the operation
+     */
+    public String writeBytesToFile(final File file, final byte[] fileContent)
+    {
+        final String filePath = file.getAbsolutePath();
+
+        String statusMessage;
+        boolean isSuccessful = false;
+
+        // create directories
+        final boolean isDirectoryCreated = file.getParentFile().exists() || file.getParentFile().mkdirs();
+
+        if (isDirectoryCreated) {
+            try {
+                Files.write(file.toPath(), fileContent);
+
+                // set status message
+                isSuccessful = true;
+                statusMessage = String.format(DataOperationConstants.SAVE_OK, filePath);
+
+            } catch (IOException | SecurityException e) {
+                LOGGER.warn(String.format(DataOperationConstants.SAVE_FAILED, filePath), e);
+                statusMessage = String.format(DataOperationConstants.SAVE_FAILED, filePath);
+            }
+        } else {
+            statusMessage = String.format(
+                                DataOperationConstants.SAVE_FAILED_NO_FOLDERS,
+                                filePath);
+        }
+
+        // log the status
+        if (isSuccessful)
+            LOGGER.trace(statusMessage);
+        else
+            LOGGER.warn(statusMessage);
+
+        return statusMessage;
+    }
+
+
     /**
      * Attempts to transform an object to a JSON object and writes it to a file on disk.
      * @param filePath
@@ -198,6 +245,29 @@ public class DiskIO implements IDataRetriever
     }
 
 
+    /**
+     * Reads the unaltered content of a specified file.
+     *
+     * @param file the file that is to be read
+     * @return the bytes of the file, or null if the file could not be read
+     */
+    public byte[] getBytes(final File file)
+    {
+        byte[] fileContent = null;
+
+        try {
+            fileContent = Files.readAllBytes(file.toPath());
+
+        } catch (final NoSuchFileException e) { // NOPMD if the file is not found, do not log anything
+
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(DataOperationConstants.LOAD_FAILED, file.getAbsolutePath()), e);
+        }
+
+        return fileContent;
+    }
+
+
     /**
      * Tries to parse the content of a specified file as an object.
      *
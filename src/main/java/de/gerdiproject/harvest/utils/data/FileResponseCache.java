@@ -0,0 +1,72 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils.data;
+
+import java.io.File;
+
+/**
+ * This {@linkplain IResponseCache} stores each response in a dedicated file,
+ * the path of which is derived from the URL of the request.
+ *
+ * @author Robin Weiss
+ */
+public class FileResponseCache implements IResponseCache
+{
+    private final DiskIO diskIO;
+    private final File cacheFolder;
+
+
+    /**
+     * Constructor.
+     *
+     * @param diskIO the {@linkplain DiskIO} that reads and writes the files
+     * @param cacheFolder the folder in which the files are stored
+     */
+    public FileResponseCache(final DiskIO diskIO, final File cacheFolder)
+    {
+        this.diskIO = diskIO;
+        this.cacheFolder = cacheFolder;
+    }
+
+
+    @Override
+    public String get(final String url, final String variant)
+    {
+        return diskIO.getString(HttpRequesterUtils.urlToFilePath(url, cacheFolder, variant));
+    }
+
+
+    @Override
+    public void put(final String url, final String variant, final String response)
+    {
+        diskIO.writeStringToFile(HttpRequesterUtils.urlToFilePath(url, cacheFolder, variant), response);
+    }
+
+
+    @Override
+    public byte[] getBytes(final String url, final String variant)
+    {
+        return diskIO.getBytes(HttpRequesterUtils.urlToFilePath(url, cacheFolder, variant));
+    }
+
+
+    @Override
+    public void putBytes(final String url, final String variant, final byte[] response)
+    {
+        diskIO.writeBytesToFile(HttpRequesterUtils.urlToFilePath(url, cacheFolder, variant), response);
+    }
+}
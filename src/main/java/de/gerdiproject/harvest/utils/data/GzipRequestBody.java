@@ -0,0 +1,163 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils.data;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
+
+/**
+ * This class is an {@linkplain IRequestBody} that compresses another
+ * {@linkplain IRequestBody} via GZIP while it is being written.
+ * The body is never compressed in memory entirely, which is why its
+ * size is not known in advance.
+ *
+ * @author Robin Weiss
+ */
+public class GzipRequestBody implements IRequestBody
+{
+    private final IRequestBody uncompressedBody;
+    private volatile long uncompressedSize;
+    private volatile long compressedSize;
+
+
+    /**
+     * Constructor that wraps the body that is to be compressed.
+     *
+     * @param uncompressedBody the body that is to be compressed
+     */
+    public GzipRequestBody(final IRequestBody uncompressedBody)
+    {
+        this.uncompressedBody = uncompressedBody;
+    }
+
+
+    @Override
+    public long getContentLength()
+    {
+        return -1;
+    }
+
+
+    @Override
+    public String getContentEncoding()
+    {
+        return DataOperationConstants.GZIP_ENCODING;
+    }
+
+
+    @Override
+    public void writeTo(final OutputStream outputStream) throws IOException
+    {
+        final CountingOutputStream compressedStream = new CountingOutputStream(outputStream);
+        final GZIPOutputStream gzipStream = new GZIPOutputStream(compressedStream, DataOperationConstants.GZIP_BUFFER_SIZE);
+        final CountingOutputStream uncompressedStream = new CountingOutputStream(gzipStream);
+
+        uncompressedBody.writeTo(uncompressedStream);
+
+        // finish the GZIP stream without closing the underlying stream
+        gzipStream.finish();
+        compressedStream.flush();
+
+        this.uncompressedSize = uncompressedStream.getCount();
+        this.compressedSize = compressedStream.getCount();
+    }
+
+
+    /**
+     * Returns the number of bytes of the body before it was
+     * compressed the last time.
+     *
+     * @return the number of uncompressed bytes
+     */
+    public long getUncompressedSize()
+    {
+        return uncompressedSize;
+    }
+
+
+    /**
+     * Returns the number of bytes of the body after it was
+     * compressed the last time.
+     *
+     * @return the number of compressed bytes
+     */
+    public long getCompressedSize()
+    {
+        return compressedSize;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return uncompressedBody.toString();
+    }
+
+
+    /**
+     * This class forwards bytes to another {@linkplain OutputStream},
+     * counting how many bytes were written.
+     *
+     * @author Robin Weiss
+     */
+    private static class CountingOutputStream extends FilterOutputStream
+    {
+        private long count;
+
+
+        /**
+         * Constructor that wraps the stream to which bytes are forwarded.
+         *
+         * @param out the stream to which bytes are forwarded
+         */
+        public CountingOutputStream(final OutputStream out)
+        {
+            super(out);
+        }
+
+
+        @Override
+        public void write(final int b) throws IOException
+        {
+            out.write(b);
+            count++;
+        }
+
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException
+        {
+            out.write(b, off, len);
+            count += len;
+        }
+
+
+        /**
+         * Returns the number of bytes that were written.
+         *
+         * @return the number of bytes that were written
+         */
+        public long getCount()
+        {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils.data;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.gerdiproject.harvest.config.events.ParameterChangedEvent;
+import de.gerdiproject.harvest.config.parameters.AbstractParameter;
+import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
+
+/**
+ * This class throttles requests per host, in order to not exceed the
+ * rate limits of the harvested repositories. Each host has a token bucket
+ * that allows a number of requests per minute with a configurable burst,
+ * and a maximum number of requests that are in flight at the same time.
+ * A request first waits for a token and then for a free slot, and counts
+ * as in flight until its {@linkplain WebResponse} is closed.
+ * <br><br>
+ * Throttled requests are delayed on a scheduler instead of blocking the
+ * calling thread, and the bookkeeping is lock-free, which is why a single
+ * instance can be shared by all {@linkplain WebDataRetriever}s.
+ *
+ * @author Robin Weiss
+ */
+public class HostRateLimiter
+{
+    private static final HostRateLimiter INSTANCE = new HostRateLimiter();
+
+    private final Map<String, HostState> hosts;
+    private final ScheduledExecutorService scheduler;
+    private volatile int requestsPerMinute;
+    private volatile int burst;
+    private volatile int maxInFlight;
+
+
+    /**
+     * Returns the limiter that is shared by all {@linkplain WebDataRetriever}s.
+     *
+     * @return the shared limiter
+     */
+    public static HostRateLimiter getInstance()
+    {
+        return INSTANCE;
+    }
+
+
+    /**
+     * Constructor that creates a limiter which does not throttle any requests
+     * until its limits are set.
+     */
+    public HostRateLimiter()
+    {
+        this.hosts = new ConcurrentHashMap<>();
+        this.burst = 1;
+
+        final ScheduledThreadPoolExecutor delayScheduler = new ScheduledThreadPoolExecutor(1, (final Runnable task) -> {
+            final Thread thread = new Thread(task, DataOperationConstants.RATE_LIMITER_THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        delayScheduler.setRemoveOnCancelPolicy(true);
+        this.scheduler = delayScheduler;
+    }
+
+
+    /**
+     * Changes the limits that apply to each host. Requests that are already
+     * waiting are not affected.
+     *
+     * @param requestsPerMinute the maximum number of requests per minute,
+     *          or zero if the request rate is not to be limited
+     * @param burst the number of requests that may be sent at once, before
+     *          the request rate is limited
+     * @param maxInFlight the maximum number of requests that are in flight at the same time,
+     *          or zero if the number of requests is not to be limited
+     */
+    public void setLimits(final int requestsPerMinute, final int burst, final int maxInFlight)
+    {
+        this.requestsPerMinute = requestsPerMinute;
+        this.burst = Math.max(burst, 1);
+        this.maxInFlight = maxInFlight;
+
+        // a raised limit may free slots for waiting requests
+        for (final HostState host : hosts.values())
+            host.dispatchWaitingRequests();
+    }
+
+
+    /**
+     * Changes a limit if one of the rate limiting parameters changed.
+     *
+     * @param event the event that describes the changed parameter
+     */
+    public void onParameterChanged(final ParameterChangedEvent event)
+    {
+        final AbstractParameter<?> param = event.getParameter();
+        final String key = param.getCompositeKey();
+
+        if (key.equals(DataOperationConstants.REQUESTS_PER_MINUTE_PARAM.getCompositeKey()))
+            setLimits((Integer) param.getValue(), burst, maxInFlight);
+
+        else if (key.equals(DataOperationConstants.REQUEST_BURST_PARAM.getCompositeKey()))
+            setLimits(requestsPerMinute, (Integer) param.getValue(), maxInFlight);
+
+        else if (key.equals(DataOperationConstants.MAX_REQUESTS_PER_HOST_PARAM.getCompositeKey()))
+            setLimits(requestsPerMinute, burst, (Integer) param.getValue());
+    }
+
+
+    /**
+     * Sends a request via a specified {@linkplain IHttpTransport} as soon
+     * as the limits of its host allow it.
+     *
+     * @param transport the transport that sends the request
+     * @param request the request that is to be sent
+     *
+     * @return a future response, which must be closed in order to free its slot
+     */
+    public CompletableFuture<WebResponse> sendAsync(final IHttpTransport transport, final WebRequest request)
+    {
+        final HostState host = hosts.computeIfAbsent(getHostKey(request.getUrl()), (final String key) -> new HostState());
+        final CompletableFuture<WebResponse> futureResponse = new CompletableFuture<>();
+
+        final Runnable waitForSlot = () -> {
+            host.waitingRequests.add(() -> send(host, transport, request, futureResponse));
+            host.dispatchWaitingRequests();
+        };
+
+        // the slot is only occupied once the request can actually be sent
+        final long delay = host.reserveToken();
+
+        if (delay > 0)
+            scheduler.schedule(waitForSlot, delay, TimeUnit.NANOSECONDS);
+        else
+            waitForSlot.run();
+
+        return futureResponse;
+    }
+
+
+    /**
+     * Returns the number of requests that are currently in flight for
+     * the host of a specified URL.
+     *
+     * @param url a URL of the host
+     *
+     * @return the number of requests that are in flight
+     */
+    public int getInFlightRequests(final String url)
+    {
+        final HostState host = hosts.get(getHostKey(url));
+        return host == null ? 0 : host.inFlight.get();
+    }
+
+
+    /**
+     * Sends a request that was granted a slot, and frees the slot when
+     * the response is closed or the request fails. Requests whose future
+     * was completed while they were waiting, for instance because they
+     * timed out, are not sent, and late responses to them are closed.
+     *
+     * @param host the state of the host to which the request is sent
+     * @param transport the transport that sends the request
+     * @param request the request that is to be sent
+     * @param futureResponse the future that is completed with the response
+     */
+    private static void send(final HostState host, final IHttpTransport transport, final WebRequest request, final CompletableFuture<WebResponse> futureResponse)
+    {
+        if (futureResponse.isDone()) {
+            // the dispatching loop grants the slot to the next waiting request
+            host.inFlight.decrementAndGet();
+            return;
+        }
+
+        final CompletableFuture<WebResponse> transportResponse;
+
+        try {
+            transportResponse = transport.sendAsync(request);
+        } catch (final RuntimeException e) { // NOPMD the slot must be freed for any error
+            host.release();
+            futureResponse.completeExceptionally(e);
+            return;
+        }
+
+        transportResponse.whenComplete((final WebResponse response, final Throwable error) -> {
+            if (error == null) {
+                response.addCloseListener(host::release);
+
+                if (!futureResponse.complete(response))
+                    closeQuietly(response);
+            } else {
+                host.release();
+                futureResponse.completeExceptionally(error);
+            }
+        });
+    }
+
+
+    /**
+     * Closes a response that is not going to be read, freeing its slot.
+     *
+     * @param response the response that is to be closed
+     */
+    private static void closeQuietly(final WebResponse response)
+    {
+        try {
+            response.close();
+        } catch (final IOException e) { // NOPMD the slot is freed regardless
+        }
+    }
+
+
+    /**
+     * Returns a key that identifies the host of a URL, including its
+     * protocol and port.
+     *
+     * @param url the URL of which the host is retrieved
+     *
+     * @return a key that identifies the host, or the URL itself if it is malformed
+     */
+    private static String getHostKey(final String url)
+    {
+        try {
+            final URL parsedUrl = new URL(url);
+            final int port = parsedUrl.getPort() == -1 ? parsedUrl.getDefaultPort() : parsedUrl.getPort();
+            return parsedUrl.getProtocol() + "://" + parsedUrl.getHost() + ':' + port; // NOPMD StringBuffer does not pay off here
+        } catch (final MalformedURLException e) {
+            // the transport will report the malformed URL
+            return url;
+        }
+    }
+
+
+    /**
+     * This class holds the token bucket and the in-flight requests of a
+     * single host.
+     *
+     * @author Robin Weiss
+     */
+    private class HostState
+    {
+        private final AtomicLong nextFreeTime = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicInteger inFlight = new AtomicInteger(0);
+        private final Queue<Runnable> waitingRequests = new ConcurrentLinkedQueue<>();
+
+
+        /**
+         * Takes a token from the bucket, and returns how long the request
+         * must wait for the token to become available. The bucket is
+         * represented by the time at which it will be refilled completely,
+         * which allows it to be updated with a single atomic operation.
+         *
+         * @return the number of nanoseconds to wait before the request can be sent
+         */
+        private long reserveToken()
+        {
+            final int rate = requestsPerMinute;
+
+            if (rate <= 0)
+                return 0;
+
+            final long interval = TimeUnit.MINUTES.toNanos(1) / rate;
+            final long tolerance = interval * (burst - 1);
+
+            while (true) {
+                final long now = System.nanoTime();
+                final long previousFreeTime = nextFreeTime.get();
+                final long earliestTime = previousFreeTime == Long.MIN_VALUE || previousFreeTime - now < 0 ? now : previousFreeTime;
+
+                if (nextFreeTime.compareAndSet(previousFreeTime, earliestTime + interval))
+                    return Math.max(earliestTime - tolerance - now, 0);
+            }
+        }
+
+
+        /**
+         * Grants slots to requests that received their token, until there are
+         * no more free slots or no more waiting requests. This method is called
+         * whenever a request starts waiting or a slot is freed, so that no request
+         * is left waiting while a slot is free.
+         */
+        private void dispatchWaitingRequests()
+        {
+            while (!waitingRequests.isEmpty() && tryAcquire()) {
+                final Runnable waitingRequest = waitingRequests.poll();
+
+                if (waitingRequest == null)
+                    release();
+                else
+                    waitingRequest.run();
+            }
+        }
+
+
+        /**
+         * Occupies a slot for a request, if the maximum number of requests
+         * in flight is not reached.
+         *
+         * @return true if a slot was occupied
+         */
+        private boolean tryAcquire()
+        {
+            while (true) {
+                final int limit = maxInFlight;
+                final int current = inFlight.get();
+
+                if (limit > 0 && current >= limit)
+                    return false;
+
+                if (inFlight.compareAndSet(current, current + 1))
+                    return true;
+            }
+        }
+
+
+        /**
+         * Frees the slot of a request and grants it to a waiting request.
+         */
+        private void release()
+        {
+            inFlight.decrementAndGet();
+            dispatchWaitingRequests();
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package de.gerdiproject.harvest.utils.data;
 
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Type;
@@ -27,17 +28,24 @@ import java.util.Map;
 import javax.ws.rs.core.MediaType;
 import javax.xml.ws.http.HTTPException;
 
+import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.vividsolutions.jts.geom.Geometry;
 
 import de.gerdiproject.harvest.application.events.GetCacheFolderEvent;
 import de.gerdiproject.harvest.config.Configuration;
 import de.gerdiproject.harvest.config.parameters.BooleanParameter;
+import de.gerdiproject.harvest.config.parameters.IntegerParameter;
+import de.gerdiproject.harvest.config.parameters.StringParameter;
 import de.gerdiproject.harvest.event.EventSystem;
 import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
 import de.gerdiproject.harvest.utils.data.enums.RestRequestType;
+import de.gerdiproject.harvest.utils.data.json.ResponseValidatorsJson;
 import de.gerdiproject.json.GsonUtils;
 import lombok.Getter;
 import lombok.Setter;
@@ -45,18 +53,35 @@ import lombok.Setter;
 
 /**
  * This class serves as a facade for HTTP requests.
+ * If enabled via parameters, responses are cached on disk, either in one
+ * file per URL via a {@linkplain FileResponseCache}, or in a single
+ * size-bounded file via a {@linkplain SegmentResponseCache}.
+ * Additionally, responses of JSON objects and HTML documents can be kept
+ * in the {@linkplain MemoryResponseCache}, which is shared by all instances.
+ * If conditional requests are enabled, the ETag and Last-Modified validators
+ * of responses are cached on disk, so that unchanged responses do not need
+ * to be downloaded again.
  *
  * @author Robin Weiss
  */
 public class HttpRequester
 {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequester.class);
+
     protected final DiskIO diskIO;
     protected final WebDataRetriever webDataRetriever;
 
     @Getter @Setter
     private File cacheFolder;
+    private final Gson gson;
     private final BooleanParameter readFromDisk;
     private final BooleanParameter writeToDisk;
+    private final StringParameter cacheType;
+    private final IntegerParameter cacheMaxSize;
+    private final IntegerParameter memoryCacheEntries;
+    private final IntegerParameter memoryCacheSize;
+    private final IntegerParameter memoryCacheTtl;
+    private final BooleanParameter conditionalRequests;
 
 
     /**
@@ -79,17 +104,42 @@ public class HttpRequester
     {
         BooleanParameter readFromDiskTemp;
         BooleanParameter writeToDiskTemp;
+        StringParameter cacheTypeTemp;
+        IntegerParameter cacheMaxSizeTemp;
+        IntegerParameter memoryCacheEntriesTemp;
+        IntegerParameter memoryCacheSizeTemp;
+        IntegerParameter memoryCacheTtlTemp;
+        BooleanParameter conditionalRequestsTemp;
 
         try {
             readFromDiskTemp = Configuration.registerParameter(DataOperationConstants.READ_FROM_DISK_PARAM);
             writeToDiskTemp = Configuration.registerParameter(DataOperationConstants.WRITE_TO_DISK_PARAM);
+            cacheTypeTemp = Configuration.registerParameter(DataOperationConstants.CACHE_TYPE_PARAM);
+            cacheMaxSizeTemp = Configuration.registerParameter(DataOperationConstants.CACHE_MAX_SIZE_PARAM);
+            memoryCacheEntriesTemp = Configuration.registerParameter(DataOperationConstants.MEMORY_CACHE_ENTRIES_PARAM);
+            memoryCacheSizeTemp = Configuration.registerParameter(DataOperationConstants.MEMORY_CACHE_SIZE_PARAM);
+            memoryCacheTtlTemp = Configuration.registerParameter(DataOperationConstants.MEMORY_CACHE_TTL_PARAM);
+            conditionalRequestsTemp = Configuration.registerParameter(DataOperationConstants.CONDITIONAL_REQUESTS_PARAM);
         } catch (final IllegalStateException e) {
             readFromDiskTemp = DataOperationConstants.READ_FROM_DISK_PARAM;
             writeToDiskTemp = DataOperationConstants.WRITE_TO_DISK_PARAM;
+            cacheTypeTemp = DataOperationConstants.CACHE_TYPE_PARAM;
+            cacheMaxSizeTemp = DataOperationConstants.CACHE_MAX_SIZE_PARAM;
+            memoryCacheEntriesTemp = DataOperationConstants.MEMORY_CACHE_ENTRIES_PARAM;
+            memoryCacheSizeTemp = DataOperationConstants.MEMORY_CACHE_SIZE_PARAM;
+            memoryCacheTtlTemp = DataOperationConstants.MEMORY_CACHE_TTL_PARAM;
+            conditionalRequestsTemp = DataOperationConstants.CONDITIONAL_REQUESTS_PARAM;
         }
 
         this.readFromDisk = readFromDiskTemp;
         this.writeToDisk = writeToDiskTemp;
+        this.cacheType = cacheTypeTemp;
+        this.cacheMaxSize = cacheMaxSizeTemp;
+        this.memoryCacheEntries = memoryCacheEntriesTemp;
+        this.memoryCacheSize = memoryCacheSizeTemp;
+        this.memoryCacheTtl = memoryCacheTtlTemp;
+        this.conditionalRequests = conditionalRequestsTemp;
+        this.gson = gson;
         this.diskIO = new DiskIO(gson, httpCharset);
         this.webDataRetriever = new WebDataRetriever(gson, httpCharset);
 
@@ -107,6 +157,13 @@ public class HttpRequester
     {
         this.readFromDisk = other.readFromDisk;
         this.writeToDisk = other.writeToDisk;
+        this.cacheType = other.cacheType;
+        this.cacheMaxSize = other.cacheMaxSize;
+        this.memoryCacheEntries = other.memoryCacheEntries;
+        this.memoryCacheSize = other.memoryCacheSize;
+        this.memoryCacheTtl = other.memoryCacheTtl;
+        this.conditionalRequests = other.conditionalRequests;
+        this.gson = other.gson;
 
         this.diskIO = new DiskIO(other.diskIO);
         this.webDataRetriever = new WebDataRetriever(other.webDataRetriever);
@@ -129,13 +186,17 @@ public class HttpRequester
         Document htmlResponse = null;
         boolean isResponseReadFromWeb = false;
 
-        // read json file from disk, if the option is enabled
-        if (isReadingFromDisk())
-            htmlResponse = diskIO.getHtml(HttpRequesterUtils.urlToFilePath(url, cacheFolder).toString());
+        // read html from disk, if the option is enabled
+        if (isReadingFromDisk()) {
+            final String cachedResponse = getResponseCache().get(url, DataOperationConstants.RESPONSE_FILE_ENDING);
+
+            if (cachedResponse != null)
+                htmlResponse = Jsoup.parse(cachedResponse);
+        }
 
         // request json from web, if it has not been read from disk already
         if (htmlResponse == null) {
-            htmlResponse = webDataRetriever.getHtml(url);
+            htmlResponse = getHtmlFromWeb(url);
             isResponseReadFromWeb = true;
         }
 
@@ -144,7 +205,7 @@ public class HttpRequester
             // deliberately write an empty object to disk, if the response could
             // not be retrieved
             final String responseText = (htmlResponse == null) ? "" : htmlResponse.toString();
-            diskIO.writeStringToFile(HttpRequesterUtils.urlToFilePath(url, cacheFolder), responseText);
+            getResponseCache().put(url, DataOperationConstants.RESPONSE_FILE_ENDING, responseText);
         }
 
         return htmlResponse;
@@ -167,13 +228,13 @@ public class HttpRequester
         T targetObject = null;
         boolean isResponseReadFromWeb = false;
 
-        // read json file from disk, if the option is enabled
+        // read json from disk, if the option is enabled
         if (isReadingFromDisk())
-            targetObject = diskIO.getObject(HttpRequesterUtils.urlToFilePath(url, cacheFolder), targetClass);
+            targetObject = getCachedObject(url, targetClass);
 
         // request json from web, if it has not been read from disk already
         if (targetObject == null) {
-            targetObject = webDataRetriever.getObject(url, targetClass);
+            targetObject = getObjectFromWeb(url, targetClass);
             isResponseReadFromWeb = true;
         }
 
@@ -181,7 +242,7 @@ public class HttpRequester
         if (isResponseReadFromWeb && isWritingToDisk()) {
             // deliberately write an empty object to disk, if the response could
             // not be retrieved
-            diskIO.writeObjectToFile(HttpRequesterUtils.urlToFilePath(url, cacheFolder), targetObject);
+            cacheObject(url, targetObject);
         }
 
         return targetObject;
@@ -204,13 +265,13 @@ public class HttpRequester
         T targetObject = null;
         boolean isResponseReadFromWeb = false;
 
-        // read json file from disk, if the option is enabled
+        // read json from disk, if the option is enabled
         if (isReadingFromDisk())
-            targetObject = diskIO.getObject(HttpRequesterUtils.urlToFilePath(url, cacheFolder), targetType);
+            targetObject = getCachedObject(url, targetType);
 
         // request json from web, if it has not been read from disk already
         if (targetObject == null) {
-            targetObject = webDataRetriever.getObject(url, targetType);
+            targetObject = getObjectFromWeb(url, targetType);
             isResponseReadFromWeb = true;
         }
 
@@ -218,7 +279,7 @@ public class HttpRequester
         if (isResponseReadFromWeb && isWritingToDisk()) {
             // deliberately write an empty object to disk, if the response could
             // not be retrieved
-            diskIO.writeObjectToFile(HttpRequesterUtils.urlToFilePath(url, cacheFolder), targetObject);
+            cacheObject(url, targetObject);
         }
 
         return targetObject;
@@ -263,15 +324,15 @@ public class HttpRequester
     {
         String response = null;
 
-        // read json file from disk, if the option is enabled
+        // read response from disk, if the option is enabled
         if (isReadingFromDisk())
-            response = diskIO.getString(HttpRequesterUtils.urlToFilePath(url, cacheFolder, method.name()));
+            response = getResponseCache().get(url, method.name());
 
         if (response == null) {
             response = webDataRetriever.getRestResponse(method, url, body, authorization, contentType);
 
             if (isWritingToDisk())
-                diskIO.writeStringToFile(HttpRequesterUtils.urlToFilePath(url, cacheFolder, method.name()), response);
+                getResponseCache().put(url, method.name(), response);
         }
 
         return response;
@@ -318,19 +379,17 @@ public class HttpRequester
     {
         Map<String, List<String>> header = null;
 
-        // read json file from disk, if the option is enabled
+        final String headerVariant = method + DataOperationConstants.HEADER_FILE_ENDING;
+
+        // read header from disk, if the option is enabled
         if (isReadingFromDisk())
-            header = diskIO.getObject(
-                         HttpRequesterUtils.urlToFilePath(url, cacheFolder, method + DataOperationConstants.HEADER_FILE_ENDING),
-                         DataOperationConstants.HEADER_TYPE);
+            header = parseCachedJson(getResponseCache().get(url, headerVariant), url, DataOperationConstants.HEADER_TYPE);
 
         if (header == null) {
             header = webDataRetriever.getRestHeader(method, url, body, authorization, contentType);
 
             if (isWritingToDisk())
-                diskIO.writeObjectToFile(
-                    HttpRequesterUtils.urlToFilePath(url, cacheFolder, method + DataOperationConstants.HEADER_FILE_ENDING),
-                    header);
+                getResponseCache().put(url, headerVariant, gson.toJson(header));
         }
 
         return header;
@@ -370,6 +429,246 @@ public class HttpRequester
     }
 
 
+    /**
+     * Returns true if GET requests are sent with the validators of cached
+     * responses, allowing the server to respond with 304 Not Modified.
+     *
+     * @return true if conditional GET requests are sent
+     */
+    public boolean isSendingConditionalRequests()
+    {
+        return conditionalRequests.getValue() && cacheFolder != null;
+    }
+
+
+    /**
+     * Returns the cache in which responses are stored on disk,
+     * depending on the configured cache type.
+     *
+     * @return the cache in which responses are stored on disk
+     */
+    protected IResponseCache getResponseCache()
+    {
+        if (DataOperationConstants.SEGMENT_CACHE_TYPE.equals(cacheType.getValue())) {
+            final SegmentResponseCache segmentCache = SegmentResponseCache.getInstance(cacheFolder);
+            segmentCache.setMaxSize(cacheMaxSize.getValue() * DataOperationConstants.BYTES_PER_MEGABYTE);
+            return segmentCache;
+        } else
+            return new FileResponseCache(diskIO, cacheFolder);
+    }
+
+
+    /**
+     * Returns the shared {@linkplain MemoryResponseCache} with the configured bounds.
+     *
+     * @return the memory cache, or null if it is disabled
+     */
+    protected MemoryResponseCache getMemoryCache()
+    {
+        if (memoryCacheEntries.getValue() <= 0)
+            return null;
+
+        final MemoryResponseCache memoryCache = MemoryResponseCache.getInstance();
+        memoryCache.setLimits(memoryCacheEntries.getValue(), memoryCacheSize.getValue(), memoryCacheTtl.getValue());
+        return memoryCache;
+    }
+
+
+    /**
+     * Retrieves an HTML document from the web, or from the memory cache
+     * or a revalidated response if they are enabled.
+     *
+     * @param url the URL of the HTML document
+     *
+     * @return an HTML document, or null if it could not be retrieved
+     */
+    private Document getHtmlFromWeb(final String url)
+    {
+        if (!isBufferingResponses())
+            return webDataRetriever.getHtml(url);
+
+        final byte[] response = getBytesFromWeb(url);
+
+        if (response == null)
+            return null;
+
+        try {
+            return Jsoup.parse(new ByteArrayInputStream(response), webDataRetriever.getCharset().displayName(), url);
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(DataOperationConstants.WEB_ERROR_JSON, url), e);
+            return null;
+        }
+    }
+
+
+    /**
+     * Retrieves a JSON object from the web, or from the memory cache
+     * or a revalidated response if they are enabled.
+     *
+     * @param url the URL of the JSON object
+     * @param targetType the type of the returned object
+     * @param <T> the type of the returned object
+     *
+     * @return a Java object, or null if the object could not be retrieved or parsed
+     */
+    private <T> T getObjectFromWeb(final String url, final Type targetType)
+    {
+        if (!isBufferingResponses())
+            return webDataRetriever.getObject(url, targetType);
+
+        final byte[] response = getBytesFromWeb(url);
+
+        if (response == null)
+            return null;
+
+        try {
+            return gson.fromJson(new String(response, webDataRetriever.getCharset()), targetType);
+        } catch (final JsonParseException e) {
+            LOGGER.warn(String.format(DataOperationConstants.WEB_ERROR_JSON, url), e);
+            return null;
+        }
+    }
+
+
+    /**
+     * Returns true if responses need to be read completely before they
+     * are parsed, because they are kept in memory or on disk.
+     *
+     * @return true if responses are read completely before they are parsed
+     */
+    private boolean isBufferingResponses()
+    {
+        return memoryCacheEntries.getValue() > 0 || isSendingConditionalRequests();
+    }
+
+
+    /**
+     * Retrieves a raw response from the memory cache, or from the web
+     * if it is not cached, in which case it is added to the memory cache.
+     *
+     * @param url the URL of the request
+     *
+     * @return the raw response, or null if it could not be retrieved
+     */
+    private byte[] getBytesFromWeb(final String url)
+    {
+        final MemoryResponseCache memoryCache = getMemoryCache();
+        byte[] response = memoryCache == null ? null : memoryCache.get(url);
+
+        if (response == null) {
+            response = isSendingConditionalRequests()
+                       ? getRevalidatedBytes(url)
+                       : webDataRetriever.getBytes(url);
+
+            if (memoryCache != null)
+                memoryCache.put(url, response);
+        }
+
+        return response;
+    }
+
+
+    /**
+     * Sends a conditional GET request with the validators of a previously
+     * cached response. If the server responds with 304 Not Modified, the
+     * cached response is returned. Otherwise, the new response and its
+     * validators are cached.
+     *
+     * @param url the URL of the request
+     *
+     * @return the raw response, or null if it could not be retrieved
+     */
+    private byte[] getRevalidatedBytes(final String url)
+    {
+        final IResponseCache responseCache = getResponseCache();
+
+        // the body is cached as raw bytes, so that it is returned exactly as it was received
+        final byte[] cachedResponse = responseCache.getBytes(url, DataOperationConstants.VALIDATED_RESPONSE_FILE_ENDING);
+        final ResponseValidatorsJson validators = cachedResponse == null
+                                                  ? null
+                                                  : parseCachedJson(responseCache.get(url, DataOperationConstants.VALIDATORS_FILE_ENDING), url, ResponseValidatorsJson.class);
+
+        final ConditionalResponse response = validators == null
+                                             ? webDataRetriever.getConditionalResponse(url, null, null)
+                                             : webDataRetriever.getConditionalResponse(url, validators.getEntityTag(), validators.getLastModified());
+
+        if (response == null)
+            return null;
+
+        if (response.isNotModified()) {
+            HttpStatistics.addNotModifiedResponse(cachedResponse.length);
+            return cachedResponse;
+        }
+
+        HttpStatistics.addModifiedResponse();
+
+        // only cache responses that can be revalidated
+        if (response.getEntityTag() != null || response.getLastModified() != null) {
+            responseCache.putBytes(url, DataOperationConstants.VALIDATED_RESPONSE_FILE_ENDING, response.getContent());
+            responseCache.put(url, DataOperationConstants.VALIDATORS_FILE_ENDING,
+                              gson.toJson(new ResponseValidatorsJson(response.getEntityTag(), response.getLastModified())));
+        }
+
+        return response.getContent();
+    }
+
+
+    /**
+     * Reads a cached JSON response and maps it to a Java object.
+     *
+     * @param url the URL of the request
+     * @param targetType the type of the returned object
+     * @param <T> the type of the returned object
+     *
+     * @return a Java object, or null if the response is not cached or could not be parsed
+     */
+    private <T> T getCachedObject(final String url, final Type targetType)
+    {
+        return parseCachedJson(
+                   getResponseCache().get(url, DataOperationConstants.RESPONSE_FILE_ENDING),
+                   url,
+                   targetType);
+    }
+
+
+    /**
+     * Caches a Java object as JSON response. If the object is null,
+     * an empty JSON object is cached.
+     *
+     * @param url the URL of the request
+     * @param object the object that is to be cached
+     */
+    private void cacheObject(final String url, final Object object)
+    {
+        final String json = (object == null) ? "{}" : gson.toJson(object);
+        getResponseCache().put(url, DataOperationConstants.RESPONSE_FILE_ENDING, json);
+    }
+
+
+    /**
+     * Maps a cached JSON response to a Java object.
+     *
+     * @param cachedJson the cached response, or null if the response is not cached
+     * @param url the URL of the request
+     * @param targetType the type of the returned object
+     * @param <T> the type of the returned object
+     *
+     * @return a Java object, or null if the response is null or could not be parsed
+     */
+    private <T> T parseCachedJson(final String cachedJson, final String url, final Type targetType)
+    {
+        if (cachedJson == null)
+            return null;
+
+        try {
+            return gson.fromJson(cachedJson, targetType);
+        } catch (final JsonParseException e) {
+            LOGGER.warn(String.format(DataOperationConstants.LOAD_FAILED, url), e);
+            return null;
+        }
+    }
+
+
     /**
      * Changes the charset that is used for reading and writing responses.
      *
@@ -0,0 +1,180 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils.data;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.gerdiproject.harvest.etls.json.HttpStatisticsJson;
+
+/**
+ * This singleton class counts events of all {@linkplain HttpRequester}s,
+ * such as cache hits or retried requests, in order to expose them via the REST interface.
+ *
+ * @author Robin Weiss
+ */
+public final class HttpStatistics
+{
+    private final AtomicLong memoryCacheHits;
+    private final AtomicLong memoryCacheMisses;
+    private final AtomicLong memoryCacheEvictions;
+    private final AtomicLong conditionalRequests;
+    private final AtomicLong notModifiedResponses;
+    private final AtomicLong savedBytes;
+    private final AtomicLong retries;
+    private final AtomicLong redirects;
+    private final AtomicLong exceededDeadlines;
+
+    private final static HttpStatistics INSTANCE = new HttpStatistics();
+
+
+    /**
+     * Private constructor for a singleton instance.
+     */
+    private HttpStatistics()
+    {
+        memoryCacheHits = new AtomicLong();
+        memoryCacheMisses = new AtomicLong();
+        memoryCacheEvictions = new AtomicLong();
+        conditionalRequests = new AtomicLong();
+        notModifiedResponses = new AtomicLong();
+        savedBytes = new AtomicLong();
+        retries = new AtomicLong();
+        redirects = new AtomicLong();
+        exceededDeadlines = new AtomicLong();
+    }
+
+
+    /**
+     * Counts a response that was retrieved from the {@linkplain MemoryResponseCache}.
+     */
+    public static void addMemoryCacheHit()
+    {
+        INSTANCE.memoryCacheHits.incrementAndGet();
+    }
+
+
+    /**
+     * Counts a response that was not found in the {@linkplain MemoryResponseCache}.
+     */
+    public static void addMemoryCacheMiss()
+    {
+        INSTANCE.memoryCacheMisses.incrementAndGet();
+    }
+
+
+    /**
+     * Counts a response that was removed from the {@linkplain MemoryResponseCache},
+     * because it expired or because the cache was full.
+     */
+    public static void addMemoryCacheEviction()
+    {
+        INSTANCE.memoryCacheEvictions.incrementAndGet();
+    }
+
+
+    /**
+     * Counts a conditional request that was answered with the full content,
+     * because the content was not cached or has changed.
+     */
+    public static void addModifiedResponse()
+    {
+        INSTANCE.conditionalRequests.incrementAndGet();
+    }
+
+
+    /**
+     * Counts a conditional request that was answered with 304 Not Modified,
+     * which means that the cached content was used instead.
+     *
+     * @param cachedBytes the number of bytes of the cached content
+     */
+    public static void addNotModifiedResponse(final long cachedBytes)
+    {
+        INSTANCE.conditionalRequests.incrementAndGet();
+        INSTANCE.notModifiedResponses.incrementAndGet();
+        INSTANCE.savedBytes.addAndGet(cachedBytes);
+    }
+
+
+    /**
+     * Counts a request that is sent again, because it failed or timed out.
+     */
+    public static void addRetry()
+    {
+        INSTANCE.retries.incrementAndGet();
+    }
+
+
+    /**
+     * Counts a request that is sent again, because it was redirected.
+     */
+    public static void addRedirect()
+    {
+        INSTANCE.redirects.incrementAndGet();
+    }
+
+
+    /**
+     * Counts a request that was not retried, because the retry would
+     * exceed its deadline.
+     */
+    public static void addExceededDeadline()
+    {
+        INSTANCE.exceededDeadlines.incrementAndGet();
+    }
+
+
+    /**
+     * Resets all counters to zero.
+     */
+    public static void reset()
+    {
+        INSTANCE.memoryCacheHits.set(0);
+        INSTANCE.memoryCacheMisses.set(0);
+        INSTANCE.memoryCacheEvictions.set(0);
+        INSTANCE.conditionalRequests.set(0);
+        INSTANCE.notModifiedResponses.set(0);
+        INSTANCE.savedBytes.set(0);
+        INSTANCE.retries.set(0);
+        INSTANCE.redirects.set(0);
+        INSTANCE.exceededDeadlines.set(0);
+    }
+
+
+    /**
+     * Returns a JSON representation of all counters.
+     *
+     * @return a JSON representation of all counters
+     */
+    public static HttpStatisticsJson getAsJson()
+    {
+        final long conditionalRequestCount = INSTANCE.conditionalRequests.get();
+        final long notModifiedCount = INSTANCE.notModifiedResponses.get();
+
+        return new HttpStatisticsJson(
+                   INSTANCE.memoryCacheHits.get(),
+                   INSTANCE.memoryCacheMisses.get(),
+                   INSTANCE.memoryCacheEvictions.get(),
+                   conditionalRequestCount,
+                   notModifiedCount,
+                   conditionalRequestCount == 0 ? 0 : (double) notModifiedCount / conditionalRequestCount,
+                   INSTANCE.savedBytes.get(),
+                   INSTANCE.retries.get(),
+                   INSTANCE.redirects.get(),
+                   INSTANCE.exceededDeadlines.get());
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils.data;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * This interface describes the transport layer of the {@linkplain WebDataRetriever},
+ * which sends single HTTP requests and manages the underlying connections.
+ * Redirects, retries and the interpretation of status codes are handled by
+ * the {@linkplain WebDataRetriever}.
+ *
+ * @author Robin Weiss
+ */
+public interface IHttpTransport
+{
+    /**
+     * Sends an HTTP request asynchronously. The returned future completes
+     * as soon as the status code and header fields were received, or
+     * completes exceptionally with an {@linkplain java.io.IOException}
+     * if the request could not be sent.
+     * The {@linkplain WebResponse} must be closed in order to release
+     * its connection.
+     *
+     * @param request the request that is to be sent
+     *
+     * @return a future response
+     */
+    CompletableFuture<WebResponse> sendAsync(WebRequest request);
+}
@@ -0,0 +1,60 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils.data;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * This interface describes the body of a web request that is written
+ * directly to the output stream of a connection, instead of being
+ * assembled in memory first.
+ * Implementations must be able to write the body more than once,
+ * because requests may be retried or redirected.
+ *
+ * @author Robin Weiss
+ */
+public interface IRequestBody
+{
+    /**
+     * Returns the number of bytes that will be written by
+     * {@linkplain #writeTo(OutputStream)}.
+     *
+     * @return the number of bytes of the body, or -1 if the size
+     * is not known in advance
+     */
+    long getContentLength();
+
+
+    /**
+     * Returns the encoding with which the body is compressed.
+     *
+     * @return the value of the Content-Encoding header, or null if the
+     * body is not compressed
+     */
+    String getContentEncoding();
+
+
+    /**
+     * Writes the body to a specified {@linkplain OutputStream}.
+     *
+     * @param outputStream the stream to which the body is written
+     *
+     * @throws IOException thrown when the body could not be written
+     */
+    void writeTo(OutputStream outputStream) throws IOException;
+}
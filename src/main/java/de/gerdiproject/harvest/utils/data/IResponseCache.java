@@ -0,0 +1,75 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils.data;
+
+/**
+ * This interface describes a cache in which the {@linkplain HttpRequester}
+ * stores HTTP responses, allowing harvests to be replayed without
+ * sending requests.
+ *
+ * @author Robin Weiss
+ */
+public interface IResponseCache
+{
+    /**
+     * Retrieves a cached response.
+     *
+     * @param url the URL of the request
+     * @param variant distinguishes different responses of the same URL,
+     *          such as the responses of different request methods
+     *
+     * @return the cached response, or null if it is not cached
+     */
+    String get(String url, String variant);
+
+
+    /**
+     * Adds a response to the cache, replacing any response
+     * that was cached for the same URL and variant.
+     *
+     * @param url the URL of the request
+     * @param variant distinguishes different responses of the same URL,
+     *          such as the responses of different request methods
+     * @param response the response that is to be cached
+     */
+    void put(String url, String variant, String response);
+
+
+    /**
+     * Retrieves the raw bytes of a cached response.
+     *
+     * @param url the URL of the request
+     * @param variant distinguishes different responses of the same URL,
+     *          such as the responses of different request methods
+     *
+     * @return the cached bytes, or null if the response is not cached
+     */
+    byte[] getBytes(String url, String variant);
+
+
+    /**
+     * Adds the raw bytes of a response to the cache, replacing any response
+     * that was cached for the same URL and variant. Unlike
+     * {@linkplain #put(String, String, String)}, the bytes are stored unaltered.
+     *
+     * @param url the URL of the request
+     * @param variant distinguishes different responses of the same URL,
+     *          such as the responses of different request methods
+     * @param response the bytes of the response that is to be cached
+     */
+    void putBytes(String url, String variant, byte[] response);
+}
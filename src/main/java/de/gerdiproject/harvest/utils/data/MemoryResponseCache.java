@@ -0,0 +1,227 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils.data;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class keeps raw HTTP responses in memory, so that URLs which are
+ * requested repeatedly during a harvest only need to be retrieved once.
+ * Since responses are stored as bytes, they can be parsed both as JSON
+ * and as HTML.
+ * <br><br>
+ * The cache is bounded by a maximum number of responses and a maximum
+ * number of bytes. If either bound is exceeded, the least recently used
+ * responses are evicted. Responses also expire after a time-to-live.
+ * This class is thread-safe.
+ *
+ * @author Robin Weiss
+ */
+public class MemoryResponseCache
+{
+    private static final MemoryResponseCache INSTANCE = new MemoryResponseCache();
+
+    private final Map<String, CachedResponse> responses;
+    private int maxEntries;
+    private long maxBytes;
+    private long timeToLive;
+    private long currentBytes;
+
+
+    /**
+     * Returns the cache that is shared by all {@linkplain HttpRequester}s.
+     *
+     * @return the shared cache
+     */
+    public static MemoryResponseCache getInstance()
+    {
+        return INSTANCE;
+    }
+
+
+    /**
+     * Constructor that creates a cache which does not store any responses
+     * until its limits are set.
+     */
+    public MemoryResponseCache()
+    {
+        this.responses = new LinkedHashMap<>(16, 0.75f, true); // NOPMD access-order is needed for LRU eviction
+    }
+
+
+    /**
+     * Changes the bounds of the cache, evicting responses if necessary.
+     *
+     * @param maxEntries the maximum number of cached responses,
+     *          or zero if responses are not to be cached
+     * @param maxBytes the maximum number of bytes of all cached responses
+     * @param timeToLive the number of milliseconds after which a cached response expires
+     */
+    public synchronized void setLimits(final int maxEntries, final long maxBytes, final long timeToLive)
+    {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.timeToLive = timeToLive;
+        evict();
+    }
+
+
+    /**
+     * Returns true if the cache stores responses.
+     *
+     * @return true if the cache stores responses
+     */
+    public synchronized boolean isEnabled()
+    {
+        return maxEntries > 0 && maxBytes > 0;
+    }
+
+
+    /**
+     * Retrieves a cached response, unless it expired.
+     *
+     * @param url the URL of the request
+     *
+     * @return the raw response, or null if it is not cached
+     */
+    public synchronized byte[] get(final String url)
+    {
+        final CachedResponse cachedResponse = responses.get(url);
+
+        if (cachedResponse != null && cachedResponse.isExpired(System.currentTimeMillis())) {
+            remove(url);
+            HttpStatistics.addMemoryCacheEviction();
+        } else if (cachedResponse != null) {
+            HttpStatistics.addMemoryCacheHit();
+            return cachedResponse.content;
+        }
+
+        HttpStatistics.addMemoryCacheMiss();
+        return null;
+    }
+
+
+    /**
+     * Adds a response to the cache, evicting the least recently used
+     * responses if the cache is full. Responses that exceed the maximum
+     * number of bytes on their own are not cached.
+     *
+     * @param url the URL of the request
+     * @param content the raw response
+     */
+    public synchronized void put(final String url, final byte[] content)
+    {
+        if (!isEnabled() || content == null || content.length > maxBytes)
+            return;
+
+        remove(url);
+        responses.put(url, new CachedResponse(content, System.currentTimeMillis() + timeToLive));
+        currentBytes += content.length;
+        evict();
+    }
+
+
+    /**
+     * Returns the number of cached responses.
+     *
+     * @return the number of cached responses
+     */
+    public synchronized int size()
+    {
+        return responses.size();
+    }
+
+
+    /**
+     * Removes all cached responses.
+     */
+    public synchronized void clear()
+    {
+        responses.clear();
+        currentBytes = 0;
+    }
+
+
+    /**
+     * Removes a response from the cache.
+     *
+     * @param url the URL of the request
+     */
+    private void remove(final String url)
+    {
+        final CachedResponse removedResponse = responses.remove(url);
+
+        if (removedResponse != null)
+            currentBytes -= removedResponse.content.length;
+    }
+
+
+    /**
+     * Removes the least recently used responses until the cache
+     * no longer exceeds its bounds.
+     */
+    private void evict()
+    {
+        final Iterator<CachedResponse> iter = responses.values().iterator();
+
+        while ((responses.size() > maxEntries || currentBytes > maxBytes) && iter.hasNext()) {
+            currentBytes -= iter.next().content.length;
+            iter.remove();
+            HttpStatistics.addMemoryCacheEviction();
+        }
+    }
+
+
+    /**
+     * This class represents a cached response and the time at which it expires.
+     *
+     * @author Robin Weiss
+     */
+    private static class CachedResponse
+    {
+        private final byte[] content;
+        private final long expirationTime;
+
+
+        /**
+         * Constructor.
+         *
+         * @param content the raw response
+         * @param expirationTime the timestamp in milliseconds at which the response expires
+         */
+        CachedResponse(final byte[] content, final long expirationTime)
+        {
+            this.content = content;
+            this.expirationTime = expirationTime;
+        }
+
+
+        /**
+         * Checks if the response expired.
+         *
+         * @param now the current timestamp in milliseconds
+         *
+         * @return true if the response expired
+         */
+        boolean isExpired(final long now)
+        {
+            return now >= expirationTime;
+        }
+    }
+}
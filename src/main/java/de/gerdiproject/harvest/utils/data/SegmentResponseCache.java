@@ -0,0 +1,456 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils.data;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
+
+/**
+ * This {@linkplain IResponseCache} appends all responses to a single segment file
+ * and keeps the positions of the responses in an in-memory index, which is
+ * rebuilt by scanning the segment file when the cache is first accessed.
+ * <br><br>
+ * If the cached responses exceed the maximum size, the least recently used
+ * responses are evicted. Replaced and evicted responses remain in the segment
+ * file until it is compacted, which happens automatically when the obsolete
+ * records make up more than half of the file.
+ * <br><br>
+ * There is only one instance per cache folder, which can be retrieved
+ * via {@linkplain #getInstance(File)}. This class is thread-safe.
+ *
+ * @author Robin Weiss
+ */
+public class SegmentResponseCache implements IResponseCache
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentResponseCache.class);
+    private static final Map<File, SegmentResponseCache> INSTANCES = new ConcurrentHashMap<>();
+
+    private final File segmentFile;
+    private final Map<String, Record> index;
+
+    private FileChannel channel;
+    private long fileSize;
+    private long liveSize;
+    private long maxSize;
+
+
+    /**
+     * Returns the cache that stores its segment file in a specified folder.
+     *
+     * @param cacheFolder the folder in which the segment file is stored
+     *
+     * @return the cache of the folder
+     */
+    public static SegmentResponseCache getInstance(final File cacheFolder)
+    {
+        return INSTANCES.computeIfAbsent(cacheFolder.getAbsoluteFile(), SegmentResponseCache::new);
+    }
+
+
+    /**
+     * Constructor that does not access the segment file yet.
+     *
+     * @param cacheFolder the folder in which the segment file is stored
+     */
+    private SegmentResponseCache(final File cacheFolder)
+    {
+        this.segmentFile = new File(cacheFolder, DataOperationConstants.SEGMENT_FILE_NAME);
+        this.index = new LinkedHashMap<>(16, 0.75f, true); // NOPMD access-order is needed for LRU eviction
+        this.maxSize = Long.MAX_VALUE;
+    }
+
+
+    @Override
+    public String get(final String url, final String variant)
+    {
+        final byte[] response = getBytes(url, variant);
+        return response == null ? null : new String(response, StandardCharsets.UTF_8);
+    }
+
+
+    @Override
+    public void put(final String url, final String variant, final String response)
+    {
+        if (response != null)
+            putBytes(url, variant, response.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    @Override
+    public synchronized byte[] getBytes(final String url, final String variant)
+    {
+        try {
+            open();
+
+            final Record record = index.get(getKey(url, variant));
+
+            if (record == null)
+                return null;
+
+            final ByteBuffer value = ByteBuffer.allocate(record.valueLength);
+            readFully(channel, value, record.getValuePosition());
+            return value.array();
+
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(DataOperationConstants.LOAD_FAILED, segmentFile), e);
+            return null;
+        }
+    }
+
+
+    @Override
+    public synchronized void putBytes(final String url, final String variant, final byte[] response)
+    {
+        if (response == null)
+            return;
+
+        try {
+            open();
+
+            final String key = getKey(url, variant);
+            final Record record = append(key, response);
+            final Record replacedRecord = index.put(key, record);
+
+            liveSize += record.getSize();
+
+            if (replacedRecord != null)
+                liveSize -= replacedRecord.getSize();
+
+            evict();
+            compactIfNecessary();
+
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(DataOperationConstants.SAVE_FAILED, segmentFile), e);
+        }
+    }
+
+
+    /**
+     * Changes the maximum number of bytes that may be occupied by cached responses.
+     * If the cache exceeds the new size, the least recently used responses are
+     * evicted with the next response that is added.
+     *
+     * @param maxSize the maximum size of all cached responses in bytes
+     */
+    public synchronized void setMaxSize(final long maxSize)
+    {
+        this.maxSize = maxSize;
+    }
+
+
+    /**
+     * Returns the number of cached responses.
+     *
+     * @return the number of cached responses
+     */
+    public synchronized int size()
+    {
+        try {
+            open();
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(DataOperationConstants.LOAD_FAILED, segmentFile), e);
+        }
+
+        return index.size();
+    }
+
+
+    /**
+     * Closes the segment file. The next access re-opens it
+     * and rebuilds the index.
+     */
+    public synchronized void close()
+    {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                LOGGER.warn(String.format(DataOperationConstants.SAVE_FAILED, segmentFile), e);
+            }
+
+            channel = null;
+        }
+
+        index.clear();
+    }
+
+
+    /**
+     * Opens the segment file, if it is not open yet, and rebuilds the index
+     * by scanning all records. An incomplete record at the end of the file,
+     * which can be caused by a crash, is truncated.
+     *
+     * @throws IOException thrown if the segment file could not be read
+     */
+    private void open() throws IOException
+    {
+        if (channel != null)
+            return;
+
+        Files.createDirectories(segmentFile.getAbsoluteFile().getParentFile().toPath());
+        channel = FileChannel.open(segmentFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index.clear();
+        liveSize = 0;
+
+        final long channelSize = channel.size();
+        final ByteBuffer header = ByteBuffer.allocate(DataOperationConstants.SEGMENT_RECORD_HEADER_SIZE);
+        long position = 0;
+
+        while (position + DataOperationConstants.SEGMENT_RECORD_HEADER_SIZE <= channelSize) {
+            header.clear();
+            readFully(channel, header, position);
+
+            final int keyLength = header.getInt(0);
+            final int valueLength = header.getInt(Integer.BYTES);
+            final Record record = new Record(position, keyLength, valueLength);
+
+            if (keyLength <= 0 || valueLength < DataOperationConstants.SEGMENT_REMOVED_VALUE_LENGTH
+                || position + record.getSize() > channelSize)
+                break;
+
+            final ByteBuffer keyBytes = ByteBuffer.allocate(keyLength);
+            readFully(channel, keyBytes, position + DataOperationConstants.SEGMENT_RECORD_HEADER_SIZE);
+            final String key = new String(keyBytes.array(), StandardCharsets.UTF_8);
+
+            final Record replacedRecord = valueLength == DataOperationConstants.SEGMENT_REMOVED_VALUE_LENGTH
+                                          ? index.remove(key)
+                                          : index.put(key, record);
+
+            if (replacedRecord != null)
+                liveSize -= replacedRecord.getSize();
+
+            if (valueLength != DataOperationConstants.SEGMENT_REMOVED_VALUE_LENGTH)
+                liveSize += record.getSize();
+
+            position += record.getSize();
+        }
+
+        if (position < channelSize)
+            channel.truncate(position);
+
+        fileSize = position;
+    }
+
+
+    /**
+     * Appends a record to the end of the segment file.
+     *
+     * @param key the key of the record
+     * @param value the value of the record, or null if the record marks a removed key
+     *
+     * @return the appended record
+     *
+     * @throws IOException thrown if the record could not be written
+     */
+    private Record append(final String key, final byte[] value) throws IOException
+    {
+        final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        final int valueLength = value == null ? DataOperationConstants.SEGMENT_REMOVED_VALUE_LENGTH : value.length;
+        final Record record = new Record(fileSize, keyBytes.length, valueLength);
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) record.getSize());
+        buffer.putInt(keyBytes.length);
+        buffer.putInt(valueLength);
+        buffer.put(keyBytes);
+
+        if (value != null)
+            buffer.put(value);
+
+        buffer.flip();
+
+        while (buffer.hasRemaining())
+            channel.write(buffer, fileSize + buffer.position());
+
+        fileSize += record.getSize();
+        return record;
+    }
+
+
+    /**
+     * Removes the least recently used responses until the cache
+     * no longer exceeds the maximum size.
+     *
+     * @throws IOException thrown if the removal could not be written
+     */
+    private void evict() throws IOException
+    {
+        final Iterator<Map.Entry<String, Record>> iter = index.entrySet().iterator();
+
+        while (liveSize > maxSize && iter.hasNext()) {
+            final Map.Entry<String, Record> eldest = iter.next();
+            iter.remove();
+            liveSize -= eldest.getValue().getSize();
+
+            // mark the response as removed, so that it is not restored when the file is re-opened
+            append(eldest.getKey(), null);
+        }
+    }
+
+
+    /**
+     * Rewrites all cached responses to a new segment file, if most of the
+     * current segment file is occupied by replaced or evicted responses.
+     * The order of the responses is preserved, so that the least recently
+     * used responses are still evicted first.
+     *
+     * @throws IOException thrown if the new segment file could not be written
+     */
+    private void compactIfNecessary() throws IOException
+    {
+        final long obsoleteSize = fileSize - liveSize;
+
+        if (obsoleteSize < DataOperationConstants.SEGMENT_MIN_COMPACTION_SIZE || obsoleteSize < liveSize)
+            return;
+
+        final File tempFile = new File(segmentFile.getPath() + DataOperationConstants.SEGMENT_TEMP_FILE_SUFFIX);
+        final Map<String, Record> compactedIndex = new LinkedHashMap<>(index.size() * 2, 0.75f, true); // NOPMD access-order is needed for LRU eviction
+        long position = 0;
+
+        try
+            (FileChannel tempChannel = FileChannel.open(
+                                           tempFile.toPath(),
+                                           StandardOpenOption.CREATE,
+                                           StandardOpenOption.TRUNCATE_EXISTING,
+                                           StandardOpenOption.WRITE)) {
+            for (final Map.Entry<String, Record> entry : index.entrySet()) {
+                final Record record = entry.getValue();
+                long transferred = 0;
+
+                while (transferred < record.getSize())
+                    transferred += channel.transferTo(record.position + transferred, record.getSize() - transferred, tempChannel);
+
+                compactedIndex.put(entry.getKey(), new Record(position, record.keyLength, record.valueLength));
+                position += record.getSize();
+            }
+        }
+
+        channel.close();
+        channel = null;
+
+        try {
+            Files.move(tempFile.toPath(), segmentFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException e) {
+            Files.move(tempFile.toPath(), segmentFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        channel = FileChannel.open(segmentFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index.clear();
+        index.putAll(compactedIndex);
+        fileSize = position;
+        liveSize = position;
+    }
+
+
+    /**
+     * Reads bytes from a file until a buffer is full.
+     *
+     * @param fileChannel the channel of the file
+     * @param buffer the buffer that is to be filled
+     * @param position the file position at which the reading starts
+     *
+     * @throws IOException thrown if the end of the file was reached before the buffer is full
+     */
+    private static void readFully(final FileChannel fileChannel, final ByteBuffer buffer, final long position) throws IOException
+    {
+        while (buffer.hasRemaining()) {
+            if (fileChannel.read(buffer, position + buffer.position()) == -1)
+                throw new EOFException();
+        }
+    }
+
+
+    /**
+     * Combines the URL and the variant of a response to a unique key.
+     *
+     * @param url the URL of the request
+     * @param variant distinguishes different responses of the same URL
+     *
+     * @return a unique key
+     */
+    private static String getKey(final String url, final String variant)
+    {
+        return variant + ' ' + url;
+    }
+
+
+    /**
+     * This class describes the position of a record within the segment file.
+     * A record consists of the key length, the value length, the key, and the value.
+     *
+     * @author Robin Weiss
+     */
+    private static class Record
+    {
+        private final long position;
+        private final int keyLength;
+        private final int valueLength;
+
+
+        /**
+         * Constructor.
+         *
+         * @param position the position of the record within the segment file
+         * @param keyLength the number of bytes of the key
+         * @param valueLength the number of bytes of the value,
+         *          or -1 if the record marks a removed key
+         */
+        Record(final long position, final int keyLength, final int valueLength)
+        {
+            this.position = position;
+            this.keyLength = keyLength;
+            this.valueLength = valueLength;
+        }
+
+
+        /**
+         * Returns the position of the value within the segment file.
+         *
+         * @return the position of the value within the segment file
+         */
+        long getValuePosition()
+        {
+            return position + DataOperationConstants.SEGMENT_RECORD_HEADER_SIZE + keyLength;
+        }
+
+
+        /**
+         * Returns the number of bytes that the record occupies in the segment file.
+         *
+         * @return the number of bytes that the record occupies in the segment file
+         */
+        long getSize()
+        {
+            return (long) DataOperationConstants.SEGMENT_RECORD_HEADER_SIZE + keyLength + Math.max(valueLength, 0);
+        }
+    }
+}
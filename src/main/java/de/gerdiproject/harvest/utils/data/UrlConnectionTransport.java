@@ -0,0 +1,192 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
+import de.gerdiproject.harvest.utils.data.enums.RestRequestType;
+
+/**
+ * This {@linkplain IHttpTransport} sends requests via {@linkplain HttpURLConnection}s
+ * on a bounded pool of daemon threads. A thread is only occupied until the response
+ * header arrives, and requests that exceed the number of threads wait in the queue
+ * of the pool. The number of requests per host is limited by the
+ * {@linkplain HostRateLimiter}. Closed connections are kept alive and reused by the JDK.
+ *
+ * @author Robin Weiss
+ */
+public class UrlConnectionTransport implements IHttpTransport
+{
+    private final ExecutorService executor;
+
+
+    /**
+     * Constructor that sends requests on up to
+     * {@value DataOperationConstants#MAX_TRANSPORT_THREADS} threads.
+     */
+    public UrlConnectionTransport()
+    {
+        this(DataOperationConstants.MAX_TRANSPORT_THREADS);
+    }
+
+
+    /**
+     * Constructor that sets the maximum number of threads that
+     * wait for response headers at the same time.
+     *
+     * @param maxThreads the maximum number of threads that send requests
+     */
+    public UrlConnectionTransport(final int maxThreads)
+    {
+        final AtomicInteger threadIndex = new AtomicInteger(0);
+        final ThreadPoolExecutor threadPool = new ThreadPoolExecutor(
+            maxThreads,
+            maxThreads,
+            DataOperationConstants.TRANSPORT_THREAD_KEEP_ALIVE,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            (final Runnable task) -> {
+                final Thread thread = new Thread(task, String.format(DataOperationConstants.TRANSPORT_THREAD_NAME, threadIndex.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        // let idle threads terminate, even though the pool is never larger than its core
+        threadPool.allowCoreThreadTimeOut(true);
+        this.executor = threadPool;
+    }
+
+
+    @Override
+    public CompletableFuture<WebResponse> sendAsync(final WebRequest request)
+    {
+        final CompletableFuture<WebResponse> futureResponse = new CompletableFuture<>();
+        final URL url;
+
+        try {
+            url = new URL(request.getUrl());
+        } catch (final MalformedURLException e) {
+            futureResponse.completeExceptionally(e);
+            return futureResponse;
+        }
+
+        executor.execute(() -> {
+            try {
+                futureResponse.complete(send(url, request));
+            } catch (final IOException | RuntimeException e) {
+                futureResponse.completeExceptionally(e);
+            }
+        });
+
+        return futureResponse;
+    }
+
+
+    /**
+     * Sends a request and waits for the status code and header fields of the response.
+     *
+     * @param url the URL to which the request is sent
+     * @param request the request that is to be sent
+     *
+     * @throws IOException thrown if the request could not be sent
+     *
+     * @return the response of the request
+     */
+    private static WebResponse send(final URL url, final WebRequest request) throws IOException
+    {
+        final HttpURLConnection connection = openConnection(url, request);
+        final int statusCode = connection.getResponseCode();
+        final InputStream rawBody = statusCode >= 400
+                                    ? connection.getErrorStream()
+                                    : connection.getInputStream();
+
+        // HEAD requests (SAI-1607) and bodiless responses cannot be decompressed
+        final boolean isCompressed = DataOperationConstants.GZIP_ENCODING.equals(connection.getContentEncoding())
+                                     && request.getMethod() != RestRequestType.HEAD
+                                     && statusCode != HttpURLConnection.HTTP_NO_CONTENT
+                                     && statusCode != HttpURLConnection.HTTP_NOT_MODIFIED;
+
+        return new WebResponse(request.getUrl(), statusCode, connection.getHeaderFields(), rawBody, isCompressed, null);
+    }
+
+
+    /**
+     * Sets up a {@linkplain HttpURLConnection} and sends the body of the request.
+     *
+     * @param url the URL to which the connection is to be established
+     * @param request the request that is to be sent
+     *
+     * @throws IOException thrown if the body could not be sent
+     *
+     * @return the connection to the host
+     */
+    private static HttpURLConnection openConnection(final URL url, final WebRequest request) throws IOException
+    {
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+
+        // set request properties
+        connection.setDoOutput(true);
+        connection.setUseCaches(false);
+
+        // redirects are followed by the WebDataRetriever, so that they can be throttled and counted
+        connection.setInstanceFollowRedirects(false);
+        connection.setRequestMethod(request.getMethod().toString());
+
+        for (final Map.Entry<String, String> header : request.getHeaders().entrySet())
+            connection.setRequestProperty(header.getKey(), header.getValue());
+
+        // set timeout
+        if (request.getTimeout() != DataOperationConstants.NO_TIMEOUT) {
+            connection.setConnectTimeout(request.getTimeout());
+            connection.setReadTimeout(request.getTimeout());
+        }
+
+        // only send data if it is specified
+        final IRequestBody body = request.getBody();
+
+        if (body != null) {
+            final long contentLength = body.getContentLength();
+
+            // stream the body instead of letting the connection buffer it
+            if (contentLength < 0)
+                connection.setChunkedStreamingMode(0);
+            else
+                connection.setFixedLengthStreamingMode(contentLength);
+
+            // try to send body
+            try
+                (OutputStream wr = connection.getOutputStream()) {
+                body.writeTo(wr);
+            }
+        }
+
+        return connection;
+    }
+}
@@ -16,7 +16,6 @@
 package de.gerdiproject.harvest.utils.data;
 
 import java.io.BufferedReader;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -26,9 +25,22 @@ import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.zip.GZIPInputStream;
 
 import javax.ws.rs.core.HttpHeaders;
@@ -46,7 +58,9 @@ import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
 
 import de.gerdiproject.harvest.config.Configuration;
+import de.gerdiproject.harvest.config.events.ParameterChangedEvent;
 import de.gerdiproject.harvest.config.parameters.IntegerParameter;
+import de.gerdiproject.harvest.event.EventSystem;
 import de.gerdiproject.harvest.rest.constants.RestConstants;
 import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
 import de.gerdiproject.harvest.utils.data.enums.RestRequestType;
@@ -55,14 +69,27 @@ import lombok.Setter;
 
 /**
  * This class provides methods for reading files from the web.
+ * Requests are sent via an {@linkplain IHttpTransport}, which
+ * by default is a {@linkplain UrlConnectionTransport} that is shared by
+ * all instances. Requests to the same host are throttled by the shared
+ * {@linkplain HostRateLimiter}. All requests can be sent asynchronously via
+ * {@linkplain #sendAsync(RestRequestType, String, IRequestBody, String, String, int, Map)},
+ * while the synchronous methods wait for the asynchronous responses.
  *
  * @author Robin Weiss
  */
 public class WebDataRetriever implements IDataRetriever
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(WebDataRetriever.class);
+    private static final IHttpTransport DEFAULT_TRANSPORT = new UrlConnectionTransport();
+    private static final ScheduledExecutorService RETRY_SCHEDULER = createRetryScheduler();
+    private static final Consumer<ParameterChangedEvent> ON_RATE_LIMIT_CHANGED = HostRateLimiter.getInstance()::onParameterChanged;
+
     private final Gson gson;
     private final IntegerParameter retriesParam;
+    private final IntegerParameter retryDelayParam;
+    private final IntegerParameter retryMaxDelayParam;
+    private final IntegerParameter requestDeadlineParam;
 
     @Setter
     private int timeout;
@@ -70,6 +97,9 @@ public class WebDataRetriever implements IDataRetriever
     @Getter @Setter
     private Charset charset;
 
+    @Getter @Setter
+    private IHttpTransport transport;
+
 
     /**
      * Constructor that sets the GSON (de-)serializer for reading and
@@ -84,6 +114,7 @@ public class WebDataRetriever implements IDataRetriever
         this.gson = gson;
         this.charset = charset;
         this.timeout = timeout;
+        this.transport = DEFAULT_TRANSPORT;
 
         // set up retries parameters
         IntegerParameter retriesTemp;
@@ -95,6 +126,20 @@ public class WebDataRetriever implements IDataRetriever
         }
 
         this.retriesParam = retriesTemp;
+
+        // the rate limiting parameters apply to the shared limiter, which is updated when they change
+        HostRateLimiter.getInstance().setLimits(
+            registerParameter(DataOperationConstants.REQUESTS_PER_MINUTE_PARAM).getValue(),
+            registerParameter(DataOperationConstants.REQUEST_BURST_PARAM).getValue(),
+            registerParameter(DataOperationConstants.MAX_REQUESTS_PER_HOST_PARAM).getValue());
+
+        EventSystem.removeListener(ParameterChangedEvent.class, ON_RATE_LIMIT_CHANGED);
+        EventSystem.addListener(ParameterChangedEvent.class, ON_RATE_LIMIT_CHANGED);
+
+        // set up backoff parameters
+        this.retryDelayParam = registerParameter(DataOperationConstants.RETRY_DELAY_PARAM);
+        this.retryMaxDelayParam = registerParameter(DataOperationConstants.RETRY_MAX_DELAY_PARAM);
+        this.requestDeadlineParam = registerParameter(DataOperationConstants.REQUEST_DEADLINE_PARAM);
     }
 
     /**
@@ -118,6 +163,18 @@ public class WebDataRetriever implements IDataRetriever
     public WebDataRetriever(final WebDataRetriever other)
     {
         this(other.gson, other.charset, other.timeout);
+        this.transport = other.transport;
+    }
+
+
+    /**
+     * Returns the number of retries of requests that fail with a response code 5xx.
+     *
+     * @return the number of retries, or a negative value if requests are retried indefinitely
+     */
+    public int getRetries()
+    {
+        return retriesParam.getValue();
     }
 
 
@@ -147,7 +204,7 @@ public class WebDataRetriever implements IDataRetriever
 
                 responseText = responseBuilder.toString();
             }
-        } catch (final IOException e) {
+        } catch (final IOException | HTTPException e) {
             LOGGER.warn(String.format(DataOperationConstants.WEB_ERROR_JSON, url), e);
         }
 
@@ -164,7 +221,7 @@ public class WebDataRetriever implements IDataRetriever
             (InputStreamReader reader = createWebReader(url)) {
             object = gson.fromJson(reader, targetClass);
 
-        } catch (IOException | IllegalStateException | JsonIOException | JsonSyntaxException e) {
+        } catch (IOException | HTTPException | IllegalStateException | JsonIOException | JsonSyntaxException e) {
             LOGGER.warn(String.format(DataOperationConstants.WEB_ERROR_JSON, url), e);
         }
 
@@ -181,7 +238,7 @@ public class WebDataRetriever implements IDataRetriever
             (InputStreamReader reader = createWebReader(url)) {
             object = gson.fromJson(reader, targetType);
 
-        } catch (IOException | IllegalStateException | JsonIOException | JsonSyntaxException e) {
+        } catch (IOException | HTTPException | IllegalStateException | JsonIOException | JsonSyntaxException e) {
             LOGGER.warn(String.format(DataOperationConstants.WEB_ERROR_JSON, url), e);
         }
 
@@ -192,11 +249,76 @@ public class WebDataRetriever implements IDataRetriever
     @Override
     public Document getHtml(final String url)
     {
-        try {
-            final HttpURLConnection connection = sendWebRequest(
-                                                     RestRequestType.GET, url, null, null, MediaType.TEXT_PLAIN, retriesParam.getValue());
+        try
+            (WebResponse response = sendRequest(
+                                        RestRequestType.GET, url, null, null, MediaType.TEXT_PLAIN, retriesParam.getValue())) {
+            checkResponseCode(response, RestRequestType.GET, null);
+            return Jsoup.parse(response.getBody(), charset.displayName(), url);
+
+        } catch (final IOException | HTTPException e) {
+            LOGGER.warn(String.format(DataOperationConstants.WEB_ERROR_JSON, url), e);
+            return null;
+        }
+    }
 
-            return Jsoup.parse(this.getInputStream(connection), charset.displayName(), url);
+
+    /**
+     * Sends a GET request to a specified URL and returns the raw response.
+     *
+     * @param url the URL to which the request is sent
+     *
+     * @return the raw response, or null if the response could not be retrieved
+     */
+    public byte[] getBytes(final String url)
+    {
+        try
+            (WebResponse response = sendRequest(
+                                        RestRequestType.GET, url, null, null, MediaType.TEXT_PLAIN, retriesParam.getValue())) {
+            checkResponseCode(response, RestRequestType.GET, null);
+            return response.readBytes();
+
+        } catch (final IOException | HTTPException e) {
+            LOGGER.warn(String.format(DataOperationConstants.WEB_ERROR_JSON, url), e);
+            return null;
+        }
+    }
+
+
+    /**
+     * Sends a conditional GET request to a specified URL. If validators of
+     * a previous response are specified, the server may respond with
+     * 304 Not Modified instead of sending the full content again.
+     *
+     * @param url the URL to which the request is sent
+     * @param entityTag the ETag of a previous response, or null
+     * @param lastModified the Last-Modified date of a previous response, or null
+     *
+     * @return the response, or null if the response could not be retrieved
+     */
+    public ConditionalResponse getConditionalResponse(final String url, final String entityTag, final String lastModified)
+    {
+        final Map<String, String> validators = new HashMap<>();
+
+        if (entityTag != null)
+            validators.put(HttpHeaders.IF_NONE_MATCH, entityTag);
+
+        if (lastModified != null)
+            validators.put(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+
+        try
+            (WebResponse response = sendStreamedRequest(
+                                        RestRequestType.GET, url, null, null, MediaType.TEXT_PLAIN, retriesParam.getValue(), validators)) {
+
+            if (response.getStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED && !validators.isEmpty())
+                return new ConditionalResponse(true, null, entityTag, lastModified);
+
+            checkResponseCode(response, RestRequestType.GET, null);
+
+            return new ConditionalResponse(
+                       false,
+                       response.readBytes(),
+                       response.getHeaderField(HttpHeaders.ETAG),
+                       response.getHeaderField(HttpHeaders.LAST_MODIFIED));
 
         } catch (final IOException | HTTPException e) {
             LOGGER.warn(String.format(DataOperationConstants.WEB_ERROR_JSON, url), e);
@@ -223,14 +345,60 @@ public class WebDataRetriever implements IDataRetriever
      */
     public String getRestResponse(final RestRequestType method, final String url, final String body, final String authorization, final String contentType) throws HTTPException, IOException
     {
-        final HttpURLConnection connection = sendWebRequest(method, url, body, authorization, contentType, retriesParam.getValue());
-        String responseText = null;
+        return getStreamedRestResponse(method, url, toRequestBody(body), authorization, contentType);
+    }
+
 
-        // create a reader for the HTTP response
+    /**
+     * Sends an authorized REST request with a body that is streamed to the
+     * connection, and returns the response as a string.
+     *
+     * @param method the request method that is being sent
+     * @param url the URL to which the request is being sent
+     * @param body the body of the request, or null if no body is to be sent
+     * @param authorization the base-64-encoded username and password, or null if no
+     *                       authorization is required
+     * @param contentType the contentType of the body
+     *
+     * @throws HTTPException thrown if the response code is not 2xx
+     * @throws IOException thrown if the response output stream could not be created
+     *
+     * @return the HTTP response as plain text
+     */
+    public String getStreamedRestResponse(final RestRequestType method, final String url, final IRequestBody body, final String authorization, final String contentType) throws HTTPException, IOException
+    {
+        return getStreamedRestResponse(method, url, body, authorization, contentType, retriesParam.getValue());
+    }
+
+
+    /**
+     * Sends an authorized REST request with a body that is streamed to the
+     * connection, and returns the response as a string.
+     *
+     * @param method the request method that is being sent
+     * @param url the URL to which the request is being sent
+     * @param body the body of the request, or null if no body is to be sent
+     * @param authorization the base-64-encoded username and password, or null if no
+     *                       authorization is required
+     * @param contentType the contentType of the body
+     * @param retries the number of retries if the request fails with a response code 5xx
+     *
+     * @throws HTTPException thrown if the response code is not 2xx
+     * @throws IOException thrown if the response output stream could not be created
+     *
+     * @return the HTTP response as plain text
+     */
+    public String getStreamedRestResponse(final RestRequestType method, final String url, final IRequestBody body, final String authorization, final String contentType, final int retries)
+    throws HTTPException, IOException
+    {
         try
-            (InputStream response = this.getInputStream(connection);
-             BufferedReader reader = new BufferedReader(new InputStreamReader(response, charset))) {
+            (WebResponse response = sendStreamedRequest(method, url, body, authorization, contentType, retries)) {
+
+            // expose the status code of client errors, such as 429 Too Many Requests
+            checkResponseCode(response, method, body);
 
+            // create a reader for the HTTP response
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(response.getBody(), charset));
             final char[] readBuffer = new char[1024];
             final StringBuilder responseBuilder = new StringBuilder();
 
@@ -245,11 +413,9 @@ public class WebDataRetriever implements IDataRetriever
                 responseBuilder.append(readBuffer, 0, readBytes);
             }
 
-            responseText = responseBuilder.toString();
+            // combine the read lines to a single string
+            return responseBuilder.toString();
         }
-
-        // combine the read lines to a single string
-        return responseText;
     }
 
     /**
@@ -271,17 +437,39 @@ public class WebDataRetriever implements IDataRetriever
     public Map<String, List<String>> getRestHeader(final RestRequestType method, final String url, final String body,
                                                    final String authorization, final String contentType) throws HTTPException, IOException
     {
-        Map<String, List<String>> headerFields = null;
+        try
+            (WebResponse response = sendRequest(method, url, body, authorization, contentType, retriesParam.getValue())) {
+            return response.getHeaderFields();
+        }
+    }
 
-        final HttpURLConnection connection = sendWebRequest(method, url, body, authorization, contentType, retriesParam.getValue());
-        headerFields = connection.getHeaderFields();
 
-        return headerFields;
+    /**
+     * Sends a REST request with a specified body and waits for the response.
+     *
+     * @param method the request method that is being sent
+     * @param urlString the URL to which the request is being sent
+     * @param body the body of the request, or null if no body is to be sent
+     * @param authorization the base-64-encoded username and password, or null if no
+     *                           authorization is required
+     * @param contentType the contentType of the body
+     * @param retries the number of retries if the request fails with a response code 5xx
+     *
+     * @throws HTTPException thrown if the response code is not 2xx
+     * @throws IOException thrown if the response output stream could not be created
+     *
+     * @return the response, which must be closed after it was read
+     */
+    public WebResponse sendRequest(final RestRequestType method, final String urlString, final String body, final String authorization, final String contentType, final int retries)
+    throws IOException, HTTPException
+    {
+        return sendStreamedRequest(method, urlString, toRequestBody(body), authorization, contentType, retries);
     }
 
 
     /**
-     * Sends a REST request with a specified body and returns the connection.
+     * Sends a REST request with a body that is streamed to the connection,
+     * and waits for the response.
      *
      * @param method the request method that is being sent
      * @param urlString the URL to which the request is being sent
@@ -294,133 +482,159 @@ public class WebDataRetriever implements IDataRetriever
      * @throws HTTPException thrown if the response code is not 2xx
      * @throws IOException thrown if the response output stream could not be created
      *
-     * @return the connection to the host
+     * @return the response, which must be closed after it was read
      */
-    public HttpURLConnection sendWebRequest(final RestRequestType method, final String urlString, final String body, final String authorization, final String contentType, final int retries)
+    public WebResponse sendStreamedRequest(final RestRequestType method, final String urlString, final IRequestBody body, final String authorization, final String contentType, final int retries)
     throws IOException, HTTPException
     {
-        // generate a URL and open a connection
-        final URL url = new URL(urlString);
-        final HttpURLConnection connection = createConnection(method, url, body, authorization, contentType);
+        return sendStreamedRequest(method, urlString, body, authorization, contentType, retries, Collections.emptyMap());
+    }
 
-        boolean mustRetry = false;
 
-        // open the connection
+    /**
+     * Sends a REST request with a body that is streamed to the connection
+     * and additional request headers, and waits for the response.
+     *
+     * @param method the request method that is being sent
+     * @param urlString the URL to which the request is being sent
+     * @param body the body of the request, or null if no body is to be sent
+     * @param authorization the base-64-encoded username and password, or null if no
+     *                           authorization is required
+     * @param contentType the contentType of the body
+     * @param retries the number of retries if the request fails with a response code 5xx
+     * @param requestHeaders additional header fields of the request
+     *
+     * @throws HTTPException thrown if the response code is not 2xx
+     * @throws IOException thrown if the response output stream could not be created
+     *
+     * @return the response, which must be closed after it was read
+     */
+    public WebResponse sendStreamedRequest(final RestRequestType method, final String urlString, final IRequestBody body, final String authorization, final String contentType, final int retries,
+                                              final Map<String, String> requestHeaders)
+    throws IOException, HTTPException
+    {
+        final long deadline = getDeadline();
+        final CompletableFuture<WebResponse> futureResponse = sendAsync(method, urlString, body, authorization, contentType, retries, requestHeaders, deadline);
+        final long maxWaitingTime = getMaxWaitingTime(retries, deadline);
+
         try {
-            final int responseCode = connection.getResponseCode();
-
-            if (responseCode >= 300)
-                connection.disconnect();
-
-            if (responseCode >= 500) {
-                mustRetry = retries != 0;
-
-                // throw an error if the request is not to be reattempted
-                if (!mustRetry) {
-                    final String errorMessage =
-                        String.format(
-                            DataOperationConstants.WEB_ERROR_REST_HTTP,
-                            method.toString(),
-                            urlString,
-                            body,
-                            responseCode);
-                    throw new HttpStatusException(errorMessage, responseCode, urlString);
-                }
-            } else if (responseCode < 400) {
-                final String redirectedUrl =
-                    connection.getHeaderField(HttpHeaders.LOCATION);
-
-                final boolean canRedirect;
-
-                // check if there is a redirection URL
-                if (redirectedUrl == null)
-                    canRedirect = false;
-                else {
-                    // disallow redirects from HTTPS to HTTP
-                    canRedirect = !urlString.startsWith(DataOperationConstants.HTTPS)
-                                  || redirectedUrl.startsWith(DataOperationConstants.HTTPS);
-                }
+            return maxWaitingTime == Long.MAX_VALUE
+                   ? futureResponse.get()
+                   : futureResponse.get(maxWaitingTime, TimeUnit.MILLISECONDS);
 
-                // redirect only if all above conditions are met
-                if (canRedirect)
-                    return sendWebRequest(method, redirectedUrl, body, authorization, contentType, retries);
-            }
-        } catch (final SocketTimeoutException e) {
-            // if we time out, try again
-            if (retries == 0)
-                throw e;
-            else
-                mustRetry = true;
-        }
+        } catch (final TimeoutException e) {
+            // close the response if it arrives after all
+            futureResponse.thenAccept(WebDataRetriever::closeQuietly);
+            throw new SocketTimeoutException(String.format(DataOperationConstants.REQUEST_TIMED_OUT, urlString, maxWaitingTime)); // NOPMD the cause is not informative
 
-        // if the request failed due to server issues, attempt to retry
-        if (mustRetry) {
-            // if the response header contains a retry-after field, wait for that period before retrying
-            final int delayInSeconds = connection.getHeaderFieldInt(RestConstants.RETRY_AFTER_HEADER, 1);
-            LOGGER.debug(String.format(DataOperationConstants.RETRY, urlString, delayInSeconds));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
 
-            try {
-                Thread.sleep(delayInSeconds * 1000);
-            } catch (final InterruptedException e) {
-                throw new IOException(e);
-            }
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof IOException)
+                throw (IOException) cause;
 
-            return sendWebRequest(method, urlString, body, authorization, contentType, Math.max(retries - 1, -1));
-        } else
-            return connection;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+
+            throw new IOException(cause);
+        }
     }
 
 
     /**
-     * Sets up a {@linkplain HttpURLConnection} connection with specified properties.
+     * Sends a REST request with a specified body, and returns the connection.
      *
      * @param method the request method that is being sent
-     * @param url the URL to which the connection is to be established
+     * @param urlString the URL to which the request is being sent
      * @param body the body of the request, or null if no body is to be sent
      * @param authorization the base-64-encoded username and password, or null if no
      *                           authorization is required
      * @param contentType the contentType of the body
+     * @param retries the number of retries if the request fails with a response code 5xx
      *
+     * @throws HTTPException thrown if the response code is not 2xx
      * @throws IOException thrown if the response output stream could not be created
      *
      * @return the connection to the host
+     *
+     * @deprecated use {@linkplain #sendRequest(RestRequestType, String, String, String, String, int)},
+     *              whose response decompresses its body and is closed via try-with-resources
      */
-    private HttpURLConnection createConnection(final RestRequestType method, final URL url, final String body, final String authorization, final String contentType) throws IOException
+    @Deprecated
+    public HttpURLConnection sendWebRequest(final RestRequestType method, final String urlString, final String body, final String authorization, final String contentType, final int retries)
+    throws IOException, HTTPException
     {
-        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        return sendStreamedWebRequest(method, urlString, toRequestBody(body), authorization, contentType, retries);
+    }
 
-        // set request properties
-        connection.setDoOutput(true);
-        connection.setInstanceFollowRedirects(true);
-        connection.setUseCaches(false);
-        connection.setRequestMethod(method.toString());
-        connection.setRequestProperty(HttpHeaders.ACCEPT_CHARSET, charset.displayName().toLowerCase(Locale.ENGLISH));
-        connection.setRequestProperty(HttpHeaders.ACCEPT_ENCODING, DataOperationConstants.GZIP_ENCODING);
-        connection.setRequestProperty(HttpHeaders.CONTENT_TYPE, contentType);
 
-        // set timeout
-        if (timeout != DataOperationConstants.NO_TIMEOUT) {
-            connection.setConnectTimeout(timeout);
-            connection.setReadTimeout(timeout);
-        }
+    /**
+     * Sends a REST request with a body that is streamed to the connection,
+     * and returns the connection.
+     *
+     * @param method the request method that is being sent
+     * @param urlString the URL to which the request is being sent
+     * @param body the body of the request, or null if no body is to be sent
+     * @param authorization the base-64-encoded username and password, or null if no
+     *                           authorization is required
+     * @param contentType the contentType of the body
+     * @param retries the number of retries if the request fails with a response code 5xx
+     *
+     * @throws HTTPException thrown if the response code is not 2xx
+     * @throws IOException thrown if the response output stream could not be created
+     *
+     * @return the connection to the host
+     *
+     * @deprecated use {@linkplain #sendStreamedRequest(RestRequestType, String, IRequestBody, String, String, int)}
+     */
+    @Deprecated
+    public HttpURLConnection sendStreamedWebRequest(final RestRequestType method, final String urlString, final IRequestBody body, final String authorization, final String contentType, final int retries)
+    throws IOException, HTTPException
+    {
+        return sendStreamedWebRequest(method, urlString, body, authorization, contentType, retries, Collections.emptyMap());
+    }
 
-        // set authentication
-        if (authorization != null)
-            connection.setRequestProperty(HttpHeaders.AUTHORIZATION, authorization);
-
-        // only send data if it is specified
-        if (body != null) {
-            // convert body string to bytes
-            final byte[] bodyBytes = body.getBytes(charset);
-            connection.setRequestProperty(HttpHeaders.CONTENT_LENGTH, Integer.toString(bodyBytes.length));
-
-            // try to send body
-            final DataOutputStream wr = new DataOutputStream(connection.getOutputStream());
-            wr.write(bodyBytes);
-            wr.close();
-        }
 
-        return connection;
+    /**
+     * Sends a REST request with a body that is streamed to the connection
+     * and additional request headers, and returns the connection.
+     * The request is sent like any other request, and the returned connection
+     * merely presents its response. The connection counts towards the limits of
+     * the {@linkplain HostRateLimiter} until it is disconnected or its stream is closed.
+     *
+     * @param method the request method that is being sent
+     * @param urlString the URL to which the request is being sent
+     * @param body the body of the request, or null if no body is to be sent
+     * @param authorization the base-64-encoded username and password, or null if no
+     *                           authorization is required
+     * @param contentType the contentType of the body
+     * @param retries the number of retries if the request fails with a response code 5xx
+     * @param requestHeaders additional header fields of the request
+     *
+     * @throws HTTPException thrown if the response code is not 2xx
+     * @throws IOException thrown if the response output stream could not be created
+     *
+     * @return the connection to the host
+     *
+     * @deprecated use {@linkplain #sendStreamedRequest(RestRequestType, String, IRequestBody, String, String, int, Map)}
+     */
+    @Deprecated
+    public HttpURLConnection sendStreamedWebRequest(final RestRequestType method, final String urlString, final IRequestBody body, final String authorization, final String contentType, final int retries,
+                                                    final Map<String, String> requestHeaders)
+    throws IOException, HTTPException
+    {
+        final WebResponse response = sendStreamedRequest(method, urlString, body, authorization, contentType, retries, requestHeaders);
+
+        try {
+            return new WebResponseConnection(method, response);
+        } catch (final MalformedURLException e) {
+            closeQuietly(response);
+            throw e;
+        }
     }
 
 
@@ -433,7 +647,10 @@ public class WebDataRetriever implements IDataRetriever
      * @throws IOException thrown if InputStream is corrupted
      *
      * @return an InputStream subclass
+     *
+     * @deprecated use {@linkplain WebResponse#getBody()}, which decompresses the body
      */
+    @Deprecated
     public InputStream getInputStream(final HttpURLConnection connection) throws IOException
     {
         // if encoding is gzip and is not a HEAD request (SAI-1607), use the GZIP stream
@@ -444,6 +661,507 @@ public class WebDataRetriever implements IDataRetriever
         return connection.getInputStream();
     }
 
+
+    /**
+     * Sends a REST request asynchronously. Redirects are followed and
+     * requests that fail with a response code 5xx or time out are retried
+     * with an exponential backoff, without blocking the calling thread.
+     * No attempt lasts beyond the request deadline, and no more retries are
+     * attempted after it has passed.
+     *
+     * @param method the request method that is being sent
+     * @param urlString the URL to which the request is being sent
+     * @param body the body of the request, or null if no body is to be sent
+     * @param authorization the base-64-encoded username and password, or null if no
+     *                           authorization is required
+     * @param contentType the contentType of the body
+     * @param retries the number of retries if the request fails with a response code 5xx
+     * @param requestHeaders additional header fields of the request
+     *
+     * @return a future response, which must be closed after it was read
+     */
+    public CompletableFuture<WebResponse> sendAsync(final RestRequestType method, final String urlString, final IRequestBody body, final String authorization, final String contentType, final int retries,
+                                                    final Map<String, String> requestHeaders)
+    {
+        return sendAsync(method, urlString, body, authorization, contentType, retries, requestHeaders, getDeadline());
+    }
+
+
+    /**
+     * Sends a REST request asynchronously with a specified deadline.
+     *
+     * @param method the request method that is being sent
+     * @param urlString the URL to which the request is being sent
+     * @param body the body of the request, or null if no body is to be sent
+     * @param authorization the base-64-encoded username and password, or null if no
+     *                           authorization is required
+     * @param contentType the contentType of the body
+     * @param retries the number of retries if the request fails with a response code 5xx
+     * @param requestHeaders additional header fields of the request
+     * @param deadline the time in milliseconds after which no more attempts are made
+     *
+     * @return a future response, which must be closed after it was read
+     */
+    private CompletableFuture<WebResponse> sendAsync(final RestRequestType method, final String urlString, final IRequestBody body, final String authorization, final String contentType,
+                                                     final int retries, final Map<String, String> requestHeaders, final long deadline)
+    {
+        final WebRequest request = new WebRequest(method, urlString, body, createHeaders(body, authorization, contentType, requestHeaders), timeout);
+        return sendAttempt(request, retries, 0, 0, deadline);
+    }
+
+
+    /**
+     * Calculates how long a synchronous request may take at most, including
+     * all retries and redirects. The asynchronous request is expected to finish
+     * earlier, but a synchronous caller must never be blocked indefinitely
+     * by a request that is bounded by a timeout or deadline.
+     *
+     * @param retries the number of retries if the request fails with a response code 5xx
+     * @param deadline the time in milliseconds after which no more attempts are made
+     *
+     * @return the maximum waiting time in milliseconds, or {@linkplain Long#MAX_VALUE} if it is unbounded
+     */
+    private long getMaxWaitingTime(final int retries, final long deadline)
+    {
+        if (deadline != Long.MAX_VALUE)
+            return Math.max(deadline - System.currentTimeMillis(), 0) + DataOperationConstants.RESPONSE_WAITING_TOLERANCE;
+
+        if (timeout == DataOperationConstants.NO_TIMEOUT || retries < 0)
+            return Long.MAX_VALUE;
+
+        // each attempt and redirect is bounded by the timeout, and each retry delay by its maximum
+        final long maxAttemptTime = (retries + 1L + DataOperationConstants.MAX_REDIRECTS) * timeout;
+        final long maxRetryDelay = (long) retries * retryMaxDelayParam.getValue();
+        return maxAttemptTime + maxRetryDelay + DataOperationConstants.RESPONSE_WAITING_TOLERANCE;
+    }
+
+
+    /**
+     * Calculates the time after which a request that is sent now
+     * is no longer retried.
+     *
+     * @return the deadline in milliseconds, or {@linkplain Long#MAX_VALUE} if there is none
+     */
+    private long getDeadline()
+    {
+        final int deadlineDuration = requestDeadlineParam.getValue();
+        return deadlineDuration > 0
+               ? System.currentTimeMillis() + deadlineDuration
+               : Long.MAX_VALUE;
+    }
+
+
+    /**
+     * Sends a single attempt of a request via the {@linkplain HostRateLimiter}.
+     * If a timeout or deadline is set, the attempt fails if the response header
+     * does not arrive in time, including the time it waits in the limiter.
+     *
+     * @param request the request that is to be sent
+     * @param retries the number of remaining retries, or a negative value if requests are retried indefinitely
+     * @param failedAttempts the number of previous attempts that failed
+     * @param redirects the number of redirects that were followed so far
+     * @param deadline the time in milliseconds after which no more retries are attempted
+     *
+     * @return a future of the final response
+     */
+    private CompletableFuture<WebResponse> sendAttempt(final WebRequest request, final int retries, final int failedAttempts, final int redirects, final long deadline)
+    {
+        final CompletableFuture<WebResponse> futureResponse = HostRateLimiter.getInstance().sendAsync(transport, request);
+        final long attemptTimeout = getAttemptTimeout(request, deadline);
+
+        if (attemptTimeout != Long.MAX_VALUE)
+            scheduleTimeout(futureResponse, request, attemptTimeout);
+
+        return futureResponse
+               .handle((final WebResponse response, final Throwable error) ->
+                       handleResponse(request, response, error, retries, failedAttempts, redirects, deadline))
+               .thenCompose(Function.identity());
+    }
+
+
+    /**
+     * Checks the response of a single request and decides whether the request
+     * is finished, needs to be redirected, or needs to be retried.
+     *
+     * @param request the request that was sent
+     * @param response the response of the request, or null if it failed
+     * @param error the error that caused the request to fail, or null
+     * @param retries the number of remaining retries, or a negative value if requests are retried indefinitely
+     * @param failedAttempts the number of previous attempts that failed
+     * @param redirects the number of redirects that were followed so far
+     * @param deadline the time in milliseconds after which no more retries are attempted
+     *
+     * @return a future of the final response
+     */
+    private CompletableFuture<WebResponse> handleResponse(final WebRequest request, final WebResponse response, final Throwable error,
+                                                          final int retries, final int failedAttempts, final int redirects, final long deadline)
+    {
+        final String urlString = request.getUrl();
+
+        if (error != null) {
+            final Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            final long retryDelay = getBackoffDelay(failedAttempts);
+
+            // if we time out, try again
+            if (cause instanceof SocketTimeoutException && canRetry(retries, retryDelay, deadline))
+                return retryAsync(request, retries, failedAttempts, redirects, deadline, retryDelay);
+            else
+                return failedFuture(cause);
+        }
+
+        final int responseCode = response.getStatusCode();
+
+        if (responseCode >= 500) {
+            // if the response header contains a retry-after field, wait for that period before retrying
+            final long retryDelay = getRetryDelay(response.getHeaderField(RestConstants.RETRY_AFTER_HEADER), failedAttempts);
+            closeQuietly(response);
+
+            // throw an error if the request is not to be reattempted
+            if (!canRetry(retries, retryDelay, deadline)) {
+                final String errorMessage =
+                    String.format(
+                        DataOperationConstants.WEB_ERROR_REST_HTTP,
+                        request.getMethod().toString(),
+                        urlString,
+                        request.getBody(),
+                        responseCode);
+                return failedFuture(new HttpStatusException(errorMessage, responseCode, urlString));
+            }
+
+            return retryAsync(request, retries, failedAttempts, redirects, deadline, retryDelay);
+
+        } else if (responseCode >= 300 && responseCode < 400 && redirects < DataOperationConstants.MAX_REDIRECTS) {
+            final String redirectedUrl = getRedirectedUrl(urlString, response.getHeaderField(HttpHeaders.LOCATION));
+
+            // redirect only if there is a redirection URL, and disallow redirects from HTTPS to HTTP
+            if (redirectedUrl != null
+                && (!urlString.startsWith(DataOperationConstants.HTTPS) || redirectedUrl.startsWith(DataOperationConstants.HTTPS))) {
+                closeQuietly(response);
+                HttpStatistics.addRedirect();
+
+                final WebRequest redirectedRequest =
+                    new WebRequest(request.getMethod(), redirectedUrl, request.getBody(), request.getHeaders(), request.getTimeout());
+                return sendAttempt(redirectedRequest, retries, failedAttempts, redirects + 1, deadline);
+            }
+        }
+
+        return CompletableFuture.completedFuture(response);
+    }
+
+
+    /**
+     * Schedules a request to be sent again after a specified delay.
+     *
+     * @param request the request that is to be sent again
+     * @param retries the number of remaining retries before this retry
+     * @param failedAttempts the number of previous attempts that failed, excluding this one
+     * @param redirects the number of redirects that were followed so far
+     * @param deadline the time in milliseconds after which no more retries are attempted
+     * @param delay the number of milliseconds to wait before the request is sent
+     *
+     * @return a future of the final response
+     */
+    private CompletableFuture<WebResponse> retryAsync(final WebRequest request, final int retries, final int failedAttempts, final int redirects,
+                                                      final long deadline, final long delay)
+    {
+        LOGGER.debug(String.format(DataOperationConstants.RETRY, request.getUrl(), delay));
+        HttpStatistics.addRetry();
+
+        final CompletableFuture<WebResponse> retriedResponse = new CompletableFuture<>();
+
+        RETRY_SCHEDULER.schedule(() ->
+                                 sendAttempt(request, Math.max(retries - 1, -1), failedAttempts + 1, redirects, deadline)
+                                 .whenComplete((final WebResponse response, final Throwable error) -> {
+                                     if (error == null)
+                                         retriedResponse.complete(response);
+                                     else
+                                         retriedResponse.completeExceptionally(error);
+                                 }),
+                                 delay,
+                                 TimeUnit.MILLISECONDS);
+
+        return retriedResponse;
+    }
+
+
+    /**
+     * Checks if a request may be retried after a specified delay.
+     *
+     * @param retries the number of remaining retries, or a negative value if requests are retried indefinitely
+     * @param delay the number of milliseconds to wait before the request is retried
+     * @param deadline the time in milliseconds after which no more retries are attempted
+     *
+     * @return true if the request may be retried
+     */
+    private static boolean canRetry(final int retries, final long delay, final long deadline)
+    {
+        if (retries == 0)
+            return false;
+
+        if (deadline != Long.MAX_VALUE && System.currentTimeMillis() + delay > deadline) {
+            HttpStatistics.addExceededDeadline();
+            return false;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Calculates how long to wait before retrying a failed request. The delay
+     * doubles with each failed attempt up to a maximum, and a random jitter
+     * of up to half of the delay prevents retries of many requests from
+     * being sent at the same time.
+     *
+     * @param failedAttempts the number of previous attempts that failed
+     *
+     * @return the number of milliseconds to wait before retrying
+     */
+    private long getBackoffDelay(final int failedAttempts)
+    {
+        final long maxDelay = retryMaxDelayParam.getValue();
+        final long baseDelay = Math.min(retryDelayParam.getValue(), maxDelay);
+
+        // prevent the shifted delay from overflowing
+        final int exponent = Math.min(failedAttempts, DataOperationConstants.MAX_BACKOFF_EXPONENT);
+        final long delay = Math.min(baseDelay << exponent, maxDelay);
+        final long halfDelay = delay / 2;
+
+        return halfDelay + ThreadLocalRandom.current().nextLong(delay - halfDelay + 1);
+    }
+
+
+    /**
+     * Calculates how long a single attempt of a request may take, which
+     * is the timeout of the request, but no longer than the deadline.
+     *
+     * @param request the request that is to be sent
+     * @param deadline the time in milliseconds after which no more attempts are made
+     *
+     * @return the timeout of the attempt in milliseconds, or {@linkplain Long#MAX_VALUE} if there is none
+     */
+    private static long getAttemptTimeout(final WebRequest request, final long deadline)
+    {
+        final long requestTimeout = request.getTimeout() == DataOperationConstants.NO_TIMEOUT
+                                    ? Long.MAX_VALUE
+                                    : request.getTimeout();
+
+        if (deadline == Long.MAX_VALUE)
+            return requestTimeout;
+
+        return Math.min(requestTimeout, Math.max(deadline - System.currentTimeMillis(), 1));
+    }
+
+
+    /**
+     * Fails the future of a request attempt if its response header does not
+     * arrive within a specified time. The {@linkplain HostRateLimiter} does not
+     * send a request whose future already failed, and closes responses that
+     * arrive too late.
+     *
+     * @param futureResponse the future response of the attempt
+     * @param request the request that was sent
+     * @param attemptTimeout the number of milliseconds after which the attempt fails
+     */
+    private static void scheduleTimeout(final CompletableFuture<WebResponse> futureResponse, final WebRequest request, final long attemptTimeout)
+    {
+        final ScheduledFuture<?> timeoutTask = RETRY_SCHEDULER.schedule(() -> {
+            final String errorMessage = String.format(DataOperationConstants.ATTEMPT_TIMED_OUT, request.getUrl(), attemptTimeout);
+            futureResponse.completeExceptionally(new SocketTimeoutException(errorMessage));
+        },
+        attemptTimeout,
+        TimeUnit.MILLISECONDS);
+
+        futureResponse.whenComplete((final WebResponse response, final Throwable error) -> timeoutTask.cancel(false));
+    }
+
+
+    /**
+     * Assembles the header fields of a request.
+     *
+     * @param body the body of the request, or null if no body is to be sent
+     * @param authorization the base-64-encoded username and password, or null if no
+     *                           authorization is required
+     * @param contentType the contentType of the body
+     * @param requestHeaders additional header fields of the request
+     *
+     * @return a map of header field names to values
+     */
+    private Map<String, String> createHeaders(final IRequestBody body, final String authorization, final String contentType, final Map<String, String> requestHeaders)
+    {
+        final Map<String, String> headers = new HashMap<>();
+        headers.put(HttpHeaders.ACCEPT_CHARSET, charset.displayName().toLowerCase(Locale.ENGLISH));
+        headers.put(HttpHeaders.ACCEPT_ENCODING, DataOperationConstants.GZIP_ENCODING);
+        headers.put(HttpHeaders.CONTENT_TYPE, contentType);
+
+        // set authentication
+        if (authorization != null)
+            headers.put(HttpHeaders.AUTHORIZATION, authorization);
+
+        // declare compressed bodies
+        if (body != null && body.getContentEncoding() != null)
+            headers.put(HttpHeaders.CONTENT_ENCODING, body.getContentEncoding());
+
+        headers.putAll(requestHeaders);
+        return headers;
+    }
+
+
+    /**
+     * Throws an exception if a response signifies a client error, such
+     * as 404 Not Found or 429 Too Many Requests. The response is closed
+     * in that case.
+     *
+     * @param response the response that is to be checked
+     * @param method the request method that was sent
+     * @param body the body of the request, or null if no body was sent
+     *
+     * @throws HttpStatusException thrown if the response code is 4xx or higher
+     */
+    private static void checkResponseCode(final WebResponse response, final RestRequestType method, final IRequestBody body) throws HttpStatusException
+    {
+        final int responseCode = response.getStatusCode();
+
+        if (responseCode >= 400) {
+            closeQuietly(response);
+
+            final String errorMessage =
+                String.format(
+                    DataOperationConstants.WEB_ERROR_REST_HTTP,
+                    method.toString(),
+                    response.getUrl(),
+                    body,
+                    responseCode);
+            throw new HttpStatusException(errorMessage, responseCode, response.getUrl());
+        }
+    }
+
+
+    /**
+     * Returns the number of milliseconds to wait before retrying a request
+     * that failed with a server error. If the server sends a Retry-After
+     * header, it is respected. Otherwise, the delay is calculated by the
+     * exponential backoff.
+     *
+     * @param retryAfter the value of the Retry-After header, or null
+     * @param failedAttempts the number of previous attempts that failed
+     *
+     * @return the number of milliseconds to wait before retrying
+     */
+    private long getRetryDelay(final String retryAfter, final int failedAttempts)
+    {
+        try {
+            if (retryAfter != null)
+                return TimeUnit.SECONDS.toMillis(Integer.parseInt(retryAfter.trim()));
+        } catch (final NumberFormatException e) { // NOPMD fall back to the exponential backoff
+        }
+
+        return getBackoffDelay(failedAttempts);
+    }
+
+
+    /**
+     * Resolves the Location header of a redirect, which may be relative
+     * to the URL of the request.
+     *
+     * @param urlString the URL of the request that was redirected
+     * @param location the value of the Location header, or null
+     *
+     * @return the absolute URL to which the request is redirected,
+     *          or null if there is no valid Location header
+     */
+    private static String getRedirectedUrl(final String urlString, final String location)
+    {
+        if (location == null)
+            return null;
+
+        try {
+            return new URL(new URL(urlString), location).toString();
+        } catch (final MalformedURLException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Closes a response, ignoring errors, because the response is discarded
+     * anyway.
+     *
+     * @param response the response that is to be closed
+     */
+    private static void closeQuietly(final WebResponse response)
+    {
+        try {
+            response.close();
+        } catch (final IOException e) { // NOPMD the response is discarded anyway
+        }
+    }
+
+
+    /**
+     * Creates a future that is completed exceptionally.
+     *
+     * @param error the error with which the future is completed
+     * @param <T> the type of the future
+     *
+     * @return a future that is completed exceptionally
+     */
+    private static <T> CompletableFuture<T> failedFuture(final Throwable error)
+    {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+
+    /**
+     * Creates a single-threaded scheduler for delaying retried requests.
+     *
+     * @return a scheduler with a daemon thread
+     */
+    private static ScheduledExecutorService createRetryScheduler()
+    {
+        final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, (final Runnable task) -> {
+            final Thread thread = new Thread(task, DataOperationConstants.RETRY_THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+
+    /**
+     * Registers a parameter, or returns the unregistered parameter if there
+     * is no {@linkplain Configuration}.
+     *
+     * @param parameter the parameter that is to be registered
+     *
+     * @return the registered parameter
+     */
+    private static IntegerParameter registerParameter(final IntegerParameter parameter)
+    {
+        try {
+            return Configuration.registerParameter(parameter);
+        } catch (final IllegalStateException e) {
+            return parameter;
+        }
+    }
+
+
+    /**
+     * Converts a string body to an {@linkplain IRequestBody}.
+     *
+     * @param body the body of the request, or null if no body is to be sent
+     *
+     * @return an {@linkplain IRequestBody} or null, if the body is null
+     */
+    private IRequestBody toRequestBody(final String body)
+    {
+        return body == null ? null : new ByteArrayRequestBody(body, charset);
+    }
+
+
     /**
      * Creates an input stream reader of a specified URL.
      *
@@ -451,14 +1169,19 @@ public class WebDataRetriever implements IDataRetriever
      *
      * @return a reader of the URL response
      *
-     * @throws MalformedURLException thrown when the URL is malformed
      * @throws IOException thrown for various reasons when the reader is created
      */
-    private InputStreamReader createWebReader(final String url) throws MalformedURLException, IOException
+    private InputStreamReader createWebReader(final String url) throws IOException
     {
-        final HttpURLConnection connection = sendWebRequest(
-                                                 RestRequestType.GET, url, null, null, MediaType.TEXT_PLAIN, retriesParam.getValue());
+        final WebResponse response = sendRequest(
+                                         RestRequestType.GET, url, null, null, MediaType.TEXT_PLAIN, retriesParam.getValue());
+        checkResponseCode(response, RestRequestType.GET, null);
 
-        return new InputStreamReader(this.getInputStream(connection), charset);
+        try {
+            return new InputStreamReader(response.getBody(), charset);
+        } catch (final IOException e) {
+            closeQuietly(response);
+            throw e;
+        }
     }
 }
@@ -0,0 +1,38 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils.data;
+
+import java.util.Map;
+
+import de.gerdiproject.harvest.utils.data.enums.RestRequestType;
+import lombok.Value;
+
+/**
+ * This class represents a single HTTP request that is sent by an
+ * {@linkplain IHttpTransport}. Redirects and retries are new requests.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class WebRequest
+{
+    private final RestRequestType method;
+    private final String url;
+    private final IRequestBody body;
+    private final Map<String, String> headers;
+    private final int timeout;
+}
@@ -0,0 +1,204 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
+import lombok.Getter;
+
+/**
+ * This class represents the response to a {@linkplain WebRequest}.
+ * The body is streamed from the connection and is decompressed if
+ * necessary. Closing the response, or its body stream, releases the
+ * connection so that it can be reused for further requests.
+ *
+ * @author Robin Weiss
+ */
+public class WebResponse implements Closeable
+{
+    @Getter
+    private final String url;
+
+    @Getter
+    private final int statusCode;
+
+    @Getter
+    private final Map<String, List<String>> headerFields;
+
+    private final InputStream rawBody;
+    private final boolean isCompressed;
+    private Runnable onClose;
+    private InputStream body;
+    private boolean isClosed;
+
+
+    /**
+     * Constructor that sets all fields of the response.
+     *
+     * @param url the URL from which the response was received
+     * @param statusCode the HTTP status code
+     * @param headerFields the header fields of the response
+     * @param rawBody the body as it was received, or null if there is no body
+     * @param isCompressed if true, the body is GZIP compressed
+     * @param onClose a callback that releases the connection when the response is closed
+     */
+    public WebResponse(final String url, final int statusCode, final Map<String, List<String>> headerFields,
+                       final InputStream rawBody, final boolean isCompressed, final Runnable onClose)
+    {
+        this.url = url;
+        this.statusCode = statusCode;
+        this.headerFields = headerFields == null ? Collections.emptyMap() : headerFields;
+        this.rawBody = rawBody == null ? new ByteArrayInputStream(new byte[0]) : rawBody;
+        this.isCompressed = isCompressed;
+        this.onClose = onClose;
+    }
+
+
+    /**
+     * Returns the first value of a header field. The name of the field
+     * is case-insensitive.
+     *
+     * @param name the name of the header field
+     *
+     * @return the value of the header field, or null if it does not exist
+     */
+    public String getHeaderField(final String name)
+    {
+        for (final Map.Entry<String, List<String>> field : headerFields.entrySet()) {
+            if (name.equalsIgnoreCase(field.getKey()) && !field.getValue().isEmpty())
+                return field.getValue().get(0);
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Returns the decompressed body of the response. Closing the stream
+     * closes the response.
+     *
+     * @throws IOException thrown if the compressed body could not be read
+     *
+     * @return the body of the response
+     */
+    public synchronized InputStream getBody() throws IOException
+    {
+        if (body == null) {
+            final InputStream decompressedBody = isCompressed
+                                                 ? new GZIPInputStream(rawBody, DataOperationConstants.GZIP_BUFFER_SIZE)
+                                                 : rawBody;
+
+            body = new FilterInputStream(decompressedBody)
+            {
+                @Override
+                public void close() throws IOException
+                {
+                    WebResponse.this.close();
+                }
+            };
+        }
+
+        return body;
+    }
+
+
+    /**
+     * Reads the whole body of the response and closes it.
+     *
+     * @throws IOException thrown if the body could not be read
+     *
+     * @return the decompressed body of the response
+     */
+    public byte[] readBytes() throws IOException
+    {
+        try
+            (InputStream responseStream = getBody()) {
+            final ByteArrayOutputStream response = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[DataOperationConstants.READ_BUFFER_SIZE];
+            int readBytes;
+
+            while ((readBytes = responseStream.read(buffer)) != -1)
+                response.write(buffer, 0, readBytes);
+
+            return response.toByteArray();
+        }
+    }
+
+
+    /**
+     * Adds a callback that is executed when the response is closed. If the
+     * response is already closed, the callback is executed immediately.
+     *
+     * @param listener a callback that is executed when the response is closed
+     */
+    public void addCloseListener(final Runnable listener)
+    {
+        synchronized (this) {
+            if (!isClosed) {
+                final Runnable previousListener = onClose;
+
+                if (previousListener == null)
+                    onClose = listener;
+                else {
+                    onClose = () -> {
+                        try {
+                            previousListener.run();
+                        } finally {
+                            listener.run();
+                        }
+                    };
+                }
+
+                return;
+            }
+        }
+
+        listener.run();
+    }
+
+
+    /**
+     * Closes the response and releases its connection.
+     *
+     * @throws IOException thrown if the body could not be closed
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (isClosed)
+            return;
+
+        isClosed = true;
+
+        try {
+            rawBody.close();
+        } finally {
+            if (onClose != null)
+                onClose.run();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils.data;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+
+import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
+import de.gerdiproject.harvest.utils.data.enums.RestRequestType;
+
+/**
+ * This class presents a {@linkplain WebResponse} as a {@linkplain HttpURLConnection}
+ * that is already connected, for the deprecated methods of the {@linkplain WebDataRetriever}.
+ * The body is already decompressed, which is why no content encoding is reported.
+ * Disconnecting, or closing the body stream, closes the response.
+ *
+ * @author Robin Weiss
+ */
+class WebResponseConnection extends HttpURLConnection
+{
+    private final WebResponse response;
+
+
+    /**
+     * Constructor that wraps a response.
+     *
+     * @param method the method of the request that was sent
+     * @param response the response of the request
+     *
+     * @throws MalformedURLException thrown if the URL of the response is malformed
+     */
+    WebResponseConnection(final RestRequestType method, final WebResponse response) throws MalformedURLException
+    {
+        super(new URL(response.getUrl()));
+        this.response = response;
+        this.method = method.toString();
+        this.responseCode = response.getStatusCode();
+        this.connected = true;
+    }
+
+
+    @Override
+    public void connect()
+    {
+        // the request was already sent
+    }
+
+
+    @Override
+    public void disconnect()
+    {
+        try {
+            response.close();
+        } catch (final IOException e) { // NOPMD the response cannot be used anymore either way
+        }
+    }
+
+
+    @Override
+    public boolean usingProxy()
+    {
+        return false;
+    }
+
+
+    @Override
+    public int getResponseCode()
+    {
+        return responseCode;
+    }
+
+
+    @Override
+    public String getHeaderField(final String name)
+    {
+        return response.getHeaderField(name);
+    }
+
+
+    @Override
+    public Map<String, List<String>> getHeaderFields()
+    {
+        return response.getHeaderFields();
+    }
+
+
+    @Override
+    public String getContentEncoding()
+    {
+        return null;
+    }
+
+
+    @Override
+    public InputStream getInputStream() throws IOException
+    {
+        if (responseCode >= 400) {
+            final String errorMessage = String.format(DataOperationConstants.CONNECTION_HTTP_ERROR, responseCode, response.getUrl());
+
+            if (responseCode == HTTP_NOT_FOUND || responseCode == HTTP_GONE)
+                throw new FileNotFoundException(errorMessage);
+            else
+                throw new IOException(errorMessage);
+        }
+
+        return response.getBody();
+    }
+
+
+    @Override
+    public InputStream getErrorStream()
+    {
+        try {
+            return responseCode >= 400 ? response.getBody() : null;
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+}
@@ -16,6 +16,8 @@
 package de.gerdiproject.harvest.utils.data.constants;
 
 import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +25,7 @@ import com.google.gson.reflect.TypeToken;
 
 import de.gerdiproject.harvest.config.parameters.BooleanParameter;
 import de.gerdiproject.harvest.config.parameters.IntegerParameter;
+import de.gerdiproject.harvest.config.parameters.StringParameter;
 import de.gerdiproject.harvest.config.parameters.constants.ParameterMappingFunctions;
 import de.gerdiproject.harvest.utils.data.HttpRequester;
 import de.gerdiproject.harvest.utils.data.enums.RestRequestType;
@@ -66,20 +69,145 @@ public class DataOperationConstants
         HTTP_CATEGORY,
         false);
 
+    public static final BooleanParameter CONDITIONAL_REQUESTS_PARAM =
+        new BooleanParameter(
+        "conditionalRequests",
+        HTTP_CATEGORY,
+        false);
+
+    public static final String FILE_CACHE_TYPE = "files";
+    public static final String SEGMENT_CACHE_TYPE = "segment";
+    public static final List<String> CACHE_TYPE_VALUES =
+        Collections.unmodifiableList(Arrays.asList(FILE_CACHE_TYPE, SEGMENT_CACHE_TYPE));
+
+    public static final StringParameter CACHE_TYPE_PARAM =
+        new StringParameter(
+        "cacheType",
+        HTTP_CATEGORY,
+        FILE_CACHE_TYPE,
+        ParameterMappingFunctions.createStringListMapper(CACHE_TYPE_VALUES));
+
+    public static final IntegerParameter CACHE_MAX_SIZE_PARAM =
+        new IntegerParameter(
+        "cacheMaxSize",
+        HTTP_CATEGORY,
+        1024,
+        ParameterMappingFunctions::mapToUnsignedInteger);
+
+    public static final IntegerParameter MEMORY_CACHE_ENTRIES_PARAM =
+        new IntegerParameter(
+        "memoryCacheEntries",
+        HTTP_CATEGORY,
+        0,
+        ParameterMappingFunctions::mapToUnsignedInteger);
+
+    public static final IntegerParameter MEMORY_CACHE_SIZE_PARAM =
+        new IntegerParameter(
+        "memoryCacheSize",
+        HTTP_CATEGORY,
+        16777216,
+        ParameterMappingFunctions::mapToUnsignedInteger);
+
+    public static final IntegerParameter MEMORY_CACHE_TTL_PARAM =
+        new IntegerParameter(
+        "memoryCacheTtl",
+        HTTP_CATEGORY,
+        600000,
+        ParameterMappingFunctions::mapToUnsignedInteger);
+
     public static final IntegerParameter RETRIES_PARAM =
         new IntegerParameter(
         "retries",
         HTTP_CATEGORY,
         -1,
         ParameterMappingFunctions::mapToUnsignedInteger);
-    public static final String RETRY = "Could not reach %s! Retrying in %d s.";
+    public static final String RETRY = "Could not reach %s! Retrying in %d ms.";
+    public static final String RETRY_THREAD_NAME = "WebDataRetriever-Retry";
+
+    public static final IntegerParameter RETRY_DELAY_PARAM =
+        new IntegerParameter(
+        "retryDelay",
+        HTTP_CATEGORY,
+        1000,
+        ParameterMappingFunctions::mapToUnsignedInteger);
+
+    public static final IntegerParameter RETRY_MAX_DELAY_PARAM =
+        new IntegerParameter(
+        "retryMaxDelay",
+        HTTP_CATEGORY,
+        60000,
+        ParameterMappingFunctions::mapToUnsignedInteger);
+
+    public static final IntegerParameter REQUEST_DEADLINE_PARAM =
+        new IntegerParameter(
+        "requestDeadline",
+        HTTP_CATEGORY,
+        0,
+        ParameterMappingFunctions::mapToUnsignedInteger);
+    public static final int MAX_BACKOFF_EXPONENT = 30;
+    public static final int MAX_REDIRECTS = 20;
+    public static final String ATTEMPT_TIMED_OUT = "Request to %s timed out after %d ms.";
+    public static final String REQUEST_TIMED_OUT = "Gave up waiting for the response of %s after %d ms.";
+    public static final long RESPONSE_WAITING_TOLERANCE = 1000;
+
+    // HostRateLimiter
+    public static final IntegerParameter REQUESTS_PER_MINUTE_PARAM =
+        new IntegerParameter(
+        "requestsPerMinute",
+        HTTP_CATEGORY,
+        0,
+        ParameterMappingFunctions::mapToUnsignedInteger);
+
+    public static final IntegerParameter REQUEST_BURST_PARAM =
+        new IntegerParameter(
+        "requestBurst",
+        HTTP_CATEGORY,
+        1,
+        ParameterMappingFunctions::mapToUnsignedInteger);
+
+    public static final IntegerParameter MAX_REQUESTS_PER_HOST_PARAM =
+        new IntegerParameter(
+        "maxRequestsPerHost",
+        HTTP_CATEGORY,
+        16,
+        ParameterMappingFunctions::mapToUnsignedInteger);
+    public static final String RATE_LIMITER_THREAD_NAME = "HostRateLimiter";
+
+    // UrlConnectionTransport
+    public static final int MAX_TRANSPORT_THREADS = 64;
+    public static final String TRANSPORT_THREAD_NAME = "HttpTransport-%d";
+    public static final long TRANSPORT_THREAD_KEEP_ALIVE = 60000;
+
+    // WebResponseConnection
+    public static final String CONNECTION_HTTP_ERROR = "Server returned HTTP response code: %d for URL: %s";
 
     public static final String HTTPS = "https:";
     public static final String HTTP = "http:";
 
     public static final String GZIP_ENCODING = "gzip";
+    public static final int GZIP_BUFFER_SIZE = 8192;
+    public static final int READ_BUFFER_SIZE = 8192;
     public static final String HEAD_REQUEST = RestRequestType.HEAD.toString();
 
     public static final String HEADER_FILE_ENDING = ".header";
     public static final Type HEADER_TYPE = new TypeToken<Map<String, List<String>>>() {} .getType();
+
+    // conditional requests
+    public static final String VALIDATED_RESPONSE_FILE_ENDING = "validatedResponse";
+    public static final String VALIDATORS_FILE_ENDING = "validators";
+    public static final String CONDITIONAL_REQUESTS_SUMMARY =
+        "%d of %d conditional HTTP requests were answered with 304 Not Modified (%.1f%%), saving %d bytes.";
+    public static final String RETRIES_SUMMARY =
+        "HTTP requests were retried %d times and redirected %d times. %d requests failed, because they exceeded their deadline.";
+
+    // SegmentResponseCache
+    public static final String SEGMENT_FILE_NAME = "responses.segment";
+    public static final String SEGMENT_TEMP_FILE_SUFFIX = ".tmp";
+    public static final int SEGMENT_RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    public static final int SEGMENT_REMOVED_VALUE_LENGTH = -1;
+    public static final long SEGMENT_MIN_COMPACTION_SIZE = 16L * 1024 * 1024;
+    public static final long BYTES_PER_MEGABYTE = 1024L * 1024;
+
+    // HashingInputStream
+    public static final String MARK_NOT_SUPPORTED = "mark/reset not supported";
 }
@@ -0,0 +1,34 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils.data.json;
+
+import de.gerdiproject.harvest.utils.data.HttpRequester;
+import lombok.Value;
+
+/**
+ * This class represents a JSON object containing the validators of a
+ * cached HTTP response, which are sent by the {@linkplain HttpRequester}
+ * in order to check if the response has changed.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class ResponseValidatorsJson
+{
+    private final String entityTag;
+    private final String lastModified;
+}
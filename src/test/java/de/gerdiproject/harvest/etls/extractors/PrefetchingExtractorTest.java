@@ -0,0 +1,211 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+
+/**
+ * This class contains unit tests for the {@linkplain AbstractPrefetchingExtractor}.
+ *
+ * @author Robin Weiss
+ */
+public class PrefetchingExtractorTest extends AbstractObjectUnitTest<PrefetchingExtractorTest.MockedPrefetchingExtractor>
+{
+    private static final String URL = "https://www.gerdi-project.eu/page/%d";
+    private static final int URL_COUNT = 50;
+    private static final int PREFETCH_WINDOW = 4;
+    private static final String FAILING_URL = String.format(URL, 7);
+
+
+    @Override
+    protected MockedPrefetchingExtractor setUpTestObjects()
+    {
+        final MockedPrefetchingExtractor extractor = new MockedPrefetchingExtractor();
+        extractor.setPrefetchWindow(PREFETCH_WINDOW);
+        return extractor;
+    }
+
+
+    @Override
+    public void after()
+    {
+        testedObject.clear();
+        super.after();
+    }
+
+
+    /**
+     * Tests if elements are returned in the order of their URLs, although
+     * they are fetched concurrently.
+     */
+    @Test
+    public void testOrder()
+    {
+        final List<String> extractedElements = extractAll(testedObject.extract());
+
+        assertEquals("Expected all URLs to be fetched!",
+                     URL_COUNT,
+                     extractedElements.size());
+
+        for (int i = 0; i < URL_COUNT; i++)
+            assertEquals("Expected the elements to be in the order of their URLs!",
+                         String.format(URL, i),
+                         extractedElements.get(i));
+    }
+
+
+    /**
+     * Tests if no more URLs are fetched concurrently than allowed by the
+     * prefetch window.
+     */
+    @Test
+    public void testPrefetchWindow()
+    {
+        extractAll(testedObject.extract());
+
+        assertTrue("Expected multiple URLs to be fetched concurrently!",
+                   testedObject.maxConcurrentFetches.get() > 1);
+        assertTrue("Expected the number of concurrent fetches to be limited by the prefetch window!",
+                   testedObject.maxConcurrentFetches.get() <= PREFETCH_WINDOW);
+    }
+
+
+    /**
+     * Tests if URLs outside of the harvesting range are not fetched.
+     */
+    @Test
+    public void testRange()
+    {
+        testedObject.startIndex = 10;
+        testedObject.endIndex = 20;
+
+        final List<String> extractedElements = extractAll(testedObject.extract());
+
+        assertEquals("Expected only the URLs of the range to be extracted!",
+                     10,
+                     extractedElements.size());
+        assertEquals("Expected the first element to be at the start index!",
+                     String.format(URL, 10),
+                     extractedElements.get(0));
+        assertEquals("Expected URLs outside of the range not to be fetched!",
+                     10,
+                     testedObject.fetchedUrls.size());
+    }
+
+
+    /**
+     * Tests if errors of a fetch are forwarded as {@linkplain ExtractorException}s.
+     */
+    @Test(expected = ExtractorException.class)
+    public void testFetchError()
+    {
+        testedObject.isFailing = true;
+        extractAll(testedObject.extract());
+    }
+
+
+    /**
+     * Iterates all extracted elements and returns them as a list.
+     *
+     * @param elements the extracted elements
+     *
+     * @return a list of all extracted elements
+     */
+    private static List<String> extractAll(final Iterator<String> elements)
+    {
+        final List<String> extractedElements = new ArrayList<>();
+
+        while (elements.hasNext())
+            extractedElements.add(elements.next());
+
+        return extractedElements;
+    }
+
+
+    /**
+     * This extractor simulates fetching URLs with random delays and
+     * returns each URL as element.
+     *
+     * @author Robin Weiss
+     */
+    static class MockedPrefetchingExtractor extends AbstractPrefetchingExtractor<String>
+    {
+        private final Set<String> fetchedUrls = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger concurrentFetches = new AtomicInteger(0);
+        private final AtomicInteger maxConcurrentFetches = new AtomicInteger(0);
+        private volatile boolean isFailing;
+
+
+        /**
+         * Constructor that harvests all URLs.
+         */
+        MockedPrefetchingExtractor()
+        {
+            super();
+            this.endIndex = Integer.MAX_VALUE;
+        }
+
+
+        @Override
+        protected String getUrl(final int index)
+        {
+            return index < URL_COUNT ? String.format(URL, index) : null;
+        }
+
+
+        @Override
+        protected String fetchElement(final String url)
+        {
+            final int fetchCount = concurrentFetches.incrementAndGet();
+            maxConcurrentFetches.accumulateAndGet(fetchCount, Math::max);
+
+            try {
+                fetchedUrls.add(url);
+
+                if (isFailing && FAILING_URL.equals(url))
+                    throw new IllegalStateException(url);
+
+                Thread.sleep((long)(Math.random() * 10));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrentFetches.decrementAndGet();
+            }
+
+            return url;
+        }
+
+
+        @Override
+        public String getUniqueVersionString()
+        {
+            return null;
+        }
+    }
+}
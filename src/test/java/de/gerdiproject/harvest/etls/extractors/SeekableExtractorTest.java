@@ -0,0 +1,203 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+
+/**
+ * This class contains unit tests for {@linkplain AbstractIteratorExtractor}s
+ * that implement the {@linkplain ISeekableExtractor} interface.
+ *
+ * @author Robin Weiss
+ */
+public class SeekableExtractorTest extends AbstractObjectUnitTest<SeekableExtractorTest.MockedSeekableExtractor>
+{
+    private static final int ELEMENT_COUNT = 100;
+    private static final int START_INDEX = 40;
+    private static final int END_INDEX = 50;
+
+
+    @Override
+    protected MockedSeekableExtractor setUpTestObjects()
+    {
+        final MockedSeekableExtractor extractor = new MockedSeekableExtractor();
+        extractor.startIndex = START_INDEX;
+        extractor.endIndex = END_INDEX;
+        return extractor;
+    }
+
+
+    /**
+     * Tests if the extraction starts directly at the start index, without
+     * extracting the preceding elements.
+     */
+    @Test
+    public void testSeekingStartIndex()
+    {
+        extractAll(testedObject.extract());
+
+        assertEquals("Expected the extractor to seek the start index!",
+                     START_INDEX,
+                     testedObject.seekedIndex);
+        assertEquals("Expected only the elements of the range to be extracted!",
+                     END_INDEX - START_INDEX,
+                     testedObject.extractedElementCount);
+    }
+
+
+    /**
+     * Tests if the elements of the harvesting range are extracted.
+     */
+    @Test
+    public void testSeekedElements()
+    {
+        final List<Integer> extractedElements = extractAll(testedObject.extract());
+
+        assertEquals("Expected all elements of the range to be extracted!",
+                     END_INDEX - START_INDEX,
+                     extractedElements.size());
+        assertEquals("Expected the first element to be at the start index!",
+                     Integer.valueOf(START_INDEX),
+                     extractedElements.get(0));
+        assertEquals("Expected the last element to precede the end index!",
+                     Integer.valueOf(END_INDEX - 1),
+                     extractedElements.get(extractedElements.size() - 1));
+    }
+
+
+    /**
+     * Tests if the complete extraction is used if the whole range is harvested.
+     */
+    @Test
+    public void testNoSeekingWithoutRange()
+    {
+        testedObject.startIndex = 0;
+        testedObject.endIndex = Integer.MAX_VALUE;
+
+        assertEquals("Expected all elements to be extracted!",
+                     ELEMENT_COUNT,
+                     extractAll(testedObject.extract()).size());
+        assertEquals("Expected the extractor not to seek if the whole range is harvested!",
+                     -1,
+                     testedObject.seekedIndex);
+    }
+
+
+    /**
+     * Iterates all extracted elements and returns them as a list.
+     *
+     * @param elements the extracted elements
+     *
+     * @return a list of all extracted elements
+     */
+    private static List<Integer> extractAll(final Iterator<Integer> elements)
+    {
+        final List<Integer> extractedElements = new ArrayList<>();
+
+        while (elements.hasNext())
+            extractedElements.add(elements.next());
+
+        return extractedElements;
+    }
+
+
+    /**
+     * This extractor generates consecutive numbers and counts how many
+     * numbers were generated.
+     *
+     * @author Robin Weiss
+     */
+    static class MockedSeekableExtractor extends AbstractIteratorExtractor<Integer> implements ISeekableExtractor<Integer>
+    {
+        private int seekedIndex = -1;
+        private int extractedElementCount;
+
+
+        @Override
+        public Iterator<Integer> extractFrom(final int index)
+        {
+            this.seekedIndex = index;
+            return new NumberIterator(index);
+        }
+
+
+        @Override
+        protected Iterator<Integer> extractAll()
+        {
+            return new NumberIterator(0);
+        }
+
+
+        @Override
+        public String getUniqueVersionString()
+        {
+            return null;
+        }
+
+
+        @Override
+        public void clear()
+        {
+            // nothing to clean up
+        }
+
+
+        /**
+         * This class iterates consecutive numbers up to the element count.
+         *
+         * @author Robin Weiss
+         */
+        private class NumberIterator implements Iterator<Integer>
+        {
+            private int nextNumber;
+
+
+            /**
+             * Constructor that sets the first number.
+             *
+             * @param firstNumber the first number that is iterated
+             */
+            NumberIterator(final int firstNumber)
+            {
+                this.nextNumber = firstNumber;
+            }
+
+
+            @Override
+            public boolean hasNext()
+            {
+                return nextNumber < ELEMENT_COUNT;
+            }
+
+
+            @Override
+            public Integer next()
+            {
+                extractedElementCount++;
+                return nextNumber++;
+            }
+        }
+    }
+}
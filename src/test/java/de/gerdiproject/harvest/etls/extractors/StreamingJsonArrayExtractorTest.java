@@ -0,0 +1,199 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpServer;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+import de.gerdiproject.harvest.utils.HashGenerator;
+
+/**
+ * This class contains unit tests for the {@linkplain StreamingJsonArrayExtractor}.
+ * The JSON response is served by a local stub HTTP server.
+ *
+ * @author Robin Weiss
+ */
+public class StreamingJsonArrayExtractorTest extends AbstractObjectUnitTest<StreamingJsonArrayExtractor<JsonObject>>
+{
+    private static final String STUB_URL = "http://localhost:%d/";
+    private static final String JSON_QUERY = "data.items";
+    private static final String ELEMENT_KEY = "id";
+    private static final int ELEMENT_COUNT = 10;
+
+    private HttpServer server;
+    private String response;
+
+
+    @Override
+    protected StreamingJsonArrayExtractor<JsonObject> setUpTestObjects()
+    {
+        this.response = createResponse();
+        this.server = createStubServer();
+
+        final StreamingJsonArrayExtractor<JsonObject> extractor = new StreamingJsonArrayExtractor<>(new Gson(), JsonObject.class, JSON_QUERY);
+        extractor.setUrl(String.format(STUB_URL, server.getAddress().getPort()));
+        return extractor;
+    }
+
+
+    @Override
+    public void after()
+    {
+        testedObject.clear();
+        server.stop(0);
+        super.after();
+    }
+
+
+    /**
+     * Tests if the number of array elements is counted during initialization.
+     */
+    @Test
+    public void testSize()
+    {
+        testedObject.init(null);
+
+        assertEquals("Expected the elements of the JSON array to be counted!",
+                     ELEMENT_COUNT,
+                     testedObject.size());
+    }
+
+
+    /**
+     * Tests if all elements are extracted in order.
+     */
+    @Test
+    public void testExtractingElements()
+    {
+        testedObject.init(null);
+        final Iterator<JsonObject> elements = testedObject.extractAll();
+
+        for (int i = 0; i < ELEMENT_COUNT; i++)
+            assertEquals("Expected the elements to be extracted in order!",
+                         i,
+                         elements.next().get(ELEMENT_KEY).getAsInt());
+
+        assertFalse("Expected no more elements after the end of the JSON array!",
+                    elements.hasNext());
+    }
+
+
+    /**
+     * Tests if the extraction can start at an arbitrary index.
+     */
+    @Test
+    public void testExtractingFromIndex()
+    {
+        testedObject.init(null);
+        final int index = ELEMENT_COUNT / 2;
+
+        assertEquals("Expected the first element to be at the specified index!",
+                     index,
+                     testedObject.extractFrom(index).next().get(ELEMENT_KEY).getAsInt());
+    }
+
+
+    /**
+     * Tests if the version string is the hash of the raw response.
+     */
+    @Test
+    public void testVersionHash()
+    {
+        testedObject.init(null);
+
+        assertEquals("Expected the version string to be the hash of the raw response!",
+                     new HashGenerator(StandardCharsets.UTF_8).getShaHash(response),
+                     testedObject.getUniqueVersionString());
+    }
+
+
+    /**
+     * Tests if an {@linkplain ExtractorException} is thrown if the
+     * JSON query does not lead to a JSON array.
+     */
+    @Test(expected = ExtractorException.class)
+    public void testMissingArray()
+    {
+        final StreamingJsonArrayExtractor<JsonObject> extractor = new StreamingJsonArrayExtractor<>(new Gson(), JsonObject.class, "data.missing");
+        extractor.setUrl(testedObject.getUrl());
+        extractor.init(null);
+    }
+
+
+    /**
+     * Creates a JSON response containing an array of objects that
+     * is nested inside other objects.
+     *
+     * @return a JSON response
+     */
+    private static String createResponse()
+    {
+        final StringBuilder responseBuilder = new StringBuilder("{\"meta\": {\"count\": ").append(ELEMENT_COUNT).append("}, \"data\": {\"items\": [");
+
+        for (int i = 0; i < ELEMENT_COUNT; i++) {
+            if (i > 0)
+                responseBuilder.append(", ");
+
+            responseBuilder.append("{\"").append(ELEMENT_KEY).append("\": ").append(i).append('}');
+        }
+
+        return responseBuilder.append("]}}").toString();
+    }
+
+
+    /**
+     * Creates a local HTTP server that responds with the JSON response.
+     *
+     * @return a started HTTP server
+     */
+    private HttpServer createStubServer()
+    {
+        final HttpServer stubServer;
+
+        try {
+            stubServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        stubServer.createContext("/", exchange -> {
+            final byte[] responseBytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, responseBytes.length);
+
+            try
+                (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(responseBytes);
+            }
+        });
+        stubServer.start();
+
+        return stubServer;
+    }
+}
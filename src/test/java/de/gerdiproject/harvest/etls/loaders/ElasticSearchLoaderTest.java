@@ -0,0 +1,442 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.loaders;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+import de.gerdiproject.harvest.config.Configuration;
+import de.gerdiproject.harvest.config.parameters.AbstractParameter;
+import de.gerdiproject.harvest.etls.enums.ETLState;
+import de.gerdiproject.harvest.etls.loaders.constants.ElasticSearchConstants;
+import de.gerdiproject.harvest.etls.loaders.constants.LoaderConstants;
+import de.gerdiproject.harvest.utils.examples.MockedETL;
+import de.gerdiproject.json.datacite.DataCiteJson;
+import de.gerdiproject.json.datacite.Title;
+
+/**
+ * This class contains unit tests for the {@linkplain ElasticSearchLoader}.
+ * The Elasticsearch nodes are simulated by local stub HTTP servers.
+ *
+ * @author Robin Weiss
+ */
+public class ElasticSearchLoaderTest extends AbstractObjectUnitTest<ElasticSearchLoader>
+{
+    private static final String SOURCE_ID = "source";
+    private static final String STUB_URL = "http://localhost:%d/index/";
+    private static final String STUB_RESPONSE = "{\"took\":1,\"errors\":false,\"items\":[]}";
+    private static final String REJECTED_RESPONSE = "{\"took\":1,\"errors\":true,\"items\":[{\"index\":{\"_id\":\"%s\",\"status\":429,"
+                                                    + "\"error\":{\"type\":\"es_rejected_execution_exception\",\"reason\":\"rejected\"}}}]}";
+    private static final String REJECTED_STATUS_RESPONSE = "{\"took\":1,\"errors\":true,\"items\":[{\"index\":{\"_id\":\"unknown\",\"status\":429}}]}";
+    private static final String LEGACY_INDEX_INSTRUCTION = "{\"index\":{\"_id\":\"%s\"}}\n%s\n";
+    private static final String NON_ASCII_TITLE = "Gr\u00fc\u00dfe aus K\u00f6ln \u2713";
+    private static final Pattern DOCUMENT_ID_PATTERN = Pattern.compile("\"_id\":\"([^\"]+)\"");
+    private static final int BATCH_COUNT = 6;
+    private static final int ITEM_RETRY_DELAY = 10000;
+    private static final int ITEM_RETRY_MAX_DELAY = 50;
+
+    private HttpServer healthyNode;
+    private HttpServer failingNode;
+    private AtomicInteger healthyNodeRequests;
+    private AtomicInteger failingNodeRequests;
+    private volatile Function<String, String> healthyNodeResponder;
+    private volatile int healthyNodeStatus;
+    private MockedETL etl;
+
+
+    @Override
+    protected ElasticSearchLoader setUpTestObjects()
+    {
+        this.healthyNodeRequests = new AtomicInteger(0);
+        this.failingNodeRequests = new AtomicInteger(0);
+        this.healthyNodeResponder = (final String requestBody) -> STUB_RESPONSE;
+        this.healthyNodeStatus = 200;
+        this.healthyNode = createStubNode(healthyNodeRequests, () -> healthyNodeStatus, (final String requestBody) -> healthyNodeResponder.apply(requestBody));
+        this.failingNode = createStubNode(failingNodeRequests, () -> 503, (final String requestBody) -> STUB_RESPONSE);
+
+        final AbstractParameter<?> urlParam = LoaderConstants.URL_PARAM.copy();
+        urlParam.setValue(String.format(STUB_URL, healthyNode.getAddress().getPort()));
+
+        final AbstractParameter<?> additionalUrlsParam = LoaderConstants.ADDITIONAL_URLS_PARAM.copy();
+        additionalUrlsParam.setValue(String.format(STUB_URL, failingNode.getAddress().getPort()));
+
+        this.config = new Configuration(MODULE_NAME, urlParam, additionalUrlsParam);
+        this.config.addEventListeners();
+
+        this.etl = new MockedETL();
+
+        return new ElasticSearchLoader();
+    }
+
+
+    @Override
+    public void after()
+    {
+        healthyNode.stop(0);
+        failingNode.stop(0);
+        super.after();
+    }
+
+
+    /**
+     * Tests if bulk requests are sent to the bulk submission path of all configured nodes.
+     */
+    @Test
+    public void testBulkUrls()
+    {
+        testedObject.init(etl);
+
+        assertEquals("Expected one bulk URL per node!",
+                     Arrays.asList(
+                         String.format(STUB_URL, healthyNode.getAddress().getPort()) + ElasticSearchConstants.BULK_SUBMISSION_URL_SUFFIX,
+                         String.format(STUB_URL, failingNode.getAddress().getPort()) + ElasticSearchConstants.BULK_SUBMISSION_URL_SUFFIX),
+                     testedObject.getUrls());
+
+        testedObject.clear();
+    }
+
+
+    /**
+     * Tests if the streamed bulk request is byte-identical to the request that
+     * was previously assembled from formatted strings. The rewriting of dates
+     * is compared to the previous implementation by the ElasticSearchDateRewriterTest.
+     */
+    @Test
+    public void testBulkPayloadEquivalence()
+    {
+        final AtomicReference<String> receivedBody = new AtomicReference<>();
+        healthyNodeResponder = (final String requestBody) -> {
+            receivedBody.set(requestBody);
+            return STUB_RESPONSE;
+        };
+
+        final List<DataCiteJson> documents = new ArrayList<>();
+
+        for (int i = 0; i < BATCH_COUNT; i++) {
+            final DataCiteJson document = new DataCiteJson(SOURCE_ID + i);
+            document.addTitles(Arrays.asList(new Title(NON_ASCII_TITLE + i)));
+            documents.add(document);
+        }
+
+        testedObject.init(etl);
+        etl.setStatus(ETLState.HARVESTING);
+        testedObject.load(documents.iterator());
+        testedObject.clear();
+
+        // assemble the request like the loader did before requests were streamed
+        final Map<String, DataCiteJson> legacyBatch = new HashMap<>(); // NOPMD map is not used concurrently
+
+        for (final DataCiteJson document : documents)
+            legacyBatch.put(testedObject.getDocumentId(document), document);
+
+        final StringBuilder legacyBodyBuilder = new StringBuilder();
+
+        for (final Map.Entry<String, DataCiteJson> entry : legacyBatch.entrySet())
+            legacyBodyBuilder.append(String.format(LEGACY_INDEX_INSTRUCTION, entry.getKey(), entry.getValue().toJson()));
+
+        assertArrayEquals("Expected the streamed bulk request to be identical to the formatted bulk request!",
+                          legacyBodyBuilder.toString().getBytes(StandardCharsets.UTF_8),
+                          receivedBody.get().getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * Tests if batches that fail on one node are loaded to another node,
+     * and if the failing node is skipped afterwards.
+     */
+    @Test
+    public void testFailover()
+    {
+        testedObject.init(etl);
+        etl.setStatus(ETLState.HARVESTING);
+
+        for (int i = 0; i < BATCH_COUNT; i++)
+            testedObject.load(Arrays.asList(new DataCiteJson(SOURCE_ID + i)).iterator());
+
+        testedObject.clear();
+
+        assertEquals("Expected all batches to be loaded to the healthy node!",
+                     BATCH_COUNT,
+                     healthyNodeRequests.get());
+        assertTrue("Expected the failing node to be skipped after it failed!",
+                   failingNodeRequests.get() <= 1);
+    }
+
+
+    /**
+     * Tests if requests that were rejected as invalid are neither sent to
+     * another node, nor cause the node to be skipped.
+     */
+    @Test
+    public void testClientErrorIsNotFailedOver()
+    {
+        healthyNodeStatus = 400;
+
+        testedObject.init(etl);
+        etl.setStatus(ETLState.HARVESTING);
+
+        try {
+            testedObject.load(Arrays.asList(new DataCiteJson(SOURCE_ID)).iterator());
+            fail("Expected the invalid request to throw a " + LoaderException.class.getSimpleName() + "!");
+        } catch (final LoaderException e) { // NOPMD the exception is expected
+            assertEquals("Expected the invalid request to be sent only once!", 1, healthyNodeRequests.get());
+            assertEquals("Expected the invalid request not to be sent to another node!", 0, failingNodeRequests.get());
+            assertFalse("Expected the node not to be skipped after an invalid request!",
+                        testedObject.endpointBalancer.getEndpoints().get(0).isCoolingDown(System.currentTimeMillis()));
+        }
+
+        testedObject.clear();
+    }
+
+
+    /**
+     * Tests if the adaptive batch size is only shrunk if Elasticsearch
+     * rejects documents due to overload, but not if a request is invalid.
+     */
+    @Test
+    public void testBatchSizeShrinksOnlyOnOverload()
+    {
+        testedObject.adaptiveBatchSizeParam.setValue(String.valueOf(true));
+        testedObject.init(etl);
+        etl.setStatus(ETLState.HARVESTING);
+
+        // let the batch size grow
+        for (int i = 0; i < BATCH_COUNT; i++)
+            testedObject.load(Arrays.asList(new DataCiteJson(SOURCE_ID + i)).iterator());
+
+        final Integer grownBatchSize = etl.getLoaderBatchSize();
+
+        // send an invalid request
+        healthyNodeStatus = 400;
+
+        try {
+            testedObject.load(Arrays.asList(new DataCiteJson(SOURCE_ID)).iterator());
+            fail("Expected the invalid request to throw a " + LoaderException.class.getSimpleName() + "!");
+        } catch (final LoaderException e) { // NOPMD the exception is expected
+            assertEquals("Expected invalid requests not to shrink the batch size!", grownBatchSize, etl.getLoaderBatchSize());
+        }
+
+        // reject a document due to overload
+        final AtomicInteger rejectionCount = new AtomicInteger(0);
+        healthyNodeStatus = 200;
+        healthyNodeResponder = (final String requestBody) -> {
+            final Matcher idMatcher = DOCUMENT_ID_PATTERN.matcher(requestBody);
+
+            if (rejectionCount.getAndIncrement() == 0 && idMatcher.find())
+                return String.format(REJECTED_RESPONSE, idMatcher.group(1));
+
+            return STUB_RESPONSE;
+        };
+
+        testedObject.load(Arrays.asList(new DataCiteJson(SOURCE_ID + BATCH_COUNT)).iterator());
+        testedObject.clear();
+
+        assertTrue("Expected rejections due to overload to shrink the batch size!",
+                   etl.getLoaderBatchSize() < grownBatchSize);
+    }
+
+
+    /**
+     * Tests if the adaptive batch size is shrunk if a bulk response reports
+     * a rejected item by its status alone.
+     */
+    @Test
+    public void testBatchSizeShrinksOnRejectedStatus()
+    {
+        testedObject.adaptiveBatchSizeParam.setValue(String.valueOf(true));
+        testedObject.init(etl);
+        etl.setStatus(ETLState.HARVESTING);
+
+        // let the batch size grow
+        for (int i = 0; i < BATCH_COUNT; i++)
+            testedObject.load(Arrays.asList(new DataCiteJson(SOURCE_ID + i)).iterator());
+
+        final Integer grownBatchSize = etl.getLoaderBatchSize();
+
+        healthyNodeResponder = (final String requestBody) -> REJECTED_STATUS_RESPONSE;
+        testedObject.load(Arrays.asList(new DataCiteJson(SOURCE_ID + BATCH_COUNT)).iterator());
+        testedObject.clear();
+
+        assertTrue("Expected rejected items to shrink the batch size!",
+                   etl.getLoaderBatchSize() < grownBatchSize);
+    }
+
+
+    /**
+     * Tests if documents that were rejected due to overload are resubmitted,
+     * without resubmitting documents that were loaded successfully.
+     */
+    @Test
+    public void testTransientItemRetry()
+    {
+        final AtomicInteger rejectionCount = new AtomicInteger(0);
+        final AtomicInteger retriedDocumentCount = new AtomicInteger(0);
+
+        // reject the second document of the first request
+        healthyNodeResponder = (final String requestBody) -> {
+            final Matcher idMatcher = DOCUMENT_ID_PATTERN.matcher(requestBody);
+            final int documentCount = countMatches(idMatcher);
+
+            if (rejectionCount.getAndIncrement() == 0) {
+                idMatcher.find(0);
+                idMatcher.find();
+                return String.format(REJECTED_RESPONSE, idMatcher.group(1));
+            }
+
+            retriedDocumentCount.addAndGet(documentCount);
+            return STUB_RESPONSE;
+        };
+
+        testedObject.init(etl);
+        etl.setStatus(ETLState.HARVESTING);
+        testedObject.load(Arrays.asList(new DataCiteJson(SOURCE_ID + 0), new DataCiteJson(SOURCE_ID + 1)).iterator());
+        testedObject.clear();
+
+        assertEquals("Expected the loaded batch to be answered twice!", 2, rejectionCount.get());
+        assertEquals("Expected only the rejected document to be resubmitted!", 1, retriedDocumentCount.get());
+    }
+
+
+    /**
+     * Tests if the delay before resubmitting rejected documents does not
+     * exceed its maximum.
+     */
+    @Test
+    public void testItemRetryMaxDelay()
+    {
+        config.setParameter(LoaderConstants.ITEM_RETRY_DELAY_PARAM.getCompositeKey(), String.valueOf(ITEM_RETRY_DELAY));
+        config.setParameter(LoaderConstants.ITEM_RETRY_MAX_DELAY_PARAM.getCompositeKey(), String.valueOf(ITEM_RETRY_MAX_DELAY));
+
+        final AtomicInteger rejectionCount = new AtomicInteger(0);
+        healthyNodeResponder = (final String requestBody) -> {
+            final Matcher idMatcher = DOCUMENT_ID_PATTERN.matcher(requestBody);
+
+            if (rejectionCount.getAndIncrement() == 0 && idMatcher.find())
+                return String.format(REJECTED_RESPONSE, idMatcher.group(1));
+
+            return STUB_RESPONSE;
+        };
+
+        testedObject.init(etl);
+        etl.setStatus(ETLState.HARVESTING);
+
+        final long startTime = System.currentTimeMillis();
+        testedObject.load(Arrays.asList(new DataCiteJson(SOURCE_ID)).iterator());
+        testedObject.clear();
+
+        assertEquals("Expected the rejected document to be resubmitted!", 2, rejectionCount.get());
+        assertTrue("Expected the retry delay to be capped by its maximum!",
+                   System.currentTimeMillis() - startTime < ITEM_RETRY_DELAY);
+    }
+
+
+    //////////////////////
+    // Non-test Methods //
+    //////////////////////
+
+    /**
+     * Counts the number of matches of a {@linkplain Matcher}.
+     *
+     * @param matcher the matcher of which the matches are counted
+     *
+     * @return the number of matches
+     */
+    private static int countMatches(final Matcher matcher)
+    {
+        int count = 0;
+
+        while (matcher.find())
+            count++;
+
+        return count;
+    }
+
+
+    /**
+     * Starts a local HTTP server that counts incoming requests and responds
+     * with a fixed status code.
+     *
+     * @param requestCounter a counter that is incremented with each request
+     * @param statusCode a supplier of the HTTP status code of each response
+     * @param responder a function that creates the response body out of the request body
+     *
+     * @return a started HTTP server
+     */
+    private HttpServer createStubNode(final AtomicInteger requestCounter, final IntSupplier statusCode, final Function<String, String> responder)
+    {
+        final HttpServer server;
+
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        server.createContext("/", exchange -> {
+            requestCounter.incrementAndGet();
+
+            // read the request body
+            final ByteArrayOutputStream requestBuffer = new ByteArrayOutputStream();
+
+            try
+                (InputStream requestBody = exchange.getRequestBody()) {
+                final byte[] buffer = new byte[1024];
+                int readBytes;
+
+                while ((readBytes = requestBody.read(buffer)) != -1)
+                    requestBuffer.write(buffer, 0, readBytes);
+            }
+
+            final byte[] response = responder.apply(new String(requestBuffer.toByteArray(), StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(statusCode.getAsInt(), response.length);
+
+            try
+                (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(response);
+            }
+        });
+        server.start();
+
+        return server;
+    }
+}
@@ -0,0 +1,665 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.loaders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+import de.gerdiproject.harvest.IDocument;
+import de.gerdiproject.harvest.application.events.GetCacheFolderEvent;
+import de.gerdiproject.harvest.config.Configuration;
+import de.gerdiproject.harvest.config.parameters.AbstractParameter;
+import de.gerdiproject.harvest.config.parameters.constants.ParameterConstants;
+import de.gerdiproject.harvest.etls.constants.ETLConstants;
+import de.gerdiproject.harvest.etls.enums.ETLState;
+import de.gerdiproject.harvest.etls.loaders.constants.LoaderConstants;
+import de.gerdiproject.harvest.event.EventSystem;
+import de.gerdiproject.harvest.utils.examples.MockedETL;
+import de.gerdiproject.json.GsonUtils;
+import de.gerdiproject.json.datacite.DataCiteJson;
+import de.gerdiproject.json.datacite.Title;
+
+/**
+ * This class contains unit tests for the batch submission of the {@linkplain AbstractURLLoader}.
+ * The loaded batches are recorded by a mocked loader instead of being sent to a URL.
+ *
+ * @author Robin Weiss
+ */
+public class URLLoaderTest extends AbstractObjectUnitTest<URLLoaderTest.MockedURLLoader>
+{
+    private static final String SOURCE_ID = "source";
+    private static final String LOADER_URL = "http://localhost/";
+    private static final int DOCUMENT_SIZE = 10;
+    private static final int DOCUMENTS_PER_BATCH = 5;
+    private static final int BATCH_COUNT = 12;
+    private static final int DOCUMENT_COUNT = DOCUMENTS_PER_BATCH * BATCH_COUNT;
+    private static final int CONCURRENT_BATCHES = 3;
+    private static final int BATCH_DELAY = 5;
+    private static final String VERSION_HASH = "versionHash";
+    private static final String CHANGED_TITLE = "changed";
+
+    private ResumableETL etl;
+
+
+    @Override
+    protected MockedURLLoader setUpTestObjects()
+    {
+        final AbstractParameter<?> urlParam = LoaderConstants.URL_PARAM.copy();
+        urlParam.setValue(LOADER_URL);
+
+        final AbstractParameter<?> batchSizeParam = LoaderConstants.MAX_BATCH_SIZE_PARAM.copy();
+        batchSizeParam.setValue(String.valueOf(DOCUMENT_SIZE * DOCUMENTS_PER_BATCH));
+
+        final AbstractParameter<?> concurrentBatchesParam = LoaderConstants.CONCURRENT_BATCHES_PARAM.copy();
+        concurrentBatchesParam.setValue(String.valueOf(CONCURRENT_BATCHES));
+
+        this.config = new Configuration(MODULE_NAME, urlParam, batchSizeParam, concurrentBatchesParam);
+        this.config.addEventListeners();
+
+        this.etl = new ResumableETL();
+
+        return new MockedURLLoader();
+    }
+
+
+    /**
+     * Tests if all documents are loaded exactly once if batches
+     * are submitted concurrently.
+     */
+    @Test
+    public void testConcurrentBatches()
+    {
+        loadDocuments();
+
+        final Set<String> loadedSourceIds = new HashSet<>();
+
+        for (final List<String> batch : testedObject.loadedBatches)
+            loadedSourceIds.addAll(batch);
+
+        assertEquals("Expected all documents to be loaded in full batches!",
+                     BATCH_COUNT,
+                     testedObject.loadedBatches.size());
+        assertEquals("Expected all documents to be loaded exactly once!",
+                     DOCUMENT_COUNT,
+                     loadedSourceIds.size());
+    }
+
+
+    /**
+     * Tests if no more than the configured number of batches
+     * are loaded at the same time.
+     */
+    @Test
+    public void testConcurrentBatchLimit()
+    {
+        loadDocuments();
+
+        assertTrue("Expected no more than " + CONCURRENT_BATCHES + " batches to be loaded at the same time!",
+                   testedObject.maxActiveBatches.get() <= CONCURRENT_BATCHES);
+    }
+
+
+    /**
+     * Tests if checkpoints are only saved in the order in which batches were
+     * submitted, even if batches that were submitted later are loaded earlier.
+     */
+    @Test
+    public void testCheckpointOrder()
+    {
+        // let earlier batches take longer than later ones
+        testedObject.hasDescendingDelays = true;
+
+        loadDocuments();
+
+        final List<Integer> checkpoints = testedObject.savedCheckpoints;
+
+        assertEquals("Expected the last checkpoint to include all documents!",
+                     Integer.valueOf(DOCUMENT_COUNT),
+                     checkpoints.get(checkpoints.size() - 1));
+
+        for (int i = 1; i < checkpoints.size(); i++)
+            assertTrue("Expected checkpoints to be saved in the order of submission, but got: " + checkpoints,
+                       checkpoints.get(i - 1) < checkpoints.get(i));
+    }
+
+
+    /**
+     * Tests if the failure of an asynchronously loaded batch
+     * is thrown by the loading thread.
+     */
+    @Test
+    public void testBatchFailure()
+    {
+        testedObject.failingSourceId = SOURCE_ID + DOCUMENTS_PER_BATCH;
+
+        try {
+            loadDocuments();
+            fail("Expected the failed batch to throw a " + LoaderException.class.getSimpleName() + "!");
+        } catch (final LoaderException e) { // NOPMD the exception is expected
+            assertTrue("Expected the exception of the failed batch to be the cause!",
+                       e.getCause() instanceof IllegalStateException);
+        }
+
+        assertTrue("Expected no checkpoint to include the failed batch!",
+                   testedObject.savedCheckpoints.stream().allMatch((final Integer c) -> c <= DOCUMENTS_PER_BATCH));
+    }
+
+
+    /**
+     * Tests if a harvest that was interrupted by a failed batch
+     * is resumed from the last checkpoint that was saved by the loader.
+     */
+    @Test
+    public void testResumeFromCheckpoint()
+    {
+        initHarvest(true);
+
+        final int lastCheckpoint = loadDocumentsUntilFailure();
+
+        etl.prepareHarvest();
+
+        assertTrue("Expected a checkpoint to be saved before the failed batch!",
+                   lastCheckpoint > 0);
+        assertEquals("Expected the harvest to resume from the last checkpoint!",
+                     lastCheckpoint,
+                     etl.getResumeIndex());
+        assertFalse("Expected a resumed harvest not to harvest everything!",
+                    etl.isHarvestingEverything());
+    }
+
+
+    /**
+     * Tests if no checkpoint file is written if the resume mode is disabled.
+     */
+    @Test
+    public void testNoCheckpointWithoutResume()
+    {
+        initHarvest(false);
+
+        loadDocumentsUntilFailure();
+
+        final File checkpointFile = new File(
+            etl.getCacheFolder(),
+            String.format(ETLConstants.CHECKPOINT_CACHE_PATH, etl.getName()));
+
+        assertFalse("Expected no checkpoint to be written if the resume mode is disabled!",
+                    checkpointFile.exists());
+
+        etl.prepareHarvest();
+
+        assertEquals("Expected the harvest to start from the beginning!",
+                     0,
+                     etl.getResumeIndex());
+    }
+
+
+    /**
+     * Tests if documents that were loaded by a previous harvest
+     * are skipped if their content did not change.
+     */
+    @Test
+    public void testDeltaLoadingSkipsUnchangedDocuments()
+    {
+        final List<String> reloadedSourceIds = harvestTwiceWithDeltaLoading(createDocuments());
+
+        assertTrue("Expected unchanged documents not to be loaded again, but got: " + reloadedSourceIds,
+                   reloadedSourceIds.isEmpty());
+        assertTrue("Expected no documents to be deleted!",
+                   testedObject.deletedDocumentIds.isEmpty());
+    }
+
+
+    /**
+     * Tests if documents that were loaded by a previous harvest
+     * are loaded again if their content changed.
+     */
+    @Test
+    public void testDeltaLoadingReloadsChangedDocuments()
+    {
+        final List<DataCiteJson> documents = createDocuments();
+        documents.get(0).addTitles(Arrays.asList(new Title(CHANGED_TITLE)));
+
+        final List<String> reloadedSourceIds = harvestTwiceWithDeltaLoading(documents);
+
+        assertEquals("Expected only the changed document to be loaded again!",
+                     Arrays.asList(documents.get(0).getSourceId()),
+                     reloadedSourceIds);
+    }
+
+
+    /**
+     * Tests if documents that were loaded by a previous harvest are deleted
+     * if they were not harvested again by a harvest that covered all documents.
+     */
+    @Test
+    public void testDeltaLoadingDeletesUnseenDocuments()
+    {
+        final List<DataCiteJson> documents = createDocuments();
+        final DataCiteJson removedDocument = documents.remove(documents.size() - 1);
+
+        harvestTwiceWithDeltaLoading(documents);
+
+        assertEquals("Expected the document that was not harvested again to be deleted!",
+                     Arrays.asList(testedObject.getDocumentId(removedDocument)),
+                     testedObject.deletedDocumentIds);
+    }
+
+
+    /**
+     * Tests if no documents are deleted if the harvest was aborted
+     * before all documents were harvested.
+     */
+    @Test
+    public void testDeltaLoadingKeepsUnseenDocumentsOfAbortedHarvest()
+    {
+        final List<DataCiteJson> documents = createDocuments();
+        final DataCiteJson lastHarvestedDocument = documents.get(DOCUMENT_COUNT / 2);
+
+        enableDeltaLoading();
+        initHarvest(false);
+        harvest(documents.iterator());
+
+        etl.prepareHarvest();
+
+        // abort the harvest after half of the documents were harvested
+        harvest(documents.stream().map((final DataCiteJson document) -> {
+            if (document == lastHarvestedDocument)
+                etl.setStatus(ETLState.ABORTING);
+
+            return document;
+        }).iterator());
+
+        assertTrue("Expected no documents to be deleted after an aborted harvest!",
+                   testedObject.deletedDocumentIds.isEmpty());
+    }
+
+
+    /**
+     * Tests if no documents are deleted if only a range of documents was harvested.
+     */
+    @Test
+    public void testDeltaLoadingKeepsUnseenDocumentsOfPartialHarvest()
+    {
+        final List<DataCiteJson> documents = createDocuments();
+
+        enableDeltaLoading();
+        initHarvest(false);
+        harvest(documents.iterator());
+
+        config.setParameter(
+            String.format(ParameterConstants.COMPOSITE_KEY, etl.getName(), ETLConstants.END_INDEX_PARAM_KEY),
+            String.valueOf(DOCUMENT_COUNT / 2));
+        etl.prepareHarvest();
+        harvest(documents.subList(0, DOCUMENT_COUNT / 2).iterator());
+
+        assertFalse("Expected the harvest not to cover all documents!",
+                    etl.isHarvestingEverything());
+        assertTrue("Expected no documents to be deleted after a partial harvest!",
+                   testedObject.deletedDocumentIds.isEmpty());
+    }
+
+
+    /**
+     * Tests if the document hash index is not opened if the loader
+     * cannot be initialized, because its preconditions are not met.
+     */
+    @Test
+    public void testDeltaLoadingWithFailedPreconditions()
+    {
+        enableDeltaLoading();
+        testedObject.urlParam.setValue("");
+
+        EventSystem.addSynchronousListener(GetCacheFolderEvent.class, this::getTemporaryTestDirectory);
+        etl.init(MODULE_NAME);
+
+        try {
+            testedObject.init(etl);
+            fail("Expected the initialization to fail without a URL!");
+        } catch (final IllegalStateException e) { // NOPMD the exception is expected
+            final File indexFile = new File(
+                etl.getCacheFolder(),
+                String.format(LoaderConstants.DOCUMENT_HASH_INDEX_PATH, etl.getName()));
+
+            assertFalse("Expected the document hash index not to be opened!",
+                        indexFile.exists());
+        }
+    }
+
+
+    /**
+     * Tests if the payloads of encoded documents are kept until
+     * their batch is loaded.
+     */
+    @Test
+    public void testCachingPayloads()
+    {
+        testedObject.maxBatchSizeParam.setValue(String.valueOf(Integer.MAX_VALUE));
+        testedObject.isEncodingDocuments = true;
+
+        loadDocuments();
+
+        assertEquals("Expected the payloads of all documents to be cached!",
+                     DOCUMENT_COUNT,
+                     testedObject.cachedPayloadCount.get());
+    }
+
+
+    /**
+     * Tests if payloads that would exceed the payload cache size are not cached,
+     * so that they are encoded again when their batch is loaded.
+     */
+    @Test
+    public void testPayloadCacheSizeLimit()
+    {
+        testedObject.isEncodingDocuments = true;
+
+        final int encodedSize = testedObject.encodeDocument(SOURCE_ID, new DataCiteJson(SOURCE_ID + 0)).length;
+        final int payloadCacheSize = encodedSize * DOCUMENTS_PER_BATCH;
+
+        testedObject.maxBatchSizeParam.setValue(String.valueOf(Integer.MAX_VALUE));
+        testedObject.payloadCacheSizeParam.setValue(String.valueOf(payloadCacheSize));
+
+        loadDocuments();
+
+        final int cachedPayloadCount = testedObject.cachedPayloadCount.get();
+
+        assertTrue("Expected some payloads to be cached!",
+                   cachedPayloadCount > 0);
+        assertTrue("Expected no more payloads to be cached than fit into " + payloadCacheSize + " bytes!",
+                   cachedPayloadCount < DOCUMENT_COUNT);
+        assertTrue("Expected the cached payloads not to exceed " + payloadCacheSize + " bytes!",
+                   testedObject.maxCachedPayloadBytes.get() <= payloadCacheSize);
+    }
+
+
+    //////////////////////
+    // Non-test Methods //
+    //////////////////////
+
+    /**
+     * Initializes the tested loader and loads all documents.
+     */
+    private void loadDocuments()
+    {
+        final List<DataCiteJson> documents = createDocuments();
+
+        testedObject.init(etl);
+        etl.setStatus(ETLState.HARVESTING);
+
+        try {
+            testedObject.load(documents.iterator());
+        } finally {
+            testedObject.clear();
+        }
+    }
+
+
+    /**
+     * Enables delta loading and the encoding of documents, which is required
+     * for calculating content hashes. The batch size is raised to fit encoded documents.
+     */
+    private void enableDeltaLoading()
+    {
+        testedObject.deltaLoadingParam.setValue(String.valueOf(true));
+        testedObject.maxBatchSizeParam.setValue(String.valueOf(Integer.MAX_VALUE));
+        testedObject.isEncodingDocuments = true;
+    }
+
+
+    /**
+     * Harvests all documents with delta loading enabled, and harvests the specified
+     * documents in a second full harvest.
+     *
+     * @param documents the documents of the second harvest
+     *
+     * @return the source IDs of all documents that were loaded by the second harvest
+     */
+    private List<String> harvestTwiceWithDeltaLoading(final List<DataCiteJson> documents)
+    {
+        enableDeltaLoading();
+        initHarvest(false);
+        harvest(createDocuments().iterator());
+
+        etl.prepareHarvest();
+        harvest(documents.iterator());
+
+        final List<String> loadedSourceIds = new ArrayList<>();
+
+        for (final List<String> batch : testedObject.loadedBatches)
+            loadedSourceIds.addAll(batch);
+
+        return loadedSourceIds;
+    }
+
+
+    /**
+     * Loads documents as part of a prepared harvest. The documents that were
+     * loaded and deleted by previous harvests are forgotten.
+     *
+     * @param documents the documents that are to be loaded
+     */
+    private void harvest(final Iterator<DataCiteJson> documents)
+    {
+        testedObject.loadedBatches.clear();
+        testedObject.deletedDocumentIds.clear();
+
+        etl.setStatus(ETLState.HARVESTING);
+
+        try {
+            testedObject.load(documents);
+        } finally {
+            testedObject.clear();
+            etl.setStatus(ETLState.DONE);
+        }
+    }
+
+
+    /**
+     * Creates documents with distinct source IDs.
+     *
+     * @return a list of documents
+     */
+    private List<DataCiteJson> createDocuments()
+    {
+        final List<DataCiteJson> documents = new ArrayList<>();
+
+        for (int i = 0; i < DOCUMENT_COUNT; i++)
+            documents.add(new DataCiteJson(SOURCE_ID + i));
+
+        return documents;
+    }
+
+
+    /**
+     * Initializes the ETL with a cache folder for checkpoints and document hashes,
+     * and prepares a harvest that uses the tested loader.
+     *
+     * @param isResuming if true, the resume mode of the ETL is enabled
+     */
+    private void initHarvest(final boolean isResuming)
+    {
+        EventSystem.addSynchronousListener(GetCacheFolderEvent.class, this::getTemporaryTestDirectory);
+        etl.init(MODULE_NAME);
+
+        config.setParameter(
+            String.format(ParameterConstants.COMPOSITE_KEY, etl.getName(), ETLConstants.RESUME_PARAM_KEY),
+            String.valueOf(isResuming));
+
+        etl.prepareHarvest();
+    }
+
+
+    /**
+     * Loads all documents as part of a prepared harvest, failing at the last batch.
+     *
+     * @return the highest number of loaded documents that was passed to a checkpoint
+     */
+    private int loadDocumentsUntilFailure()
+    {
+        final List<DataCiteJson> documents = createDocuments();
+
+        testedObject.failingSourceId = SOURCE_ID + (DOCUMENT_COUNT - 1);
+        etl.setStatus(ETLState.HARVESTING);
+
+        try {
+            testedObject.load(documents.iterator());
+            fail("Expected the last batch to fail!");
+
+        } catch (final LoaderException e) { // NOPMD the exception is expected
+            etl.setStatus(ETLState.DONE);
+
+        } finally {
+            testedObject.clear();
+        }
+
+        return testedObject.savedCheckpoints.stream().reduce(0, Math::max);
+    }
+
+
+    /**
+     * This ETL has a fixed version hash, allowing it to resume from checkpoints,
+     * and loads its documents via the tested loader.
+     *
+     * @author Robin Weiss
+     */
+    private class ResumableETL extends MockedETL
+    {
+        @Override
+        protected String initHash()
+        {
+            return VERSION_HASH;
+        }
+
+
+        @Override
+        protected ILoader<Iterator<DataCiteJson>> createLoader()
+        {
+            return testedObject;
+        }
+    }
+
+
+    /**
+     * This loader records the source IDs of the documents of every loaded batch,
+     * as well as the IDs of deleted documents and the cached payloads, and can be set
+     * up to fail when loading a specific document. If enabled, documents are encoded as JSON.
+     *
+     * @author Robin Weiss
+     */
+    static class MockedURLLoader extends AbstractURLLoader<DataCiteJson>
+    {
+        private final List<List<String>> loadedBatches = Collections.synchronizedList(new ArrayList<>());
+        private final List<Integer> savedCheckpoints = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger activeBatches = new AtomicInteger(0);
+        private final AtomicInteger maxActiveBatches = new AtomicInteger(0);
+        private final AtomicInteger batchIndex = new AtomicInteger(0);
+        private volatile boolean hasDescendingDelays;
+        private final List<String> deletedDocumentIds = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger cachedPayloadCount = new AtomicInteger(0);
+        private final AtomicInteger maxCachedPayloadBytes = new AtomicInteger(0);
+        private final Gson gson = GsonUtils.createGerdiDocumentGsonBuilder().create();
+        private volatile String failingSourceId;
+        private volatile boolean isEncodingDocuments;
+
+
+        @Override
+        protected int getSizeOfDocument(final String documentId, final IDocument document)
+        {
+            return DOCUMENT_SIZE;
+        }
+
+
+        @Override
+        protected byte[] encodeDocument(final String documentId, final DataCiteJson document)
+        {
+            return isEncodingDocuments && document != null
+                   ? gson.toJson(document).getBytes(StandardCharsets.UTF_8)
+                   : null;
+        }
+
+
+        @Override
+        protected void loadBatch(final Map<String, DataCiteJson> documents)
+        {
+            final int active = activeBatches.incrementAndGet();
+            maxActiveBatches.accumulateAndGet(active, Math::max);
+
+            try {
+                final List<String> sourceIds = new ArrayList<>();
+                int cachedPayloadBytes = 0;
+
+                for (final Map.Entry<String, DataCiteJson> entry : documents.entrySet()) {
+                    final byte[] payload = getEncodedPayload(entry.getKey());
+
+                    if (payload != null) {
+                        cachedPayloadCount.incrementAndGet();
+                        cachedPayloadBytes += payload.length;
+                    }
+
+                    if (entry.getValue() == null)
+                        deletedDocumentIds.add(entry.getKey());
+                    else
+                        sourceIds.add(entry.getValue().getSourceId());
+                }
+
+                maxCachedPayloadBytes.accumulateAndGet(cachedPayloadBytes, Math::max);
+
+                if (sourceIds.contains(failingSourceId))
+                    throw new IllegalStateException(failingSourceId);
+
+                final int delay = hasDescendingDelays
+                                  ? (BATCH_COUNT - batchIndex.getAndIncrement()) * BATCH_DELAY
+                                  : BATCH_DELAY;
+
+                Thread.sleep(delay);
+                loadedBatches.add(sourceIds);
+
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                activeBatches.decrementAndGet();
+            }
+        }
+
+
+        @Override
+        protected void saveCheckpoint(final int loadedCount)
+        {
+            savedCheckpoints.add(loadedCount);
+            super.saveCheckpoint(loadedCount);
+        }
+    }
+}
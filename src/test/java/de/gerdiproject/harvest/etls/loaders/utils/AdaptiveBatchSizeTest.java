@@ -0,0 +1,150 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.loaders.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+
+/**
+ * This class contains unit tests for the {@linkplain AdaptiveBatchSize}.
+ *
+ * @author Robin Weiss
+ */
+public class AdaptiveBatchSizeTest extends AbstractObjectUnitTest<AdaptiveBatchSize>
+{
+    private static final int MIN_SIZE = 1000;
+    private static final int MAX_SIZE = 8000;
+    private static final long TARGET_LATENCY = 100;
+
+
+    @Override
+    protected AdaptiveBatchSize setUpTestObjects()
+    {
+        return new AdaptiveBatchSize(MIN_SIZE, MAX_SIZE, TARGET_LATENCY);
+    }
+
+
+    /**
+     * Tests if the batch size starts with the lower bound.
+     */
+    @Test
+    public void testInitialSize()
+    {
+        assertEquals("Expected the batch size to start at the lower bound!",
+                     MIN_SIZE,
+                     testedObject.getSize());
+    }
+
+
+    /**
+     * Tests if the batch size grows additively when batches are loaded quickly,
+     * but not beyond the upper bound.
+     */
+    @Test
+    public void testGrowth()
+    {
+        testedObject.onBatchLoaded(System.nanoTime(), 0);
+        assertEquals("Expected the batch size to grow by the lower bound!",
+                     2 * MIN_SIZE,
+                     testedObject.getSize());
+
+        for (int i = 0; i < MAX_SIZE / MIN_SIZE; i++)
+            testedObject.onBatchLoaded(System.nanoTime(), 0);
+
+        assertEquals("Expected the batch size not to exceed the upper bound!",
+                     MAX_SIZE,
+                     testedObject.getSize());
+    }
+
+
+    /**
+     * Tests if the batch size is halved when a batch is loaded too slowly.
+     */
+    @Test
+    public void testShrinkOnHighLatency()
+    {
+        growToMaximum();
+
+        testedObject.onBatchLoaded(System.nanoTime(), TARGET_LATENCY + 1);
+        assertEquals("Expected the batch size to be halved!",
+                     MAX_SIZE / 2,
+                     testedObject.getSize());
+    }
+
+
+    /**
+     * Tests if the batch size is halved when a batch is rejected,
+     * but not below the lower bound.
+     */
+    @Test
+    public void testShrinkOnRejection()
+    {
+        growToMaximum();
+
+        testedObject.onBatchRejected(System.nanoTime());
+        assertEquals("Expected the batch size to be halved!",
+                     MAX_SIZE / 2,
+                     testedObject.getSize());
+
+        for (int i = 0; i < MAX_SIZE / MIN_SIZE; i++)
+            testedObject.onBatchRejected(System.nanoTime());
+
+        assertEquals("Expected the batch size not to fall below the lower bound!",
+                     MIN_SIZE,
+                     testedObject.getSize());
+    }
+
+
+    /**
+     * Tests if batches that started loading before the most recent
+     * decrease do not change the batch size.
+     */
+    @Test
+    public void testIgnoreOutdatedBatches()
+    {
+        growToMaximum();
+
+        final long outdatedStartTime = System.nanoTime();
+        testedObject.onBatchRejected(System.nanoTime());
+
+        assertFalse("Expected outdated rejections to be ignored!",
+                    testedObject.onBatchRejected(outdatedStartTime));
+        assertFalse("Expected outdated batches to be ignored!",
+                    testedObject.onBatchLoaded(outdatedStartTime, 0));
+        assertEquals("Expected the batch size to be halved only once!",
+                     MAX_SIZE / 2,
+                     testedObject.getSize());
+    }
+
+
+    //////////////////////
+    // Non-test Methods //
+    //////////////////////
+
+    /**
+     * Reports quickly loaded batches until the upper bound is reached.
+     */
+    private void growToMaximum()
+    {
+        while (testedObject.getSize() < MAX_SIZE)
+            testedObject.onBatchLoaded(System.nanoTime(), 0);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.loaders.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+
+/**
+ * This class contains unit tests for the {@linkplain DocumentHashIndex}.
+ *
+ * @author Robin Weiss
+ */
+public class DocumentHashIndexTest extends AbstractObjectUnitTest<DocumentHashIndex>
+{
+    private static final String DOCUMENT_ID = "356a192b7913b04c54574d18c28d46e6395428ab";
+    private static final String OTHER_DOCUMENT_ID = "da4b9237bacccdf19c0760cab7aec4a8359010b0";
+    private static final String CONTENT_HASH = "77de68daecd823babbb58edb1c8e14d7106e83bb";
+    private static final String CHANGED_CONTENT_HASH = "1b6453892473a467d07372d45eb05abc2031647a";
+
+    private final File indexFile = new File(getTemporaryTestDirectory(), "documentHashes.bin");
+
+
+    @Override
+    protected DocumentHashIndex setUpTestObjects()
+    {
+        return createIndex();
+    }
+
+
+    /**
+     * Tests if a document with an unchanged content hash is detected.
+     */
+    @Test
+    public void testUnchangedDocument()
+    {
+        testedObject.put(DOCUMENT_ID, CONTENT_HASH);
+
+        assertTrue("Expected a document with the same content hash to be unchanged!",
+                   testedObject.isUnchanged(DOCUMENT_ID, CONTENT_HASH));
+    }
+
+
+    /**
+     * Tests if a document with a different content hash is detected as changed.
+     */
+    @Test
+    public void testChangedDocument()
+    {
+        testedObject.put(DOCUMENT_ID, CONTENT_HASH);
+
+        assertFalse("Expected a document with a different content hash to be changed!",
+                    testedObject.isUnchanged(DOCUMENT_ID, CHANGED_CONTENT_HASH));
+    }
+
+
+    /**
+     * Tests if documents of a previous harvest that were not looked up
+     * are returned as unseen.
+     */
+    @Test
+    public void testUnseenDocuments()
+    {
+        testedObject.put(DOCUMENT_ID, CONTENT_HASH);
+        testedObject.put(OTHER_DOCUMENT_ID, CONTENT_HASH);
+        testedObject.save();
+
+        final DocumentHashIndex reopenedIndex = createIndex();
+        reopenedIndex.isUnchanged(DOCUMENT_ID, CONTENT_HASH);
+
+        assertEquals("Expected only documents that were not looked up to be unseen!",
+                     Collections.singleton(OTHER_DOCUMENT_ID),
+                     reopenedIndex.getUnseenDocumentIds());
+    }
+
+
+    /**
+     * Tests if a closed index is restored by a new instance.
+     */
+    @Test
+    public void testClosingAndRestoring()
+    {
+        testedObject.put(DOCUMENT_ID, CONTENT_HASH);
+        testedObject.close();
+
+        final DocumentHashIndex restoredIndex = createIndex();
+
+        assertTrue("Expected the content hash to be restored!",
+                   restoredIndex.isUnchanged(DOCUMENT_ID, CONTENT_HASH));
+    }
+
+
+    /**
+     * Tests if a saved index is restored by a new instance, which
+     * has not seen any documents yet.
+     */
+    @Test
+    public void testSavingAndRestoring()
+    {
+        testedObject.put(DOCUMENT_ID, CONTENT_HASH);
+        testedObject.isUnchanged(DOCUMENT_ID, CONTENT_HASH);
+        testedObject.save();
+
+        final DocumentHashIndex restoredIndex = createIndex();
+
+        assertEquals("Expected the restored index to contain all documents!",
+                     Collections.singleton(DOCUMENT_ID),
+                     restoredIndex.getUnseenDocumentIds());
+        assertTrue("Expected the content hash to be restored!",
+                   restoredIndex.isUnchanged(DOCUMENT_ID, CONTENT_HASH));
+    }
+
+
+    /**
+     * Tests if documents with identifiers that are no SHA-1 hashes
+     * are never considered to be unchanged.
+     */
+    @Test
+    public void testInvalidDocumentId()
+    {
+        final String invalidId = "doc1";
+        testedObject.put(invalidId, CONTENT_HASH);
+
+        assertFalse("Expected documents with invalid identifiers to be changed!",
+                    testedObject.isUnchanged(invalidId, CONTENT_HASH));
+    }
+
+
+    /**
+     * Opens the tested index file.
+     *
+     * @return a document hash index
+     */
+    private DocumentHashIndex createIndex()
+    {
+        try {
+            return new DocumentHashIndex(indexFile);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
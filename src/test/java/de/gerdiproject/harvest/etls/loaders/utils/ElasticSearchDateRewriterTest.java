@@ -0,0 +1,124 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.loaders.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.AbstractUnitTest;
+
+/**
+ * This class provides test cases for the {@linkplain ElasticSearchDateRewriter}.
+ *
+ * @author Robin Weiss
+ */
+public class ElasticSearchDateRewriterTest extends AbstractUnitTest
+{
+    // the regular expressions that were used by the ElasticSearchLoader before the rewriter existed
+    private static final String LEGACY_DATE_REGEX = "\"value\":(\"\\d\\d\\d\\d-\\d\\d-\\d\\dT\\d\\d:\\d\\d[^\"/]*Z\")";
+    private static final String LEGACY_DATE_REPLACEMENT = "\"value\":\\{\"gte\":$1,\"lte\":$1\\}";
+    private static final String LEGACY_DATE_RANGE_REGEX =
+        "\"value\":\"(\\d\\d\\d\\d-\\d\\d-\\d\\dT\\d\\d:\\d\\d[^\"]*?Z)?/(\\d\\d\\d\\d-\\d\\d-\\d\\dT\\d\\d:\\d\\d[^\"]*?Z)?\"";
+    private static final String LEGACY_DATE_RANGE_REPLACEMENT = "\"value\":\\{\"gte\":\"$1\",\"lte\":\"$2\"\\}";
+
+    private static final String SINGLE_DATE_JSON = "{\"dates\":[{\"value\":\"2018-01-02T03:04:05Z\",\"type\":\"Issued\"}]}";
+    private static final String SINGLE_DATE_EXPECTED =
+        "{\"dates\":[{\"value\":{\"gte\":\"2018-01-02T03:04:05Z\",\"lte\":\"2018-01-02T03:04:05Z\"},\"type\":\"Issued\"}]}";
+
+    private static final String DATE_RANGE_JSON = "{\"dates\":[{\"value\":\"2018-01-02T03:04Z/2019-01-02T03:04:05.678Z\"}]}";
+    private static final String DATE_RANGE_EXPECTED =
+        "{\"dates\":[{\"value\":{\"gte\":\"2018-01-02T03:04Z\",\"lte\":\"2019-01-02T03:04:05.678Z\"}}]}";
+
+    private static final String OPEN_DATE_RANGE_JSON = "{\"dates\":[{\"value\":\"/2019-01-02T03:04Z\"},{\"value\":\"2018-01-02T03:04Z/\"}]}";
+    private static final String OPEN_DATE_RANGE_EXPECTED =
+        "{\"dates\":[{\"value\":{\"gte\":\"\",\"lte\":\"2019-01-02T03:04Z\"}},{\"value\":{\"gte\":\"2018-01-02T03:04Z\",\"lte\":\"\"}}]}";
+
+    private static final String NO_DATE_JSON = "{\"titles\":[{\"value\":\"2018 in review\"}],\"identifier\":{\"value\":\"10.1234/5678\"}}";
+
+    private static final String DOCUMENT_JSON =
+        "{\"identifier\":{\"value\":\"10.5072/example\",\"identifierType\":\"DOI\"},"
+        + "\"titles\":[{\"value\":\"Measurements from 2018-01-02T03:04Z\"}],"
+        + "\"publicationYear\":2018,"
+        + "\"dates\":[{\"value\":\"2018-01-02T03:04:05.123Z\",\"dateType\":\"Created\"},"
+        + "{\"value\":\"2018-01-02T00:00Z/2018-12-31T23:59:59Z\",\"dateType\":\"Collected\"},"
+        + "{\"value\":\"/2019-06-30T12:00Z\",\"dateType\":\"Valid\"},"
+        + "{\"value\":\"2018-01-02\",\"dateType\":\"Issued\"}],"
+        + "\"descriptions\":[{\"value\":\"A value with \\\"value\\\":\\\"2018-01-02T03:04Z\\\" inside\"}],"
+        + "\"sourceId\":\"source\"}";
+
+    private static final String ASSERT_MESSAGE = "The rewritten JSON is not as expected!";
+    private static final String ASSERT_LEGACY_MESSAGE = "The rewritten JSON differs from the result of the legacy regular expressions!";
+
+
+    /**
+     * Tests if single dates are converted to date ranges
+     * that start and end with the date.
+     */
+    @Test
+    public void testSingleDate()
+    {
+        assertEquals(ASSERT_MESSAGE, SINGLE_DATE_EXPECTED, ElasticSearchDateRewriter.rewrite(SINGLE_DATE_JSON));
+    }
+
+
+    /**
+     * Tests if date ranges are converted to Elasticsearch date ranges.
+     */
+    @Test
+    public void testDateRange()
+    {
+        assertEquals(ASSERT_MESSAGE, DATE_RANGE_EXPECTED, ElasticSearchDateRewriter.rewrite(DATE_RANGE_JSON));
+    }
+
+
+    /**
+     * Tests if date ranges without start or end are converted
+     * to Elasticsearch date ranges with empty bounds.
+     */
+    @Test
+    public void testOpenDateRange()
+    {
+        assertEquals(ASSERT_MESSAGE, OPEN_DATE_RANGE_EXPECTED, ElasticSearchDateRewriter.rewrite(OPEN_DATE_RANGE_JSON));
+    }
+
+
+    /**
+     * Tests if JSON strings without dates remain unchanged.
+     */
+    @Test
+    public void testNoDate()
+    {
+        assertEquals(ASSERT_MESSAGE, NO_DATE_JSON, ElasticSearchDateRewriter.rewrite(NO_DATE_JSON));
+    }
+
+
+    /**
+     * Tests if the rewriter produces the same result as the
+     * regular expressions that were previously used by the
+     * ElasticSearchLoader.
+     */
+    @Test
+    public void testEquivalenceToLegacyRegex()
+    {
+        final String legacyResult = DOCUMENT_JSON
+                                    .replaceAll(LEGACY_DATE_RANGE_REGEX, LEGACY_DATE_RANGE_REPLACEMENT)
+                                    .replaceAll(LEGACY_DATE_REGEX, LEGACY_DATE_REPLACEMENT);
+
+        assertEquals(ASSERT_LEGACY_MESSAGE, legacyResult, ElasticSearchDateRewriter.rewrite(DOCUMENT_JSON));
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.loaders.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.AbstractUnitTest;
+import de.gerdiproject.harvest.etls.loaders.utils.EndpointBalancer.Endpoint;
+
+/**
+ * This class contains unit tests for the {@linkplain EndpointBalancer}.
+ *
+ * @author Robin Weiss
+ */
+public class EndpointBalancerTest extends AbstractUnitTest
+{
+    private static final List<String> URLS = Arrays.asList("http://node1:9200/_bulk", "http://node2:9200/_bulk", "http://node3:9200/_bulk");
+    private static final long COOLDOWN = 60000;
+    private static final long FAST_LATENCY = 100;
+    private static final long SLOW_LATENCY = 1000;
+
+
+    /**
+     * Tests if endpoints are selected in turn when round-robin selection is used.
+     */
+    @Test
+    public void testRoundRobinSelection()
+    {
+        final EndpointBalancer balancer = new EndpointBalancer(URLS, false, COOLDOWN);
+        final Set<String> selectedUrls = new HashSet<>();
+
+        for (int i = 0; i < URLS.size(); i++) {
+            final Endpoint endpoint = balancer.acquire(Collections.emptySet());
+            selectedUrls.add(endpoint.getUrl());
+            balancer.release(endpoint, true);
+        }
+
+        assertEquals("Expected every endpoint to be selected once!", URLS.size(), selectedUrls.size());
+    }
+
+
+    /**
+     * Tests if the endpoint with the lowest number of outstanding requests is
+     * selected when least-outstanding selection is used.
+     */
+    @Test
+    public void testLeastOutstandingSelection()
+    {
+        final EndpointBalancer balancer = new EndpointBalancer(URLS, true, COOLDOWN);
+
+        final Endpoint first = balancer.acquire(Collections.emptySet());
+        final Endpoint second = balancer.acquire(Collections.emptySet());
+        final Endpoint third = balancer.acquire(Collections.emptySet());
+        balancer.release(second, true);
+
+        final Endpoint fourth = balancer.acquire(Collections.emptySet());
+
+        assertNotEquals("Expected busy endpoints not to be selected twice!", first, second);
+        assertNotEquals("Expected busy endpoints not to be selected twice!", second, third);
+        assertEquals("Expected the idle endpoint to be selected!", second, fourth);
+    }
+
+
+    /**
+     * Tests if endpoints that failed are skipped while they are cooling down.
+     */
+    @Test
+    public void testFailedEndpointIsSkipped()
+    {
+        final EndpointBalancer balancer = new EndpointBalancer(URLS, false, COOLDOWN);
+
+        final Endpoint failedEndpoint = balancer.acquire(Collections.emptySet());
+        balancer.release(failedEndpoint, false);
+
+        for (int i = 0; i < URLS.size() * 2; i++) {
+            final Endpoint endpoint = balancer.acquire(Collections.emptySet());
+            assertNotEquals("Expected the failed endpoint to be skipped!", failedEndpoint, endpoint);
+            balancer.release(endpoint, true);
+        }
+    }
+
+
+    /**
+     * Tests if endpoints that respond considerably slower than the
+     * other endpoints are skipped while they are cooling down.
+     */
+    @Test
+    public void testDegradedEndpointIsSkipped()
+    {
+        final EndpointBalancer balancer = new EndpointBalancer(URLS.subList(0, 2), false, COOLDOWN);
+
+        final Endpoint fastEndpoint = balancer.acquire(Collections.emptySet());
+        balancer.release(fastEndpoint, true, FAST_LATENCY);
+
+        final Endpoint slowEndpoint = balancer.acquire(Collections.emptySet());
+        balancer.release(slowEndpoint, true, SLOW_LATENCY);
+
+        assertNotEquals("Expected both endpoints to be selected once!", fastEndpoint, slowEndpoint);
+        assertTrue("Expected the slow endpoint to be cooling down!", slowEndpoint.isCoolingDown(System.currentTimeMillis()));
+
+        for (int i = 0; i < URLS.size() * 2; i++) {
+            final Endpoint endpoint = balancer.acquire(Collections.emptySet());
+            assertEquals("Expected the slow endpoint to be skipped!", fastEndpoint, endpoint);
+            balancer.release(endpoint, true, FAST_LATENCY);
+        }
+    }
+
+
+    /**
+     * Tests if endpoints with a similar latency are not skipped.
+     */
+    @Test
+    public void testSimilarLatencyIsNotDegraded()
+    {
+        final EndpointBalancer balancer = new EndpointBalancer(URLS, false, COOLDOWN);
+
+        for (int i = 0; i < URLS.size() * 2; i++) {
+            final Endpoint endpoint = balancer.acquire(Collections.emptySet());
+            balancer.release(endpoint, true, FAST_LATENCY + i);
+            assertFalse("Expected endpoints with similar latencies not to be skipped!",
+                        endpoint.isCoolingDown(System.currentTimeMillis()));
+        }
+    }
+
+
+    /**
+     * Tests if an endpoint that is cooling down is selected if all other endpoints are excluded.
+     */
+    @Test
+    public void testCoolingDownEndpointIsUsedAsLastResort()
+    {
+        final EndpointBalancer balancer = new EndpointBalancer(URLS.subList(0, 2), false, COOLDOWN);
+        final List<Endpoint> endpoints = balancer.getEndpoints();
+
+        balancer.acquire(Collections.emptySet());
+        balancer.release(endpoints.get(0), false);
+
+        final Endpoint endpoint = balancer.acquire(Collections.singleton(endpoints.get(1)));
+
+        assertEquals("Expected the cooling down endpoint to be selected!", endpoints.get(0), endpoint);
+        assertTrue("Expected the endpoint to be cooling down!", endpoint.isCoolingDown(System.currentTimeMillis()));
+    }
+
+
+    /**
+     * Tests if no endpoint is selected if all endpoints are excluded.
+     */
+    @Test
+    public void testAllEndpointsExcluded()
+    {
+        final EndpointBalancer balancer = new EndpointBalancer(URLS, false, COOLDOWN);
+
+        assertNull("Expected no endpoint to be selected!",
+                   balancer.acquire(new HashSet<>(balancer.getEndpoints())));
+    }
+
+
+    /**
+     * Tests if the number of outstanding requests is decremented when an endpoint is released.
+     */
+    @Test
+    public void testOutstandingRequests()
+    {
+        final EndpointBalancer balancer = new EndpointBalancer(URLS, true, COOLDOWN);
+
+        final Endpoint endpoint = balancer.acquire(Collections.emptySet());
+        assertEquals("Expected one outstanding request!", 1, endpoint.getOutstandingRequests());
+
+        balancer.release(endpoint, true);
+        assertEquals("Expected no outstanding requests!", 0, endpoint.getOutstandingRequests());
+    }
+}
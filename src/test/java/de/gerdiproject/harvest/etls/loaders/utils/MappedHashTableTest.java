@@ -0,0 +1,241 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.loaders.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+import de.gerdiproject.harvest.etls.loaders.constants.LoaderConstants;
+
+/**
+ * This class contains unit tests for the {@linkplain MappedHashTable}.
+ *
+ * @author Robin Weiss
+ */
+public class MappedHashTableTest extends AbstractObjectUnitTest<MappedHashTable>
+{
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int ENTRY_COUNT = 5000;
+
+    private final File tableFile = new File(getTemporaryTestDirectory(), "table.bin");
+
+
+    @Override
+    protected MappedHashTable setUpTestObjects()
+    {
+        return openTable();
+    }
+
+
+    /**
+     * Tests if an inserted entry can be looked up.
+     */
+    @Test
+    public void testInsertAndLookup()
+    {
+        testedObject.put(createDigest(1), createDigest(2));
+
+        assertArrayEquals("Expected the inserted value to be returned!",
+                          createDigest(2),
+                          testedObject.get(createDigest(1)));
+    }
+
+
+    /**
+     * Tests if looking up a missing key returns null.
+     */
+    @Test
+    public void testLookupOfMissingKey()
+    {
+        testedObject.put(createDigest(1), createDigest(2));
+
+        assertNull("Expected no value for a key that was never inserted!",
+                   testedObject.get(createDigest(3)));
+    }
+
+
+    /**
+     * Tests if inserting an existing key replaces its value without
+     * adding another entry.
+     */
+    @Test
+    public void testReplacingValue()
+    {
+        testedObject.put(createDigest(1), createDigest(2));
+        testedObject.put(createDigest(1), createDigest(3));
+
+        assertArrayEquals("Expected the value to be replaced!",
+                          createDigest(3),
+                          testedObject.get(createDigest(1)));
+        assertEquals("Expected the number of entries to be unchanged!",
+                     1,
+                     testedObject.size());
+    }
+
+
+    /**
+     * Tests if all entries remain accessible after the table grew
+     * beyond its initial capacity.
+     */
+    @Test
+    public void testGrowing()
+    {
+        for (int i = 0; i < ENTRY_COUNT; i++)
+            testedObject.put(createDigest(i), createDigest(-i));
+
+        assertEquals("Expected all entries to be inserted!",
+                     ENTRY_COUNT,
+                     testedObject.size());
+
+        for (int i = 0; i < ENTRY_COUNT; i++)
+            assertArrayEquals("Expected all entries to be accessible after growing!",
+                              createDigest(-i),
+                              testedObject.get(createDigest(i)));
+
+        assertFalse("Expected the temporary file of the grown table to be moved!",
+                    new File(tableFile.getPath() + LoaderConstants.HASH_TABLE_TEMP_FILE_SUFFIX).exists());
+    }
+
+
+    /**
+     * Tests if a removed entry can no longer be looked up, while
+     * entries that were inserted after it can.
+     */
+    @Test
+    public void testRemoving()
+    {
+        testedObject.put(createDigest(1), createDigest(2));
+        testedObject.put(createDigest(3), createDigest(4));
+
+        assertTrue("Expected the entry to be removed!",
+                   testedObject.remove(createDigest(1)));
+        assertFalse("Expected a removed entry not to be removed twice!",
+                    testedObject.remove(createDigest(1)));
+        assertNull("Expected a removed entry not to be found!",
+                   testedObject.get(createDigest(1)));
+        assertArrayEquals("Expected other entries to remain accessible!",
+                          createDigest(4),
+                          testedObject.get(createDigest(3)));
+    }
+
+
+    /**
+     * Tests if a closed table is restored from its file.
+     */
+    @Test
+    public void testReopening()
+    {
+        for (int i = 0; i < ENTRY_COUNT; i++)
+            testedObject.put(createDigest(i), createDigest(-i));
+
+        testedObject.close();
+        final MappedHashTable reopenedTable = openTable();
+
+        assertEquals("Expected all entries to be restored!",
+                     ENTRY_COUNT,
+                     reopenedTable.size());
+        assertArrayEquals("Expected the values to be restored!",
+                          createDigest(-1),
+                          reopenedTable.get(createDigest(1)));
+    }
+
+
+    /**
+     * Tests if only entries that were not looked up or inserted since
+     * the table was reopened are unseen.
+     */
+    @Test
+    public void testUnseenKeys()
+    {
+        testedObject.put(createDigest(1), createDigest(1));
+        testedObject.put(createDigest(2), createDigest(2));
+        testedObject.put(createDigest(3), createDigest(3));
+        testedObject.close();
+
+        try
+            (MappedHashTable reopenedTable = openTable()) {
+            reopenedTable.get(createDigest(1));
+            reopenedTable.put(createDigest(4), createDigest(4));
+
+            final List<byte[]> unseenKeys = reopenedTable.getUnseenKeys();
+            assertEquals("Expected two entries to be unseen!", 2, unseenKeys.size());
+
+            for (final byte[] key : unseenKeys)
+                assertTrue("Expected only entries that were not looked up or inserted to be unseen!",
+                           Arrays.equals(createDigest(2), key) || Arrays.equals(createDigest(3), key));
+        }
+    }
+
+
+    /**
+     * Tests if keys of the wrong length are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidKeyLength()
+    {
+        testedObject.get(new byte[LoaderConstants.HASH_TABLE_KEY_LENGTH - 1]);
+    }
+
+
+    /**
+     * Creates a pseudo-random digest from a number.
+     *
+     * @param seed the number from which the digest is created
+     *
+     * @return a digest that is equal for equal seeds
+     */
+    private static byte[] createDigest(final int seed)
+    {
+        final ByteBuffer digest = ByteBuffer.allocate(LoaderConstants.HASH_TABLE_KEY_LENGTH);
+        int value = seed * 0x9E3779B9;
+
+        while (digest.remaining() >= Integer.BYTES) {
+            digest.putInt(value);
+            value = value * 31 + seed;
+        }
+
+        return digest.array();
+    }
+
+
+    /**
+     * Opens the tested table file.
+     *
+     * @return a mapped hash table
+     */
+    private MappedHashTable openTable()
+    {
+        try {
+            return new MappedHashTable(tableFile, INITIAL_CAPACITY);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
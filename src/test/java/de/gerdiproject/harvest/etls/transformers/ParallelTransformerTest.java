@@ -0,0 +1,257 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.transformers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+import de.gerdiproject.harvest.etls.AbstractETL;
+
+/**
+ * This class contains unit tests for the parallel transformation of an
+ * {@linkplain AbstractIteratorTransformer}.
+ *
+ * @author Robin Weiss
+ */
+public class ParallelTransformerTest extends AbstractObjectUnitTest<ParallelTransformerTest.MockedParallelTransformer>
+{
+    private static final int THREAD_COUNT = 4;
+    private static final int ELEMENT_COUNT = 100;
+    private static final int FAILING_ELEMENT = 7;
+    private static final int ABANDONED_AFTER = 3;
+    private static final String THREAD_NAME_PREFIX = MockedParallelTransformer.class.getSimpleName() + "-";
+
+
+    @Override
+    protected MockedParallelTransformer setUpTestObjects()
+    {
+        return new MockedParallelTransformer();
+    }
+
+
+    /**
+     * Tests if the transformed documents are returned in the order of their
+     * source elements, although they are transformed concurrently.
+     */
+    @Test
+    public void testOrderedTransformation()
+    {
+        testedObject.setParallelism(THREAD_COUNT, true);
+
+        final List<Integer> transformed = transformAll(testedObject.transform(createElements()));
+
+        assertEquals("Expected all elements to be transformed!",
+                     ELEMENT_COUNT,
+                     transformed.size());
+
+        for (int i = 0; i < ELEMENT_COUNT; i++)
+            assertEquals("Expected the documents to be in the order of their source elements!",
+                         Integer.valueOf(-i),
+                         transformed.get(i));
+    }
+
+
+    /**
+     * Tests if all documents are returned if the order of the
+     * source elements does not need to be retained.
+     */
+    @Test
+    public void testUnorderedTransformation()
+    {
+        testedObject.setParallelism(THREAD_COUNT, false);
+
+        final List<Integer> transformed = transformAll(testedObject.transform(createElements()));
+        final Set<Integer> expected = IntStream.range(0, ELEMENT_COUNT).map(i -> -i).boxed().collect(Collectors.toSet());
+
+        assertEquals("Expected all elements to be transformed exactly once!",
+                     ELEMENT_COUNT,
+                     transformed.size());
+        assertEquals("Expected all elements to be transformed exactly once!",
+                     expected,
+                     new HashSet<>(transformed));
+    }
+
+
+    /**
+     * Tests if the exception of a failed transformation is thrown by the
+     * iterating thread, and if the transformation threads are stopped afterwards.
+     */
+    @Test
+    public void testExceptionPropagation()
+    {
+        testedObject.setParallelism(THREAD_COUNT, true);
+        testedObject.isFailing = true;
+
+        try {
+            transformAll(testedObject.transform(createElements()));
+            fail("Expected the failed transformation to throw a " + TransformerException.class.getSimpleName() + "!");
+        } catch (final TransformerException e) { // NOPMD the exception is expected
+            assertTrue("Expected the exception of the failed transformation to be the cause!",
+                       e.getCause() instanceof IllegalStateException);
+        }
+
+        assertTrue("Expected the transformation threads to be stopped after a failure!",
+                   waitForTransformationThreadsToStop());
+    }
+
+
+    /**
+     * Tests if closing an iterator that was not iterated until its end
+     * stops the transformation threads.
+     *
+     * @throws Exception thrown if the iterator could not be closed
+     */
+    @Test
+    public void testEarlyAbandonment() throws Exception
+    {
+        testedObject.setParallelism(THREAD_COUNT, true);
+
+        final Iterator<Integer> transformed = testedObject.transform(createElements());
+
+        for (int i = 0; i < ABANDONED_AFTER; i++)
+            transformed.next();
+
+        assertTrue("Expected the iterator of a parallel transformation to be closeable!",
+                   transformed instanceof AutoCloseable);
+
+        ((AutoCloseable) transformed).close();
+
+        assertFalse("Expected a closed iterator to have no more elements!",
+                    transformed.hasNext());
+        assertTrue("Expected the transformation threads to be stopped when the iterator is closed!",
+                   waitForTransformationThreadsToStop());
+        assertTrue("Expected closing the iterator to stop pending transformations!",
+                   testedObject.transformedCount < ELEMENT_COUNT);
+    }
+
+
+    /**
+     * Creates an iterator over the numbers from 0 to the element count.
+     *
+     * @return an iterator over the source elements
+     */
+    private static Iterator<Integer> createElements()
+    {
+        return IntStream.range(0, ELEMENT_COUNT).boxed().iterator();
+    }
+
+
+    /**
+     * Iterates all transformed documents and returns them as a list.
+     *
+     * @param documents the transformed documents
+     *
+     * @return a list of all transformed documents
+     */
+    private static List<Integer> transformAll(final Iterator<Integer> documents)
+    {
+        final List<Integer> transformedDocuments = new ArrayList<>();
+
+        while (documents.hasNext())
+            transformedDocuments.add(documents.next());
+
+        return transformedDocuments;
+    }
+
+
+    /**
+     * Waits until no transformation thread of the tested transformer is alive.
+     *
+     * @return true if all transformation threads stopped before the timeout
+     */
+    private static boolean waitForTransformationThreadsToStop()
+    {
+        final long deadline = System.currentTimeMillis() + DEFAULT_EVENT_TIMEOUT;
+
+        while (System.currentTimeMillis() < deadline) {
+            final boolean isAnyThreadAlive = Thread.getAllStackTraces().keySet().stream()
+                                             .anyMatch((final Thread t) -> t.getName().startsWith(THREAD_NAME_PREFIX) && t.isAlive());
+
+            if (!isAnyThreadAlive)
+                return true;
+
+            try {
+                Thread.sleep(10);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * This transformer negates numbers with random delays, and can be set up
+     * to fail when transforming a specific number.
+     *
+     * @author Robin Weiss
+     */
+    static class MockedParallelTransformer extends AbstractIteratorTransformer<Integer, Integer>
+    {
+        private volatile boolean isFailing;
+        private volatile int transformedCount;
+
+
+        @Override
+        public void init(final AbstractETL<?, ?> etl)
+        {
+            // nothing to initialize
+        }
+
+
+        @Override
+        protected Integer transformElement(final Integer source) throws TransformerException
+        {
+            if (isFailing && source == FAILING_ELEMENT)
+                throw new IllegalStateException(String.valueOf(source));
+
+            try {
+                Thread.sleep((long)(Math.random() * 10));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            synchronized (this) {
+                transformedCount++;
+            }
+
+            return -source;
+        }
+
+
+        @Override
+        public void clear()
+        {
+            // nothing to clean up
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+import de.gerdiproject.harvest.etls.constants.ETLConstants;
+import de.gerdiproject.harvest.etls.json.ETLCheckpointJson;
+
+/**
+ * This class contains unit tests for the {@linkplain CheckpointFile}.
+ *
+ * @author Robin Weiss
+ */
+public class CheckpointFileTest extends AbstractObjectUnitTest<CheckpointFile>
+{
+    private static final String VERSION_HASH = "abc123";
+
+    private final File checkpointFile = new File(getTemporaryTestDirectory(), "checkpoints/etl.json");
+
+
+    @Override
+    protected CheckpointFile setUpTestObjects()
+    {
+        return new CheckpointFile(checkpointFile);
+    }
+
+
+    /**
+     * Tests if loading a checkpoint that was never saved returns null.
+     */
+    @Test
+    public void testLoadingMissingCheckpoint()
+    {
+        assertNull("Expected no checkpoint to be loaded if none was saved!",
+                   testedObject.load());
+    }
+
+
+    /**
+     * Tests if a saved checkpoint can be loaded again.
+     */
+    @Test
+    public void testSavingAndLoading()
+    {
+        final ETLCheckpointJson checkpoint = new ETLCheckpointJson(VERSION_HASH, 0, 100, random.nextInt(100));
+        testedObject.save(checkpoint);
+
+        assertEquals("Expected the saved checkpoint to be loaded!",
+                     checkpoint,
+                     testedObject.load());
+    }
+
+
+    /**
+     * Tests if saving a checkpoint replaces the previous one
+     * and leaves no temporary file behind.
+     */
+    @Test
+    public void testReplacingCheckpoint()
+    {
+        testedObject.save(new ETLCheckpointJson(VERSION_HASH, 0, 100, 10));
+        final ETLCheckpointJson newCheckpoint = new ETLCheckpointJson(VERSION_HASH, 0, 100, 20);
+        testedObject.save(newCheckpoint);
+
+        assertEquals("Expected the latest checkpoint to be loaded!",
+                     newCheckpoint,
+                     testedObject.load());
+
+        assertFalse("Expected the temporary checkpoint file to be moved!",
+                    new File(checkpointFile.getPath() + ETLConstants.CHECKPOINT_TEMP_FILE_SUFFIX).exists());
+    }
+
+
+    /**
+     * Tests if deleting a checkpoint removes its file.
+     */
+    @Test
+    public void testDeletingCheckpoint()
+    {
+        assertTrue("Expected the checkpoint to be saved!",
+                   testedObject.save(new ETLCheckpointJson(VERSION_HASH, 0, 100, 10)));
+
+        testedObject.delete();
+
+        assertNull("Expected no checkpoint to be loaded after it was deleted!",
+                   testedObject.load());
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+import de.gerdiproject.harvest.etls.extractors.ExtractorException;
+
+/**
+ * This class contains unit tests for the {@linkplain PipelineQueue}.
+ *
+ * @author Robin Weiss
+ */
+public class PipelineQueueTest extends AbstractObjectUnitTest<PipelineQueue<Integer>>
+{
+    private static final int CAPACITY = 4;
+    private static final int ELEMENT_COUNT = 100;
+    private static final String FAILURE_MESSAGE = "mocked failure";
+
+
+    @Override
+    protected PipelineQueue<Integer> setUpTestObjects()
+    {
+        return new PipelineQueue<>(CAPACITY);
+    }
+
+
+    /**
+     * Tests if all elements that are added on one thread are retrieved
+     * on another thread in the same order, even if they exceed the capacity.
+     */
+    @Test
+    public void testHandOffOrder()
+    {
+        CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < ELEMENT_COUNT; i++)
+                testedObject.put(i);
+
+            testedObject.close();
+        });
+
+        final List<Integer> consumed = new LinkedList<>();
+
+        while (testedObject.hasNext())
+            consumed.add(testedObject.next());
+
+        assertEquals("Expected all elements to be handed off!", ELEMENT_COUNT, consumed.size());
+
+        for (int i = 0; i < ELEMENT_COUNT; i++)
+            assertEquals("Expected elements to be handed off in order!", Integer.valueOf(i), consumed.get(i));
+    }
+
+
+    /**
+     * Tests if null elements are handed off as null.
+     */
+    @Test
+    public void testNullElement()
+    {
+        testedObject.put(null);
+        testedObject.close();
+
+        assertTrue("Expected null elements to be handed off!", testedObject.hasNext());
+        assertNull("Expected null elements to be handed off!", testedObject.next());
+        assertFalse("Expected the queue to end after it was closed!", testedObject.hasNext());
+    }
+
+
+    /**
+     * Tests if an exception of the producer is thrown by the consumer,
+     * after all elements that were added before the failure are consumed.
+     */
+    @Test(expected = ExtractorException.class)
+    public void testFailureIsForwarded()
+    {
+        testedObject.put(1);
+        testedObject.closeExceptionally(new ExtractorException(FAILURE_MESSAGE));
+
+        assertEquals("Expected elements added before a failure to be handed off!",
+                     Integer.valueOf(1),
+                     testedObject.next());
+
+        testedObject.hasNext();
+    }
+
+
+    /**
+     * Tests if an {@linkplain Error} of the producer ends the queue and is
+     * thrown by the consumer, instead of leaving the consumer waiting.
+     */
+    @Test(expected = StackOverflowError.class)
+    public void testErrorIsForwarded()
+    {
+        testedObject.closeExceptionally(new StackOverflowError(FAILURE_MESSAGE));
+        testedObject.hasNext();
+    }
+
+
+    /**
+     * Tests if cancelling the queue releases a producer that is blocked
+     * because the queue is full.
+     *
+     * @throws ExecutionException thrown if the producer fails
+     * @throws InterruptedException thrown if the test is interrupted
+     * @throws TimeoutException thrown if the producer is not released in time
+     */
+    @Test
+    public void testCancelReleasesProducer() throws InterruptedException, ExecutionException, TimeoutException
+    {
+        final CompletableFuture<Boolean> producer = CompletableFuture.supplyAsync(() -> {
+            for (int i = 0; i < ELEMENT_COUNT; i++) {
+                if (!testedObject.put(i))
+                    return false;
+            }
+
+            return true;
+        });
+
+        testedObject.cancel();
+
+        assertFalse("Expected blocked producers to be released when the queue is cancelled!",
+                    producer.get(DEFAULT_EVENT_TIMEOUT, TimeUnit.MILLISECONDS));
+        assertFalse("Expected a cancelled queue to have no more elements!", testedObject.hasNext());
+    }
+}
@@ -23,9 +23,19 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -53,6 +63,9 @@ public class EventSystemTest
     private final static TestSynchronousEvent SINGLE_SYNC_TEST_EVENT = new TestSynchronousEvent("single");
     private final static String STATIC_SYNC_PAYLOAD = "123";
     private final static String REMOVE_LISTENER_ERROR = "Removing non-existing listeners should not cause exceptions";
+    private final static int THREAD_COUNT = 8;
+    private final static int EVENTS_PER_THREAD = 2000;
+    private final static long SYNC_EVENT_TIMEOUT = 5;
 
 
     private List<TestEvent> receivedEvents;
@@ -432,10 +445,178 @@ public class EventSystemTest
     }
 
 
+    /**
+     * Tests if listeners that are removed by a callback function while an event
+     * is being dispatched are not called anymore.
+     */
+    @Test
+    public void testRemovingListenerDuringDispatch()
+    {
+        EventSystem.addListener(TestEvent.class, onTestEvent);
+
+        // listeners are called in reverse order, so this listener is called first
+        EventSystem.addListener(TestEvent.class, (TestEvent event) -> EventSystem.removeListener(TestEvent.class, onTestEvent));
+
+        EventSystem.sendEvent(SINGLE_TEST_EVENT);
+
+        assertEquals("Listeners that were removed during the dispatch of an event should not be called!",
+                     0,
+                     receivedEvents.size());
+    }
+
+
+    /**
+     * Tests if listeners that are added by a callback function while an event
+     * is being dispatched are not called until the next dispatch.
+     */
+    @Test
+    public void testAddingListenerDuringDispatch()
+    {
+        final Consumer<TestEvent> addingListener = (TestEvent event) -> {
+            EventSystem.addListener(TestEvent.class, onTestEvent);
+        };
+        EventSystem.addListener(TestEvent.class, addingListener);
+
+        EventSystem.sendEvent(SINGLE_TEST_EVENT);
+        EventSystem.removeListener(TestEvent.class, addingListener);
+        EventSystem.sendEvent(SINGLE_TEST_EVENT);
+
+        assertEquals("Listeners that were added during the dispatch of an event should only be called by subsequent dispatches!",
+                     1,
+                     receivedEvents.size());
+    }
+
+
+    /**
+     * Tests if events can be sent while other threads are adding and removing
+     * listeners, and if all listeners are removed afterwards.
+     *
+     * @throws InterruptedException thrown if the test is interrupted
+     * @throws ExecutionException thrown if an exception occurs in one of the threads
+     */
+    @Test
+    public void testConcurrentDispatching() throws InterruptedException, ExecutionException
+    {
+        final AtomicInteger receivedEventCount = new AtomicInteger();
+        EventSystem.addSynchronousListener(TestSynchronousEvent.class, onTestSyncEvent);
+
+        final int failedSyncEvents = countConcurrentFailures(() -> {
+            int threadFailures = 0;
+
+            for (int i = 0; i < EVENTS_PER_THREAD; i++)
+            {
+                final Consumer<TestEvent> listener = (TestEvent event) -> receivedEventCount.incrementAndGet();
+                EventSystem.addListener(TestEvent.class, listener);
+                EventSystem.sendEvent(SINGLE_TEST_EVENT);
+                EventSystem.removeListener(TestEvent.class, listener);
+
+                if (!SINGLE_SYNC_TEST_EVENT.getPayload().equals(EventSystem.sendSynchronousEvent(SINGLE_SYNC_TEST_EVENT)))
+                    threadFailures++;
+            }
+
+            return threadFailures;
+        });
+
+        assertEquals("Synchronous events should return the expected payload while other threads dispatch events!",
+                     0,
+                     failedSyncEvents);
+        assertFalse("All listeners that were added and removed concurrently should be removed!",
+                    EventSystem.hasAsynchronousEventListeners());
+        assertTrue("Events that were sent concurrently should be received by listeners!",
+                   receivedEventCount.get() > 0);
+    }
+
+
+    /**
+     * Tests if synchronous events can be sent while the callback function of
+     * another synchronous event is still being executed.
+     *
+     * @throws InterruptedException thrown if the test is interrupted
+     * @throws ExecutionException thrown if the blocked callback function fails
+     * @throws TimeoutException thrown if the synchronous event is blocked
+     */
+    @Test
+    public void testSynchronousEventsDoNotBlockEachOther() throws InterruptedException, ExecutionException, TimeoutException
+    {
+        final TestSynchronousEvent blockingEvent = new TestSynchronousEvent(STATIC_SYNC_PAYLOAD);
+        final CountDownLatch callbackStarted = new CountDownLatch(1);
+        final CountDownLatch callbackReleased = new CountDownLatch(1);
+
+        EventSystem.addSynchronousListener(TestSynchronousEvent.class, (TestSynchronousEvent event) -> {
+            if (event == blockingEvent)
+            {
+                callbackStarted.countDown();
+
+                try {
+                    callbackReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            return event.getPayload();
+        });
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            final Future<Object> blockedResult = executor.submit(() -> EventSystem.sendSynchronousEvent(blockingEvent));
+            callbackStarted.await();
+
+            final Future<Object> result = executor.submit(() -> EventSystem.sendSynchronousEvent(SINGLE_SYNC_TEST_EVENT));
+
+            assertEquals("A synchronous event should not wait for the callback function of another synchronous event!",
+                         SINGLE_SYNC_TEST_EVENT.getPayload(),
+                         result.get(SYNC_EVENT_TIMEOUT, TimeUnit.SECONDS));
+
+            callbackReleased.countDown();
+            assertEquals("The blocked callback function should return its payload after it was released!",
+                         STATIC_SYNC_PAYLOAD,
+                         blockedResult.get());
+        } finally {
+            callbackReleased.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+
     //////////////////////
     // Non-test Methods //
     //////////////////////
 
+    /**
+     * Runs a task on multiple threads at the same time and sums up
+     * the number of failures that were returned by the task.
+     *
+     * @param task a task that returns the number of failures that occurred
+     *
+     * @return the total number of failures of all threads
+     *
+     * @throws InterruptedException thrown if the test is interrupted
+     * @throws ExecutionException thrown if an exception occurs in one of the threads
+     */
+    private static int countConcurrentFailures(final Callable<Integer> task) throws InterruptedException, ExecutionException
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+
+        try {
+            final List<Callable<Integer>> tasks = new ArrayList<>(THREAD_COUNT);
+
+            for (int i = 0; i < THREAD_COUNT; i++)
+                tasks.add(task);
+
+            int failures = 0;
+
+            for (final Future<Integer> result : executor.invokeAll(tasks))
+                failures += result.get();
+
+            return failures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+
     /**
      * Exemplary event callback function that adds the received event to a list.
      */
@@ -0,0 +1,216 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.core.HttpHeaders;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpServer;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+import de.gerdiproject.harvest.config.Configuration;
+import de.gerdiproject.harvest.etls.json.HttpStatisticsJson;
+import de.gerdiproject.harvest.utils.data.HttpRequester;
+import de.gerdiproject.harvest.utils.data.HttpStatistics;
+import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
+
+/**
+ * This class contains unit tests for conditional requests of the {@linkplain HttpRequester}.
+ * The web server is simulated by a local stub HTTP server that supports ETags.
+ *
+ * @author Robin Weiss
+ */
+public class ConditionalRequestTest extends AbstractObjectUnitTest<HttpRequester>
+{
+    private static final String STUB_URL = "http://localhost:%d/object";
+    private static final String RESPONSE = "{\"version\":%d}";
+    private static final String MULTI_LINE_RESPONSE = "{\r\n  \"version\" : %d,\r\n  \"text\" : \"\u00e4\u00f6\u00fc\"\r\n}\r\n";
+    private static final String ENTITY_TAG = "\"%d\"";
+    private static final String VERSION_KEY = "version";
+
+    private HttpServer server;
+    private AtomicInteger sentResponses;
+    private AtomicInteger version;
+    private volatile String responseFormat;
+    private String url;
+
+
+    @Override
+    protected HttpRequester setUpTestObjects()
+    {
+        this.sentResponses = new AtomicInteger(0);
+        this.version = new AtomicInteger(1);
+        this.responseFormat = RESPONSE;
+        this.server = createStubServer();
+        this.url = String.format(STUB_URL, server.getAddress().getPort());
+
+        config = new Configuration(MODULE_NAME);
+        config.addEventListeners();
+
+        final HttpRequester requester = new HttpRequester(new Gson(), StandardCharsets.UTF_8);
+        requester.setCacheFolder(getTemporaryTestDirectory());
+
+        config.setParameter(DataOperationConstants.CONDITIONAL_REQUESTS_PARAM.getCompositeKey(), String.valueOf(true));
+        HttpStatistics.reset();
+
+        return requester;
+    }
+
+
+    @Override
+    public void after()
+    {
+        server.stop(0);
+        super.after();
+    }
+
+
+    /**
+     * Tests if a response is not downloaded again if it has not changed.
+     */
+    @Test
+    public void testNotModifiedResponse()
+    {
+        testedObject.getObjectFromUrl(url, JsonObject.class);
+        final JsonObject revalidatedObject = testedObject.getObjectFromUrl(url, JsonObject.class);
+
+        assertEquals("Expected the cached response to be returned!",
+                     1,
+                     revalidatedObject.get(VERSION_KEY).getAsInt());
+        assertEquals("Expected the full response to be sent only once!",
+                     1,
+                     sentResponses.get());
+    }
+
+
+    /**
+     * Tests if a response is downloaded again if it has changed.
+     */
+    @Test
+    public void testModifiedResponse()
+    {
+        testedObject.getObjectFromUrl(url, JsonObject.class);
+        version.incrementAndGet();
+        final JsonObject revalidatedObject = testedObject.getObjectFromUrl(url, JsonObject.class);
+
+        assertEquals("Expected the changed response to be returned!",
+                     2,
+                     revalidatedObject.get(VERSION_KEY).getAsInt());
+        assertEquals("Expected the full response to be sent twice!",
+                     2,
+                     sentResponses.get());
+    }
+
+
+    /**
+     * Tests if the saved bytes and the ratio of unchanged responses
+     * are counted.
+     */
+    @Test
+    public void testStatistics()
+    {
+        testedObject.getObjectFromUrl(url, JsonObject.class);
+        testedObject.getObjectFromUrl(url, JsonObject.class);
+
+        final HttpStatisticsJson statistics = HttpStatistics.getAsJson();
+
+        assertEquals("Expected every request to be counted!",
+                     2,
+                     statistics.getConditionalRequests());
+        assertEquals("Expected half of the requests to be answered with 304 Not Modified!",
+                     0.5,
+                     statistics.getNotModifiedRatio(),
+                     0);
+        assertEquals("Expected the size of the cached response to be counted as saved!",
+                     String.format(RESPONSE, 1).length(),
+                     statistics.getSavedBytes());
+    }
+
+
+    /**
+     * Tests if a cached response is returned unaltered, including
+     * line breaks and multi-byte characters.
+     */
+    @Test
+    public void testNotModifiedResponseIsUnaltered()
+    {
+        responseFormat = MULTI_LINE_RESPONSE;
+
+        testedObject.getObjectFromUrl(url, JsonObject.class);
+        final JsonObject revalidatedObject = testedObject.getObjectFromUrl(url, JsonObject.class);
+
+        assertEquals("Expected the cached response to be returned!",
+                     1,
+                     revalidatedObject.get(VERSION_KEY).getAsInt());
+        assertEquals("Expected all bytes of the response to be cached!",
+                     String.format(MULTI_LINE_RESPONSE, 1).getBytes(StandardCharsets.UTF_8).length,
+                     HttpStatistics.getAsJson().getSavedBytes());
+    }
+
+
+    /**
+     * Creates a local HTTP server that responds with a versioned JSON object
+     * and its ETag, or with 304 Not Modified if the ETag is still valid.
+     *
+     * @return a started HTTP server
+     */
+    private HttpServer createStubServer()
+    {
+        final HttpServer stubServer;
+
+        try {
+            stubServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        stubServer.createContext("/", exchange -> {
+            final int currentVersion = version.get();
+            final String entityTag = String.format(ENTITY_TAG, currentVersion);
+
+            if (entityTag.equals(exchange.getRequestHeaders().getFirst(HttpHeaders.IF_NONE_MATCH))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+
+            sentResponses.incrementAndGet();
+            final byte[] response = String.format(responseFormat, currentVersion).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set(HttpHeaders.ETAG, entityTag);
+            exchange.sendResponseHeaders(200, response.length);
+
+            try
+                (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(response);
+            }
+        });
+        stubServer.start();
+
+        return stubServer;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+import de.gerdiproject.harvest.utils.data.ByteArrayRequestBody;
+import de.gerdiproject.harvest.utils.data.GzipRequestBody;
+import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
+
+/**
+ * This class contains unit tests for the {@linkplain GzipRequestBody}.
+ *
+ * @author Robin Weiss
+ */
+public class GzipRequestBodyTest extends AbstractObjectUnitTest<GzipRequestBody>
+{
+    private static final String BULK_LINE = "{\"index\":{\"_id\":\"%d\"}}\n{\"publicationYear\":%d}\n";
+    private static final int LINE_COUNT = 1000;
+
+    private String uncompressedText;
+
+
+    @Override
+    protected GzipRequestBody setUpTestObjects()
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < LINE_COUNT; i++)
+            sb.append(String.format(BULK_LINE, i, i));
+
+        this.uncompressedText = sb.toString();
+
+        return new GzipRequestBody(new ByteArrayRequestBody(uncompressedText, StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * Tests if the written body can be decompressed to the original body.
+     *
+     * @throws IOException thrown if the body could not be written or read
+     */
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        assertEquals("Expected the original body after decompression!",
+                     uncompressedText,
+                     decompress(write()));
+    }
+
+
+    /**
+     * Tests if the body can be written more than once.
+     *
+     * @throws IOException thrown if the body could not be written or read
+     */
+    @Test
+    public void testRepeatedWrite() throws IOException
+    {
+        write();
+
+        assertEquals("Expected the original body after writing it twice!",
+                     uncompressedText,
+                     decompress(write()));
+    }
+
+
+    /**
+     * Tests if the compressed and uncompressed sizes are measured.
+     *
+     * @throws IOException thrown if the body could not be written
+     */
+    @Test
+    public void testSizes() throws IOException
+    {
+        final byte[] compressed = write();
+
+        assertEquals("Expected the uncompressed size to be measured!",
+                     uncompressedText.getBytes(StandardCharsets.UTF_8).length,
+                     testedObject.getUncompressedSize());
+        assertEquals("Expected the compressed size to be measured!",
+                     compressed.length,
+                     testedObject.getCompressedSize());
+        assertTrue("Expected repetitive JSON to be compressed!",
+                   testedObject.getCompressedSize() < testedObject.getUncompressedSize());
+    }
+
+
+    /**
+     * Tests if the body declares its encoding and an unknown length.
+     */
+    @Test
+    public void testHeaders()
+    {
+        assertEquals("Expected GZIP content encoding!",
+                     DataOperationConstants.GZIP_ENCODING,
+                     testedObject.getContentEncoding());
+        assertEquals("Expected the content length to be unknown!",
+                     -1,
+                     testedObject.getContentLength());
+    }
+
+
+    //////////////////////
+    // Non-test Methods //
+    //////////////////////
+
+    /**
+     * Writes the tested body to a byte array.
+     *
+     * @return the compressed body
+     *
+     * @throws IOException thrown if the body could not be written
+     */
+    private byte[] write() throws IOException
+    {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        testedObject.writeTo(outputStream);
+        return outputStream.toByteArray();
+    }
+
+
+    /**
+     * Decompresses a GZIP-compressed byte array to a UTF-8 string.
+     *
+     * @param compressed the compressed bytes
+     *
+     * @return the decompressed string
+     *
+     * @throws IOException thrown if the bytes could not be decompressed
+     */
+    private static String decompress(final byte[] compressed) throws IOException
+    {
+        final ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+
+        try
+            (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            final byte[] buffer = new byte[1024];
+            int readBytes;
+
+            while ((readBytes = inputStream.read(buffer)) != -1)
+                decompressed.write(buffer, 0, readBytes);
+        }
+
+        return new String(decompressed.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -16,9 +16,23 @@
  */
 package de.gerdiproject.harvest.utils;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 
@@ -36,6 +50,12 @@ public class HashGeneratorTest extends AbstractObjectUnitTest<HashGenerator>
     private static final String INPUT_VALUE = "test";
     private static final String HASHED_INPUT_VALUE = "a94a8fe5ccb19ba61c4c0873d391e987982fbbd3";
     private static final String ASSERT_MESSAGE = "The method getShaHash(\"" + INPUT_VALUE + "\") should return:" + HASHED_INPUT_VALUE;
+    private static final String INCREMENTAL_ASSERT_MESSAGE = "Hashing the input incrementally should yield the same hash as getShaHash()";
+    private static final int LONG_INPUT_REPETITIONS = 2000;
+    private static final int CHUNK_SIZE = 7;
+    private static final int THREAD_COUNT = 8;
+    private static final int HASHES_PER_THREAD = 2000;
+    private static final String CONCURRENT_ASSERT_MESSAGE = "Hashing concurrently with a shared HashGenerator should yield the same hashes as hashing sequentially";
 
 
     @Override
@@ -55,4 +75,287 @@ public class HashGeneratorTest extends AbstractObjectUnitTest<HashGenerator>
                      HASHED_INPUT_VALUE,
                      testedObject.getShaHash(INPUT_VALUE));
     }
+
+
+    /**
+     * Tests if hashing a byte array in multiple chunks yields the same hash
+     * as hashing it at once.
+     */
+    @Test
+    public void testUpdateWithByteChunks()
+    {
+        final byte[] input = getLongInput().getBytes(StandardCharsets.UTF_8);
+
+        for (int offset = 0; offset < input.length; offset += CHUNK_SIZE)
+            testedObject.update(input, offset, Math.min(CHUNK_SIZE, input.length - offset));
+
+        assertEquals(INCREMENTAL_ASSERT_MESSAGE,
+                     testedObject.getShaHash(input),
+                     testedObject.finish());
+    }
+
+
+    /**
+     * Tests if hashing a {@linkplain ByteBuffer} yields the same hash
+     * as hashing the bytes at once.
+     */
+    @Test
+    public void testUpdateWithByteBuffer()
+    {
+        final byte[] input = getLongInput().getBytes(StandardCharsets.UTF_8);
+        testedObject.update(ByteBuffer.wrap(input));
+
+        assertEquals(INCREMENTAL_ASSERT_MESSAGE,
+                     testedObject.getShaHash(input),
+                     testedObject.finish());
+    }
+
+
+    /**
+     * Tests if hashing an {@linkplain InputStream} yields the same hash
+     * as hashing its bytes at once.
+     *
+     * @throws IOException thrown if the stream cannot be read
+     */
+    @Test
+    public void testUpdateWithInputStream() throws IOException
+    {
+        final byte[] input = getLongInput().getBytes(StandardCharsets.UTF_8);
+        testedObject.update(new ByteArrayInputStream(input));
+
+        assertEquals(INCREMENTAL_ASSERT_MESSAGE,
+                     testedObject.getShaHash(input),
+                     testedObject.finish());
+    }
+
+
+    /**
+     * Tests if hashing a {@linkplain java.io.Reader} yields the same hash
+     * as hashing the whole string, even if multi-byte characters and
+     * surrogate pairs span multiple read buffers.
+     *
+     * @throws IOException thrown if the reader cannot be read
+     */
+    @Test
+    public void testUpdateWithReader() throws IOException
+    {
+        final String input = getLongInput();
+        testedObject.update(new StringReader(input));
+
+        assertEquals(INCREMENTAL_ASSERT_MESSAGE,
+                     testedObject.getShaHash(input),
+                     testedObject.finish());
+    }
+
+
+    /**
+     * Tests if generating a one-shot hash while an incremental hash is in
+     * progress affects neither of the hashes.
+     */
+    @Test
+    public void testOneShotHashDuringIncrementalHash()
+    {
+        final byte[] input = getLongInput().getBytes(StandardCharsets.UTF_8);
+        final int half = input.length / 2;
+
+        testedObject.update(input, 0, half);
+
+        assertEquals(ASSERT_MESSAGE,
+                     HASHED_INPUT_VALUE,
+                     testedObject.getShaHash(INPUT_VALUE));
+
+        testedObject.update(input, half, input.length - half);
+
+        assertEquals(INCREMENTAL_ASSERT_MESSAGE,
+                     testedObject.getShaHash(input),
+                     testedObject.finish());
+    }
+
+
+    /**
+     * Tests if finish() resets the generator, allowing it to
+     * generate a new hash.
+     */
+    @Test
+    public void testFinishResetsHash()
+    {
+        testedObject.update("some other input");
+        testedObject.finish();
+        testedObject.update(INPUT_VALUE);
+
+        assertEquals(ASSERT_MESSAGE,
+                     HASHED_INPUT_VALUE,
+                     testedObject.finish());
+    }
+
+
+    /**
+     * Tests if a {@linkplain HashingInputStream} passes through
+     * all bytes of the stream it wraps.
+     *
+     * @throws IOException thrown if the stream cannot be read
+     */
+    @Test
+    public void testHashingInputStreamPassesThroughBytes() throws IOException
+    {
+        final byte[] input = getLongInput().getBytes(StandardCharsets.UTF_8);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        try
+            (InputStream hashingStream = new HashingInputStream(new ByteArrayInputStream(input), testedObject)) {
+            final byte[] buffer = new byte[CHUNK_SIZE];
+            int readBytes;
+
+            while ((readBytes = hashingStream.read(buffer)) != -1)
+                output.write(buffer, 0, readBytes);
+        }
+
+        assertArrayEquals("The HashingInputStream should not alter the bytes of the wrapped stream",
+                          input,
+                          output.toByteArray());
+    }
+
+
+    /**
+     * Tests if a {@linkplain HashingInputStream} generates the same hash
+     * as getShaHash(), including bytes that were read one at a time or skipped.
+     *
+     * @throws IOException thrown if the stream cannot be read
+     */
+    @Test
+    public void testHashingInputStreamHash() throws IOException
+    {
+        final byte[] input = getLongInput().getBytes(StandardCharsets.UTF_8);
+        final String expectedHash = new HashGenerator(StandardCharsets.UTF_8).getShaHash(input);
+
+        try
+            (HashingInputStream hashingStream = new HashingInputStream(new ByteArrayInputStream(input), testedObject)) {
+            hashingStream.read();
+            hashingStream.skip(CHUNK_SIZE);
+
+            final byte[] buffer = new byte[CHUNK_SIZE];
+            int readBytes;
+
+            do
+                readBytes = hashingStream.read(buffer);
+            while (readBytes != -1);
+
+            assertEquals("The HashingInputStream should generate the hash of all consumed bytes",
+                         expectedHash,
+                         hashingStream.getHash());
+        }
+    }
+
+
+    /**
+     * Tests if multiple threads can generate hashes with the same
+     * {@linkplain HashGenerator} without corrupting each other's hashes.
+     *
+     * @throws InterruptedException thrown if the test is interrupted
+     * @throws ExecutionException thrown if a hashing thread fails
+     */
+    @Test
+    public void testConcurrentHashValues() throws InterruptedException, ExecutionException
+    {
+        final String[] inputs = new String[HASHES_PER_THREAD];
+        final String[] expectedHashes = new String[HASHES_PER_THREAD];
+
+        for (int i = 0; i < HASHES_PER_THREAD; i++) {
+            inputs[i] = INPUT_VALUE + i;
+            expectedHashes[i] = new HashGenerator(StandardCharsets.UTF_8).getShaHash(inputs[i]);
+        }
+
+        final int mismatches = countConcurrentMismatches(() -> {
+            int threadMismatches = 0;
+
+            for (int i = 0; i < HASHES_PER_THREAD; i++)
+            {
+                if (!expectedHashes[i].equals(testedObject.getShaHash(inputs[i])))
+                    threadMismatches++;
+            }
+
+            return threadMismatches;
+        });
+
+        assertEquals(CONCURRENT_ASSERT_MESSAGE, 0, mismatches);
+    }
+
+
+    /**
+     * Tests if multiple threads can incrementally generate hashes with the same
+     * {@linkplain HashGenerator} without corrupting each other's hashes.
+     *
+     * @throws InterruptedException thrown if the test is interrupted
+     * @throws ExecutionException thrown if a hashing thread fails
+     */
+    @Test
+    public void testConcurrentIncrementalHashes() throws InterruptedException, ExecutionException
+    {
+        final int mismatches = countConcurrentMismatches(() -> {
+            int threadMismatches = 0;
+
+            for (int i = 0; i < HASHES_PER_THREAD; i++)
+            {
+                for (final char c : INPUT_VALUE.toCharArray())
+                    testedObject.update((byte) c);
+
+                if (!HASHED_INPUT_VALUE.equals(testedObject.finish()))
+                    threadMismatches++;
+            }
+
+            return threadMismatches;
+        });
+
+        assertEquals(CONCURRENT_ASSERT_MESSAGE, 0, mismatches);
+    }
+
+
+    /**
+     * Runs a hashing task on multiple threads at the same time
+     * and sums up the number of wrong hashes.
+     *
+     * @param hashingTask a task that returns the number of wrong hashes it generated
+     *
+     * @return the total number of wrong hashes of all threads
+     *
+     * @throws InterruptedException thrown if the test is interrupted
+     * @throws ExecutionException thrown if a hashing thread fails
+     */
+    private static int countConcurrentMismatches(final Callable<Integer> hashingTask) throws InterruptedException, ExecutionException
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+
+        try {
+            final List<Callable<Integer>> tasks = new ArrayList<>(THREAD_COUNT);
+
+            for (int i = 0; i < THREAD_COUNT; i++)
+                tasks.add(hashingTask);
+
+            int mismatches = 0;
+
+            for (final Future<Integer> result : executor.invokeAll(tasks))
+                mismatches += result.get();
+
+            return mismatches;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Creates a long string of multi-byte characters and surrogate pairs,
+     * which exceeds the buffer sizes of the {@linkplain HashGenerator}.
+     *
+     * @return a long string
+     */
+    private static String getLongInput()
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < LONG_INPUT_REPETITIONS; i++)
+            sb.append("ab\u00e4\u20ac\ud83d\ude00");
+
+        return sb.toString();
+    }
 }
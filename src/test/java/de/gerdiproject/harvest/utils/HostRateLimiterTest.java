@@ -0,0 +1,225 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+import de.gerdiproject.harvest.config.events.ParameterChangedEvent;
+import de.gerdiproject.harvest.config.parameters.AbstractParameter;
+import de.gerdiproject.harvest.utils.data.HostRateLimiter;
+import de.gerdiproject.harvest.utils.data.IHttpTransport;
+import de.gerdiproject.harvest.utils.data.WebRequest;
+import de.gerdiproject.harvest.utils.data.WebResponse;
+import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
+import de.gerdiproject.harvest.utils.data.enums.RestRequestType;
+
+/**
+ * This class contains unit tests for the {@linkplain HostRateLimiter}.
+ * Requests are sent via a transport that responds immediately.
+ *
+ * @author Robin Weiss
+ */
+public class HostRateLimiterTest extends AbstractObjectUnitTest<HostRateLimiter>
+{
+    private static final String URL = "https://www.gerdi-project.eu/%d";
+    private static final String OTHER_HOST_URL = "https://www.gerdi.eu/%d";
+    private static final int MAX_IN_FLIGHT = 3;
+    private static final int REQUESTS_PER_MINUTE = 600;
+    private static final int BURST = 2;
+    private static final long TIMEOUT = 5000;
+
+    private AtomicInteger sentRequests;
+    private IHttpTransport transport;
+
+
+    @Override
+    protected HostRateLimiter setUpTestObjects()
+    {
+        this.sentRequests = new AtomicInteger(0);
+        this.transport = (final WebRequest request) -> {
+            sentRequests.incrementAndGet();
+            return CompletableFuture.completedFuture(new WebResponse(request.getUrl(), 200, null, null, false, null));
+        };
+
+        return new HostRateLimiter();
+    }
+
+
+    /**
+     * Tests if no more requests are in flight than allowed, and if waiting
+     * requests are sent as soon as a response is closed.
+     *
+     * @throws ExecutionException thrown if a request fails
+     * @throws InterruptedException thrown if the test is interrupted
+     * @throws TimeoutException thrown if a request is never sent
+     * @throws IOException thrown if a response cannot be closed
+     */
+    @Test
+    public void testMaxInFlightRequests() throws InterruptedException, ExecutionException, TimeoutException, IOException
+    {
+        testedObject.setLimits(0, 1, MAX_IN_FLIGHT);
+        final List<CompletableFuture<WebResponse>> futureResponses = sendRequests(URL, MAX_IN_FLIGHT + 1);
+
+        assertEquals("Expected only the maximum number of requests to be sent!",
+                     MAX_IN_FLIGHT,
+                     sentRequests.get());
+        assertFalse("Expected the last request to wait for a free slot!",
+                    futureResponses.get(MAX_IN_FLIGHT).isDone());
+
+        futureResponses.get(0).get(TIMEOUT, TimeUnit.MILLISECONDS).close();
+
+        assertTrue("Expected the waiting request to be sent after a response was closed!",
+                   futureResponses.get(MAX_IN_FLIGHT).isDone());
+
+        for (final CompletableFuture<WebResponse> futureResponse : futureResponses)
+            futureResponse.get(TIMEOUT, TimeUnit.MILLISECONDS).close();
+
+        assertEquals("Expected all slots to be free after the responses were closed!",
+                     0,
+                     testedObject.getInFlightRequests(String.format(URL, 0)));
+    }
+
+
+    /**
+     * Tests if the maximum number of requests in flight applies to each host
+     * separately.
+     */
+    @Test
+    public void testHostsAreLimitedSeparately()
+    {
+        testedObject.setLimits(0, 1, MAX_IN_FLIGHT);
+        sendRequests(URL, MAX_IN_FLIGHT);
+        final List<CompletableFuture<WebResponse>> futureResponses = sendRequests(OTHER_HOST_URL, MAX_IN_FLIGHT);
+
+        assertTrue("Expected requests to another host to be sent immediately!",
+                   futureResponses.get(MAX_IN_FLIGHT - 1).isDone());
+    }
+
+
+    /**
+     * Tests if the number of requests per minute is limited after a burst
+     * of requests.
+     *
+     * @throws ExecutionException thrown if a request fails
+     * @throws InterruptedException thrown if the test is interrupted
+     * @throws TimeoutException thrown if a request is never sent
+     */
+    @Test
+    public void testRequestRate() throws InterruptedException, ExecutionException, TimeoutException
+    {
+        testedObject.setLimits(REQUESTS_PER_MINUTE, BURST, 0);
+
+        final long startTime = System.currentTimeMillis();
+        final List<CompletableFuture<WebResponse>> futureResponses = sendRequests(URL, BURST + 2);
+
+        assertTrue("Expected the burst of requests to be sent immediately!",
+                   futureResponses.get(BURST - 1).isDone());
+
+        futureResponses.get(BURST + 1).get(TIMEOUT, TimeUnit.MILLISECONDS);
+        final long elapsedTime = System.currentTimeMillis() - startTime;
+        final long expectedTime = 2 * TimeUnit.MINUTES.toMillis(1) / REQUESTS_PER_MINUTE;
+
+        assertTrue("Expected requests after the burst to be delayed by the request rate!",
+                   elapsedTime >= expectedTime - 10);
+    }
+
+
+    /**
+     * Tests if requests that wait for a token do not occupy a slot.
+     */
+    @Test
+    public void testDelayedRequestsDoNotOccupySlots()
+    {
+        testedObject.setLimits(REQUESTS_PER_MINUTE, 1, MAX_IN_FLIGHT);
+        sendRequests(URL, MAX_IN_FLIGHT);
+
+        assertEquals("Expected only the request that was sent to occupy a slot!",
+                     1,
+                     testedObject.getInFlightRequests(String.format(URL, 0)));
+    }
+
+
+    /**
+     * Tests if requests are sent immediately if no limits are set.
+     */
+    @Test
+    public void testNoLimits()
+    {
+        testedObject.setLimits(0, 1, 0);
+        final int requestCount = DataOperationConstants.MAX_REQUESTS_PER_HOST_PARAM.getValue() * 2;
+        final List<CompletableFuture<WebResponse>> futureResponses = sendRequests(URL, requestCount);
+
+        assertTrue("Expected all requests to be sent immediately!",
+                   futureResponses.get(requestCount - 1).isDone());
+    }
+
+
+    /**
+     * Tests if changing the maximum number of requests per host via its
+     * parameter changes the limit, and frees slots for waiting requests.
+     */
+    @Test
+    public void testChangingMaxRequestsPerHost()
+    {
+        testedObject.setLimits(0, 1, MAX_IN_FLIGHT);
+        final List<CompletableFuture<WebResponse>> futureResponses = sendRequests(URL, MAX_IN_FLIGHT + 1);
+
+        final AbstractParameter<?> maxRequestsParam = DataOperationConstants.MAX_REQUESTS_PER_HOST_PARAM.copy();
+        maxRequestsParam.setValue(String.valueOf(MAX_IN_FLIGHT + 1));
+        testedObject.onParameterChanged(new ParameterChangedEvent(maxRequestsParam, MAX_IN_FLIGHT));
+
+        assertTrue("Expected the waiting request to be sent after the limit was raised!",
+                   futureResponses.get(MAX_IN_FLIGHT).isDone());
+    }
+
+
+    /**
+     * Sends a number of GET requests to a host.
+     *
+     * @param urlFormat the format of the URLs to which the requests are sent
+     * @param count the number of requests
+     *
+     * @return a list of future responses
+     */
+    private List<CompletableFuture<WebResponse>> sendRequests(final String urlFormat, final int count)
+    {
+        final List<CompletableFuture<WebResponse>> futureResponses = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            final WebRequest request = new WebRequest(
+                RestRequestType.GET, String.format(urlFormat, i), null, Collections.emptyMap(), DataOperationConstants.NO_TIMEOUT);
+            futureResponses.add(testedObject.sendAsync(transport, request));
+        }
+
+        return futureResponses;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+import de.gerdiproject.harvest.utils.data.MemoryResponseCache;
+
+/**
+ * This class contains unit tests for the {@linkplain MemoryResponseCache}.
+ *
+ * @author Robin Weiss
+ */
+public class MemoryResponseCacheTest extends AbstractObjectUnitTest<MemoryResponseCache>
+{
+    private static final String URL = "https://www.gerdi-project.eu/%d";
+    private static final byte[] RESPONSE = "{\"status\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_ENTRIES = 3;
+    private static final long MAX_BYTES = 1024;
+    private static final long TIME_TO_LIVE = 60000;
+
+
+    @Override
+    protected MemoryResponseCache setUpTestObjects()
+    {
+        final MemoryResponseCache cache = new MemoryResponseCache();
+        cache.setLimits(MAX_ENTRIES, MAX_BYTES, TIME_TO_LIVE);
+        return cache;
+    }
+
+
+    /**
+     * Tests if a cached response can be retrieved.
+     */
+    @Test
+    public void testGettingResponse()
+    {
+        testedObject.put(getUrl(0), RESPONSE);
+
+        assertArrayEquals("Expected the cached response to be returned!",
+                          RESPONSE,
+                          testedObject.get(getUrl(0)));
+    }
+
+
+    /**
+     * Tests if null is returned for responses that were never cached.
+     */
+    @Test
+    public void testGettingMissingResponse()
+    {
+        assertNull("Expected uncached responses to be null!",
+                   testedObject.get(getUrl(0)));
+    }
+
+
+    /**
+     * Tests if the least recently used response is evicted when
+     * the maximum number of responses is exceeded.
+     */
+    @Test
+    public void testEvictingByEntries()
+    {
+        for (int i = 0; i < MAX_ENTRIES; i++)
+            testedObject.put(getUrl(i), RESPONSE);
+
+        // access the first response, so that the second one is the least recently used
+        testedObject.get(getUrl(0));
+        testedObject.put(getUrl(MAX_ENTRIES), RESPONSE);
+
+        assertEquals("Expected the number of cached responses to be bounded!",
+                     MAX_ENTRIES,
+                     testedObject.size());
+        assertNotNull("Expected the recently used response to remain cached!",
+                      testedObject.get(getUrl(0)));
+        assertNull("Expected the least recently used response to be evicted!",
+                   testedObject.get(getUrl(1)));
+    }
+
+
+    /**
+     * Tests if the least recently used responses are evicted when
+     * the maximum number of bytes is exceeded.
+     */
+    @Test
+    public void testEvictingByBytes()
+    {
+        final byte[] largeResponse = new byte[(int)(MAX_BYTES / 2)];
+
+        testedObject.put(getUrl(0), largeResponse);
+        testedObject.put(getUrl(1), largeResponse);
+        testedObject.put(getUrl(2), largeResponse);
+
+        assertEquals("Expected the number of cached bytes to be bounded!",
+                     2,
+                     testedObject.size());
+        assertNull("Expected the least recently used response to be evicted!",
+                   testedObject.get(getUrl(0)));
+    }
+
+
+    /**
+     * Tests if responses that exceed the maximum number of bytes
+     * on their own are not cached.
+     */
+    @Test
+    public void testSkippingOversizedResponse()
+    {
+        testedObject.put(getUrl(0), new byte[(int) MAX_BYTES + 1]);
+
+        assertEquals("Expected oversized responses not to be cached!",
+                     0,
+                     testedObject.size());
+    }
+
+
+    /**
+     * Tests if expired responses are not returned.
+     */
+    @Test
+    public void testExpiringResponse()
+    {
+        testedObject.setLimits(MAX_ENTRIES, MAX_BYTES, -1);
+        testedObject.put(getUrl(0), RESPONSE);
+
+        assertNull("Expected expired responses not to be returned!",
+                   testedObject.get(getUrl(0)));
+        assertEquals("Expected expired responses to be removed!",
+                     0,
+                     testedObject.size());
+    }
+
+
+    /**
+     * Tests if a new cache does not store any responses until its
+     * limits are set.
+     */
+    @Test
+    public void testDisabledByDefault()
+    {
+        final MemoryResponseCache disabledCache = new MemoryResponseCache();
+        disabledCache.put(getUrl(0), RESPONSE);
+
+        assertFalse("Expected new caches to be disabled!",
+                    disabledCache.isEnabled());
+        assertNull("Expected disabled caches not to store responses!",
+                   disabledCache.get(getUrl(0)));
+    }
+
+
+    /**
+     * Returns a unique URL for a specified index.
+     *
+     * @param index the index of the URL
+     *
+     * @return a unique URL
+     */
+    private static String getUrl(final int index)
+    {
+        return String.format(URL, index);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+import de.gerdiproject.harvest.utils.data.SegmentResponseCache;
+import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
+
+/**
+ * This class contains unit tests for the {@linkplain SegmentResponseCache}.
+ *
+ * @author Robin Weiss
+ */
+public class SegmentResponseCacheTest extends AbstractObjectUnitTest<SegmentResponseCache>
+{
+    private static final String URL = "https://www.gerdi-project.eu/";
+    private static final String OTHER_URL = "https://www.gerdi-project.eu/other";
+    private static final String VARIANT = DataOperationConstants.RESPONSE_FILE_ENDING;
+    private static final String RESPONSE = "{\"status\":\"ok\"}";
+    private static final String OTHER_RESPONSE = "{\"status\":\"changed\"}";
+
+
+    @Override
+    protected SegmentResponseCache setUpTestObjects()
+    {
+        return SegmentResponseCache.getInstance(getTemporaryTestDirectory());
+    }
+
+
+    @Override
+    public void after()
+    {
+        // the instance is shared by all tests, because they use the same folder
+        testedObject.setMaxSize(Long.MAX_VALUE);
+        testedObject.close();
+        super.after();
+    }
+
+
+    /**
+     * Tests if a cached response can be retrieved.
+     */
+    @Test
+    public void testGettingResponse()
+    {
+        testedObject.put(URL, VARIANT, RESPONSE);
+
+        assertEquals("Expected the cached response to be returned!",
+                     RESPONSE,
+                     testedObject.get(URL, VARIANT));
+    }
+
+
+    /**
+     * Tests if responses of the same URL, but of different variants, are distinguished.
+     */
+    @Test
+    public void testVariants()
+    {
+        testedObject.put(URL, VARIANT, RESPONSE);
+
+        assertNull("Expected no response to be cached for a different variant!",
+                   testedObject.get(URL, VARIANT + DataOperationConstants.HEADER_FILE_ENDING));
+    }
+
+
+    /**
+     * Tests if caching a response for the same URL replaces the previous response.
+     */
+    @Test
+    public void testReplacingResponse()
+    {
+        testedObject.put(URL, VARIANT, RESPONSE);
+        testedObject.put(URL, VARIANT, OTHER_RESPONSE);
+
+        assertEquals("Expected the latest response to be returned!",
+                     OTHER_RESPONSE,
+                     testedObject.get(URL, VARIANT));
+        assertEquals("Expected the replaced response to be removed from the index!",
+                     1,
+                     testedObject.size());
+    }
+
+
+    /**
+     * Tests if the index is rebuilt from the segment file after the cache was closed.
+     */
+    @Test
+    public void testReopening()
+    {
+        testedObject.put(URL, VARIANT, RESPONSE);
+        testedObject.put(OTHER_URL, VARIANT, OTHER_RESPONSE);
+        testedObject.put(URL, VARIANT, OTHER_RESPONSE);
+        testedObject.close();
+
+        assertEquals("Expected the latest response to be restored!",
+                     OTHER_RESPONSE,
+                     testedObject.get(URL, VARIANT));
+        assertEquals("Expected all responses to be restored!",
+                     2,
+                     testedObject.size());
+    }
+
+
+    /**
+     * Tests if the least recently used response is evicted when
+     * the maximum size is exceeded, and remains evicted after re-opening.
+     */
+    @Test
+    public void testEviction()
+    {
+        testedObject.put(URL, VARIANT, RESPONSE);
+        testedObject.put(OTHER_URL, VARIANT, RESPONSE);
+
+        // access the first response, so that the second one is the least recently used
+        testedObject.get(URL, VARIANT);
+
+        // allow only a single response to be cached
+        testedObject.setMaxSize(2 * DataOperationConstants.SEGMENT_RECORD_HEADER_SIZE + URL.length() + VARIANT.length() + RESPONSE.length());
+        testedObject.put(URL, VARIANT, RESPONSE);
+
+        assertNotNull("Expected the recently used response to be kept!",
+                      testedObject.get(URL, VARIANT));
+        assertNull("Expected the least recently used response to be evicted!",
+                   testedObject.get(OTHER_URL, VARIANT));
+
+        testedObject.close();
+
+        assertNull("Expected the evicted response not to be restored!",
+                   testedObject.get(OTHER_URL, VARIANT));
+    }
+
+
+    /**
+     * Tests if the segment file is compacted when most of it
+     * consists of replaced responses.
+     */
+    @Test
+    public void testCompaction()
+    {
+        final char[] largeResponseChars = new char[1024 * 1024];
+        Arrays.fill(largeResponseChars, 'x');
+        final String largeResponse = new String(largeResponseChars);
+
+        final int replacements = (int)(DataOperationConstants.SEGMENT_MIN_COMPACTION_SIZE / largeResponseChars.length) + 1;
+
+        for (int i = 0; i < replacements; i++)
+            testedObject.put(URL, VARIANT, largeResponse);
+
+        final File segmentFile = new File(getTemporaryTestDirectory(), DataOperationConstants.SEGMENT_FILE_NAME);
+
+        assertTrue("Expected the segment file to be compacted!",
+                   segmentFile.length() < DataOperationConstants.SEGMENT_MIN_COMPACTION_SIZE);
+        assertEquals("Expected the response to be intact after the compaction!",
+                     largeResponse,
+                     testedObject.get(URL, VARIANT));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+import de.gerdiproject.harvest.utils.data.UrlConnectionTransport;
+import de.gerdiproject.harvest.utils.data.WebRequest;
+import de.gerdiproject.harvest.utils.data.WebResponse;
+import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
+import de.gerdiproject.harvest.utils.data.enums.RestRequestType;
+
+/**
+ * This class contains unit tests for the {@linkplain UrlConnectionTransport}.
+ * Requests are sent to a local stub HTTP server.
+ *
+ * @author Robin Weiss
+ */
+public class UrlConnectionTransportTest extends AbstractObjectUnitTest<UrlConnectionTransport>
+{
+    private static final String STUB_URL = "http://localhost:%d/";
+    private static final String RESPONSE = "{\"status\":\"ok\"}";
+    private static final int MAX_THREADS = 1;
+    private static final int REQUEST_COUNT = 10;
+    private static final long TIMEOUT = 5000;
+
+    private HttpServer server;
+
+
+    @Override
+    protected UrlConnectionTransport setUpTestObjects()
+    {
+        this.server = createStubServer();
+        return new UrlConnectionTransport(MAX_THREADS);
+    }
+
+
+    @Override
+    public void after()
+    {
+        server.stop(0);
+        super.after();
+    }
+
+
+    /**
+     * Tests if more requests than there are threads can be sent, as long
+     * as their responses are closed.
+     *
+     * @throws ExecutionException thrown if a request fails
+     * @throws InterruptedException thrown if the test is interrupted
+     * @throws TimeoutException thrown if a request is never sent
+     * @throws IOException thrown if a response cannot be read
+     */
+    @Test
+    public void testMoreRequestsThanThreads() throws InterruptedException, ExecutionException, TimeoutException, IOException
+    {
+        int successfulResponses = 0;
+
+        for (final CompletableFuture<WebResponse> futureResponse : sendRequests(REQUEST_COUNT)) {
+            try
+                (WebResponse response = futureResponse.get(TIMEOUT, TimeUnit.MILLISECONDS)) {
+                if (RESPONSE.equals(new String(response.readBytes(), StandardCharsets.UTF_8)))
+                    successfulResponses++;
+            }
+        }
+
+        assertEquals("Expected all requests to succeed!",
+                     REQUEST_COUNT,
+                     successfulResponses);
+    }
+
+
+    /**
+     * Sends a number of GET requests to the stub server.
+     *
+     * @param count the number of requests
+     *
+     * @return a list of future responses
+     */
+    private List<CompletableFuture<WebResponse>> sendRequests(final int count)
+    {
+        final String url = String.format(STUB_URL, server.getAddress().getPort());
+        final List<CompletableFuture<WebResponse>> futureResponses = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++)
+            futureResponses.add(testedObject.sendAsync(
+                                    new WebRequest(RestRequestType.GET, url, null, Collections.emptyMap(), DataOperationConstants.NO_TIMEOUT)));
+
+        return futureResponses;
+    }
+
+
+    /**
+     * Creates a local HTTP server that responds to every request.
+     *
+     * @return a started HTTP server
+     */
+    private HttpServer createStubServer()
+    {
+        final HttpServer stubServer;
+
+        try {
+            stubServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        stubServer.createContext("/", exchange -> {
+            final byte[] response = RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+
+            try
+                (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(response);
+            }
+        });
+        stubServer.setExecutor(Executors.newCachedThreadPool());
+        stubServer.start();
+
+        return stubServer;
+    }
+}
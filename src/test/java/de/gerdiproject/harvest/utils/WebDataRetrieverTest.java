@@ -0,0 +1,452 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpServer;
+
+import de.gerdiproject.harvest.AbstractObjectUnitTest;
+import de.gerdiproject.harvest.config.Configuration;
+import de.gerdiproject.harvest.config.parameters.AbstractParameter;
+import de.gerdiproject.harvest.rest.constants.RestConstants;
+import de.gerdiproject.harvest.utils.data.HostRateLimiter;
+import de.gerdiproject.harvest.utils.data.HttpStatistics;
+import de.gerdiproject.harvest.utils.data.WebDataRetriever;
+import de.gerdiproject.harvest.utils.data.WebResponse;
+import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
+import de.gerdiproject.harvest.utils.data.enums.RestRequestType;
+
+/**
+ * This class contains unit tests for the {@linkplain WebDataRetriever}.
+ * The web server is simulated by a local stub HTTP server.
+ *
+ * @author Robin Weiss
+ */
+public class WebDataRetrieverTest extends AbstractObjectUnitTest<WebDataRetriever>
+{
+    private static final String STUB_URL = "http://localhost:%d%s";
+    private static final String OK_PATH = "/ok";
+    private static final String FLAKY_PATH = "/flaky";
+    private static final String REDIRECT_PATH = "/redirect";
+    private static final String MISSING_PATH = "/missing";
+    private static final String UNAVAILABLE_PATH = "/unavailable";
+    private static final String SLOW_PATH = "/slow";
+    private static final String RESPONSE = "{\"status\":\"ok\"}";
+    private static final int ASYNC_REQUEST_COUNT = 100;
+    private static final int RETRY_DELAY = 50;
+    private static final int DEADLINE = 500;
+    private static final int ATTEMPT_TIMEOUT = 100;
+    private static final long SLOW_RESPONSE_DELAY = 5000;
+
+    private HttpServer server;
+    private AtomicInteger remainingFailures;
+
+
+    @Override
+    protected WebDataRetriever setUpTestObjects()
+    {
+        this.remainingFailures = new AtomicInteger(0);
+        this.server = createStubServer();
+
+        config = new Configuration(MODULE_NAME);
+        config.addEventListeners();
+        HttpStatistics.reset();
+
+        return new WebDataRetriever(new Gson(), StandardCharsets.UTF_8);
+    }
+
+
+    @Override
+    public void after()
+    {
+        server.stop(0);
+        super.after();
+    }
+
+
+    /**
+     * Tests if requests that fail with a response code 5xx are retried.
+     */
+    @Test
+    public void testRetryingServerErrors()
+    {
+        remainingFailures.set(2);
+
+        assertEquals("Expected the request to succeed after being retried!",
+                     RESPONSE,
+                     testedObject.getString(getUrl(FLAKY_PATH)));
+    }
+
+
+    /**
+     * Tests if redirects are followed.
+     */
+    @Test
+    public void testFollowingRedirects()
+    {
+        assertEquals("Expected the redirected response to be returned!",
+                     RESPONSE,
+                     testedObject.getString(getUrl(REDIRECT_PATH)));
+    }
+
+
+    /**
+     * Tests if client errors cause null to be returned.
+     */
+    @Test
+    public void testClientError()
+    {
+        assertNull("Expected no response to be returned for 404 Not Found!",
+                   testedObject.getString(getUrl(MISSING_PATH)));
+    }
+
+
+    /**
+     * Tests if retried requests are counted.
+     */
+    @Test
+    public void testCountingRetries()
+    {
+        remainingFailures.set(2);
+        testedObject.getString(getUrl(FLAKY_PATH));
+
+        assertEquals("Expected both retries to be counted!",
+                     2,
+                     HttpStatistics.getAsJson().getRetries());
+    }
+
+
+    /**
+     * Tests if redirects are counted.
+     */
+    @Test
+    public void testCountingRedirects()
+    {
+        testedObject.getString(getUrl(REDIRECT_PATH));
+
+        assertEquals("Expected the redirect to be counted!",
+                     1,
+                     HttpStatistics.getAsJson().getRedirects());
+    }
+
+
+    /**
+     * Tests if requests are no longer retried after their deadline
+     * has passed, even if they may be retried indefinitely.
+     */
+    @Test
+    public void testExceedingDeadline()
+    {
+        setParameter(DataOperationConstants.RETRY_DELAY_PARAM, RETRY_DELAY);
+        setParameter(DataOperationConstants.REQUEST_DEADLINE_PARAM, DEADLINE);
+
+        final long startTime = System.currentTimeMillis();
+
+        assertNull("Expected no response to be returned if the server is unavailable!",
+                   testedObject.getString(getUrl(UNAVAILABLE_PATH)));
+        assertTrue("Expected the request to fail after its deadline!",
+                   System.currentTimeMillis() - startTime < 2 * DEADLINE);
+        assertEquals("Expected the exceeded deadline to be counted!",
+                     1,
+                     HttpStatistics.getAsJson().getExceededDeadlines());
+        assertTrue("Expected the request to be retried before the deadline!",
+                   HttpStatistics.getAsJson().getRetries() > 0);
+    }
+
+
+    /**
+     * Tests if single attempts of a request time out, even if the server
+     * does not respond at all.
+     */
+    @Test
+    public void testAttemptTimeout()
+    {
+        setParameter(DataOperationConstants.RETRY_DELAY_PARAM, RETRY_DELAY);
+        setParameter(DataOperationConstants.REQUEST_DEADLINE_PARAM, DEADLINE);
+
+        testedObject.setTimeout(ATTEMPT_TIMEOUT);
+        final long startTime = System.currentTimeMillis();
+
+        assertNull("Expected no response to be returned if the server does not respond!",
+                   testedObject.getString(getUrl(SLOW_PATH)));
+        assertTrue("Expected the request to fail before the server responds!",
+                   System.currentTimeMillis() - startTime < SLOW_RESPONSE_DELAY);
+        assertTrue("Expected timed out attempts to be retried!",
+                   HttpStatistics.getAsJson().getRetries() > 0);
+    }
+
+
+    /**
+     * Tests if the timeout of a request includes the time it waits for a free
+     * slot of its host, so that a request which is queued behind a response
+     * that is never closed does not block the caller indefinitely.
+     *
+     * @throws IOException thrown if the first request fails
+     */
+    @Test
+    public void testTimeoutWhileWaitingForSlot() throws IOException
+    {
+        setParameter(DataOperationConstants.MAX_REQUESTS_PER_HOST_PARAM, 1);
+        testedObject.setTimeout(ATTEMPT_TIMEOUT);
+
+        final long startTime = System.currentTimeMillis();
+
+        try
+            (WebResponse blockingResponse = testedObject.sendRequest(RestRequestType.GET, getUrl(OK_PATH), null, null, MediaType.TEXT_PLAIN, 0)) {
+            testedObject.sendRequest(RestRequestType.GET, getUrl(OK_PATH), null, null, MediaType.TEXT_PLAIN, 0);
+            fail("Expected the queued request to time out!");
+        } catch (final SocketTimeoutException e) {
+            assertTrue("Expected the queued request to time out after its timeout!",
+                       System.currentTimeMillis() - startTime < SLOW_RESPONSE_DELAY);
+        }
+
+        assertEquals("Expected the slot to be free after the response was closed!",
+                     0,
+                     HostRateLimiter.getInstance().getInFlightRequests(getUrl(OK_PATH)));
+    }
+
+
+    /**
+     * Tests if many requests can be sent asynchronously at the same time.
+     *
+     * @throws ExecutionException thrown if a request fails
+     * @throws InterruptedException thrown if the test is interrupted
+     * @throws IOException thrown if a response cannot be read
+     */
+    @Test
+    public void testSendingAsynchronously() throws InterruptedException, ExecutionException, IOException
+    {
+        final List<CompletableFuture<WebResponse>> futureResponses = new ArrayList<>(ASYNC_REQUEST_COUNT);
+
+        for (int i = 0; i < ASYNC_REQUEST_COUNT; i++)
+            futureResponses.add(testedObject.sendAsync(
+                                    RestRequestType.GET, getUrl(OK_PATH), null, null, MediaType.TEXT_PLAIN, 0, Collections.emptyMap()));
+
+        int successfulResponses = 0;
+
+        for (final CompletableFuture<WebResponse> futureResponse : futureResponses) {
+            try
+                (WebResponse response = futureResponse.get()) {
+                if (RESPONSE.equals(new String(response.readBytes(), StandardCharsets.UTF_8)))
+                    successfulResponses++;
+            }
+        }
+
+        assertEquals("Expected all asynchronous requests to succeed!",
+                     ASYNC_REQUEST_COUNT,
+                     successfulResponses);
+    }
+
+
+    /**
+     * Tests if the deprecated connection of a request is returned after
+     * server errors were retried.
+     *
+     * @throws IOException thrown if the response cannot be read
+     */
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testDeprecatedConnectionRetries() throws IOException
+    {
+        remainingFailures.set(2);
+        final HttpURLConnection connection =
+            testedObject.sendWebRequest(RestRequestType.GET, getUrl(FLAKY_PATH), null, null, MediaType.TEXT_PLAIN, 2);
+
+        assertEquals("Expected the connection to be returned after being retried!",
+                     RESPONSE,
+                     readConnection(connection));
+    }
+
+
+    /**
+     * Tests if the deprecated connection of a request is returned after
+     * redirects were followed.
+     *
+     * @throws IOException thrown if the response cannot be read
+     */
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testDeprecatedConnectionRedirects() throws IOException
+    {
+        final HttpURLConnection connection =
+            testedObject.sendWebRequest(RestRequestType.GET, getUrl(REDIRECT_PATH), null, null, MediaType.TEXT_PLAIN, 0);
+
+        assertEquals("Expected the connection of the redirected request to be returned!",
+                     RESPONSE,
+                     readConnection(connection));
+    }
+
+
+    /**
+     * Tests if the deprecated connection of a request counts towards the
+     * requests that are in flight, until it is disconnected.
+     *
+     * @throws IOException thrown if the request fails
+     */
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testDeprecatedConnectionIsThrottled() throws IOException
+    {
+        final String url = getUrl(OK_PATH);
+        final HttpURLConnection connection =
+            testedObject.sendWebRequest(RestRequestType.GET, url, null, null, MediaType.TEXT_PLAIN, 0);
+
+        assertEquals("Expected the connection to be in flight until it is disconnected!",
+                     1,
+                     HostRateLimiter.getInstance().getInFlightRequests(url));
+
+        connection.disconnect();
+
+        assertEquals("Expected the disconnected connection to free its slot!",
+                     0,
+                     HostRateLimiter.getInstance().getInFlightRequests(url));
+    }
+
+
+    /**
+     * Reads the single-line response of a connection.
+     *
+     * @param connection the connection of which the response is read
+     *
+     * @throws IOException thrown if the response cannot be read
+     *
+     * @return the response of the connection
+     */
+    @SuppressWarnings("deprecation")
+    private String readConnection(final HttpURLConnection connection) throws IOException
+    {
+        try
+            (BufferedReader reader = new BufferedReader(new InputStreamReader(testedObject.getInputStream(connection), StandardCharsets.UTF_8))) {
+            return reader.readLine();
+        }
+    }
+
+
+    /**
+     * Changes the value of a registered parameter.
+     *
+     * @param parameter the parameter that is to be changed
+     * @param value the new value of the parameter
+     */
+    private void setParameter(final AbstractParameter<?> parameter, final int value)
+    {
+        config.setParameter(parameter.getCompositeKey(), String.valueOf(value));
+    }
+
+
+    /**
+     * Returns the URL of a path on the stub server.
+     *
+     * @param path the path of the URL
+     *
+     * @return the URL of a path on the stub server
+     */
+    private String getUrl(final String path)
+    {
+        return String.format(STUB_URL, server.getAddress().getPort(), path);
+    }
+
+
+    /**
+     * Creates a local HTTP server that can simulate server errors, redirects,
+     * missing pages and unresponsive servers.
+     *
+     * @return a started HTTP server
+     */
+    private HttpServer createStubServer()
+    {
+        final HttpServer stubServer;
+
+        try {
+            stubServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        stubServer.createContext("/", exchange -> {
+            final String path = exchange.getRequestURI().getPath();
+
+            if (FLAKY_PATH.equals(path) && remainingFailures.getAndDecrement() > 0) {
+                exchange.getResponseHeaders().set(RestConstants.RETRY_AFTER_HEADER, "0");
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+
+            } else if (REDIRECT_PATH.equals(path)) {
+                exchange.getResponseHeaders().set(HttpHeaders.LOCATION, OK_PATH);
+                exchange.sendResponseHeaders(302, -1);
+                exchange.close();
+
+            } else if (MISSING_PATH.equals(path)) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+
+            } else if (UNAVAILABLE_PATH.equals(path)) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+
+            } else if (SLOW_PATH.equals(path)) {
+                try {
+                    Thread.sleep(SLOW_RESPONSE_DELAY);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                exchange.close();
+
+            } else {
+                final byte[] response = RESPONSE.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, response.length);
+
+                try
+                    (OutputStream responseBody = exchange.getResponseBody()) {
+                    responseBody.write(response);
+                }
+            }
+        });
+        // handle requests concurrently, so that slow responses do not block other requests
+        stubServer.setExecutor(Executors.newCachedThreadPool());
+        stubServer.start();
+
+        return stubServer;
+    }
+}